@@ -540,8 +540,8 @@ public class IndicesRequestIT extends ESIntegTestCase {
     }
 
     public void testSearchQueryThenFetch() throws Exception {
-        interceptTransportActions(SearchTransportService.QUERY_ACTION_NAME,
-                SearchTransportService.FETCH_ID_ACTION_NAME, SearchTransportService.FREE_CONTEXT_ACTION_NAME);
+        interceptTransportActions(SearchTransportService.QUERY_ACTION_NAME, SearchTransportService.FETCH_ID_ACTION_NAME,
+                SearchTransportService.FETCH_ID_BATCH_ACTION_NAME, SearchTransportService.FREE_CONTEXT_ACTION_NAME);
 
         String[] randomIndicesOrAliases = randomIndicesOrAliases();
         for (int i = 0; i < randomIndicesOrAliases.length; i++) {
@@ -555,14 +555,18 @@ public class IndicesRequestIT extends ESIntegTestCase {
         assertThat(searchResponse.getHits().getTotalHits().value, greaterThan(0L));
 
         clearInterceptedActions();
-        assertSameIndices(searchRequest, SearchTransportService.QUERY_ACTION_NAME, SearchTransportService.FETCH_ID_ACTION_NAME);
+        assertSameIndices(searchRequest, SearchTransportService.QUERY_ACTION_NAME);
+        //the fetches of shards on the same node are batched, so either of the fetch actions is sent
+        assertSameIndicesAnyOf(searchRequest, SearchTransportService.FETCH_ID_ACTION_NAME,
+                SearchTransportService.FETCH_ID_BATCH_ACTION_NAME);
         //free context messages are not necessarily sent, but if they are, check their indices
         assertSameIndicesOptionalRequests(searchRequest, SearchTransportService.FREE_CONTEXT_ACTION_NAME);
     }
 
     public void testSearchDfsQueryThenFetch() throws Exception {
         interceptTransportActions(SearchTransportService.DFS_ACTION_NAME, SearchTransportService.QUERY_ID_ACTION_NAME,
-                SearchTransportService.FETCH_ID_ACTION_NAME, SearchTransportService.FREE_CONTEXT_ACTION_NAME);
+                SearchTransportService.FETCH_ID_ACTION_NAME, SearchTransportService.FETCH_ID_BATCH_ACTION_NAME,
+                SearchTransportService.FREE_CONTEXT_ACTION_NAME);
 
         String[] randomIndicesOrAliases = randomIndicesOrAliases();
         for (int i = 0; i < randomIndicesOrAliases.length; i++) {
@@ -576,8 +580,10 @@ public class IndicesRequestIT extends ESIntegTestCase {
         assertThat(searchResponse.getHits().getTotalHits().value, greaterThan(0L));
 
         clearInterceptedActions();
-        assertSameIndices(searchRequest, SearchTransportService.DFS_ACTION_NAME, SearchTransportService.QUERY_ID_ACTION_NAME,
-                SearchTransportService.FETCH_ID_ACTION_NAME);
+        assertSameIndices(searchRequest, SearchTransportService.DFS_ACTION_NAME, SearchTransportService.QUERY_ID_ACTION_NAME);
+        //the fetches of shards on the same node are batched, so either of the fetch actions is sent
+        assertSameIndicesAnyOf(searchRequest, SearchTransportService.FETCH_ID_ACTION_NAME,
+                SearchTransportService.FETCH_ID_BATCH_ACTION_NAME);
         //free context messages are not necessarily sent, but if they are, check their indices
         assertSameIndicesOptionalRequests(searchRequest, SearchTransportService.FREE_CONTEXT_ACTION_NAME);
     }
@@ -590,6 +596,22 @@ public class IndicesRequestIT extends ESIntegTestCase {
         assertSameIndices(originalRequest, true, actions);
     }
 
+    /**
+     * Asserts that requests of at least one of the given actions were sent, and that all of them target the original indices.
+     */
+    private static void assertSameIndicesAnyOf(IndicesRequest originalRequest, String... actions) {
+        List<TransportRequest> requests = new ArrayList<>();
+        for (String action : actions) {
+            requests.addAll(consumeTransportRequests(action));
+        }
+        assertThat("no internal requests intercepted for actions " + Arrays.toString(actions), requests.size(), greaterThan(0));
+        for (TransportRequest internalRequest : requests) {
+            IndicesRequest indicesRequest = convertRequest(internalRequest);
+            assertThat(internalRequest.getClass().getName(), indicesRequest.indices(), equalTo(originalRequest.indices()));
+            assertThat(indicesRequest.indicesOptions(), equalTo(originalRequest.indicesOptions()));
+        }
+    }
+
     private static void assertSameIndices(IndicesRequest originalRequest, boolean optional, String... actions) {
         for (String action : actions) {
             List<TransportRequest> requests = consumeTransportRequests(action);
@@ -370,6 +370,10 @@ public class TasksIT extends ESIntegTestCase {
                     assertTrue(taskInfo.getDescription(), Regex.simpleMatch("id[*], size[1], lastEmittedDoc[null]",
                         taskInfo.getDescription()));
                     break;
+                case SearchTransportService.FETCH_ID_BATCH_ACTION_NAME:
+                    assertTrue(taskInfo.getDescription(), Regex.simpleMatch("shards[*], id[*], size[1], lastEmittedDoc[null]*",
+                        taskInfo.getDescription()));
+                    break;
                 case SearchTransportService.QUERY_CAN_MATCH_NAME:
                     assertTrue(taskInfo.getDescription(), Regex.simpleMatch("shardId[[test][*]]", taskInfo.getDescription()));
                     break;
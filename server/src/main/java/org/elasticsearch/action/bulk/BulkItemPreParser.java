@@ -0,0 +1,153 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.shard.IndexShard;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Parses the index operations of a shard level bulk request ahead of the item that is currently executed on the primary. While item
+ * {@code N} is being indexed, items {@code N+1 .. N+window} are parsed concurrently on the given executor. Each item is parsed exactly
+ * once: either by a forked task or, if no task has picked it up yet when the item is executed, by the executing thread itself. Parsed
+ * documents are only used if the mapping didn't change in between, so ordering and dynamic mapping update semantics are the same as
+ * when parsing inline.
+ */
+final class BulkItemPreParser {
+
+    private final BulkShardRequest request;
+    private final IndexShard primary;
+    private final Executor executor;
+    private final int window;
+    private final Slot[] slots;
+    private int scheduledUpTo = -1;
+
+    BulkItemPreParser(BulkShardRequest request, IndexShard primary, Executor executor, int window) {
+        assert window > 0 : window;
+        this.request = request;
+        this.primary = primary;
+        this.executor = executor;
+        this.window = window;
+        this.slots = new Slot[request.items().length];
+    }
+
+    /**
+     * Forks parsing of the index operations following the item at the given position, up to the configured window. Stops forking while
+     * the executor has no spare capacity, the remaining items are then parsed inline unless a later call forks them.
+     */
+    void scheduleAhead(int currentIndex) {
+        final int upTo = Math.min(currentIndex + window, slots.length - 1);
+        for (int i = Math.max(currentIndex + 1, scheduledUpTo + 1); i <= upTo; i++) {
+            final SourceToParse source = sourceToParse(request.items()[i]);
+            if (source != null) {
+                if (hasSpareCapacity() == false) {
+                    return;
+                }
+                final Slot slot = new Slot(source);
+                slots[i] = slot;
+                executor.execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() {
+                        slot.parseIfUnclaimed();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        // the item is parsed by the executing thread instead
+                    }
+                });
+            }
+            scheduledUpTo = i;
+        }
+    }
+
+    /**
+     * Parsing ahead only pays off if the task doesn't have to wait behind other work. Checking the queue before forking also keeps the
+     * tasks from being rejected, which would count towards the rejections of the pool.
+     */
+    private boolean hasSpareCapacity() {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the pre-parsed document for the item at the given position or {@code null} if it has to be parsed inline. An item can
+     * only be taken once, retries of the same item always parse inline.
+     */
+    @Nullable
+    IndexShard.PreParsedDocument take(int index) {
+        if (index < 0 || index >= slots.length) {
+            return null;
+        }
+        final Slot slot = slots[index];
+        slots[index] = null;
+        return slot == null ? null : slot.await();
+    }
+
+    @Nullable
+    private static SourceToParse sourceToParse(BulkItemRequest item) {
+        if (item.getPrimaryResponse() != null) {
+            return null;
+        }
+        final DocWriteRequest<?> docWriteRequest = item.request();
+        if (docWriteRequest instanceof IndexRequest == false) {
+            // updates need to fetch the current document first, deletes don't parse anything
+            return null;
+        }
+        final IndexRequest indexRequest = (IndexRequest) docWriteRequest;
+        return new SourceToParse(indexRequest.index(), indexRequest.id(), indexRequest.source(), indexRequest.getContentType(),
+            indexRequest.routing(), indexRequest.getDynamicTemplates());
+    }
+
+    private final class Slot {
+        private final SourceToParse source;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IndexShard.PreParsedDocument result;
+
+        Slot(SourceToParse source) {
+            this.source = source;
+        }
+
+        void parseIfUnclaimed() {
+            if (claimed.compareAndSet(false, true)) {
+                try {
+                    result = primary.preParseDocument(source);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        IndexShard.PreParsedDocument await() {
+            if (claimed.compareAndSet(false, true)) {
+                // nobody picked it up yet, let the caller parse it inline
+                return null;
+            }
+            // parsing is in progress on another thread, waiting for it is cheaper than parsing again
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return result;
+        }
+    }
+}
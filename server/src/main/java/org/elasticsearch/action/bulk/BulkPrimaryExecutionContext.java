@@ -97,6 +97,11 @@ class BulkPrimaryExecutionContext {
         assert assertInvariants(ItemProcessingState.INITIAL);
     }
 
+    /** returns the position of the current item in the shard level bulk request */
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
     /** gets the current, untranslated item request */
     public DocWriteRequest<?> getCurrent() {
         return getCurrentItem().request();
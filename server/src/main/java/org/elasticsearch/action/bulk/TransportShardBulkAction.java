@@ -36,16 +36,20 @@ import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.get.GetResult;
@@ -65,9 +69,13 @@ import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
 import java.util.function.LongSupplier;
 
 /** Performs shard-level bulk (index, delete or update) operations */
@@ -128,7 +136,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                 public void onTimeout(TimeValue timeout) {
                     mappingUpdateListener.onFailure(new MapperException("timed out while waiting for a dynamic mapping update"));
                 }
-            }), listener, threadPool, executor(primary)
+            }), listener, threadPool, executor(primary),
+            executionTimeInNanos -> indexingPressure.recordBulkCost(request.totalSizeInBytes(), executionTimeInNanos)
         );
     }
 
@@ -137,6 +146,18 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         return request.ramBytesUsed();
     }
 
+    @Override
+    protected long primaryOperationWeightedSize(BulkShardRequest request) {
+        return indexingPressure.weightedBytes(primaryOperationSize(request), () -> bulkCostPerByteInNanos(request.shardId()));
+    }
+
+    private double bulkCostPerByteInNanos(ShardId shardId) {
+        final IndexService indexService = indicesService.indexService(shardId.getIndex());
+        final IndexShard indexShard = indexService == null ? null : indexService.getShardOrNull(shardId.id());
+        // the shard is not allocated on this node when the request is rerouted
+        return indexShard == null ? -1 : indexShard.getBulkCostPerByteInNanos();
+    }
+
     @Override
     protected int primaryOperationCount(BulkShardRequest request) {
         return request.items().length;
@@ -152,26 +173,64 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         ActionListener<PrimaryResult<BulkShardRequest, BulkShardResponse>> listener,
         ThreadPool threadPool,
         String executorName) {
+        performOnPrimary(request, primary, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, listener, threadPool,
+            executorName, executionTimeInNanos -> {});
+    }
+
+    /**
+     * Like {@link #performOnPrimary(BulkShardRequest, IndexShard, UpdateHelper, LongSupplier, MappingUpdatePerformer, Consumer,
+     * ActionListener, ThreadPool, String)} but also reports the time it took to execute the request, excluding the time it spent
+     * waiting for dynamic mapping updates, before the listener is completed.
+     */
+    public static void performOnPrimary(
+        BulkShardRequest request,
+        IndexShard primary,
+        UpdateHelper updateHelper,
+        LongSupplier nowInMillisSupplier,
+        MappingUpdatePerformer mappingUpdater,
+        Consumer<ActionListener<Void>> waitForMappingUpdate,
+        ActionListener<PrimaryResult<BulkShardRequest, BulkShardResponse>> listener,
+        ThreadPool threadPool,
+        String executorName,
+        LongConsumer executionTimeConsumer) {
         new ActionRunnable<>(listener) {
 
             private final Executor executor = threadPool.executor(executorName);
 
             private final BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
 
+            private final BulkItemPreParser preParser = createPreParser(request, primary, executor);
+
+            private final boolean appendOnlyBatching = primary.indexSettings().isBulkAppendOnlyBatching();
+
             final long startBulkTime = System.nanoTime();
 
+            // only accessed by one thread at a time since the runnable is resubmitted once a mapping update completes
+            private long executionTimeInNanos = 0;
+
             @Override
             protected void doRun() throws Exception {
+                final long startExecutionTime = System.nanoTime();
                 while (context.hasMoreOperationsToExecute()) {
+                    if (preParser != null) {
+                        preParser.scheduleAhead(context.getCurrentIndex());
+                    }
+                    if (appendOnlyBatching && executeAppendOnlyBatch(context, preParser)) {
+                        assert context.isInitial(); // the batch completed at least one item and moved to the next
+                        continue;
+                    }
                     if (executeBulkItemRequest(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate,
-                        ActionListener.wrap(v -> executor.execute(this), this::onRejection)) == false) {
+                        ActionListener.wrap(v -> executor.execute(this), this::onRejection), preParser) == false) {
                         // We are waiting for a mapping update on another thread, that will invoke this action again once its done
                         // so we just break out here.
+                        executionTimeInNanos += System.nanoTime() - startExecutionTime;
                         return;
                     }
                     assert context.isInitial(); // either completed and moved to next or reset
                 }
                 primary.getBulkOperationListener().afterBulk(request.totalSizeInBytes(), System.nanoTime() - startBulkTime);
+                executionTimeInNanos += System.nanoTime() - startExecutionTime;
+                executionTimeConsumer.accept(executionTimeInNanos);
                 // We're done, there's no more operations to execute so we resolve the wrapped listener
                 finishRequest();
             }
@@ -212,14 +271,97 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         }.run();
     }
 
+    @Nullable
+    private static BulkItemPreParser createPreParser(BulkShardRequest request, IndexShard primary, Executor executor) {
+        final int parseAhead = primary.indexSettings().getBulkParseAhead();
+        if (parseAhead == 0 || request.items().length < 2) {
+            return null;
+        }
+        return new BulkItemPreParser(request, primary, executor, parseAhead);
+    }
+
+    /**
+     * Executes the run of index and create requests with auto-generated ids that starts at the current item as a single batch on the
+     * primary, see {@link IndexShard#applyAppendOnlyIndexOperationsOnPrimary}. Every item of the run that was executed is marked as
+     * completed.
+     * @param preParser if not {@code null}, provides documents that were parsed ahead of time on other threads
+     * @return {@code true} if at least one item was executed, {@code false} if the current item has to be executed on its own
+     */
+    static boolean executeAppendOnlyBatch(BulkPrimaryExecutionContext context, @Nullable BulkItemPreParser preParser)
+        throws IOException {
+        assert context.isInitial();
+        final BulkItemRequest[] items = context.getBulkShardRequest().items();
+        final List<Integer> positions = new ArrayList<>();
+        for (int i = context.getCurrentIndex(); i < items.length; i++) {
+            final BulkItemResponse response = items[i].getPrimaryResponse();
+            if (response != null && response.isFailed() && response.getFailure().isAborted()) {
+                // skipped by the execution context as well
+                continue;
+            }
+            if (isAppendOnly(items[i]) == false) {
+                break;
+            }
+            positions.add(i);
+        }
+        if (positions.size() < 2) {
+            return false;
+        }
+
+        final List<SourceToParse> sources = new ArrayList<>(positions.size());
+        final long[] versions = new long[positions.size()];
+        final long[] autoGeneratedTimestamps = new long[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            final IndexRequest request = (IndexRequest) items[positions.get(i)].request();
+            sources.add(new SourceToParse(request.index(), request.id(), request.source(), request.getContentType(),
+                request.routing(), request.getDynamicTemplates()));
+            versions[i] = request.version();
+            autoGeneratedTimestamps[i] = request.getAutoGeneratedTimestamp();
+        }
+        // pre-parsed documents are only taken for the operations the shard gets to, the items after a mapping update keep theirs
+        final IntFunction<IndexShard.PreParsedDocument> preParsedDocuments =
+            preParser != null ? i -> preParser.take(positions.get(i)) : i -> null;
+        final List<Engine.IndexResult> results = context.getPrimary()
+            .applyAppendOnlyIndexOperationsOnPrimary(sources, versions, autoGeneratedTimestamps, preParsedDocuments);
+        for (int i = 0; i < results.size(); i++) {
+            assert context.getCurrentIndex() == positions.get(i) : context.getCurrentIndex() + " vs " + positions.get(i);
+            context.setRequestToExecute(context.getCurrent());
+            onComplete(results.get(i), context, null);
+        }
+        return results.isEmpty() == false;
+    }
+
+    private static boolean isAppendOnly(BulkItemRequest item) {
+        if (item.getPrimaryResponse() != null || item.request() instanceof IndexRequest == false) {
+            return false;
+        }
+        final IndexRequest request = (IndexRequest) item.request();
+        // requests with auto-generated ids are sent as create operations or, like in a bulk request without op type, as index operations
+        final boolean createOrIndex = request.opType() == DocWriteRequest.OpType.CREATE
+            ? request.version() == Versions.MATCH_DELETED
+            : request.opType() == DocWriteRequest.OpType.INDEX && request.version() == Versions.MATCH_ANY;
+        return createOrIndex
+            && request.getAutoGeneratedTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP
+            && request.isRetry() == false
+            && request.versionType() == VersionType.INTERNAL
+            && request.ifSeqNo() == SequenceNumbers.UNASSIGNED_SEQ_NO;
+    }
+
+    static boolean executeBulkItemRequest(BulkPrimaryExecutionContext context, UpdateHelper updateHelper, LongSupplier nowInMillisSupplier,
+                                       MappingUpdatePerformer mappingUpdater, Consumer<ActionListener<Void>> waitForMappingUpdate,
+                                       ActionListener<Void> itemDoneListener) throws Exception {
+        return executeBulkItemRequest(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, itemDoneListener,
+            null);
+    }
+
     /**
      * Executes bulk item requests and handles request execution exceptions.
+     * @param preParser if not {@code null}, provides documents that were parsed ahead of time on other threads
      * @return {@code true} if request completed on this thread and the listener was invoked, {@code false} if the request triggered
      *                      a mapping update that will finish and invoke the listener on a different thread
      */
     static boolean executeBulkItemRequest(BulkPrimaryExecutionContext context, UpdateHelper updateHelper, LongSupplier nowInMillisSupplier,
                                        MappingUpdatePerformer mappingUpdater, Consumer<ActionListener<Void>> waitForMappingUpdate,
-                                       ActionListener<Void> itemDoneListener) throws Exception {
+                                       ActionListener<Void> itemDoneListener, @Nullable BulkItemPreParser preParser) throws Exception {
         final DocWriteRequest.OpType opType = context.getCurrent().opType();
 
         final UpdateHelper.Result updateResult;
@@ -276,7 +418,10 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             final IndexRequest request = context.getRequestToExecute();
             final SourceToParse sourceToParse = new SourceToParse(request.index(), request.id(), request.source(),
                 request.getContentType(), request.routing(), request.getDynamicTemplates());
-            result = primary.applyIndexOperationOnPrimary(version, request.versionType(), sourceToParse,
+            // only plain index requests are pre-parsed, the index request an update translates to is not known in advance
+            final IndexShard.PreParsedDocument preParsedDocument =
+                preParser != null && opType != DocWriteRequest.OpType.UPDATE ? preParser.take(context.getCurrentIndex()) : null;
+            result = primary.applyIndexOperationOnPrimary(version, request.versionType(), sourceToParse, preParsedDocument,
                     request.ifSeqNo(), request.ifPrimaryTerm(), request.getAutoGeneratedTimestamp(), request.isRetry());
         }
         if (result.getResultType() == Engine.Result.Type.MAPPING_UPDATE_REQUIRED) {
@@ -417,7 +562,9 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         ActionListener.completeWith(listener, () -> {
             final long startBulkTime = System.nanoTime();
             final Translog.Location location = performOnReplica(request, replica);
-            replica.getBulkOperationListener().afterBulk(request.totalSizeInBytes(), System.nanoTime() - startBulkTime);
+            final long tookInNanos = System.nanoTime() - startBulkTime;
+            replica.getBulkOperationListener().afterBulk(request.totalSizeInBytes(), tookInNanos);
+            indexingPressure.recordBulkCost(request.totalSizeInBytes(), tookInNanos);
             return new WriteReplicaResult<>(request, location, null, replica, logger);
         });
     }
@@ -427,6 +574,11 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         return request.ramBytesUsed();
     }
 
+    @Override
+    protected long replicaOperationWeightedSize(BulkShardRequest request) {
+        return indexingPressure.weightedBytes(replicaOperationSize(request), () -> bulkCostPerByteInNanos(request.shardId()));
+    }
+
     @Override
     protected int replicaOperationCount(BulkShardRequest request) {
         return request.items().length;
@@ -22,8 +22,11 @@ import org.elasticsearch.action.search.TransportSearchAction.SearchTimeProvider;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.core.Tuple;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.shard.ShardId;
@@ -37,11 +40,13 @@ import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchContextId;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.threadpool.Scheduler;
 import org.elasticsearch.transport.Transport;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -92,6 +97,12 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     private final Map<String, PendingExecutions> pendingExecutionsPerNode = new ConcurrentHashMap<>();
     private final boolean throttleConcurrentRequests;
     private final AtomicBoolean requestCancelled = new AtomicBoolean();
+    private final Map<Integer, HedgedShard> hedgedShards = new ConcurrentHashMap<>();
+    private HedgedShardRequests hedgedRequests;
+    private boolean batchShardRequestsByNode;
+    // the requests that are sent together per cluster alias and node id, only set while the initial requests are built
+    private Map<Tuple<String, String>, ShardRequestBatch> shardRequestBatches;
+    private Thread batchingThread;
 
     private final List<Releasable> releasables = new ArrayList<>();
 
@@ -218,6 +229,10 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                         request.minCompatibleShardNode());
                 }
             }
+            if (batchShardRequestsByNode) {
+                batchingThread = Thread.currentThread();
+                shardRequestBatches = new LinkedHashMap<>();
+            }
             for (int i = 0; i < shardsIts.size(); i++) {
                 final SearchShardIterator shardRoutings = shardsIts.get(i);
                 assert shardRoutings.skip() == false;
@@ -225,6 +240,33 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                 int shardIndex = shardItIndexMap.get(shardRoutings);
                 performPhaseOnShard(shardIndex, shardRoutings, shardRoutings.nextOrNull());
             }
+            if (batchShardRequestsByNode) {
+                sendShardRequestBatches();
+            }
+        }
+    }
+
+    /**
+     * Sends the requests that were collected while the requests for the first copy of every shard were built, the requests of
+     * the shards that live on the same node are sent together.
+     */
+    private void sendShardRequestBatches() {
+        final Map<Tuple<String, String>, ShardRequestBatch> batches = shardRequestBatches;
+        shardRequestBatches = null;
+        batchingThread = null;
+        for (ShardRequestBatch batch : batches.values()) {
+            try {
+                if (batch.shards.size() == 1) {
+                    executePhaseOnShard(batch.shardIts.get(0), batch.shards.get(0), batch.listeners.get(0));
+                } else {
+                    executePhaseOnShards(batch.shardIts, batch.shards, batch.listeners);
+                }
+            } catch (final Exception e) {
+                // as in #executeOnShard, the listeners move on to the next copy of each shard
+                for (SearchActionListener<Result> listener : batch.listeners) {
+                    fork(() -> listener.onFailure(e));
+                }
+            }
         }
     }
 
@@ -291,50 +333,210 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                 shardIt.getClusterAlias(), shardIt.getOriginalIndices());
             onShardFailure(shardIndex, unassignedShard, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
         } else {
-            final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
-                pendingExecutionsPerNode.computeIfAbsent(shard.getNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
-                : null;
-            Runnable r = () -> {
-                final Thread thread = Thread.currentThread();
-                try {
-                    executePhaseOnShard(shardIt, shard,
-                        new SearchActionListener<Result>(shard, shardIndex) {
-                            @Override
-                            public void innerOnResponse(Result result) {
-                                try {
-                                    onShardResult(result, shardIt);
-                                } catch (Exception exc) {
-                                    onShardFailure(shardIndex, shard, shardIt, exc);
-                                } finally {
-                                    executeNext(pendingExecutions, thread);
-                                }
-                            }
+            final HedgedShard hedgedShard = hedgedRequests == null ? null : startHedgedAttempt(shardIndex, shardIt, shard);
+            executeOnShard(shardIndex, shardIt, shard, hedgedShard);
+        }
+    }
 
-                            @Override
-                            public void onFailure(Exception t) {
-                                try {
-                                    onShardFailure(shardIndex, shard, shardIt, t);
-                                } finally {
-                                    executeNext(pendingExecutions, thread);
-                                }
+    private void executeOnShard(final int shardIndex, final SearchShardIterator shardIt, final SearchShardTarget shard,
+                                @Nullable final HedgedShard hedgedShard) {
+        final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
+            pendingExecutionsPerNode.computeIfAbsent(shard.getNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
+            : null;
+        Runnable r = () -> {
+            final Thread thread = Thread.currentThread();
+            try {
+                final SearchActionListener<Result> listener = new SearchActionListener<Result>(shard, shardIndex) {
+                    @Override
+                    public void innerOnResponse(Result result) {
+                        try {
+                            if (hedgedShard != null && hedgedShard.onResponse() == false) {
+                                // another copy of the shard answered first
+                                releaseHedgedResult(result, shard);
+                                return;
                             }
-                        });
-                } catch (final Exception e) {
-                    try {
-                        /*
-                         * It is possible to run into connection exceptions here because we are getting the connection early and might
-                         * run into nodes that are not connected. In this case, on shard failure will move us to the next shard copy.
-                         */
-                        fork(() -> onShardFailure(shardIndex, shard, shardIt, e));
-                    } finally {
-                        executeNext(pendingExecutions, thread);
+                            onShardResult(result, shardIt);
+                        } catch (Exception exc) {
+                            onShardFailure(shardIndex, shard, shardIt, exc, true);
+                        } finally {
+                            executeNext(pendingExecutions, thread);
+                        }
                     }
+
+                    @Override
+                    public void onFailure(Exception t) {
+                        try {
+                            onShardFailure(shardIndex, shard, shardIt, t, false);
+                        } finally {
+                            executeNext(pendingExecutions, thread);
+                        }
+                    }
+                };
+                if (shardRequestBatches != null && batchingThread == thread) {
+                    shardRequestBatches.computeIfAbsent(Tuple.tuple(shard.getClusterAlias(), shard.getNodeId()),
+                        k -> new ShardRequestBatch()).add(shardIt, shard, listener);
+                } else {
+                    executePhaseOnShard(shardIt, shard, listener);
                 }
-            };
-            if (throttleConcurrentRequests) {
-                pendingExecutions.tryRun(r);
-            } else {
-                r.run();
+            } catch (final Exception e) {
+                try {
+                    /*
+                     * It is possible to run into connection exceptions here because we are getting the connection early and might
+                     * run into nodes that are not connected. In this case, on shard failure will move us to the next shard copy.
+                     */
+                    fork(() -> onShardFailure(shardIndex, shard, shardIt, e, false));
+                } finally {
+                    executeNext(pendingExecutions, thread);
+                }
+            }
+        };
+        if (throttleConcurrentRequests) {
+            pendingExecutions.tryRun(r);
+        } else {
+            r.run();
+        }
+    }
+
+    /**
+     * Whether this phase can send the requests of several shards that live on the same node at once, see
+     * {@link #executePhaseOnShards(List, List, List)}.
+     */
+    protected boolean supportsBatchedShardRequests() {
+        return false;
+    }
+
+    /**
+     * Sends the requests of several shards that live on the same node at once. Only called if the requests of this phase are
+     * batched by node, see {@link #batchShardRequestsByNode()}. Phases that {@link #supportsBatchedShardRequests() support}
+     * batched shard requests must override this, the requests are sent one by one otherwise.
+     * @param shardIts the shard iterators
+     * @param shards the shard routings to send the requests for, all of them on the same node
+     * @param listeners the listeners to notify on the response of each shard
+     */
+    protected void executePhaseOnShards(List<SearchShardIterator> shardIts, List<SearchShardTarget> shards,
+                                        List<SearchActionListener<Result>> listeners) {
+        for (int i = 0; i < shards.size(); i++) {
+            executePhaseOnShard(shardIts.get(i), shards.get(i), listeners.get(i));
+        }
+    }
+
+    /**
+     * Sends the requests for the first copy of the shards that live on the same node together if this phase
+     * {@link #supportsBatchedShardRequests() supports} it, see {@link #executePhaseOnShards(List, List, List)}. Requests that are
+     * throttled by the maximum number of concurrent shard requests per node and the requests for other copies of a shard are still
+     * sent one by one. Must be called before the phase is started.
+     */
+    void batchShardRequestsByNode() {
+        this.batchShardRequestsByNode = supportsBatchedShardRequests();
+    }
+
+    /**
+     * Hedges the shard level requests of this phase: if a copy of a shard takes a lot longer to answer than its node usually does,
+     * the request is sent to another copy of the shard too and the copy that answers first wins. Must be called before the phase
+     * is started.
+     */
+    void hedgeShardRequests(HedgedShardRequests hedgedRequests) {
+        this.hedgedRequests = hedgedRequests;
+    }
+
+    private HedgedShard startHedgedAttempt(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard) {
+        final HedgedShard hedgedShard = hedgedShards.computeIfAbsent(shardIndex, i -> new HedgedShard());
+        synchronized (hedgedShard) {
+            hedgedShard.pending++;
+            final int attempt = ++hedgedShard.attempts;
+            // only one duplicate is sent per shard
+            if (hedgedShard.hedged == false && shardIt.remaining() > 0) {
+                final TimeValue delay = hedgedRequests.hedgeDelay(shard.getNodeId());
+                if (delay != null) {
+                    hedgedShard.scheduledHedge = hedgedRequests.schedule(() -> hedge(shardIndex, shardIt, hedgedShard, attempt), delay);
+                }
+            }
+        }
+        return hedgedShard;
+    }
+
+    private void hedge(int shardIndex, SearchShardIterator shardIt, HedgedShard hedgedShard, int attempt) {
+        final SearchShardTarget shard;
+        synchronized (hedgedShard) {
+            if (hedgedShard.attempts != attempt || hedgedShard.pending == 0 || hedgedShard.done || hedgedShard.hedged
+                    || requestCancelled.get()) {
+                return;
+            }
+            hedgedShard.scheduledHedge = null;
+            shard = shardIt.nextOrNull();
+            if (shard == null) {
+                return;
+            }
+            hedgedShard.hedged = true;
+            hedgedShard.pending++;
+        }
+        logger.debug("{}: hedging [{}] after another copy of the shard didn't answer in time", shard, request);
+        fork(() -> executeOnShard(shardIndex, shardIt, shard, hedgedShard));
+    }
+
+    private void releaseHedgedResult(Result result, SearchShardTarget shard) {
+        if (result.getContextId() != null) {
+            try {
+                sendReleaseSearchContext(result.getContextId(), getConnection(shard.getClusterAlias(), shard.getNodeId()),
+                    shard.getOriginalIndices());
+            } catch (Exception e) {
+                logger.trace(() -> new ParameterizedMessage("{}: failed to release the context of a hedged request", shard), e);
+            }
+        }
+    }
+
+    /**
+     * The requests for the shards of a node that are sent together.
+     */
+    private final class ShardRequestBatch {
+        private final List<SearchShardIterator> shardIts = new ArrayList<>();
+        private final List<SearchShardTarget> shards = new ArrayList<>();
+        private final List<SearchActionListener<Result>> listeners = new ArrayList<>();
+
+        void add(SearchShardIterator shardIt, SearchShardTarget shard, SearchActionListener<Result> listener) {
+            shardIts.add(shardIt);
+            shards.add(shard);
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * The requests that were sent for a shard whose requests are hedged.
+     */
+    private static final class HedgedShard {
+        // the number of requests that were sent to a copy of the shard and didn't complete yet
+        private int pending;
+        private int attempts;
+        private boolean hedged;
+        // set once a copy of the shard answered, the responses of the other copies are ignored from then on
+        private boolean done;
+        // the number of requests that were still pending when the shard was done
+        private int abandoned;
+        private Scheduler.Cancellable scheduledHedge;
+
+        /**
+         * Returns whether the response that was just received is the first one for this shard.
+         */
+        synchronized boolean onResponse() {
+            pending--;
+            cancelScheduledHedge();
+            if (done) {
+                return false;
+            }
+            done = true;
+            abandoned = pending;
+            return true;
+        }
+
+        synchronized int abandoned() {
+            return abandoned;
+        }
+
+        void cancelScheduledHedge() {
+            assert Thread.holdsLock(this);
+            if (scheduledHedge != null) {
+                scheduledHedge.cancel();
+                scheduledHedge = null;
             }
         }
     }
@@ -444,11 +646,43 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     }
 
     private void onShardFailure(final int shardIndex, SearchShardTarget shard, final SearchShardIterator shardIt, Exception e) {
+        onShardFailure(shardIndex, shard, shardIt, e, false);
+    }
+
+    private void onShardFailure(final int shardIndex, SearchShardTarget shard, final SearchShardIterator shardIt, Exception e,
+                                boolean afterResponse) {
+        final HedgedShard hedgedShard = hedgedShards.get(shardIndex);
+        final SearchShardTarget nextShard;
+        final boolean lastShard;
+        final int failedOps;
+        if (hedgedShard == null) {
+            nextShard = shardIt.nextOrNull();
+            lastShard = nextShard == null;
+            failedOps = 1;
+        } else {
+            synchronized (hedgedShard) {
+                if (afterResponse) {
+                    // the first response for this shard couldn't be consumed, we don't try the other copies
+                    nextShard = null;
+                    lastShard = true;
+                    failedOps = shardIt.remaining() + 1 + hedgedShard.abandoned;
+                } else {
+                    hedgedShard.pending--;
+                    hedgedShard.cancelScheduledHedge();
+                    if (hedgedShard.done) {
+                        // another copy of the shard answered first
+                        return;
+                    }
+                    // wait for the other copy if the request was hedged, the next copy is tried once both failed
+                    nextShard = hedgedShard.pending == 0 ? shardIt.nextOrNull() : null;
+                    lastShard = hedgedShard.pending == 0 && nextShard == null;
+                    failedOps = 1;
+                }
+            }
+        }
         // we always add the shard failure for a specific shard instance
         // we do make sure to clean it on a successful response from a shard
         onShardFailure(shardIndex, shard, e);
-        final SearchShardTarget nextShard = shardIt.nextOrNull();
-        final boolean lastShard = nextShard == null;
         logger.debug(() -> new ParameterizedMessage("{}: Failed to execute [{}] lastShard [{}]", shard, request, lastShard), e);
         if (lastShard) {
             if (request.allowPartialSearchResults() == false) {
@@ -462,14 +696,14 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
             }
             onShardGroupFailure(shardIndex, shard, e);
         }
-        final int totalOps = this.totalOps.incrementAndGet();
+        final int totalOps = this.totalOps.addAndGet(failedOps);
         if (totalOps == expectedTotalOps) {
             onPhaseDone();
         } else if (totalOps > expectedTotalOps) {
             throw new AssertionError("unexpected higher total ops [" + totalOps + "] compared to expected [" + expectedTotalOps + "]",
                 new SearchPhaseExecutionException(getName(), "Shard failures", null, buildShardFailures()));
         } else {
-            if (lastShard == false) {
+            if (nextShard != null) {
                 performPhaseOnShard(shardIndex, shardIt, nextShard);
             }
         }
@@ -577,7 +811,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
             // accounts for unavailable shards too.
             remainingOpsOnIterator = Math.max(shardsIt.remaining(), 1);
         } else {
-            remainingOpsOnIterator = shardsIt.remaining() + 1;
+            remainingOpsOnIterator = shardsIt.remaining() + 1 + abandonedHedgedOps(shardsIt);
         }
         final int xTotalOps = totalOps.addAndGet(remainingOpsOnIterator);
         if (xTotalOps == expectedTotalOps) {
@@ -588,6 +822,17 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         }
     }
 
+    /**
+     * Returns the number of requests for the given shard that were still pending when another copy of the shard answered.
+     */
+    private int abandonedHedgedOps(SearchShardIterator shardIt) {
+        if (hedgedShards.isEmpty()) {
+            return 0;
+        }
+        final HedgedShard hedgedShard = hedgedShards.get(shardItIndexMap.get(shardIt));
+        return hedgedShard == null ? 0 : hedgedShard.abandoned();
+    }
+
     @Override
     public final int getNumShards() {
         return results.getNumShards();
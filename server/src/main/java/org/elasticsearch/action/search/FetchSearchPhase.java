@@ -14,6 +14,7 @@ import org.apache.lucene.search.ScoreDoc;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.core.Tuple;
 import org.elasticsearch.search.RescoreDocIds;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
@@ -26,7 +27,10 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 
 /**
@@ -122,6 +126,8 @@ final class FetchSearchPhase extends SearchPhase {
                 final CountedCollector<FetchSearchResult> counter = new CountedCollector<>(fetchResults,
                     docIdsToLoad.length, // we count down every shard in the result no matter if we got any results or not
                     finishPhase, context);
+                // the fetch requests of the shards that live on the same node are sent together
+                final Map<Tuple<String, String>, List<Integer>> shardsToFetchByNode = new LinkedHashMap<>();
                 for (int i = 0; i < docIdsToLoad.length; i++) {
                     IntArrayList entry = docIdsToLoad[i];
                     SearchPhaseResult queryResult = queryResults.get(i);
@@ -137,15 +143,26 @@ final class FetchSearchPhase extends SearchPhase {
                         counter.countDown();
                     } else {
                         SearchShardTarget searchShardTarget = queryResult.getSearchShardTarget();
-                        Transport.Connection connection = context.getConnection(searchShardTarget.getClusterAlias(),
-                            searchShardTarget.getNodeId());
-                        ShardFetchSearchRequest fetchSearchRequest = createFetchRequest(queryResult.queryResult().getContextId(), i, entry,
-                            lastEmittedDocPerShard, searchShardTarget.getOriginalIndices(), queryResult.getShardSearchRequest(),
-                            queryResult.getRescoreDocIds());
-                        executeFetch(queryResult.getShardIndex(), searchShardTarget, counter, fetchSearchRequest, queryResult.queryResult(),
-                            connection);
+                        shardsToFetchByNode.computeIfAbsent(Tuple.tuple(searchShardTarget.getClusterAlias(), searchShardTarget.getNodeId()),
+                            k -> new ArrayList<>()).add(i);
                     }
                 }
+                for (Map.Entry<Tuple<String, String>, List<Integer>> entry : shardsToFetchByNode.entrySet()) {
+                    Transport.Connection connection = context.getConnection(entry.getKey().v1(), entry.getKey().v2());
+                    List<ShardFetchSearchRequest> fetchSearchRequests = new ArrayList<>(entry.getValue().size());
+                    List<SearchActionListener<FetchSearchResult>> listeners = new ArrayList<>(entry.getValue().size());
+                    for (int i : entry.getValue()) {
+                        SearchPhaseResult queryResult = queryResults.get(i);
+                        SearchShardTarget searchShardTarget = queryResult.getSearchShardTarget();
+                        ShardFetchSearchRequest fetchSearchRequest = createFetchRequest(queryResult.queryResult().getContextId(), i,
+                            docIdsToLoad[i], lastEmittedDocPerShard, searchShardTarget.getOriginalIndices(),
+                            queryResult.getShardSearchRequest(), queryResult.getRescoreDocIds());
+                        fetchSearchRequests.add(fetchSearchRequest);
+                        listeners.add(newFetchListener(queryResult.getShardIndex(), searchShardTarget, counter, fetchSearchRequest,
+                            queryResult.queryResult()));
+                    }
+                    context.getSearchTransport().sendExecuteFetch(connection, fetchSearchRequests, context.getTask(), listeners);
+                }
             }
         }
     }
@@ -158,37 +175,36 @@ final class FetchSearchPhase extends SearchPhase {
             rescoreDocIds, aggregatedDfs);
     }
 
-    private void executeFetch(final int shardIndex, final SearchShardTarget shardTarget,
-                              final CountedCollector<FetchSearchResult> counter,
-                              final ShardFetchSearchRequest fetchSearchRequest, final QuerySearchResult querySearchResult,
-                              final Transport.Connection connection) {
-        context.getSearchTransport().sendExecuteFetch(connection, fetchSearchRequest, context.getTask(),
-            new SearchActionListener<FetchSearchResult>(shardTarget, shardIndex) {
-                @Override
-                public void innerOnResponse(FetchSearchResult result) {
-                    try {
-                        progressListener.notifyFetchResult(shardIndex);
-                        counter.onResult(result);
-                    } catch (Exception e) {
-                        context.onPhaseFailure(FetchSearchPhase.this, "", e);
-                    }
+    private SearchActionListener<FetchSearchResult> newFetchListener(final int shardIndex, final SearchShardTarget shardTarget,
+                                                                     final CountedCollector<FetchSearchResult> counter,
+                                                                     final ShardFetchSearchRequest fetchSearchRequest,
+                                                                     final QuerySearchResult querySearchResult) {
+        return new SearchActionListener<FetchSearchResult>(shardTarget, shardIndex) {
+            @Override
+            public void innerOnResponse(FetchSearchResult result) {
+                try {
+                    progressListener.notifyFetchResult(shardIndex);
+                    counter.onResult(result);
+                } catch (Exception e) {
+                    context.onPhaseFailure(FetchSearchPhase.this, "", e);
                 }
+            }
 
-                @Override
-                public void onFailure(Exception e) {
-                    try {
-                        logger.debug(
-                            () -> new ParameterizedMessage("[{}] Failed to execute fetch phase", fetchSearchRequest.contextId()), e);
-                        progressListener.notifyFetchFailure(shardIndex, shardTarget, e);
-                        counter.onFailure(shardIndex, shardTarget, e);
-                    } finally {
-                        // the search context might not be cleared on the node where the fetch was executed for example
-                        // because the action was rejected by the thread pool. in this case we need to send a dedicated
-                        // request to clear the search context.
-                        releaseIrrelevantSearchContext(querySearchResult);
-                    }
+            @Override
+            public void onFailure(Exception e) {
+                try {
+                    logger.debug(
+                        () -> new ParameterizedMessage("[{}] Failed to execute fetch phase", fetchSearchRequest.contextId()), e);
+                    progressListener.notifyFetchFailure(shardIndex, shardTarget, e);
+                    counter.onFailure(shardIndex, shardTarget, e);
+                } finally {
+                    // the search context might not be cleared on the node where the fetch was executed for example
+                    // because the action was rejected by the thread pool. in this case we need to send a dedicated
+                    // request to clear the search context.
+                    releaseIrrelevantSearchContext(querySearchResult);
                 }
-            });
+            }
+        };
     }
 
     /**
@@ -0,0 +1,59 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.node.ResponseCollectorService.ComputedNodeStats;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Decides when a shard level request of the initial search phase is hedged, that is when a duplicate of the request is sent to
+ * another copy of the shard because the first copy takes a lot longer to answer than the node it lives on usually does. The
+ * usual latency of a node is the moving average of its response times that adaptive replica selection collects.
+ *
+ * @see TransportSearchAction#HEDGED_REQUESTS_ENABLED_SETTING
+ */
+final class HedgedShardRequests {
+
+    private final Scheduler scheduler;
+    private final Function<String, Optional<ComputedNodeStats>> nodeStats;
+    private final double latencyMultiplier;
+    private final TimeValue minDelay;
+
+    HedgedShardRequests(Scheduler scheduler, Function<String, Optional<ComputedNodeStats>> nodeStats,
+                        double latencyMultiplier, TimeValue minDelay) {
+        this.scheduler = scheduler;
+        this.nodeStats = nodeStats;
+        this.latencyMultiplier = latencyMultiplier;
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * Returns how long to wait for a response of the given node before hedging the request, or {@code null} if the request
+     * shouldn't be hedged because nothing is known about the latency of the node yet.
+     */
+    @Nullable
+    TimeValue hedgeDelay(String nodeId) {
+        return nodeStats.apply(nodeId)
+            .map(stats -> TimeValue.timeValueNanos(Math.max(minDelay.nanos(), (long) (stats.responseTime * latencyMultiplier))))
+            .orElse(null);
+    }
+
+    /**
+     * Schedules the given hedge to run after the given delay.
+     */
+    Scheduler.Cancellable schedule(Runnable hedge, TimeValue delay) {
+        return scheduler.schedule(hedge, delay, ThreadPool.Names.SAME);
+    }
+}
@@ -23,7 +23,9 @@ import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContextBuilder;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.StreamingAggregationsReducer;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.query.QuerySearchResult;
 
@@ -48,6 +50,9 @@ import static org.elasticsearch.action.search.SearchPhaseController.setShardInde
  * in the {@link CircuitBreaker#REQUEST} circuit breaker. Before any partial or final reduce, the memory
  * needed to reduce the aggregations is estimated and a {@link CircuitBreakingException} is thrown if it
  * exceeds the maximum memory allowed in this breaker.
+ * Unless the progress listener needs the aggregations of every partial reduce, partial reduces merge the
+ * aggregations into a {@link StreamingAggregationsReducer} that only builds the reduced aggregations for
+ * the final reduce.
  */
 public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhaseResult> implements Releasable {
     private static final Logger logger = LogManager.getLogger(QueryPhaseResultConsumer.class);
@@ -62,6 +67,8 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
     private final int topNSize;
     private final boolean hasTopDocs;
     private final boolean hasAggs;
+    // whether partial reductions merge aggregations into a StreamingAggregationsReducer
+    private final boolean streamAggs;
     private final boolean performFinalReduce;
 
     private final PendingMerges pendingMerges;
@@ -93,6 +100,8 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         SearchSourceBuilder source = request.source();
         this.hasTopDocs = source == null || source.size() != 0;
         this.hasAggs = source != null && source.aggregations() != null;
+        // the aggregations of partial reductions are only built at the end, which doesn't work with progress listeners
+        this.streamAggs = hasAggs && progressListener == SearchProgressListener.NOOP;
         int batchReduceSize = (hasAggs || hasTopDocs) ? Math.min(request.getBatchedReduceSize(), expectedResultSize)  : expectedResultSize;
         this.pendingMerges = new PendingMerges(batchReduceSize, request.resolveTrackTotalHitsUpTo());
     }
@@ -157,50 +166,83 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             topDocsStats.add(result.topDocs(), result.searchTimedOut(), result.terminatedEarly());
         }
 
-        final TopDocs newTopDocs;
-        if (hasTopDocs) {
-            List<TopDocs> topDocsList = new ArrayList<>();
-            if (lastMerge != null) {
-                topDocsList.add(lastMerge.reducedTopDocs);
-            }
-            for (QuerySearchResult result : toConsume) {
-                TopDocsAndMaxScore topDocs = result.consumeTopDocs();
-                setShardIndex(topDocs.topDocs, result.getShardIndex());
-                topDocsList.add(topDocs.topDocs);
-            }
-            newTopDocs = mergeTopDocs(topDocsList,
-                // we have to merge here in the same way we collect on a shard
-                topNSize, 0);
+        final ReduceContext streamingReduceContext;
+        final StreamingAggregationsReducer streamingAggs;
+        if (streamAggs) {
+            streamingReduceContext = aggReduceContextBuilder.forPartialReduction();
+            streamingAggs = lastMerge != null ? lastMerge.streamingAggs
+                : new StreamingAggregationsReducer(streamingReduceContext.bigArrays().withCircuitBreaking());
         } else {
-            newTopDocs = null;
+            streamingReduceContext = null;
+            streamingAggs = null;
         }
+        // the streamed aggregations, including the ones of the last merge, are released if the merge fails
+        boolean success = false;
+        try {
+            final TopDocs newTopDocs;
+            if (hasTopDocs) {
+                List<TopDocs> topDocsList = new ArrayList<>();
+                if (lastMerge != null) {
+                    topDocsList.add(lastMerge.reducedTopDocs);
+                }
+                for (QuerySearchResult result : toConsume) {
+                    TopDocsAndMaxScore topDocs = result.consumeTopDocs();
+                    setShardIndex(topDocs.topDocs, result.getShardIndex());
+                    topDocsList.add(topDocs.topDocs);
+                }
+                newTopDocs = mergeTopDocs(topDocsList,
+                    // we have to merge here in the same way we collect on a shard
+                    topNSize, 0);
+            } else {
+                newTopDocs = null;
+            }
 
-        final InternalAggregations newAggs;
-        if (hasAggs) {
-            List<InternalAggregations> aggsList = new ArrayList<>();
+            final InternalAggregations newAggs;
+            if (streamingAggs != null) {
+                newAggs = null;
+                List<InternalAggregations> aggsList = new ArrayList<>();
+                for (QuerySearchResult result : toConsume) {
+                    aggsList.add(result.consumeAggs());
+                }
+                streamingAggs.add(aggsList, streamingReduceContext);
+            } else if (hasAggs) {
+                List<InternalAggregations> aggsList = new ArrayList<>();
+                if (lastMerge != null) {
+                    aggsList.add(lastMerge.reducedAggs);
+                }
+                for (QuerySearchResult result : toConsume) {
+                    aggsList.add(result.consumeAggs());
+                }
+                newAggs = InternalAggregations.topLevelReduce(aggsList, aggReduceContextBuilder.forPartialReduction());
+            } else {
+                newAggs = null;
+            }
+            List<SearchShard> processedShards = new ArrayList<>(emptyResults);
             if (lastMerge != null) {
-                aggsList.add(lastMerge.reducedAggs);
+                processedShards.addAll(lastMerge.processedShards);
             }
             for (QuerySearchResult result : toConsume) {
-                aggsList.add(result.consumeAggs());
+                SearchShardTarget target = result.getSearchShardTarget();
+                processedShards.add(new SearchShard(target.getClusterAlias(), target.getShardId()));
+            }
+            progressListener.notifyPartialReduce(processedShards, topDocsStats.getTotalHits(), newAggs, numReducePhases);
+            // we leave the results un-serialized because serializing is slow but we compute the serialized
+            // size as an estimate of the memory used by the newly reduced aggregations. The memory of streamed
+            // aggregations is accounted by their big arrays.
+            final long serializedSize;
+            if (streamingAggs != null) {
+                serializedSize = DelayableWriteable.getSerializedSize(streamingAggs.notStreamedAggregations());
+            } else {
+                serializedSize = hasAggs ? DelayableWriteable.getSerializedSize(newAggs) : 0;
+            }
+            MergeResult newMerge = new MergeResult(processedShards, newTopDocs, newAggs, streamingAggs, serializedSize);
+            success = true;
+            return newMerge;
+        } finally {
+            if (success == false && streamingAggs != null) {
+                streamingAggs.close();
             }
-            newAggs = InternalAggregations.topLevelReduce(aggsList, aggReduceContextBuilder.forPartialReduction());
-        } else {
-            newAggs = null;
-        }
-        List<SearchShard> processedShards = new ArrayList<>(emptyResults);
-        if (lastMerge != null) {
-            processedShards.addAll(lastMerge.processedShards);
-        }
-        for (QuerySearchResult result : toConsume) {
-            SearchShardTarget target = result.getSearchShardTarget();
-            processedShards.add(new SearchShard(target.getClusterAlias(), target.getShardId()));
         }
-        progressListener.notifyPartialReduce(processedShards, topDocsStats.getTotalHits(), newAggs, numReducePhases);
-        // we leave the results un-serialized because serializing is slow but we compute the serialized
-        // size as an estimate of the memory used by the newly reduced aggregations.
-        long serializedSize = hasAggs ? DelayableWriteable.getSerializedSize(newAggs) : 0;
-        return new MergeResult(processedShards, newTopDocs, newAggs, hasAggs ? serializedSize : 0);
     }
 
     public int getNumReducePhases() {
@@ -234,6 +276,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         @Override
         public synchronized void close() {
             assert hasPendingMerges() == false : "cannot close with partial reduce in-flight";
+            releaseMergeResult();
             if (hasFailure()) {
                 assert circuitBreakerBytes == 0;
                 return;
@@ -243,6 +286,13 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             circuitBreakerBytes = 0;
         }
 
+        private synchronized void releaseMergeResult() {
+            if (mergeResult != null && mergeResult.streamingAggs != null) {
+                mergeResult.streamingAggs.close();
+            }
+            mergeResult = null;
+        }
+
         synchronized Exception getFailure() {
             return failure.get();
         }
@@ -361,7 +411,8 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             }
             queue.stream().forEach(toCancels::add);
             queue.clear();
-            mergeResult = null;
+            // a running merge owns the result of the previous merge, see tryExecuteNext
+            releaseMergeResult();
             for (MergeTask toCancel : toCancels) {
                 toCancel.cancel();
             }
@@ -370,9 +421,14 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         private void onAfterMerge(MergeTask task, MergeResult newResult, long estimatedSize) {
             synchronized (this) {
                 if (hasFailure()) {
+                    if (newResult.streamingAggs != null) {
+                        newResult.streamingAggs.close();
+                    }
                     return;
                 }
                 runningTask.compareAndSet(task, null);
+                // the new result took over the streamed aggregations of the previous merge
+                task.lastMerge = null;
                 mergeResult = newResult;
                 if (hasAggs) {
                     // Update the circuit breaker to remove the size of the source aggregations
@@ -396,16 +452,21 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
                 }
                 task = queue.poll();
                 runningTask.compareAndSet(null, task);
+                // the merge takes over the result of the previous merge so that failures can't release
+                // streamed aggregations that it is still using, it releases them itself if it doesn't complete
+                task.lastMerge = mergeResult;
+                mergeResult = null;
             }
 
             executor.execute(new AbstractRunnable() {
                 @Override
                 protected void doRun() {
-                    final MergeResult thisMergeResult = mergeResult;
+                    final MergeResult thisMergeResult = task.lastMerge;
                     long estimatedTotalSize = (thisMergeResult != null ? thisMergeResult.estimatedSize : 0) + task.aggsBufferSize;
                     final MergeResult newMerge;
                     final QuerySearchResult[] toConsume = task.consumeBuffer();
                     if (toConsume == null) {
+                        task.releaseLastMerge();
                         return;
                     }
                     try {
@@ -418,6 +479,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
                         for (QuerySearchResult result : toConsume) {
                             result.releaseAggs();
                         }
+                        task.releaseLastMerge();
                         onMergeFailure(t);
                         return;
                     }
@@ -427,6 +489,7 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
 
                 @Override
                 public void onFailure(Exception exc) {
+                    task.releaseLastMerge();
                     onMergeFailure(exc);
                 }
             });
@@ -461,7 +524,12 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             }
             List<InternalAggregations> aggsList = new ArrayList<>();
             if (mergeResult != null) {
-                aggsList.add(mergeResult.reducedAggs);
+                if (mergeResult.streamingAggs != null) {
+                    aggsList.add(mergeResult.streamingAggs.materialize());
+                    mergeResult.streamingAggs.close();
+                } else {
+                    aggsList.add(mergeResult.reducedAggs);
+                }
             }
             for (QuerySearchResult result : buffer) {
                 aggsList.add(result.consumeAggs());
@@ -474,13 +542,15 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         private final List<SearchShard> processedShards;
         private final TopDocs reducedTopDocs;
         private final InternalAggregations reducedAggs;
+        private final StreamingAggregationsReducer streamingAggs;
         private final long estimatedSize;
 
         private MergeResult(List<SearchShard> processedShards, TopDocs reducedTopDocs,
-                            InternalAggregations reducedAggs, long estimatedSize) {
+                            InternalAggregations reducedAggs, StreamingAggregationsReducer streamingAggs, long estimatedSize) {
             this.processedShards = processedShards;
             this.reducedTopDocs = reducedTopDocs;
             this.reducedAggs = reducedAggs;
+            this.streamingAggs = streamingAggs;
             this.estimatedSize = estimatedSize;
         }
     }
@@ -490,6 +560,8 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
         private QuerySearchResult[] buffer;
         private long aggsBufferSize;
         private Runnable next;
+        // the result of the previous merge that this merge owns while it runs
+        private MergeResult lastMerge;
 
         private MergeTask(QuerySearchResult[] buffer, long aggsBufferSize, List<SearchShard> emptyResults, Runnable next) {
             this.buffer = buffer;
@@ -504,6 +576,13 @@ public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhas
             return toRet;
         }
 
+        public synchronized void releaseLastMerge() {
+            if (lastMerge != null && lastMerge.streamingAggs != null) {
+                lastMerge.streamingAggs.close();
+            }
+            lastMerge = null;
+        }
+
         public void consumeListener() {
             if (next != null) {
                 next.run();
@@ -49,11 +49,14 @@ import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -217,6 +220,67 @@ public final class SearchPhaseController {
         }
     }
 
+    /**
+     * Removes the hits of the given shard results that can't be part of the top {@code topN} hits of the search request because
+     * other results of the array have better hits. Used by data nodes to pre-reduce the hits of the shards of a
+     * {@link ShardSearchBatchRequest}. Ties are broken by shard request index like {@link #mergeTopDocs} does on the coordinating
+     * node, so that the hits that are kept are a superset of the hits that the coordinating node picks from the results.
+     * @param results the results of the shards, may contain {@code null} elements for shards that failed
+     * @param shardRequestIndices the shard request index of each result
+     * @param topN the number of hits that the search request asks for, from + size
+     */
+    static void pruneTopDocs(QuerySearchResult[] results, int[] shardRequestIndices, int topN) {
+        assert results.length == shardRequestIndices.length;
+        final List<QuerySearchResult> toPrune = new ArrayList<>();
+        final List<TopDocs> topDocsList = new ArrayList<>();
+        final List<Integer> shardIndices = new ArrayList<>();
+        int numHits = 0;
+        for (int i = 0; i < results.length; i++) {
+            final QuerySearchResult result = results[i];
+            if (result == null || result.isNull() || result.hasConsumedTopDocs()) {
+                continue;
+            }
+            final TopDocs topDocs = result.topDocs().topDocs;
+            if (topDocs instanceof CollapseTopFieldDocs) {
+                // collapsed hits are merged per collapse key, the hits of a shard may be needed for a key that another shard wins
+                return;
+            }
+            toPrune.add(result);
+            topDocsList.add(topDocs);
+            shardIndices.add(shardRequestIndices[i]);
+            numHits += topDocs.scoreDocs.length;
+        }
+        if (toPrune.size() < 2 || numHits <= topN) {
+            return;
+        }
+        final Set<ScoreDoc> competitive = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < topDocsList.size(); i++) {
+            setShardIndex(topDocsList.get(i), shardIndices.get(i));
+        }
+        try {
+            competitive.addAll(Arrays.asList(mergeTopDocs(topDocsList, topN, 0).scoreDocs));
+        } finally {
+            // the coordinating node sets the shard index of the hits itself
+            for (TopDocs topDocs : topDocsList) {
+                for (ScoreDoc doc : topDocs.scoreDocs) {
+                    doc.shardIndex = -1;
+                }
+            }
+        }
+        for (int i = 0; i < toPrune.size(); i++) {
+            final QuerySearchResult result = toPrune.get(i);
+            final TopDocs topDocs = topDocsList.get(i);
+            final ScoreDoc[] scoreDocs = Arrays.stream(topDocs.scoreDocs).filter(competitive::contains).toArray(ScoreDoc[]::new);
+            if (scoreDocs.length == topDocs.scoreDocs.length) {
+                continue;
+            }
+            final TopDocs pruned = topDocs instanceof TopFieldDocs
+                ? new TopFieldDocs(topDocs.totalHits, scoreDocs, ((TopFieldDocs) topDocs).fields)
+                : new TopDocs(topDocs.totalHits, scoreDocs);
+            result.topDocs(new TopDocsAndMaxScore(pruned, result.topDocs().maxScore), result.sortValueFormats());
+        }
+    }
+
     public ScoreDoc[] getLastEmittedDocPerShard(ReducedQueryPhase reducedQueryPhase, int numShards) {
         final ScoreDoc[] lastEmittedDocPerShard = new ScoreDoc[numShards];
         if (reducedQueryPhase.isEmptyResult == false) {
@@ -515,10 +579,16 @@ public final class SearchPhaseController {
      * Returns the size of the requested top documents (from + size)
      */
     static int getTopDocsSize(SearchRequest request) {
-        if (request.source() == null) {
+        return getTopDocsSize(request.source());
+    }
+
+    /*
+     * Returns the size of the requested top documents (from + size) of the given search source
+     */
+    static int getTopDocsSize(SearchSourceBuilder source) {
+        if (source == null) {
             return SearchService.DEFAULT_SIZE;
         }
-        SearchSourceBuilder source = request.source();
         return (source.size() == -1 ? SearchService.DEFAULT_SIZE : source.size()) +
             (source.from() == -1 ? SearchService.DEFAULT_FROM : source.from());
     }
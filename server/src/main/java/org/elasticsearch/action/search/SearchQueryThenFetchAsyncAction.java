@@ -21,6 +21,8 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
@@ -71,6 +73,23 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
         getSearchTransport().sendExecuteQuery(getConnection(shard.getClusterAlias(), shard.getNodeId()), request, getTask(), listener);
     }
 
+    @Override
+    protected boolean supportsBatchedShardRequests() {
+        return true;
+    }
+
+    @Override
+    protected void executePhaseOnShards(final List<SearchShardIterator> shardIts,
+                                        final List<SearchShardTarget> shards,
+                                        final List<SearchActionListener<SearchPhaseResult>> listeners) {
+        final List<ShardSearchRequest> requests = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            requests.add(rewriteShardSearchRequest(super.buildShardSearchRequest(shardIts.get(i), listeners.get(i).requestIndex)));
+        }
+        final SearchShardTarget shard = shards.get(0);
+        getSearchTransport().sendExecuteQuery(getConnection(shard.getClusterAlias(), shard.getNodeId()), requests, getTask(), listeners);
+    }
+
     @Override
     protected void onShardGroupFailure(int shardIndex, SearchShardTarget shardTarget, Exception exc) {
         progressListener.notifyQueryFailure(shardIndex, shardTarget, exc);
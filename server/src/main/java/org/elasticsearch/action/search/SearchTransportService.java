@@ -8,6 +8,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionListenerResponseHandler;
 import org.elasticsearch.action.IndicesRequest;
@@ -25,6 +26,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -51,11 +53,15 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiFunction;
 
+import static org.elasticsearch.action.search.SearchPhaseController.getTopDocsSize;
+
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
  * transport.
@@ -67,11 +73,13 @@ public class SearchTransportService {
     public static final String CLEAR_SCROLL_CONTEXTS_ACTION_NAME = "indices:data/read/search[clear_scroll_contexts]";
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
+    public static final String QUERY_BATCH_ACTION_NAME = "indices:data/read/search[phase/query/batch]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
+    public static final String FETCH_ID_BATCH_ACTION_NAME = "indices:data/read/search[phase/fetch/id/batch]";
     public static final String QUERY_CAN_MATCH_NAME = "indices:data/read/search[can_match]";
 
     private final TransportService transportService;
@@ -136,6 +144,52 @@ public class SearchTransportService {
                 new ConnectionCountingHandler<>(handler, reader, clientConnections, connection.getNode().getId()));
     }
 
+    /**
+     * Sends the query requests of several shards that live on the node of the given connection. Nodes that support it receive all
+     * requests in a single {@link #QUERY_BATCH_ACTION_NAME} message, execute them in parallel and only return the hits of their shards
+     * that can be part of the top hits of the search request. The requests are sent one by one otherwise.
+     */
+    public void sendExecuteQuery(Transport.Connection connection, final List<ShardSearchRequest> requests, SearchTask task,
+                                 final List<SearchActionListener<SearchPhaseResult>> listeners) {
+        assert requests.size() == listeners.size() : requests.size() + " != " + listeners.size();
+        if (requests.size() == 1 || connection.getVersion().before(Version.V_8_0_0)) {
+            for (int i = 0; i < requests.size(); i++) {
+                sendExecuteQuery(connection, requests.get(i), task, listeners.get(i));
+            }
+            return;
+        }
+        final List<ActionListener<SearchPhaseResult>> handlers = new ArrayList<>(listeners.size());
+        for (SearchActionListener<SearchPhaseResult> listener : listeners) {
+            @SuppressWarnings("unchecked")
+            final ActionListener<SearchPhaseResult> handler = responseWrapper.apply(connection, listener);
+            handlers.add(handler);
+        }
+        final ActionListener<ShardSearchBatchResponse> batchListener = new ActionListener<>() {
+            @Override
+            public void onResponse(ShardSearchBatchResponse response) {
+                assert response.size() == handlers.size();
+                for (int i = 0; i < handlers.size(); i++) {
+                    final Exception failure = response.getFailure(i);
+                    if (failure == null) {
+                        handlers.get(i).onResponse(response.getResult(i));
+                    } else {
+                        handlers.get(i).onFailure(failure);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                for (ActionListener<SearchPhaseResult> handler : handlers) {
+                    handler.onFailure(e);
+                }
+            }
+        };
+        transportService.sendChildRequest(connection, QUERY_BATCH_ACTION_NAME, new ShardSearchBatchRequest(requests), task,
+            new ConnectionCountingHandler<>(batchListener, ShardSearchBatchResponse::new, clientConnections,
+                connection.getNode().getId()));
+    }
+
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final SearchActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
@@ -160,6 +214,52 @@ public class SearchTransportService {
         sendExecuteFetch(connection, FETCH_ID_ACTION_NAME, request, task, listener);
     }
 
+    /**
+     * Sends the fetch requests of several shards whose search contexts live on the node of the given connection. Nodes that support it
+     * receive all requests in a single {@link #FETCH_ID_BATCH_ACTION_NAME} message and execute them in parallel, the requests are sent
+     * one by one otherwise.
+     */
+    public void sendExecuteFetch(Transport.Connection connection, final List<ShardFetchSearchRequest> requests, SearchTask task,
+                                 final List<SearchActionListener<FetchSearchResult>> listeners) {
+        assert requests.size() == listeners.size() : requests.size() + " != " + listeners.size();
+        if (requests.size() == 1 || connection.getVersion().before(Version.V_8_0_0)) {
+            for (int i = 0; i < requests.size(); i++) {
+                sendExecuteFetch(connection, requests.get(i), task, listeners.get(i));
+            }
+            return;
+        }
+        transportService.sendChildRequest(connection, FETCH_ID_BATCH_ACTION_NAME, new ShardFetchBatchRequest(requests), task,
+            new ConnectionCountingHandler<>(fetchBatchListener(listeners), ShardFetchBatchResponse::new, clientConnections,
+                connection.getNode().getId()));
+    }
+
+    /**
+     * Hands the result or the failure of every shard of a {@link ShardFetchBatchResponse} to the listener of that shard.
+     */
+    static ActionListener<ShardFetchBatchResponse> fetchBatchListener(List<SearchActionListener<FetchSearchResult>> listeners) {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(ShardFetchBatchResponse response) {
+                assert response.size() == listeners.size();
+                for (int i = 0; i < listeners.size(); i++) {
+                    final Exception failure = response.getFailure(i);
+                    if (failure == null) {
+                        listeners.get(i).onResponse(response.getResult(i));
+                    } else {
+                        listeners.get(i).onFailure(failure);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                for (SearchActionListener<FetchSearchResult> listener : listeners) {
+                    listener.onFailure(e);
+                }
+            }
+        };
+    }
+
     public void sendExecuteFetchScroll(Transport.Connection connection, final ShardFetchRequest request, SearchTask task,
                                        final SearchActionListener<FetchSearchResult> listener) {
         sendExecuteFetch(connection, FETCH_ID_SCROLL_ACTION_NAME, request, task, listener);
@@ -314,6 +414,13 @@ public class SearchTransportService {
         TransportActionProxy.registerProxyActionWithDynamicResponseType(transportService, QUERY_ACTION_NAME, true,
             (request) -> ((ShardSearchRequest)request).numberOfShards() == 1 ? QueryFetchSearchResult::new : QuerySearchResult::new);
 
+        transportService.registerRequestHandler(QUERY_BATCH_ACTION_NAME, ThreadPool.Names.SAME, ShardSearchBatchRequest::new,
+            (request, channel, task) -> {
+                executeQueryBatch(searchService, request, (SearchShardTask) task,
+                    new ChannelActionListener<>(channel, QUERY_BATCH_ACTION_NAME, request));
+            });
+        TransportActionProxy.registerProxyAction(transportService, QUERY_BATCH_ACTION_NAME, true, ShardSearchBatchResponse::new);
+
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, ThreadPool.Names.SAME, QuerySearchRequest::new,
             (request, channel, task) -> {
                 searchService.executeQueryPhase(request, (SearchShardTask) task,
@@ -349,6 +456,14 @@ public class SearchTransportService {
             });
         TransportActionProxy.registerProxyAction(transportService, FETCH_ID_ACTION_NAME, true, FetchSearchResult::new);
 
+        transportService.registerRequestHandler(FETCH_ID_BATCH_ACTION_NAME, ThreadPool.Names.SAME, true, true,
+            ShardFetchBatchRequest::new,
+            (request, channel, task) -> {
+                executeFetchBatch(searchService, request, (SearchShardTask) task,
+                    new ChannelActionListener<>(channel, FETCH_ID_BATCH_ACTION_NAME, request));
+            });
+        TransportActionProxy.registerProxyAction(transportService, FETCH_ID_BATCH_ACTION_NAME, true, ShardFetchBatchResponse::new);
+
         // this is cheap, it does not fetch during the rewrite phase, so we can let it quickly execute on a networking thread
         transportService.registerRequestHandler(QUERY_CAN_MATCH_NAME, ThreadPool.Names.SAME, ShardSearchRequest::new,
             (request, channel, task) -> {
@@ -358,6 +473,91 @@ public class SearchTransportService {
     }
 
 
+    /**
+     * Executes the query phase of all shards of the batch, the search service forks each of them to the search thread pool so that
+     * they run in parallel. Once all shards are done, the hits that can't be part of the top hits of the search request are removed.
+     */
+    private static void executeQueryBatch(SearchService searchService, ShardSearchBatchRequest request, SearchShardTask task,
+                                          ActionListener<ShardSearchBatchResponse> listener) {
+        final List<ShardSearchRequest> requests = request.requests();
+        final QuerySearchResult[] results = new QuerySearchResult[requests.size()];
+        final Exception[] failures = new Exception[requests.size()];
+        final CountDown countDown = new CountDown(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = i;
+            final ActionListener<SearchPhaseResult> shardListener = new ActionListener<>() {
+                @Override
+                public void onResponse(SearchPhaseResult result) {
+                    results[index] = result.queryResult();
+                    onShardDone();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failures[index] = e;
+                    onShardDone();
+                }
+
+                private void onShardDone() {
+                    if (countDown.countDown()) {
+                        final ShardSearchRequest first = requests.get(0);
+                        if (first.scroll() == null) {
+                            // scroll requests page through the hits of each shard, they need all of them
+                            final int[] shardRequestIndices = requests.stream().mapToInt(ShardSearchRequest::shardRequestIndex).toArray();
+                            SearchPhaseController.pruneTopDocs(results, shardRequestIndices, getTopDocsSize(first.source()));
+                        }
+                        listener.onResponse(new ShardSearchBatchResponse(results, failures));
+                    }
+                }
+            };
+            try {
+                searchService.executeQueryPhase(requests.get(i), task, shardListener);
+            } catch (Exception e) {
+                shardListener.onFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Executes the fetch phase of all shards of the batch, the search service forks each of them to the search thread pool so that
+     * they run in parallel.
+     */
+    static void executeFetchBatch(SearchService searchService, ShardFetchBatchRequest request, SearchShardTask task,
+                                  ActionListener<ShardFetchBatchResponse> listener) {
+        final List<ShardFetchSearchRequest> requests = request.requests();
+        final FetchSearchResult[] results = new FetchSearchResult[requests.size()];
+        final Exception[] failures = new Exception[requests.size()];
+        final CountDown countDown = new CountDown(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = i;
+            final ActionListener<FetchSearchResult> shardListener = new ActionListener<>() {
+                @Override
+                public void onResponse(FetchSearchResult result) {
+                    results[index] = result;
+                    onShardDone();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failures[index] = e;
+                    onShardDone();
+                }
+
+                private void onShardDone() {
+                    if (countDown.countDown()) {
+                        listener.onResponse(new ShardFetchBatchResponse(results, failures));
+                    }
+                }
+            };
+            try {
+                // the search context of a shard may be missing, that only fails this shard
+                searchService.executeFetchPhase(requests.get(i), task, shardListener);
+            } catch (Exception e) {
+                shardListener.onFailure(e);
+            }
+        }
+    }
+
     /**
      * Returns a connection to the given node on the provided cluster. If the cluster alias is <code>null</code> the node will be resolved
      * against the local cluster.
@@ -0,0 +1,77 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fetch requests of several shards whose search contexts live on the same node, see
+ * {@link SearchTransportService#FETCH_ID_BATCH_ACTION_NAME}.
+ */
+final class ShardFetchBatchRequest extends TransportRequest implements IndicesRequest {
+
+    private final List<ShardFetchSearchRequest> requests;
+
+    ShardFetchBatchRequest(List<ShardFetchSearchRequest> requests) {
+        assert requests.isEmpty() == false;
+        this.requests = Collections.unmodifiableList(requests);
+    }
+
+    ShardFetchBatchRequest(StreamInput in) throws IOException {
+        super(in);
+        requests = in.readList(ShardFetchSearchRequest::new);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeList(requests);
+    }
+
+    List<ShardFetchSearchRequest> requests() {
+        return requests;
+    }
+
+    @Override
+    public String[] indices() {
+        // all requests are sent to the same cluster on behalf of the same search request, so they share their original indices
+        return requests.get(0).indices();
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return requests.get(0).indicesOptions();
+    }
+
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+        return new SearchShardTask(id, type, action, getDescription(), parentTaskId, headers);
+    }
+
+    @Override
+    public String getDescription() {
+        final StringBuilder sb = new StringBuilder("shards[").append(requests.size()).append("]");
+        for (ShardFetchSearchRequest request : requests) {
+            sb.append(", ").append(request.getDescription());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The query requests of several shards that live on the same node, see {@link SearchTransportService#QUERY_BATCH_ACTION_NAME}.
+ * The requests usually share the source of the search request, which is only serialized once in that case.
+ */
+final class ShardSearchBatchRequest extends TransportRequest implements IndicesRequest {
+
+    private final List<ShardSearchRequest> requests;
+
+    ShardSearchBatchRequest(List<ShardSearchRequest> requests) {
+        assert requests.isEmpty() == false;
+        this.requests = Collections.unmodifiableList(requests);
+    }
+
+    ShardSearchBatchRequest(StreamInput in) throws IOException {
+        super(in);
+        final boolean sharedSource = in.readBoolean();
+        final SearchSourceBuilder source = sharedSource ? in.readOptionalWriteable(SearchSourceBuilder::new) : null;
+        final int size = in.readVInt();
+        final List<ShardSearchRequest> requests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final ShardSearchRequest request = new ShardSearchRequest(in);
+            if (sharedSource) {
+                request.source(source);
+            }
+            requests.add(request);
+        }
+        this.requests = Collections.unmodifiableList(requests);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        final SearchSourceBuilder source = requests.get(0).source();
+        final boolean sharedSource = requests.stream().allMatch(request -> request.source() == source);
+        out.writeBoolean(sharedSource);
+        if (sharedSource) {
+            out.writeOptionalWriteable(source);
+        }
+        out.writeVInt(requests.size());
+        for (ShardSearchRequest request : requests) {
+            if (sharedSource && source != null) {
+                request = new ShardSearchRequest(request);
+                request.source(null);
+            }
+            request.writeTo(out);
+        }
+    }
+
+    List<ShardSearchRequest> requests() {
+        return requests;
+    }
+
+    @Override
+    public String[] indices() {
+        // all requests are sent to the same cluster on behalf of the same search request, so they share their original indices
+        return requests.get(0).indices();
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return requests.get(0).indicesOptions();
+    }
+
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+        return new SearchShardTask(id, type, action, getDescription(), parentTaskId, headers);
+    }
+
+    @Override
+    public String getDescription() {
+        final StringBuilder sb = new StringBuilder("shards[").append(requests.size()).append("]");
+        for (ShardSearchRequest request : requests) {
+            sb.append(", ").append(request.getDescription());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+
+/**
+ * The response to a {@link ShardSearchBatchRequest}, holds either the result or the failure of every request of the batch.
+ */
+final class ShardSearchBatchResponse extends TransportResponse {
+
+    private final QuerySearchResult[] results;
+    private final Exception[] failures;
+
+    ShardSearchBatchResponse(QuerySearchResult[] results, Exception[] failures) {
+        assert results.length == failures.length;
+        this.results = results;
+        this.failures = failures;
+    }
+
+    ShardSearchBatchResponse(StreamInput in) throws IOException {
+        final int size = in.readVInt();
+        results = new QuerySearchResult[size];
+        failures = new Exception[size];
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) {
+                results[i] = new QuerySearchResult(in);
+            } else {
+                failures[i] = in.readException();
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(results.length);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                out.writeBoolean(true);
+                results[i].writeTo(out);
+            } else {
+                out.writeBoolean(false);
+                out.writeException(failures[i]);
+            }
+        }
+    }
+
+    int size() {
+        return results.length;
+    }
+
+    /**
+     * The result of the request at the given position of the batch, {@code null} if the request failed.
+     */
+    @Nullable
+    QuerySearchResult getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * The failure of the request at the given position of the batch, {@code null} if the request succeeded.
+     */
+    @Nullable
+    Exception getFailure(int index) {
+        return failures[index];
+    }
+}
@@ -34,6 +34,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.core.TimeValue;
@@ -96,6 +97,25 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether the shard level requests of the query phase are hedged, see {@link HedgedShardRequests}.
+     */
+    public static final Setting<Boolean> HEDGED_REQUESTS_ENABLED_SETTING = Setting.boolSetting(
+            "search.hedged_requests.enabled", false, Property.Dynamic, Property.NodeScope);
+    /** How many times the average response time of a node a shard request may take before it is hedged. */
+    public static final Setting<Double> HEDGED_REQUESTS_LATENCY_MULTIPLIER_SETTING = Setting.doubleSetting(
+            "search.hedged_requests.latency_multiplier", 3.0, 1.0, Property.Dynamic, Property.NodeScope);
+    /** The minimum time to wait for a shard request before it is hedged. */
+    public static final Setting<TimeValue> HEDGED_REQUESTS_MIN_DELAY_SETTING = Setting.timeSetting(
+            "search.hedged_requests.min_delay", TimeValue.timeValueMillis(50), TimeValue.ZERO, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * Whether the query requests of the shards that live on the same node are sent together, see
+     * {@link SearchTransportService#QUERY_BATCH_ACTION_NAME}.
+     */
+    public static final Setting<Boolean> BATCHED_QUERY_PHASE_ENABLED_SETTING = Setting.boolSetting(
+            "search.batched_query_phase.enabled", false, Property.Dynamic, Property.NodeScope);
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
@@ -805,14 +825,33 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                     searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, searchPhaseController, executor, queryResultConsumer,
                         searchRequest, listener, shardIterators, timeProvider, clusterState, task, clusters);
+                    if (clusterService.getClusterSettings().get(BATCHED_QUERY_PHASE_ENABLED_SETTING)) {
+                        searchAsyncAction.batchShardRequestsByNode();
+                    }
                     break;
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
             }
+            final HedgedShardRequests hedgedRequests = hedgedShardRequests(searchRequest, threadPool);
+            if (hedgedRequests != null) {
+                searchAsyncAction.hedgeShardRequests(hedgedRequests);
+            }
             return searchAsyncAction;
         }
     }
 
+    @Nullable
+    private HedgedShardRequests hedgedShardRequests(SearchRequest searchRequest, ThreadPool threadPool) {
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        // scroll and point in time requests must use the search contexts they created, so they can't be sent to another copy
+        if (clusterSettings.get(HEDGED_REQUESTS_ENABLED_SETTING) == false
+                || searchRequest.scroll() != null || searchRequest.pointInTimeBuilder() != null) {
+            return null;
+        }
+        return new HedgedShardRequests(threadPool, searchService.getResponseCollectorService()::getNodeStatistics,
+            clusterSettings.get(HEDGED_REQUESTS_LATENCY_MULTIPLIER_SETTING), clusterSettings.get(HEDGED_REQUESTS_MIN_DELAY_SETTING));
+    }
+
     private static void failIfOverShardCountLimit(ClusterService clusterService, int shardCount) {
         final long shardCountLimit = clusterService.getClusterSettings().get(SHARD_COUNT_LIMIT_SETTING);
         if (shardCount > shardCountLimit) {
@@ -81,7 +81,8 @@ public abstract class TransportWriteAction<
 
     @Override
     protected Releasable checkOperationLimits(Request request) {
-        return indexingPressure.markPrimaryOperationStarted(primaryOperationCount(request), primaryOperationSize(request), force(request));
+        return indexingPressure.markPrimaryOperationStarted(primaryOperationCount(request), primaryOperationSize(request),
+            primaryOperationWeightedSize(request), force(request));
     }
 
     protected boolean force(ReplicatedWriteRequest<?> request) {
@@ -109,7 +110,7 @@ public abstract class TransportWriteAction<
             // operation. This happens if the write action skips the reroute step (ex: rsync) or during
             // primary delegation, after the primary relocation hand-off.
             return indexingPressure.markPrimaryOperationStarted(primaryOperationCount(request), primaryOperationSize(request),
-                force(request));
+                primaryOperationWeightedSize(request), force(request));
         }
     }
 
@@ -117,19 +118,34 @@ public abstract class TransportWriteAction<
         return 0;
     }
 
+    /**
+     * The number of bytes the primary operation is checked against the indexing pressure limits with. Defaults to its size.
+     */
+    protected long primaryOperationWeightedSize(Request request) {
+        return primaryOperationSize(request);
+    }
+
     protected int primaryOperationCount(Request request) {
         return 0;
     }
 
     @Override
     protected Releasable checkReplicaLimits(ReplicaRequest request) {
-        return indexingPressure.markReplicaOperationStarted(replicaOperationCount(request), replicaOperationSize(request), force(request));
+        return indexingPressure.markReplicaOperationStarted(replicaOperationCount(request), replicaOperationSize(request),
+            replicaOperationWeightedSize(request), force(request));
     }
 
     protected long replicaOperationSize(ReplicaRequest request) {
         return 0;
     }
 
+    /**
+     * The number of bytes the replica operation is checked against the indexing pressure limits with. Defaults to its size.
+     */
+    protected long replicaOperationWeightedSize(ReplicaRequest request) {
+        return replicaOperationSize(request);
+    }
+
     protected int replicaOperationCount(ReplicaRequest request) {
         return 0;
     }
@@ -100,8 +100,14 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSortConfig.INDEX_SORT_MISSING_SETTING,
             IndexSortConfig.INDEX_SORT_MODE_SETTING,
             IndexSettings.INDEX_TRANSLOG_DURABILITY_SETTING,
+            IndexSettings.INDEX_TRANSLOG_GROUP_COMMIT_SETTING,
+            IndexSettings.INDEX_TRANSLOG_MEMORY_MAPPED_READS_SETTING,
+            IndexSettings.INDEX_TRANSLOG_COMPRESS_SOURCE_SETTING,
+            IndexSettings.INDEX_BULK_PARSE_AHEAD_SETTING,
+            IndexSettings.INDEX_BULK_APPEND_ONLY_BATCHING_SETTING,
             IndexSettings.INDEX_WARMER_ENABLED_SETTING,
             IndexSettings.INDEX_REFRESH_INTERVAL_SETTING,
+            IndexSettings.INDEX_REFRESH_ADAPTIVE_MAX_INTERVAL_SETTING,
             IndexSettings.MAX_RESULT_WINDOW_SETTING,
             IndexSettings.MAX_INNER_RESULT_WINDOW_SETTING,
             IndexSettings.MAX_TOKEN_COUNT_SETTING,
@@ -126,6 +132,8 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING,
             IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING,
+            IndicesRequestCache.INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING,
+            IndicesRequestCache.INDEX_CACHE_REQUEST_PARTIAL_AGGREGATIONS_SETTING,
             UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING,
             EnableAllocationDecider.INDEX_ROUTING_REBALANCE_ENABLE_SETTING,
             EnableAllocationDecider.INDEX_ROUTING_ALLOCATION_ENABLE_SETTING,
@@ -136,6 +144,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING,
             IndexSettings.INDEX_SEARCH_IDLE_AFTER,
             IndexSettings.INDEX_SEARCH_THROTTLED,
+            IndexSettings.INDEX_SEARCH_CONCURRENT_SEGMENTS,
             IndexFieldDataService.INDEX_FIELDDATA_CACHE_KEY,
             FieldMapper.IGNORE_MALFORMED_SETTING,
             FieldMapper.COERCE_SETTING,
@@ -150,6 +159,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexModule.INDEX_STORE_PRE_LOAD_SETTING,
             IndexModule.INDEX_RECOVERY_TYPE_SETTING,
             IndexModule.INDEX_QUERY_CACHE_ENABLED_SETTING,
+            IndexModule.INDEX_QUERY_CACHE_COST_AWARE_SETTING,
             FsDirectoryFactory.INDEX_LOCK_FACTOR_SETTING,
             EngineConfig.INDEX_CODEC_SETTING,
             IndexMetadata.SETTING_WAIT_FOR_ACTIVE_SHARDS,
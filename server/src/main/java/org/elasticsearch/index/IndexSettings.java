@@ -64,6 +64,36 @@ public final class IndexSettings {
     public static final Setting<Translog.Durability> INDEX_TRANSLOG_DURABILITY_SETTING =
         Setting.enumSetting(Translog.Durability.class, "index.translog.durability", Translog.Durability.REQUEST,
             Property.Dynamic, Property.IndexScope);
+    /**
+     * If enabled, translog fsyncs requested by write operations are batched and executed by a single sync task per shard on the flush
+     * thread pool instead of hijacking one of the waiting write threads. Only relevant for {@link Translog.Durability#REQUEST}.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_GROUP_COMMIT_SETTING =
+        Setting.boolSetting("index.translog.group_commit", false, Property.Dynamic, Property.IndexScope);
+    /**
+     * If enabled, translog snapshots (e.g. used when replaying the translog during local recovery) read operations through a memory
+     * mapped view of each generation file rather than through positional reads on the file channel.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_MEMORY_MAPPED_READS_SETTING =
+        Setting.boolSetting("index.translog.memory_mapped_reads", false, Property.Dynamic, Property.IndexScope);
+    /**
+     * If enabled, the source of index operations is LZ4 compressed before it is written to the translog. Operations are read back
+     * transparently whether their source is compressed or not, so this can be changed at any time.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_COMPRESS_SOURCE_SETTING =
+        Setting.boolSetting("index.translog.compress_source", false, Property.Dynamic, Property.IndexScope);
+    /**
+     * The number of index operations of a shard level bulk request that are parsed concurrently on the write thread pool ahead of the
+     * operation that is currently being indexed on the primary. {@code 0} disables parsing ahead.
+     */
+    public static final Setting<Integer> INDEX_BULK_PARSE_AHEAD_SETTING =
+        Setting.intSetting("index.bulk.parse_ahead", 0, 0, 128, Property.Dynamic, Property.IndexScope);
+    /**
+     * Whether runs of create operations with auto-generated ids in a shard level bulk request are indexed on the primary as a single
+     * batch, sharing one Lucene {@code addDocuments} call, one translog write and one local checkpoint update.
+     */
+    public static final Setting<Boolean> INDEX_BULK_APPEND_ONLY_BATCHING_SETTING =
+        Setting.boolSetting("index.bulk.append_only_batching", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<Boolean> INDEX_WARMER_ENABLED_SETTING =
         Setting.boolSetting("index.warmer.enabled", true, Property.Dynamic, Property.IndexScope);
     public static final Setting<String> INDEX_CHECK_ON_STARTUP =
@@ -172,6 +202,13 @@ public final class IndexSettings {
     public static final Setting<TimeValue> INDEX_REFRESH_INTERVAL_SETTING =
         Setting.timeSetting("index.refresh_interval", DEFAULT_REFRESH_INTERVAL, new TimeValue(-1, TimeUnit.MILLISECONDS),
             Property.Dynamic, Property.IndexScope);
+    /**
+     * The longest interval the adaptive refresh policy may stretch the refresh interval of a shard to, based on its search rate,
+     * indexing buffer and refresh cost. {@code -1} disables adaptive refreshes.
+     */
+    public static final Setting<TimeValue> INDEX_REFRESH_ADAPTIVE_MAX_INTERVAL_SETTING =
+        Setting.timeSetting("index.refresh.adaptive.max_interval", TimeValue.MINUS_ONE, TimeValue.MINUS_ONE,
+            Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING =
         Setting.byteSizeSetting("index.translog.flush_threshold_size", new ByteSizeValue(512, ByteSizeUnit.MB),
             /*
@@ -303,6 +340,13 @@ public final class IndexSettings {
     public static final Setting<Boolean> INDEX_SEARCH_THROTTLED = Setting.boolSetting("index.search.throttled", false,
         Property.IndexScope, Property.PrivateIndex, Property.Dynamic);
 
+    /**
+     * If enabled, the query phase partitions the segments of a shard into slices and searches them concurrently on the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER} thread pool, for requests that only collect top hits.
+     */
+    public static final Setting<Boolean> INDEX_SEARCH_CONCURRENT_SEGMENTS = Setting.boolSetting("index.search.concurrent_segments", false,
+        Property.IndexScope, Property.Dynamic);
+
     /**
      * Determines a balance between file-based and operations-based peer recoveries. The number of operations that will be used in an
      * operations-based peer recovery is limited to this proportion of the total number of documents in the shard (including deleted
@@ -331,8 +375,14 @@ public final class IndexSettings {
     private final boolean queryStringAllowLeadingWildcard;
     private final boolean defaultAllowUnmappedFields;
     private volatile Translog.Durability durability;
+    private volatile boolean translogGroupCommit;
+    private volatile boolean translogMemoryMappedReads;
+    private volatile boolean translogCompressSource;
+    private volatile int bulkParseAhead;
+    private volatile boolean bulkAppendOnlyBatching;
     private volatile TimeValue syncInterval;
     private volatile TimeValue refreshInterval;
+    private volatile TimeValue adaptiveRefreshMaxInterval;
     private volatile ByteSizeValue flushThresholdSize;
     private volatile ByteSizeValue generationThresholdSize;
     private volatile ByteSizeValue flushAfterMergeThresholdSize;
@@ -374,6 +424,7 @@ public final class IndexSettings {
     private volatile String defaultPipeline;
     private volatile String requiredPipeline;
     private volatile boolean searchThrottled;
+    private volatile boolean searchConcurrentSegments;
     private volatile long mappingNestedFieldsLimit;
     private volatile long mappingNestedDocsLimit;
     private volatile long mappingTotalFieldsLimit;
@@ -463,14 +514,21 @@ public final class IndexSettings {
         numberOfShards = settings.getAsInt(IndexMetadata.SETTING_NUMBER_OF_SHARDS, null);
 
         this.searchThrottled = INDEX_SEARCH_THROTTLED.get(settings);
+        this.searchConcurrentSegments = scopedSettings.get(INDEX_SEARCH_CONCURRENT_SEGMENTS);
         this.queryStringLenient = QUERY_STRING_LENIENT_SETTING.get(settings);
         this.queryStringAnalyzeWildcard = QUERY_STRING_ANALYZE_WILDCARD.get(nodeSettings);
         this.queryStringAllowLeadingWildcard = QUERY_STRING_ALLOW_LEADING_WILDCARD.get(nodeSettings);
         this.defaultAllowUnmappedFields = scopedSettings.get(ALLOW_UNMAPPED);
         this.durability = scopedSettings.get(INDEX_TRANSLOG_DURABILITY_SETTING);
+        this.translogGroupCommit = scopedSettings.get(INDEX_TRANSLOG_GROUP_COMMIT_SETTING);
+        this.translogMemoryMappedReads = scopedSettings.get(INDEX_TRANSLOG_MEMORY_MAPPED_READS_SETTING);
+        this.translogCompressSource = scopedSettings.get(INDEX_TRANSLOG_COMPRESS_SOURCE_SETTING);
+        this.bulkParseAhead = scopedSettings.get(INDEX_BULK_PARSE_AHEAD_SETTING);
+        this.bulkAppendOnlyBatching = scopedSettings.get(INDEX_BULK_APPEND_ONLY_BATCHING_SETTING);
         defaultFields = scopedSettings.get(DEFAULT_FIELD_SETTING);
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
+        adaptiveRefreshMaxInterval = scopedSettings.get(INDEX_REFRESH_ADAPTIVE_MAX_INTERVAL_SETTING);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
         generationThresholdSize = scopedSettings.get(INDEX_TRANSLOG_GENERATION_THRESHOLD_SIZE_SETTING);
         flushAfterMergeThresholdSize = scopedSettings.get(INDEX_FLUSH_AFTER_MERGE_THRESHOLD_SIZE_SETTING);
@@ -524,6 +582,11 @@ public final class IndexSettings {
             MergeSchedulerConfig.MAX_MERGE_COUNT_SETTING, mergeSchedulerConfig::setMaxThreadAndMergeCount);
         scopedSettings.addSettingsUpdateConsumer(MergeSchedulerConfig.AUTO_THROTTLE_SETTING, mergeSchedulerConfig::setAutoThrottle);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_DURABILITY_SETTING, this::setTranslogDurability);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_GROUP_COMMIT_SETTING, this::setTranslogGroupCommit);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_MEMORY_MAPPED_READS_SETTING, this::setTranslogMemoryMappedReads);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_COMPRESS_SOURCE_SETTING, this::setTranslogCompressSource);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_BULK_PARSE_AHEAD_SETTING, this::setBulkParseAhead);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_BULK_APPEND_ONLY_BATCHING_SETTING, this::setBulkAppendOnlyBatching);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_SYNC_INTERVAL_SETTING, this::setTranslogSyncInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESULT_WINDOW_SETTING, this::setMaxResultWindow);
         scopedSettings.addSettingsUpdateConsumer(MAX_INNER_RESULT_WINDOW_SETTING, this::setMaxInnerResultWindow);
@@ -541,6 +604,7 @@ public final class IndexSettings {
                 INDEX_TRANSLOG_GENERATION_THRESHOLD_SIZE_SETTING,
                 this::setGenerationThresholdSize);
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_ADAPTIVE_MAX_INTERVAL_SETTING, this::setAdaptiveRefreshMaxInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(MAX_ANALYZED_OFFSET_SETTING, this::setHighlightMaxAnalyzedOffset);
         scopedSettings.addSettingsUpdateConsumer(MAX_TERMS_COUNT_SETTING, this::setMaxTermsCount);
@@ -552,6 +616,7 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(FINAL_PIPELINE, this::setRequiredPipeline);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING, this::setSoftDeleteRetentionOperations);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_THROTTLED, this::setSearchThrottled);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_CONCURRENT_SEGMENTS, this::setSearchConcurrentSegments);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING, this::setRetentionLeaseMillis);
         scopedSettings.addSettingsUpdateConsumer(INDEX_MAPPING_NESTED_FIELDS_LIMIT_SETTING, this::setMappingNestedFieldsLimit);
         scopedSettings.addSettingsUpdateConsumer(INDEX_MAPPING_NESTED_DOCS_LIMIT_SETTING, this::setMappingNestedDocsLimit);
@@ -711,6 +776,61 @@ public final class IndexSettings {
         this.durability = durability;
     }
 
+    /**
+     * Returns <code>true</code> if translog fsyncs for write requests are group-committed on a dedicated sync task.
+     */
+    public boolean isTranslogGroupCommit() {
+        return translogGroupCommit;
+    }
+
+    private void setTranslogGroupCommit(boolean translogGroupCommit) {
+        this.translogGroupCommit = translogGroupCommit;
+    }
+
+    /**
+     * Returns <code>true</code> if translog snapshots read generation files through a memory mapping.
+     */
+    public boolean isTranslogMemoryMappedReads() {
+        return translogMemoryMappedReads;
+    }
+
+    private void setTranslogMemoryMappedReads(boolean translogMemoryMappedReads) {
+        this.translogMemoryMappedReads = translogMemoryMappedReads;
+    }
+
+    /**
+     * Returns <code>true</code> if the source of index operations is compressed when written to the translog.
+     */
+    public boolean isTranslogCompressSource() {
+        return translogCompressSource;
+    }
+
+    private void setTranslogCompressSource(boolean translogCompressSource) {
+        this.translogCompressSource = translogCompressSource;
+    }
+
+    /**
+     * Returns the number of bulk index operations that are parsed ahead of the operation being indexed on the primary.
+     */
+    public int getBulkParseAhead() {
+        return bulkParseAhead;
+    }
+
+    private void setBulkParseAhead(int bulkParseAhead) {
+        this.bulkParseAhead = bulkParseAhead;
+    }
+
+    /**
+     * Returns <code>true</code> if append-only bulk index operations are indexed as a batch on the primary.
+     */
+    public boolean isBulkAppendOnlyBatching() {
+        return bulkAppendOnlyBatching;
+    }
+
+    private void setBulkAppendOnlyBatching(boolean bulkAppendOnlyBatching) {
+        this.bulkAppendOnlyBatching = bulkAppendOnlyBatching;
+    }
+
     /**
      * Returns true if index warmers are enabled, otherwise <code>false</code>
      */
@@ -741,6 +861,18 @@ public final class IndexSettings {
         return refreshInterval;
     }
 
+    /**
+     * Returns the longest interval the adaptive refresh policy may stretch the refresh interval to. {@code -1} means adaptive
+     * refreshes are disabled.
+     */
+    public TimeValue getAdaptiveRefreshMaxInterval() {
+        return adaptiveRefreshMaxInterval;
+    }
+
+    private void setAdaptiveRefreshMaxInterval(TimeValue adaptiveRefreshMaxInterval) {
+        this.adaptiveRefreshMaxInterval = adaptiveRefreshMaxInterval;
+    }
+
     /**
      * Returns the transaction log threshold size when to forcefully flush the index and clear the transaction log.
      */
@@ -982,6 +1114,18 @@ public final class IndexSettings {
         this.searchThrottled = searchThrottled;
     }
 
+    /**
+     * Returns true if the segments of the shards of this index should be searched concurrently, see
+     * {@link #INDEX_SEARCH_CONCURRENT_SEGMENTS}.
+     */
+    public boolean isSearchConcurrentSegments() {
+        return searchConcurrentSegments;
+    }
+
+    private void setSearchConcurrentSegments(boolean searchConcurrentSegments) {
+        this.searchConcurrentSegments = searchConcurrentSegments;
+    }
+
     public long getMappingNestedFieldsLimit() {
         return mappingNestedFieldsLimit;
     }
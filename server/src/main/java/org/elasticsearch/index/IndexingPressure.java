@@ -10,6 +10,7 @@ package org.elasticsearch.index;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -19,12 +20,28 @@ import org.elasticsearch.index.stats.IndexingPressureStats;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
 
 public class IndexingPressure {
 
     public static final Setting<ByteSizeValue> MAX_INDEXING_BYTES =
         Setting.memorySizeSetting("indexing_pressure.memory.limit", "10%", Setting.Property.NodeScope);
 
+    /**
+     * Whether shard level write operations are charged by their bytes weighted with the recent bulk cost per byte of their shard
+     * rather than by their bytes alone.
+     */
+    public static final Setting<Boolean> COST_MODEL_ENABLED =
+        Setting.boolSetting("indexing_pressure.cost_model.enabled", false, Setting.Property.NodeScope);
+
+    /**
+     * The largest factor the bytes of a shard level write operation are weighted with when the cost model is enabled.
+     */
+    public static final Setting<Double> COST_MODEL_MAX_WEIGHT =
+        Setting.doubleSetting("indexing_pressure.cost_model.max_weight", 4.0, 1.0, Setting.Property.NodeScope);
+
+    private static final double COST_ALPHA = 0.1;
+
     private static final Logger logger = LogManager.getLogger(IndexingPressure.class);
 
     private final AtomicLong currentCombinedCoordinatingAndPrimaryBytes = new AtomicLong(0);
@@ -32,6 +49,10 @@ public class IndexingPressure {
     private final AtomicLong currentPrimaryBytes = new AtomicLong(0);
     private final AtomicLong currentReplicaBytes = new AtomicLong(0);
 
+    // the bytes that are checked against the limits, shard level operations count with their weighted bytes
+    private final AtomicLong currentCombinedCoordinatingAndPrimaryWeightedBytes = new AtomicLong(0);
+    private final AtomicLong currentReplicaWeightedBytes = new AtomicLong(0);
+
     private final AtomicLong currentCoordinatingOps = new AtomicLong(0);
     private final AtomicLong currentPrimaryOps = new AtomicLong(0);
     private final AtomicLong currentReplicaOps = new AtomicLong(0);
@@ -52,9 +73,50 @@ public class IndexingPressure {
     private final long primaryAndCoordinatingLimits;
     private final long replicaLimits;
 
+    private final boolean costModelEnabled;
+    private final double maxCostWeight;
+    private final ExponentiallyWeightedMovingAverage bulkTimeInNanos = new ExponentiallyWeightedMovingAverage(COST_ALPHA, 0.0);
+    private final ExponentiallyWeightedMovingAverage bulkSizeInBytes = new ExponentiallyWeightedMovingAverage(COST_ALPHA, 0.0);
+
     public IndexingPressure(Settings settings) {
         this.primaryAndCoordinatingLimits = MAX_INDEXING_BYTES.get(settings).getBytes();
         this.replicaLimits = (long) (this.primaryAndCoordinatingLimits * 1.5);
+        this.costModelEnabled = COST_MODEL_ENABLED.get(settings);
+        this.maxCostWeight = COST_MODEL_MAX_WEIGHT.get(settings);
+    }
+
+    /**
+     * Records the time it took to execute a shard level bulk request on this node. The average cost per byte of all bulk requests
+     * is the reference that {@link #weightedBytes(long, DoubleSupplier)} compares the cost of individual shards with.
+     */
+    public void recordBulkCost(long sizeInBytes, long tookInNanos) {
+        if (costModelEnabled && sizeInBytes > 0) {
+            bulkTimeInNanos.addValue(tookInNanos);
+            bulkSizeInBytes.addValue(sizeInBytes);
+        }
+    }
+
+    /**
+     * Returns the number of bytes a shard level write operation of the given size is charged with. If the cost model is enabled,
+     * operations on shards whose recent bulk requests took more time per byte than the average of this node are charged with up to
+     * {@code indexing_pressure.cost_model.max_weight} times their size, so that CPU heavy operations, e.g. because of expensive
+     * analysis, are rejected earlier. Operations are never charged with less than their size since the limits protect memory.
+     *
+     * @param bytes             the size of the operation
+     * @param shardNanosPerByte supplies the recent bulk cost per byte of the target shard, or a negative value if it isn't known
+     */
+    public long weightedBytes(long bytes, DoubleSupplier shardNanosPerByte) {
+        if (costModelEnabled == false) {
+            return bytes;
+        }
+        final double nodeSizeInBytes = bulkSizeInBytes.getAverage();
+        final double nodeNanosPerByte = nodeSizeInBytes > 0 ? bulkTimeInNanos.getAverage() / nodeSizeInBytes : 0;
+        final double shardCost = shardNanosPerByte.getAsDouble();
+        if (nodeNanosPerByte <= 0 || shardCost <= 0) {
+            return bytes;
+        }
+        final double weight = Math.min(maxCostWeight, Math.max(1.0, shardCost / nodeNanosPerByte));
+        return Math.round(bytes * weight);
     }
 
     private static Releasable wrapReleasable(Releasable releasable) {
@@ -70,13 +132,13 @@ public class IndexingPressure {
     }
 
     public Releasable markCoordinatingOperationStarted(int operations, long bytes, boolean forceExecution) {
-        long combinedBytes = this.currentCombinedCoordinatingAndPrimaryBytes.addAndGet(bytes);
-        long replicaWriteBytes = this.currentReplicaBytes.get();
+        long combinedBytes = this.currentCombinedCoordinatingAndPrimaryWeightedBytes.addAndGet(bytes);
+        long replicaWriteBytes = this.currentReplicaWeightedBytes.get();
         long totalBytes = combinedBytes + replicaWriteBytes;
         if (forceExecution == false && totalBytes > primaryAndCoordinatingLimits) {
             long bytesWithoutOperation = combinedBytes - bytes;
             long totalBytesWithoutOperation = totalBytes - bytes;
-            this.currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
+            this.currentCombinedCoordinatingAndPrimaryWeightedBytes.getAndAdd(-bytes);
             this.coordinatingRejections.getAndIncrement();
             throw new EsRejectedExecutionException("rejected execution of coordinating operation [" +
                 "coordinating_and_primary_bytes=" + bytesWithoutOperation + ", " +
@@ -85,12 +147,14 @@ public class IndexingPressure {
                 "coordinating_operation_bytes=" + bytes + ", " +
                 "max_coordinating_and_primary_bytes=" + primaryAndCoordinatingLimits + "]", false);
         }
+        currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(bytes);
         currentCoordinatingBytes.getAndAdd(bytes);
         currentCoordinatingOps.getAndAdd(operations);
         totalCombinedCoordinatingAndPrimaryBytes.getAndAdd(bytes);
         totalCoordinatingBytes.getAndAdd(bytes);
         totalCoordinatingOps.getAndAdd(operations);
         return wrapReleasable(() -> {
+            this.currentCombinedCoordinatingAndPrimaryWeightedBytes.getAndAdd(-bytes);
             this.currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
             this.currentCoordinatingBytes.getAndAdd(-bytes);
             this.currentCoordinatingOps.getAndAdd(-operations);
@@ -109,27 +173,37 @@ public class IndexingPressure {
     }
 
     public Releasable markPrimaryOperationStarted(int operations, long bytes, boolean forceExecution) {
-        long combinedBytes = this.currentCombinedCoordinatingAndPrimaryBytes.addAndGet(bytes);
-        long replicaWriteBytes = this.currentReplicaBytes.get();
+        return markPrimaryOperationStarted(operations, bytes, bytes, forceExecution);
+    }
+
+    /**
+     * Marks the start of a primary operation whose size is {@code bytes} but which is checked against the limits with
+     * {@code weightedBytes}, see {@link #weightedBytes(long, DoubleSupplier)}. The stats keep reporting the size of the operation.
+     */
+    public Releasable markPrimaryOperationStarted(int operations, long bytes, long weightedBytes, boolean forceExecution) {
+        long combinedBytes = this.currentCombinedCoordinatingAndPrimaryWeightedBytes.addAndGet(weightedBytes);
+        long replicaWriteBytes = this.currentReplicaWeightedBytes.get();
         long totalBytes = combinedBytes + replicaWriteBytes;
         if (forceExecution == false && totalBytes > primaryAndCoordinatingLimits) {
-            long bytesWithoutOperation = combinedBytes - bytes;
-            long totalBytesWithoutOperation = totalBytes - bytes;
-            this.currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
+            long bytesWithoutOperation = combinedBytes - weightedBytes;
+            long totalBytesWithoutOperation = totalBytes - weightedBytes;
+            this.currentCombinedCoordinatingAndPrimaryWeightedBytes.getAndAdd(-weightedBytes);
             this.primaryRejections.getAndIncrement();
             throw new EsRejectedExecutionException("rejected execution of primary operation [" +
                 "coordinating_and_primary_bytes=" + bytesWithoutOperation + ", " +
                 "replica_bytes=" + replicaWriteBytes + ", " +
                 "all_bytes=" + totalBytesWithoutOperation + ", " +
-                "primary_operation_bytes=" + bytes + ", " +
+                "primary_operation_bytes=" + weightedBytes + ", " +
                 "max_coordinating_and_primary_bytes=" + primaryAndCoordinatingLimits + "]", false);
         }
+        currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(bytes);
         currentPrimaryBytes.getAndAdd(bytes);
         currentPrimaryOps.getAndAdd(operations);
         totalCombinedCoordinatingAndPrimaryBytes.getAndAdd(bytes);
         totalPrimaryBytes.getAndAdd(bytes);
         totalPrimaryOps.getAndAdd(operations);
         return wrapReleasable(() -> {
+            this.currentCombinedCoordinatingAndPrimaryWeightedBytes.getAndAdd(-weightedBytes);
             this.currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
             this.currentPrimaryBytes.getAndAdd(-bytes);
             this.currentPrimaryOps.getAndAdd(-operations);
@@ -137,20 +211,30 @@ public class IndexingPressure {
     }
 
     public Releasable markReplicaOperationStarted(int operations, long bytes, boolean forceExecution) {
-        long replicaWriteBytes = this.currentReplicaBytes.addAndGet(bytes);
+        return markReplicaOperationStarted(operations, bytes, bytes, forceExecution);
+    }
+
+    /**
+     * Marks the start of a replica operation whose size is {@code bytes} but which is checked against the limits with
+     * {@code weightedBytes}, see {@link #weightedBytes(long, DoubleSupplier)}. The stats keep reporting the size of the operation.
+     */
+    public Releasable markReplicaOperationStarted(int operations, long bytes, long weightedBytes, boolean forceExecution) {
+        long replicaWriteBytes = this.currentReplicaWeightedBytes.addAndGet(weightedBytes);
         if (forceExecution == false && replicaWriteBytes > replicaLimits) {
-            long replicaBytesWithoutOperation = replicaWriteBytes - bytes;
-            this.currentReplicaBytes.getAndAdd(-bytes);
+            long replicaBytesWithoutOperation = replicaWriteBytes - weightedBytes;
+            this.currentReplicaWeightedBytes.getAndAdd(-weightedBytes);
             this.replicaRejections.getAndIncrement();
             throw new EsRejectedExecutionException("rejected execution of replica operation [" +
                 "replica_bytes=" + replicaBytesWithoutOperation + ", " +
-                "replica_operation_bytes=" + bytes + ", " +
+                "replica_operation_bytes=" + weightedBytes + ", " +
                 "max_replica_bytes=" + replicaLimits + "]", false);
         }
+        currentReplicaBytes.getAndAdd(bytes);
         currentReplicaOps.getAndAdd(operations);
         totalReplicaBytes.getAndAdd(bytes);
         totalReplicaOps.getAndAdd(operations);
         return wrapReleasable(() -> {
+            this.currentReplicaWeightedBytes.getAndAdd(-weightedBytes);
             this.currentReplicaBytes.getAndAdd(-bytes);
             this.currentReplicaOps.getAndAdd(-operations);
         });
@@ -161,6 +245,7 @@ public class IndexingPressure {
             totalPrimaryBytes.get(), totalReplicaBytes.get(), currentCombinedCoordinatingAndPrimaryBytes.get(),
             currentCoordinatingBytes.get(), currentPrimaryBytes.get(), currentReplicaBytes.get(), coordinatingRejections.get(),
             primaryRejections.get(), replicaRejections.get(), primaryAndCoordinatingLimits, totalCoordinatingOps.get(),
-            totalPrimaryOps.get(), totalReplicaOps.get(), currentCoordinatingOps.get(), currentPrimaryOps.get(), currentReplicaOps.get());
+            totalPrimaryOps.get(), totalReplicaOps.get(), currentCoordinatingOps.get(), currentPrimaryOps.get(), currentReplicaOps.get(),
+            currentCombinedCoordinatingAndPrimaryWeightedBytes.get(), currentReplicaWeightedBytes.get());
     }
 }
@@ -36,6 +36,15 @@ public class ShardBulkStats implements BulkOperationListener {
         totalStats.sizeInBytes.addValue(shardBulkSizeInBytes);
     }
 
+    /**
+     * Returns the recent average time it took to execute a shard level bulk request per byte of the request, or {@code -1} if no bulk
+     * request was executed yet.
+     */
+    public double costPerByteInNanos() {
+        final double sizeInBytes = totalStats.sizeInBytes.getAverage();
+        return sizeInBytes > 0 ? totalStats.timeInMillis.getAverage() / sizeInBytes : -1;
+    }
+
     static final class StatsHolder {
         final MeanMetric shardBulkMetric = new MeanMetric();
         final CounterMetric totalSizeInBytes = new CounterMetric();
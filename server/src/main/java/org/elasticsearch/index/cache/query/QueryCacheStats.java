@@ -11,6 +11,7 @@ package org.elasticsearch.index.cache.query;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -18,8 +19,13 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.core.Nullable;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class QueryCacheStats implements Writeable, ToXContentFragment {
 
@@ -30,6 +36,8 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
     private long missCount;
     private long cacheCount;
     private long cacheSize;
+    @Nullable
+    private Map<String, QueryTypeStats> queryTypeStats;
 
     public QueryCacheStats() {
     }
@@ -40,14 +48,23 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         missCount = in.readLong();
         cacheCount = in.readLong();
         cacheSize = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0) && in.readBoolean()) {
+            queryTypeStats = in.readMap(StreamInput::readString, QueryTypeStats::new);
+        }
     }
 
     public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize) {
+        this(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, null);
+    }
+
+    public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize,
+                           @Nullable Map<String, QueryTypeStats> queryTypeStats) {
         this.ramBytesUsed = ramBytesUsed;
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.cacheCount = cacheCount;
         this.cacheSize = cacheSize;
+        this.queryTypeStats = queryTypeStats;
     }
 
     public void add(QueryCacheStats stats) {
@@ -56,6 +73,14 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         missCount += stats.missCount;
         cacheCount += stats.cacheCount;
         cacheSize += stats.cacheSize;
+        if (stats.queryTypeStats != null && stats.queryTypeStats.isEmpty() == false) {
+            if (queryTypeStats == null) {
+                queryTypeStats = new HashMap<>(stats.queryTypeStats.size());
+            }
+            for (Map.Entry<String, QueryTypeStats> entry : stats.queryTypeStats.entrySet()) {
+                queryTypeStats.computeIfAbsent(entry.getKey(), k -> new QueryTypeStats()).add(entry.getValue());
+            }
+        }
     }
 
     public long getMemorySizeInBytes() {
@@ -108,6 +133,14 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         return cacheCount - cacheSize;
     }
 
+    /**
+     * The statistics of the cache per type of the cached queries, or {@code null} if none were collected.
+     */
+    @Nullable
+    public Map<String, QueryTypeStats> getQueryTypeStats() {
+        return queryTypeStats != null ? Collections.unmodifiableMap(queryTypeStats) : null;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeLong(ramBytesUsed);
@@ -115,6 +148,14 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         out.writeLong(missCount);
         out.writeLong(cacheCount);
         out.writeLong(cacheSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            if (queryTypeStats == null || queryTypeStats.isEmpty()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeMap(queryTypeStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
+            }
+        }
     }
 
     @Override
@@ -127,10 +168,99 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         builder.field(Fields.CACHE_SIZE, getCacheSize());
         builder.field(Fields.CACHE_COUNT, getCacheCount());
         builder.field(Fields.EVICTIONS, getEvictions());
+        if (queryTypeStats != null && queryTypeStats.isEmpty() == false) {
+            builder.startObject(Fields.QUERY_TYPES);
+            for (Map.Entry<String, QueryTypeStats> entry : new TreeMap<>(queryTypeStats).entrySet()) {
+                builder.startObject(entry.getKey());
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
 
+    /**
+     * The statistics of the cache for the queries of a single type.
+     */
+    public static class QueryTypeStats implements Writeable, ToXContentFragment {
+
+        private long hitCount;
+        private long missCount;
+        private long cacheCount;
+        private long evictions;
+
+        public QueryTypeStats() {
+        }
+
+        public QueryTypeStats(long hitCount, long missCount, long cacheCount, long evictions) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.cacheCount = cacheCount;
+            this.evictions = evictions;
+        }
+
+        public QueryTypeStats(StreamInput in) throws IOException {
+            hitCount = in.readVLong();
+            missCount = in.readVLong();
+            cacheCount = in.readVLong();
+            evictions = in.readVLong();
+        }
+
+        public void add(QueryTypeStats stats) {
+            hitCount += stats.hitCount;
+            missCount += stats.missCount;
+            cacheCount += stats.cacheCount;
+            evictions += stats.evictions;
+        }
+
+        /**
+         * The number of successful lookups of queries of this type in the cache.
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * The number of lookups of queries of this type in the cache that failed to retrieve a {@link DocIdSet}.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * The number of {@link DocIdSet}s of queries of this type that have been cached.
+         */
+        public long getCacheCount() {
+            return cacheCount;
+        }
+
+        /**
+         * The number of {@link DocIdSet}s of queries of this type that have been evicted to make room for other queries.
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(hitCount);
+            out.writeVLong(missCount);
+            out.writeVLong(cacheCount);
+            out.writeVLong(evictions);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.HIT_COUNT, hitCount);
+            builder.field(Fields.MISS_COUNT, missCount);
+            builder.field(Fields.CACHE_COUNT, cacheCount);
+            builder.field(Fields.EVICTIONS, evictions);
+            return builder;
+        }
+    }
+
     static final class Fields {
         static final String QUERY_CACHE = "query_cache";
         static final String MEMORY_SIZE = "memory_size";
@@ -141,6 +271,7 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         static final String CACHE_SIZE = "cache_size";
         static final String CACHE_COUNT = "cache_count";
         static final String EVICTIONS = "evictions";
+        static final String QUERY_TYPES = "query_types";
     }
 
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.MutablePointValues;
+import org.apache.lucene.codecs.PointsFormat;
+import org.apache.lucene.codecs.PointsReader;
+import org.apache.lucene.codecs.PointsWriter;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.MergeState;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A {@link Codec} that records the range of a timestamp field in the attributes of every segment it writes, both when flushing and
+ * when merging. Searches use the recorded range to skip whole segments that can't match a range query on the timestamp field, see
+ * {@link #readRange(LeafReader, String)}. Only the segment attributes differ from the wrapped codec, so segments written by this codec
+ * are read by the wrapped codec, which is why it also carries its name.
+ * <p>
+ * The range is recorded for fields that index a single dimension of 8 bytes, like {@code date} and {@code date_nanos} fields. The range
+ * of a merged segment is the union of the ranges of the merged segments, which may be wider than necessary if documents were deleted.
+ */
+public final class TimestampRangeCodec extends FilterCodec {
+
+    private static final String ATTRIBUTE_PREFIX = "es.timestamp_range.";
+
+    private final PointsFormat pointsFormat;
+
+    public TimestampRangeCodec(Codec delegate, String timestampField) {
+        super(delegate.getName(), delegate);
+        this.pointsFormat = new TimestampRangePointsFormat(delegate.pointsFormat(), timestampField);
+    }
+
+    @Override
+    public PointsFormat pointsFormat() {
+        return pointsFormat;
+    }
+
+    /**
+     * Returns the recorded range of the given field in the segment of the given reader as {@code [min, max]}, in the sortable long
+     * representation of the field's points, or {@code null} if the segment has no recorded range for the field.
+     */
+    @Nullable
+    public static long[] readRange(LeafReader reader, String field) {
+        final LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+        if (unwrapped instanceof SegmentReader == false) {
+            return null;
+        }
+        final SegmentInfo info = ((SegmentReader) unwrapped).getSegmentInfo().info;
+        final String min = info.getAttribute(minAttribute(field));
+        final String max = info.getAttribute(maxAttribute(field));
+        if (min == null || max == null) {
+            return null;
+        }
+        return new long[] { Long.parseLong(min), Long.parseLong(max) };
+    }
+
+    private static String minAttribute(String field) {
+        return ATTRIBUTE_PREFIX + field + ".min";
+    }
+
+    private static String maxAttribute(String field) {
+        return ATTRIBUTE_PREFIX + field + ".max";
+    }
+
+    private static boolean isSingleLongDimension(FieldInfo fieldInfo) {
+        return fieldInfo != null && fieldInfo.getPointDimensionCount() == 1 && fieldInfo.getPointNumBytes() == Long.BYTES;
+    }
+
+    private static final class TimestampRangePointsFormat extends PointsFormat {
+        private final PointsFormat delegate;
+        private final String timestampField;
+
+        TimestampRangePointsFormat(PointsFormat delegate, String timestampField) {
+            this.delegate = delegate;
+            this.timestampField = timestampField;
+        }
+
+        @Override
+        public PointsWriter fieldsWriter(SegmentWriteState state) throws IOException {
+            return new TimestampRangePointsWriter(delegate.fieldsWriter(state), state.segmentInfo, timestampField);
+        }
+
+        @Override
+        public PointsReader fieldsReader(SegmentReadState state) throws IOException {
+            return delegate.fieldsReader(state);
+        }
+    }
+
+    private static final class TimestampRangePointsWriter extends PointsWriter {
+        private final PointsWriter delegate;
+        private final SegmentInfo segmentInfo;
+        private final String timestampField;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        TimestampRangePointsWriter(PointsWriter delegate, SegmentInfo segmentInfo, String timestampField) {
+            this.delegate = delegate;
+            this.segmentInfo = segmentInfo;
+            this.timestampField = timestampField;
+        }
+
+        @Override
+        public void writeField(FieldInfo fieldInfo, PointsReader values) throws IOException {
+            if (fieldInfo.name.equals(timestampField) && isSingleLongDimension(fieldInfo)) {
+                // must happen before the delegate writes the field since it may reorder mutable points in place
+                collect(values.getValues(fieldInfo.name));
+            }
+            delegate.writeField(fieldInfo, values);
+        }
+
+        @Override
+        public void merge(MergeState mergeState) throws IOException {
+            delegate.merge(mergeState);
+            if (isSingleLongDimension(mergeState.mergeFieldInfos.fieldInfo(timestampField))) {
+                for (int i = 0; i < mergeState.pointsReaders.length; i++) {
+                    final PointsReader reader = mergeState.pointsReaders[i];
+                    // readers throw when asked for a field that has no points in their segment
+                    final FieldInfo fieldInfo = mergeState.fieldInfos[i].fieldInfo(timestampField);
+                    if (reader != null && fieldInfo != null && fieldInfo.getPointDimensionCount() > 0) {
+                        collect(reader.getValues(timestampField));
+                    }
+                }
+            }
+        }
+
+        private void collect(@Nullable PointValues values) throws IOException {
+            if (values == null || values.size() == 0) {
+                return;
+            }
+            if (values instanceof MutablePointValues) {
+                // points that are being flushed don't know their min and max value yet
+                final MutablePointValues mutableValues = (MutablePointValues) values;
+                final BytesRef packedValue = new BytesRef();
+                for (int i = 0; i < mutableValues.size(); i++) {
+                    mutableValues.getValue(i, packedValue);
+                    final long value = NumericUtils.sortableBytesToLong(packedValue.bytes, packedValue.offset);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            } else {
+                min = Math.min(min, NumericUtils.sortableBytesToLong(values.getMinPackedValue(), 0));
+                max = Math.max(max, NumericUtils.sortableBytesToLong(values.getMaxPackedValue(), 0));
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            delegate.finish();
+            if (min <= max) {
+                segmentInfo.putAttribute(minAttribute(timestampField), Long.toString(min));
+                segmentInfo.putAttribute(maxAttribute(timestampField), Long.toString(max));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
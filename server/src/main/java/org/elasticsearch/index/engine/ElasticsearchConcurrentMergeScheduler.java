@@ -13,17 +13,28 @@ import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.OneMergeHelper;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimitedIndexOutput;
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.MergeSchedulerConfig;
 import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.merge.NodeMergeScheduler;
 import org.elasticsearch.index.merge.OnGoingMerge;
 import org.elasticsearch.index.shard.ShardId;
 
@@ -50,13 +61,22 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
     private final CounterMetric currentMergesSizeInBytes = new CounterMetric();
     private final CounterMetric totalMergeStoppedTime = new CounterMetric();
     private final CounterMetric totalMergeThrottledTime = new CounterMetric();
+    private final CounterMetric currentQueuedMerges = new CounterMetric();
+    private final CounterMetric totalMergeQueuedTime = new CounterMetric();
 
     private final Set<OnGoingMerge> onGoingMerges = ConcurrentCollections.newConcurrentSet();
     private final Set<OnGoingMerge> readOnlyOnGoingMerges = Collections.unmodifiableSet(onGoingMerges);
     private final MergeSchedulerConfig config;
+    @Nullable
+    private final NodeMergeScheduler nodeMergeScheduler;
 
     ElasticsearchConcurrentMergeScheduler(ShardId shardId, IndexSettings indexSettings) {
+        this(shardId, indexSettings, null);
+    }
+
+    ElasticsearchConcurrentMergeScheduler(ShardId shardId, IndexSettings indexSettings, @Nullable NodeMergeScheduler nodeMergeScheduler) {
         this.config = indexSettings.getMergeSchedulerConfig();
+        this.nodeMergeScheduler = nodeMergeScheduler;
         this.shardId = shardId;
         this.indexSettings = indexSettings.getSettings();
         this.logger = Loggers.getLogger(getClass(), shardId);
@@ -86,7 +106,9 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         }
         try {
             beforeMerge(onGoingMerge);
-            super.doMerge(mergeSource, merge);
+            try (Releasable ignored = acquireNodeMergeSlot(merge)) {
+                super.doMerge(mergeSource, merge);
+            }
         } finally {
             long tookMS = TimeValue.nsecToMSec(System.nanoTime() - timeNS);
 
@@ -132,6 +154,56 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         }
     }
 
+    private Releasable acquireNodeMergeSlot(MergePolicy.OneMerge merge) {
+        if (nodeMergeScheduler == null) {
+            return () -> {};
+        }
+        final long startNS = System.nanoTime();
+        currentQueuedMerges.inc();
+        try {
+            return nodeMergeScheduler.acquire(shardId, mergeBenefit(merge), merge::isAborted);
+        } catch (InterruptedException e) {
+            throw new ThreadInterruptedException(e);
+        } finally {
+            currentQueuedMerges.dec();
+            totalMergeQueuedTime.inc(TimeValue.nsecToMSec(System.nanoTime() - startNS));
+        }
+    }
+
+    /**
+     * Estimates how much the given merge improves the shard relative to the amount of bytes it needs to write. Merges that reduce the
+     * segment count a lot or reclaim many deleted documents rank first, large merges rank last.
+     */
+    static double mergeBenefit(MergePolicy.OneMerge merge) {
+        long maxDoc = 0;
+        long deletedDocs = 0;
+        for (SegmentCommitInfo info : merge.segments) {
+            maxDoc += info.info.maxDoc();
+            deletedDocs += info.getDelCount() + info.getSoftDelCount();
+        }
+        final int segments = merge.segments.size();
+        final double reclaimedRatio = maxDoc == 0 ? 0 : (double) deletedDocs / maxDoc;
+        final double sizeInMB = merge.totalBytesSize() / 1024d / 1024d;
+        return (Math.max(0, segments - 1) + reclaimedRatio * segments) / Math.log(Math.E + sizeInMB);
+    }
+
+    @Override
+    public Directory wrapForMerge(MergePolicy.OneMerge merge, Directory in) {
+        final Directory wrapped = super.wrapForMerge(merge, in);
+        if (nodeMergeScheduler == null) {
+            return wrapped;
+        }
+        return new FilterDirectory(wrapped) {
+            @Override
+            public IndexOutput createOutput(String name, IOContext context) throws IOException {
+                final IndexOutput output = super.createOutput(name, context);
+                // the node wide budget applies on top of the per-shard auto throttle
+                final RateLimiter rateLimiter = nodeMergeScheduler.rateLimiter();
+                return rateLimiter == null ? output : new RateLimitedIndexOutput(rateLimiter, output);
+            }
+        };
+    }
+
     /**
      * A callback allowing for custom logic before an actual merge starts.
      */
@@ -170,6 +242,7 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
                 totalMergeStoppedTime.count(),
                 totalMergeThrottledTime.count(),
                 config.isAutoThrottle() ? getIORateLimitMBPerSec() : Double.POSITIVE_INFINITY);
+        mergeStats.addQueued(currentQueuedMerges.count(), totalMergeQueuedTime.count());
         return mergeStats;
     }
 
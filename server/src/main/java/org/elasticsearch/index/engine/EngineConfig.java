@@ -23,6 +23,7 @@ import org.elasticsearch.common.unit.MemorySizeValue;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.codec.CodecService;
+import org.elasticsearch.index.merge.NodeMergeScheduler;
 import org.elasticsearch.index.seqno.RetentionLeases;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
@@ -70,6 +71,8 @@ public final class EngineConfig {
     private final CircuitBreakerService circuitBreakerService;
     private final LongSupplier globalCheckpointSupplier;
     private final Supplier<RetentionLeases> retentionLeasesSupplier;
+    @Nullable
+    private final NodeMergeScheduler nodeMergeScheduler;
 
     /**
      * A supplier of the outstanding retention leases. This is used during merged operations to determine which operations that have been
@@ -132,6 +135,38 @@ public final class EngineConfig {
             Supplier<RetentionLeases> retentionLeasesSupplier,
             LongSupplier primaryTermSupplier,
             IndexStorePlugin.SnapshotCommitSupplier snapshotCommitSupplier) {
+        this(shardId, threadPool, indexSettings, warmer, store, mergePolicy, analyzer, similarity, codecService, eventListener,
+            queryCache, queryCachingPolicy, translogConfig, flushMergesAfter, externalRefreshListener, internalRefreshListener, indexSort,
+            circuitBreakerService, globalCheckpointSupplier, retentionLeasesSupplier, primaryTermSupplier, snapshotCommitSupplier, null);
+    }
+
+    /**
+     * Creates a new {@link org.elasticsearch.index.engine.EngineConfig} whose merges are coordinated by the given node level scheduler
+     */
+    public EngineConfig(
+            ShardId shardId,
+            ThreadPool threadPool,
+            IndexSettings indexSettings,
+            Engine.Warmer warmer,
+            Store store,
+            MergePolicy mergePolicy,
+            Analyzer analyzer,
+            Similarity similarity,
+            CodecService codecService,
+            Engine.EventListener eventListener,
+            QueryCache queryCache,
+            QueryCachingPolicy queryCachingPolicy,
+            TranslogConfig translogConfig,
+            TimeValue flushMergesAfter,
+            List<ReferenceManager.RefreshListener> externalRefreshListener,
+            List<ReferenceManager.RefreshListener> internalRefreshListener,
+            Sort indexSort,
+            CircuitBreakerService circuitBreakerService,
+            LongSupplier globalCheckpointSupplier,
+            Supplier<RetentionLeases> retentionLeasesSupplier,
+            LongSupplier primaryTermSupplier,
+            IndexStorePlugin.SnapshotCommitSupplier snapshotCommitSupplier,
+            @Nullable NodeMergeScheduler nodeMergeScheduler) {
         this.shardId = shardId;
         this.indexSettings = indexSettings;
         this.threadPool = threadPool;
@@ -169,6 +204,7 @@ public final class EngineConfig {
         this.retentionLeasesSupplier = Objects.requireNonNull(retentionLeasesSupplier);
         this.primaryTermSupplier = primaryTermSupplier;
         this.snapshotCommitSupplier = snapshotCommitSupplier;
+        this.nodeMergeScheduler = nodeMergeScheduler;
     }
 
     /**
@@ -353,4 +389,13 @@ public final class EngineConfig {
     public IndexStorePlugin.SnapshotCommitSupplier getSnapshotCommitSupplier() {
         return snapshotCommitSupplier;
     }
+
+    /**
+     * Returns the node level scheduler that merges of this engine need to be admitted by, or {@code null} if merges are only
+     * scheduled per shard.
+     */
+    @Nullable
+    public NodeMergeScheduler getNodeMergeScheduler() {
+        return nodeMergeScheduler;
+    }
 }
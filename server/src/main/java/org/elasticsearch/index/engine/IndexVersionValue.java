@@ -17,16 +17,31 @@ final class IndexVersionValue extends VersionValue {
 
     private static final long RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IndexVersionValue.class);
 
-    private final Translog.Location translogLocation;
+    /** marks the absence of a translog location, generations are never negative */
+    private static final long NO_LOCATION = -1L;
+
+    // the translog location is stored inline rather than as a Translog.Location reference to save an object per live map entry
+    private final long translogGeneration;
+    private final long translogOffset;
+    private final int translogSize;
 
     IndexVersionValue(Translog.Location translogLocation, long version, long seqNo, long term) {
         super(version, seqNo, term);
-        this.translogLocation = translogLocation;
+        if (translogLocation == null) {
+            this.translogGeneration = NO_LOCATION;
+            this.translogOffset = NO_LOCATION;
+            this.translogSize = 0;
+        } else {
+            assert translogLocation.generation >= 0 : "invalid translog generation " + translogLocation.generation;
+            this.translogGeneration = translogLocation.generation;
+            this.translogOffset = translogLocation.translogLocation;
+            this.translogSize = translogLocation.size;
+        }
     }
 
     @Override
     public long ramBytesUsed() {
-        return RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(translogLocation);
+        return RAM_BYTES_USED;
     }
 
     @Override
@@ -35,12 +50,14 @@ final class IndexVersionValue extends VersionValue {
         if (o == null || getClass() != o.getClass()) return false;
         if (super.equals(o) == false) return false;
         IndexVersionValue that = (IndexVersionValue) o;
-        return Objects.equals(translogLocation, that.translogLocation);
+        return translogGeneration == that.translogGeneration
+            && translogOffset == that.translogOffset
+            && translogSize == that.translogSize;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), translogLocation);
+        return Objects.hash(super.hashCode(), translogGeneration, translogOffset, translogSize);
     }
 
     @Override
@@ -49,12 +66,15 @@ final class IndexVersionValue extends VersionValue {
             "version=" + version +
             ", seqNo=" + seqNo +
             ", term=" + term +
-            ", location=" + translogLocation +
+            ", location=" + getLocation() +
             '}';
     }
 
     @Override
     public Translog.Location getLocation() {
-        return translogLocation;
+        if (translogGeneration == NO_LOCATION) {
+            return null;
+        }
+        return new Translog.Location(translogGeneration, translogOffset, translogSize);
     }
 }
@@ -43,10 +43,12 @@ import org.apache.lucene.util.InfoStream;
 import org.elasticsearch.Assertions;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.cluster.metadata.DataStream;
 import org.elasticsearch.core.Booleans;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.SuppressForbidden;
 import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.lucene.LoggerInfoStream;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
@@ -61,6 +63,7 @@ import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.codec.TimestampRangeCodec;
 import org.elasticsearch.index.mapper.DocumentParser;
 import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.MappingLookup;
@@ -70,6 +73,7 @@ import org.elasticsearch.index.mapper.SeqNoFieldMapper;
 import org.elasticsearch.index.mapper.SourceFieldMapper;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.merge.NodeMergeScheduler;
 import org.elasticsearch.index.merge.OnGoingMerge;
 import org.elasticsearch.index.seqno.LocalCheckpointTracker;
 import org.elasticsearch.index.seqno.SeqNoStats;
@@ -86,6 +90,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -203,7 +208,8 @@ public class InternalEngine extends Engine {
         boolean success = false;
         try {
             this.lastDeleteVersionPruneTimeMSec = engineConfig.getThreadPool().relativeTimeInMillis();
-            mergeScheduler = scheduler = new EngineMergeScheduler(engineConfig.getShardId(), engineConfig.getIndexSettings());
+            mergeScheduler = scheduler = new EngineMergeScheduler(engineConfig.getShardId(), engineConfig.getIndexSettings(),
+                engineConfig.getNodeMergeScheduler());
             throttle = new IndexThrottle();
             try {
                 store.trimUnsafeCommits(config().getTranslogConfig().getTranslogPath());
@@ -955,6 +961,167 @@ public class InternalEngine extends Engine {
         }
     }
 
+    /**
+     * Indexes a batch of primary operations with auto-generated ids. As long as none of them may have been indexed before, the
+     * documents of all operations are handed to Lucene with a single {@link IndexWriter#addDocuments} call, the operations are written
+     * to the translog as one block and their sequence numbers are marked as processed at once. Operations that turn out to require a
+     * version lookup, e.g. because a retry raised {@link #maxUnsafeAutoIdTimestamp} concurrently, are indexed individually within the
+     * batch. Any other kind of operation makes the whole batch fall back to {@link #index(Index)}.
+     */
+    @Override
+    public List<IndexResult> indexAppendOnly(List<Index> operations) throws IOException {
+        if (operations.size() < 2 || operations.stream().allMatch(this::canIndexInAppendOnlyBatch) == false) {
+            return super.indexAppendOnly(operations);
+        }
+        final int numOps = operations.size();
+        final List<Index> indices = new ArrayList<>(operations);
+        final IndexingStrategy[] plans = new IndexingStrategy[numOps];
+        final IndexResult[] results = new IndexResult[numOps];
+        try (ReleasableLock releasableLock = readLock.acquire()) {
+            ensureOpen();
+            int reservedDocs = 0;
+            final List<Releasable> locks = new ArrayList<>(numOps + 1);
+            try {
+                // lock the ids in a stable order so that concurrent batches can't deadlock, and before throttling just like #index
+                indices.stream().map(index -> index.uid().bytes()).sorted()
+                    .forEachOrdered(uid -> locks.add(versionMap.acquireLock(uid)));
+                locks.add(throttle.acquireThrottle());
+
+                final List<Integer> toAppend = new ArrayList<>(numOps);
+                for (int i = 0; i < numOps; i++) {
+                    final Index index = indices.get(i);
+                    lastWriteNanos = index.startTime();
+                    final IndexingStrategy plan = indexingStrategyForOperation(index);
+                    reservedDocs += plan.reservedDocs;
+                    plans[i] = plan;
+                    if (plan.earlyResultOnPreFlightError.isPresent()) {
+                        results[i] = plan.earlyResultOnPreFlightError.get();
+                        assert results[i].getResultType() == Result.Type.FAILURE : results[i].getResultType();
+                        continue;
+                    }
+                    final Index withSeqNo = new Index(index.uid(), index.parsedDoc(), generateSeqNoForOperationOnPrimary(index),
+                        index.primaryTerm(), index.version(), index.versionType(), index.origin(), index.startTime(),
+                        index.getAutoGeneratedIdTimestamp(), index.isRetry(), index.getIfSeqNo(), index.getIfPrimaryTerm());
+                    indices.set(i, withSeqNo);
+                    if (plan.indexIntoLucene && plan.useLuceneUpdateDocument == false) {
+                        toAppend.add(i);
+                    } else {
+                        advanceMaxSeqNoOfUpdatesOrDeletesOnPrimary(withSeqNo.seqNo());
+                        if (plan.indexIntoLucene) {
+                            results[i] = indexIntoLucene(withSeqNo, plan);
+                        } else {
+                            results[i] = new IndexResult(
+                                plan.versionForIndexing, withSeqNo.primaryTerm(), withSeqNo.seqNo(), plan.currentNotFoundOrDeleted);
+                        }
+                    }
+                }
+                appendIntoLucene(toAppend, indices, plans, results);
+
+                final List<Translog.Operation> translogOps = new ArrayList<>(numOps);
+                final List<Integer> translogPositions = new ArrayList<>(numOps);
+                for (int i = 0; i < numOps; i++) {
+                    final Index index = indices.get(i);
+                    final IndexResult indexResult = results[i];
+                    if (indexResult.getResultType() == Result.Type.SUCCESS) {
+                        translogOps.add(new Translog.Index(index, indexResult));
+                        translogPositions.add(i);
+                    } else if (indexResult.getSeqNo() != SequenceNumbers.UNASSIGNED_SEQ_NO) {
+                        // if we have document failure, record it as a no-op in the translog and Lucene with the generated seq_no
+                        final NoOp noOp = new NoOp(indexResult.getSeqNo(), index.primaryTerm(), index.origin(),
+                            index.startTime(), indexResult.getFailure().toString());
+                        indexResult.setTranslogLocation(innerNoOp(noOp).getTranslogLocation());
+                    } else {
+                        indexResult.setTranslogLocation(null);
+                    }
+                }
+                if (translogOps.isEmpty() == false) {
+                    final List<Translog.Location> locations = translog.add(translogOps);
+                    for (int i = 0; i < locations.size(); i++) {
+                        results[translogPositions.get(i)].setTranslogLocation(locations.get(i));
+                    }
+                }
+
+                final long[] seqNos = new long[numOps];
+                for (int i = 0; i < numOps; i++) {
+                    final Index index = indices.get(i);
+                    final IndexResult indexResult = results[i];
+                    if (plans[i].indexIntoLucene && indexResult.getResultType() == Result.Type.SUCCESS) {
+                        final Translog.Location translogLocation =
+                            trackTranslogLocation.get() ? indexResult.getTranslogLocation() : null;
+                        versionMap.maybePutIndexUnderLock(index.uid().bytes(),
+                            new IndexVersionValue(translogLocation, plans[i].versionForIndexing, index.seqNo(), index.primaryTerm()));
+                    }
+                    seqNos[i] = indexResult.getSeqNo();
+                }
+                localCheckpointTracker.markSeqNosAsProcessed(seqNos);
+                for (int i = 0; i < numOps; i++) {
+                    final IndexResult indexResult = results[i];
+                    if (indexResult.getTranslogLocation() == null) {
+                        // the op does not have a sequence number
+                        assert indexResult.getSeqNo() == SequenceNumbers.UNASSIGNED_SEQ_NO;
+                        localCheckpointTracker.markSeqNoAsPersisted(indexResult.getSeqNo());
+                    }
+                    indexResult.setTook(System.nanoTime() - indices.get(i).startTime());
+                    indexResult.freeze();
+                }
+                return Arrays.asList(results);
+            } finally {
+                Releasables.close(locks);
+                releaseInFlightDocs(reservedDocs);
+            }
+        } catch (RuntimeException | IOException e) {
+            try {
+                maybeFailEngine("index batch of [" + numOps + "] append-only operations", e);
+            } catch (Exception inner) {
+                e.addSuppressed(inner);
+            }
+            throw e;
+        }
+    }
+
+    private boolean canIndexInAppendOnlyBatch(Index index) {
+        return index.origin() == Operation.Origin.PRIMARY && index.isRetry() == false && canOptimizeAddDocument(index);
+    }
+
+    /**
+     * Adds the documents of the append-only operations at the given positions with a single {@link IndexWriter#addDocuments} call.
+     * Lucene adds such a block atomically, so if a document failure aborts it the operations are added one by one again in order to
+     * attribute the failure to the operation that caused it.
+     */
+    private void appendIntoLucene(List<Integer> positions, List<Index> indices, IndexingStrategy[] plans, IndexResult[] results)
+        throws IOException {
+        if (positions.isEmpty()) {
+            return;
+        }
+        final List<ParseContext.Document> docs = new ArrayList<>();
+        for (int position : positions) {
+            final Index index = indices.get(position);
+            assert index.seqNo() >= 0 : "ops should have an assigned seq no.; origin: " + index.origin();
+            assert plans[position].versionForIndexing >= 0 : "version must be set. got " + plans[position].versionForIndexing;
+            index.parsedDoc().updateSeqID(index.seqNo(), index.primaryTerm());
+            index.parsedDoc().version().setLongValue(plans[position].versionForIndexing);
+            assert assertDocDoesNotExist(index, false);
+            docs.addAll(index.docs());
+        }
+        try {
+            addDocs(docs, indexWriter);
+        } catch (Exception ex) {
+            if (ex instanceof AlreadyClosedException == false && indexWriter.getTragicException() == null) {
+                // a document failure, none of the documents of the block are live so we can safely add them again one by one
+                for (int position : positions) {
+                    results[position] = indexIntoLucene(indices.get(position), plans[position]);
+                }
+                return;
+            }
+            throw ex;
+        }
+        for (int position : positions) {
+            final Index index = indices.get(position);
+            final IndexingStrategy plan = plans[position];
+            results[position] = new IndexResult(plan.versionForIndexing, index.primaryTerm(), index.seqNo(), plan.currentNotFoundOrDeleted);
+        }
+    }
+
     protected final IndexingStrategy planIndexingAsNonPrimary(Index index) throws IOException {
         assert assertNonPrimaryOrigin(index);
         // needs to maintain the auto_id timestamp in case this replica becomes primary
@@ -2171,7 +2338,8 @@ public class InternalEngine extends Engine {
         iwc.setMergePolicy(mergePolicy);
         iwc.setSimilarity(engineConfig.getSimilarity());
         iwc.setRAMBufferSizeMB(engineConfig.getIndexingBufferSize().getMbFrac());
-        iwc.setCodec(engineConfig.getCodec());
+        // record the timestamp range of every segment so that searches can skip segments outside of the queried time range
+        iwc.setCodec(new TimestampRangeCodec(engineConfig.getCodec(), DataStream.TimestampField.FIXED_TIMESTAMP_FIELD));
         iwc.setUseCompoundFile(true); // always use compound on flush - reduces # of file-handles on refresh
         if (config().getIndexSort() != null) {
             iwc.setIndexSort(config().getIndexSort());
@@ -2249,8 +2417,8 @@ public class InternalEngine extends Engine {
         private final AtomicInteger numMergesInFlight = new AtomicInteger(0);
         private final AtomicBoolean isThrottling = new AtomicBoolean();
 
-        EngineMergeScheduler(ShardId shardId, IndexSettings indexSettings) {
-            super(shardId, indexSettings);
+        EngineMergeScheduler(ShardId shardId, IndexSettings indexSettings, @Nullable NodeMergeScheduler nodeMergeScheduler) {
+            super(shardId, indexSettings, nodeMergeScheduler);
         }
 
         @Override
@@ -8,6 +8,7 @@
 
 package org.elasticsearch.index.merge;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -36,6 +37,12 @@ public class MergeStats implements Writeable, ToXContentFragment {
 
     private long totalBytesPerSecAutoThrottle;
 
+    /** The number of merges that wait to be admitted by the node level merge scheduler. */
+    private long currentQueued;
+
+    /** Total millis that merges waited to be admitted by the node level merge scheduler. */
+    private long totalQueuedTimeInMillis;
+
     public MergeStats() {
 
     }
@@ -52,6 +59,10 @@ public class MergeStats implements Writeable, ToXContentFragment {
         totalStoppedTimeInMillis = in.readVLong();
         totalThrottledTimeInMillis = in.readVLong();
         totalBytesPerSecAutoThrottle = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            currentQueued = in.readVLong();
+            totalQueuedTimeInMillis = in.readVLong();
+        }
     }
 
     public void add(long totalMerges, long totalMergeTime, long totalNumDocs, long totalSizeInBytes,
@@ -74,6 +85,11 @@ public class MergeStats implements Writeable, ToXContentFragment {
         }
     }
 
+    public void addQueued(long currentQueued, long queuedTimeMillis) {
+        this.currentQueued += currentQueued;
+        this.totalQueuedTimeInMillis += queuedTimeMillis;
+    }
+
     public void add(MergeStats mergeStats) {
         if (mergeStats == null) {
             return;
@@ -81,6 +97,7 @@ public class MergeStats implements Writeable, ToXContentFragment {
         this.current += mergeStats.current;
         this.currentNumDocs += mergeStats.currentNumDocs;
         this.currentSizeInBytes += mergeStats.currentSizeInBytes;
+        this.currentQueued += mergeStats.currentQueued;
 
         addTotals(mergeStats);
     }
@@ -95,6 +112,7 @@ public class MergeStats implements Writeable, ToXContentFragment {
         this.totalSizeInBytes += mergeStats.totalSizeInBytes;
         this.totalStoppedTimeInMillis += mergeStats.totalStoppedTimeInMillis;
         this.totalThrottledTimeInMillis += mergeStats.totalThrottledTimeInMillis;
+        this.totalQueuedTimeInMillis += mergeStats.totalQueuedTimeInMillis;
         if (this.totalBytesPerSecAutoThrottle == Long.MAX_VALUE || mergeStats.totalBytesPerSecAutoThrottle == Long.MAX_VALUE) {
             this.totalBytesPerSecAutoThrottle = Long.MAX_VALUE;
         } else {
@@ -186,18 +204,41 @@ public class MergeStats implements Writeable, ToXContentFragment {
         return new ByteSizeValue(currentSizeInBytes);
     }
 
+    /**
+     * The current number of merges waiting to be admitted by the node level merge scheduler.
+     */
+    public long getCurrentQueued() {
+        return this.currentQueued;
+    }
+
+    /**
+     * The total time merges waited to be admitted by the node level merge scheduler.
+     */
+    public long getTotalQueuedTimeInMillis() {
+        return this.totalQueuedTimeInMillis;
+    }
+
+    /**
+     * The total time merges waited to be admitted by the node level merge scheduler.
+     */
+    public TimeValue getTotalQueuedTime() {
+        return new TimeValue(totalQueuedTimeInMillis);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.MERGES);
         builder.field(Fields.CURRENT, current);
         builder.field(Fields.CURRENT_DOCS, currentNumDocs);
         builder.humanReadableField(Fields.CURRENT_SIZE_IN_BYTES, Fields.CURRENT_SIZE, getCurrentSize());
+        builder.field(Fields.CURRENT_QUEUED, currentQueued);
         builder.field(Fields.TOTAL, total);
         builder.humanReadableField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, getTotalTime());
         builder.field(Fields.TOTAL_DOCS, totalNumDocs);
         builder.humanReadableField(Fields.TOTAL_SIZE_IN_BYTES, Fields.TOTAL_SIZE, getTotalSize());
         builder.humanReadableField(Fields.TOTAL_STOPPED_TIME_IN_MILLIS, Fields.TOTAL_STOPPED_TIME, getTotalStoppedTime());
         builder.humanReadableField(Fields.TOTAL_THROTTLED_TIME_IN_MILLIS, Fields.TOTAL_THROTTLED_TIME, getTotalThrottledTime());
+        builder.humanReadableField(Fields.TOTAL_QUEUED_TIME_IN_MILLIS, Fields.TOTAL_QUEUED_TIME, getTotalQueuedTime());
         if (builder.humanReadable() && totalBytesPerSecAutoThrottle != -1) {
             builder.field(Fields.TOTAL_THROTTLE_BYTES_PER_SEC).value(new ByteSizeValue(totalBytesPerSecAutoThrottle).toString());
         }
@@ -212,6 +253,7 @@ public class MergeStats implements Writeable, ToXContentFragment {
         static final String CURRENT_DOCS = "current_docs";
         static final String CURRENT_SIZE = "current_size";
         static final String CURRENT_SIZE_IN_BYTES = "current_size_in_bytes";
+        static final String CURRENT_QUEUED = "current_queued";
         static final String TOTAL = "total";
         static final String TOTAL_TIME = "total_time";
         static final String TOTAL_TIME_IN_MILLIS = "total_time_in_millis";
@@ -219,6 +261,8 @@ public class MergeStats implements Writeable, ToXContentFragment {
         static final String TOTAL_STOPPED_TIME_IN_MILLIS = "total_stopped_time_in_millis";
         static final String TOTAL_THROTTLED_TIME = "total_throttled_time";
         static final String TOTAL_THROTTLED_TIME_IN_MILLIS = "total_throttled_time_in_millis";
+        static final String TOTAL_QUEUED_TIME = "total_queued_time";
+        static final String TOTAL_QUEUED_TIME_IN_MILLIS = "total_queued_time_in_millis";
         static final String TOTAL_DOCS = "total_docs";
         static final String TOTAL_SIZE = "total_size";
         static final String TOTAL_SIZE_IN_BYTES = "total_size_in_bytes";
@@ -239,5 +283,9 @@ public class MergeStats implements Writeable, ToXContentFragment {
         out.writeVLong(totalStoppedTimeInMillis);
         out.writeVLong(totalThrottledTimeInMillis);
         out.writeVLong(totalBytesPerSecAutoThrottle);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(currentQueued);
+            out.writeVLong(totalQueuedTimeInMillis);
+        }
     }
 }
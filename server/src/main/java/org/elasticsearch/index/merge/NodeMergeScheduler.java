@@ -0,0 +1,169 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.merge;
+
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.store.RateLimiter.SimpleRateLimiter;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Coordinates the merges of all shards on a node. Each shard still schedules its own merges, but before a merge starts writing it has
+ * to be admitted here:
+ * <ul>
+ *     <li>at most {@code indices.merge.scheduler.max_concurrent_merges} merges run at the same time across all shards, merges waiting
+ *     for a free slot are admitted by benefit rather than in arrival order, and merges of shards that are being searched get a
+ *     boost since their segment count directly affects search latency</li>
+ *     <li>all merges share the write budget of {@code indices.merge.max_bytes_per_sec}, on top of the per shard auto throttle</li>
+ * </ul>
+ * Both limits are disabled by default in which case merges are only scheduled per shard.
+ */
+public class NodeMergeScheduler {
+
+    public static final Setting<Integer> MAX_CONCURRENT_MERGES_SETTING =
+        Setting.intSetting("indices.merge.scheduler.max_concurrent_merges", -1, -1, Property.Dynamic, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> MAX_BYTES_PER_SEC_SETTING =
+        Setting.byteSizeSetting("indices.merge.max_bytes_per_sec", ByteSizeValue.ZERO, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * The factor the benefit of merges of shards that are not search idle is multiplied with.
+     */
+    static final double SEARCH_ACTIVE_BOOST = 2.0;
+
+    /**
+     * How often waiting merges check whether they have been aborted, e.g. because their shard is closing.
+     */
+    static final long ABORT_CHECK_INTERVAL_MILLIS = 100;
+
+    private final Predicate<ShardId> isSearchActive;
+
+    // protected by this
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>(
+        Comparator.comparingDouble((Ticket ticket) -> ticket.priority).reversed().thenComparingLong(ticket -> ticket.order));
+    private long nextOrder;
+    private int running;
+    private int maxConcurrentMerges;
+
+    private volatile SimpleRateLimiter rateLimiter;
+
+    public NodeMergeScheduler(Settings settings, ClusterSettings clusterSettings, Predicate<ShardId> isSearchActive) {
+        this.isSearchActive = isSearchActive;
+        setMaxConcurrentMerges(MAX_CONCURRENT_MERGES_SETTING.get(settings));
+        setMaxBytesPerSec(MAX_BYTES_PER_SEC_SETTING.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(MAX_CONCURRENT_MERGES_SETTING, this::setMaxConcurrentMerges);
+        clusterSettings.addSettingsUpdateConsumer(MAX_BYTES_PER_SEC_SETTING, this::setMaxBytesPerSec);
+    }
+
+    private synchronized void setMaxConcurrentMerges(int maxConcurrentMerges) {
+        this.maxConcurrentMerges = maxConcurrentMerges;
+        notifyAll();
+    }
+
+    private void setMaxBytesPerSec(ByteSizeValue maxBytesPerSec) {
+        if (maxBytesPerSec.getBytes() <= 0) {
+            rateLimiter = null;
+        } else if (rateLimiter != null) {
+            rateLimiter.setMBPerSec(maxBytesPerSec.getMbFrac());
+        } else {
+            rateLimiter = new SimpleRateLimiter(maxBytesPerSec.getMbFrac());
+        }
+    }
+
+    /**
+     * Returns the rate limiter that all merge writes on this node share, or {@code null} if merge writes are not limited per node.
+     */
+    @Nullable
+    public RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Blocks until a merge of the given shard may start. Waiting merges are admitted in the order of their benefit, see
+     * {@link #SEARCH_ACTIVE_BOOST} for how search activity is taken into account.
+     *
+     * @param shardId   the shard the merge belongs to
+     * @param benefit   how much the merge improves the shard relative to its cost, higher is better
+     * @param isAborted whether the merge has been aborted in the meantime, aborted merges stop waiting and don't take a slot
+     * @return releases the slot of the merge once it is done
+     */
+    public Releasable acquire(ShardId shardId, double benefit, BooleanSupplier isAborted) throws InterruptedException {
+        final double priority = isSearchActive.test(shardId) ? benefit * SEARCH_ACTIVE_BOOST : benefit;
+        synchronized (this) {
+            final Ticket ticket = new Ticket(priority, nextOrder++);
+            queue.add(ticket);
+            boolean admitted = false;
+            try {
+                while (queue.peek() != ticket || hasFreeSlot() == false) {
+                    if (isAborted.getAsBoolean()) {
+                        return () -> {};
+                    }
+                    wait(ABORT_CHECK_INTERVAL_MILLIS);
+                }
+                admitted = true;
+            } finally {
+                final boolean removed = queue.remove(ticket);
+                assert removed;
+                if (admitted) {
+                    running++;
+                }
+                // the next merge in line might be admitted now
+                notifyAll();
+            }
+        }
+        return Releasables.releaseOnce(this::release);
+    }
+
+    private boolean hasFreeSlot() {
+        assert Thread.holdsLock(this);
+        return maxConcurrentMerges < 0 || running < maxConcurrentMerges;
+    }
+
+    private synchronized void release() {
+        assert running > 0 : running;
+        running--;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of merges that are waiting to be admitted.
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of admitted merges that are still running.
+     */
+    public synchronized int running() {
+        return running;
+    }
+
+    private static final class Ticket {
+        private final double priority;
+        private final long order;
+
+        Ticket(double priority, long order) {
+            this.priority = priority;
+            this.order = order;
+        }
+    }
+}
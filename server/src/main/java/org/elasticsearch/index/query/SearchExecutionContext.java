@@ -20,6 +20,8 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.core.CheckedFunction;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.TriFunction;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
@@ -94,6 +96,10 @@ public class SearchExecutionContext extends QueryRewriteContext {
     private final IndexSearcher searcher;
     private boolean cacheable = true;
     private final SetOnce<Boolean> frozen = new SetOnce<>();
+    // the interval that now is rounded down to, or 0 if it isn't rounded
+    private long nowRoundingInMillis;
+    // whether the rounded now was read, only then the results depend on it
+    private boolean roundedNowUsed;
 
     private final Index fullyQualifiedIndex;
     private final Predicate<String> indexNameMatcher;
@@ -177,6 +183,7 @@ public class SearchExecutionContext extends QueryRewriteContext {
             source.valuesSourceRegistry,
             source.runtimeMappings
         );
+        this.nowRoundingInMillis = source.nowRoundingInMillis;
     }
 
     private SearchExecutionContext(int shardId,
@@ -571,10 +578,45 @@ public class SearchExecutionContext extends QueryRewriteContext {
 
     @Override
     public final long nowInMillis() {
+        if (nowRoundingInMillis > 0) {
+            roundedNowUsed = true;
+            return roundedNowInMillis();
+        }
         failIfFrozen();
         return super.nowInMillis();
     }
 
+    /**
+     * Rounds the time returned by {@link #nowInMillis()} down to the given interval. Using {@code now} doesn't prevent
+     * the request from being cached anymore since all requests within the same interval see the same time, which must
+     * then be part of the cache key.
+     */
+    public void setNowRounding(TimeValue rounding) {
+        assert rounding.millis() > 0 : rounding;
+        this.nowRoundingInMillis = rounding.millis();
+    }
+
+    /**
+     * Returns the rounded time that {@link #nowInMillis()} returns, or {@code null} if the time isn't rounded.
+     */
+    @Nullable
+    public final Long roundedNowInMillis() {
+        if (nowRoundingInMillis <= 0) {
+            return null;
+        }
+        final long now = super.nowInMillis();
+        return now - Math.floorMod(now, nowRoundingInMillis);
+    }
+
+    /**
+     * Returns the rounded time if {@link #nowInMillis()} was called, or {@code null} if it wasn't called or the time isn't rounded.
+     * Only in the former case the results of the request depend on the time.
+     */
+    @Nullable
+    public final Long usedRoundedNowInMillis() {
+        return roundedNowUsed ? roundedNowInMillis() : null;
+    }
+
     public Client getClient() {
         failIfFrozen(); // we somebody uses a terms filter with lookup for instance can't be cached...
         return client;
@@ -34,6 +34,16 @@ public class RefreshStats implements Writeable, ToXContentFragment {
      */
     private int listeners;
 
+    /**
+     * Number of scheduled refreshes postponed by the adaptive refresh policy.
+     */
+    private long adaptiveSkipped;
+
+    /**
+     * The longest refresh interval currently chosen by the adaptive refresh policy, {@code -1} if not in use.
+     */
+    private long adaptiveIntervalInMillis = -1;
+
     public RefreshStats() {
     }
 
@@ -45,6 +55,10 @@ public class RefreshStats implements Writeable, ToXContentFragment {
             externalTotalTimeInMillis = in.readVLong();
         }
         listeners = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            adaptiveSkipped = in.readVLong();
+            adaptiveIntervalInMillis = in.readZLong();
+        }
     }
 
     @Override
@@ -56,14 +70,25 @@ public class RefreshStats implements Writeable, ToXContentFragment {
             out.writeVLong(externalTotalTimeInMillis);
         }
         out.writeVInt(listeners);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(adaptiveSkipped);
+            out.writeZLong(adaptiveIntervalInMillis);
+        }
     }
 
     public RefreshStats(long total, long totalTimeInMillis, long externalTotal, long externalTotalTimeInMillis, int listeners) {
+        this(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners, 0, -1);
+    }
+
+    public RefreshStats(long total, long totalTimeInMillis, long externalTotal, long externalTotalTimeInMillis, int listeners,
+                        long adaptiveSkipped, long adaptiveIntervalInMillis) {
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
         this.externalTotal = externalTotal;
         this.externalTotalTimeInMillis = externalTotalTimeInMillis;
         this.listeners = listeners;
+        this.adaptiveSkipped = adaptiveSkipped;
+        this.adaptiveIntervalInMillis = adaptiveIntervalInMillis;
     }
 
     public void add(RefreshStats refreshStats) {
@@ -79,6 +104,8 @@ public class RefreshStats implements Writeable, ToXContentFragment {
         this.externalTotal += refreshStats.externalTotal;
         this.externalTotalTimeInMillis += refreshStats.externalTotalTimeInMillis;
         this.listeners += refreshStats.listeners;
+        this.adaptiveSkipped += refreshStats.adaptiveSkipped;
+        this.adaptiveIntervalInMillis = Math.max(this.adaptiveIntervalInMillis, refreshStats.adaptiveIntervalInMillis);
     }
 
     /**
@@ -127,6 +154,21 @@ public class RefreshStats implements Writeable, ToXContentFragment {
         return listeners;
     }
 
+    /**
+     * The number of scheduled refreshes that were postponed by the adaptive refresh policy.
+     */
+    public long getAdaptiveSkipped() {
+        return adaptiveSkipped;
+    }
+
+    /**
+     * The longest refresh interval currently chosen by the adaptive refresh policy (in milliseconds), {@code -1} if adaptive
+     * refreshes are not in use.
+     */
+    public long getAdaptiveIntervalInMillis() {
+        return adaptiveIntervalInMillis;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("refresh");
@@ -135,6 +177,12 @@ public class RefreshStats implements Writeable, ToXContentFragment {
         builder.field("external_total", externalTotal);
         builder.humanReadableField("external_total_time_in_millis", "external_total_time", getExternalTotalTime());
         builder.field("listeners", listeners);
+        if (adaptiveIntervalInMillis >= 0 || adaptiveSkipped > 0) {
+            builder.startObject("adaptive");
+            builder.field("skipped", adaptiveSkipped);
+            builder.humanReadableField("interval_in_millis", "interval", new TimeValue(adaptiveIntervalInMillis));
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -149,11 +197,14 @@ public class RefreshStats implements Writeable, ToXContentFragment {
                 && totalTimeInMillis == rhs.totalTimeInMillis
                 && externalTotal == rhs.externalTotal
                 && externalTotalTimeInMillis == rhs.externalTotalTimeInMillis
-                && listeners == rhs.listeners;
+                && listeners == rhs.listeners
+                && adaptiveSkipped == rhs.adaptiveSkipped
+                && adaptiveIntervalInMillis == rhs.adaptiveIntervalInMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners);
+        return Objects.hash(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners, adaptiveSkipped,
+            adaptiveIntervalInMillis);
     }
 }
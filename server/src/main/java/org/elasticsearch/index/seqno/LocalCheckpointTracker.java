@@ -99,6 +99,18 @@ public class LocalCheckpointTracker {
         markSeqNo(seqNo, processedCheckpoint, processedSeqNo);
     }
 
+    /**
+     * Marks all provided sequence numbers as processed and updates the processed checkpoint if possible. This is equivalent to calling
+     * {@link #markSeqNoAsProcessed(long)} for each of them but only acquires the monitor once.
+     *
+     * @param seqNos the sequence numbers to mark as processed
+     */
+    public synchronized void markSeqNosAsProcessed(final long[] seqNos) {
+        for (long seqNo : seqNos) {
+            markSeqNo(seqNo, processedCheckpoint, processedSeqNo);
+        }
+    }
+
     /**
      * Marks the provided sequence number as persisted and updates the checkpoint if possible.
      *
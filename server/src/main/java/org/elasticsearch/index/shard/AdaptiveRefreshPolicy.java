@@ -0,0 +1,145 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.apache.lucene.search.ReferenceManager;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a scheduled refresh of a shard should be executed or postponed. The effective refresh interval of the shard lies
+ * between the configured {@code index.refresh_interval} and {@code index.refresh.adaptive.max_interval}:
+ * <ul>
+ *     <li>it is stretched towards the average time between two searches, since refreshing more often than the shard is searched only
+ *     produces small segments that need to be merged later on</li>
+ *     <li>it is never shorter than {@link #MAX_REFRESH_COST_RATIO} times the recent refresh cost, so that shards with expensive
+ *     refreshes don't spend most of their time refreshing</li>
+ *     <li>it falls back to the configured interval once the indexing buffer holds at least {@link #LARGE_BUFFER_BYTES}, since such a
+ *     refresh writes a reasonably sized segment anyway</li>
+ * </ul>
+ * Refreshes that were asked for explicitly, e.g. by a refresh listener, are never postponed.
+ */
+final class AdaptiveRefreshPolicy implements ReferenceManager.RefreshListener {
+
+    /**
+     * The indexing buffer size above which a scheduled refresh is never postponed.
+     */
+    static final long LARGE_BUFFER_BYTES = new ByteSizeValue(32, ByteSizeUnit.MB).getBytes();
+
+    /**
+     * Refreshes are spaced such that they take at most this fraction of the time.
+     */
+    static final double MAX_REFRESH_COST_RATIO = 0.1;
+
+    /**
+     * The weight of the latest sample in the exponentially weighted search rate and refresh cost.
+     */
+    private static final double ALPHA = 0.3;
+
+    private final LongSupplier relativeTimeInMillis;
+    private final AtomicLong searches = new AtomicLong();
+    private final CounterMetric skipped = new CounterMetric();
+
+    // protected by this
+    private long lastSampleMillis;
+    private long lastSampleSearches;
+    private double searchesPerMilli;
+    private double refreshCostMillis;
+    private long lastRefreshMillis;
+    private long refreshStartNanos;
+    private volatile long currentIntervalMillis = -1;
+
+    AdaptiveRefreshPolicy(LongSupplier relativeTimeInMillis) {
+        this.relativeTimeInMillis = relativeTimeInMillis;
+        final long now = relativeTimeInMillis.getAsLong();
+        this.lastSampleMillis = now;
+        this.lastRefreshMillis = now;
+    }
+
+    /**
+     * Records that the shard was searched.
+     */
+    void onSearch() {
+        searches.incrementAndGet();
+    }
+
+    /**
+     * Returns whether a scheduled refresh should be executed now. Postponed refreshes are counted in {@link #skippedCount()}.
+     *
+     * @param refreshInterval     the configured refresh interval
+     * @param maxInterval         the longest interval the refresh interval may be stretched to, adaptive refreshes are disabled if
+     *                            it isn't longer than the configured interval
+     * @param indexingBufferBytes the number of bytes held in the indexing buffer of the shard
+     */
+    synchronized boolean shouldRefresh(TimeValue refreshInterval, TimeValue maxInterval, long indexingBufferBytes) {
+        final long now = relativeTimeInMillis.getAsLong();
+        final long searchCount = searches.get();
+        final long elapsed = Math.max(1L, now - lastSampleMillis);
+        searchesPerMilli = ALPHA * (searchCount - lastSampleSearches) / elapsed + (1 - ALPHA) * searchesPerMilli;
+        lastSampleMillis = now;
+        lastSampleSearches = searchCount;
+
+        if (refreshInterval.millis() <= 0 || maxInterval.millis() <= refreshInterval.millis()) {
+            currentIntervalMillis = -1;
+            return true;
+        }
+        final long interval = computeInterval(refreshInterval.millis(), maxInterval.millis(), indexingBufferBytes);
+        currentIntervalMillis = interval;
+        if (now - lastRefreshMillis >= interval) {
+            return true;
+        }
+        skipped.inc();
+        return false;
+    }
+
+    private long computeInterval(long refreshIntervalMillis, long maxIntervalMillis, long indexingBufferBytes) {
+        double interval = refreshIntervalMillis;
+        if (indexingBufferBytes < LARGE_BUFFER_BYTES) {
+            // the expected time between two searches
+            interval = searchesPerMilli > 0 ? Math.max(interval, 1 / searchesPerMilli) : maxIntervalMillis;
+        }
+        interval = Math.max(interval, refreshCostMillis / MAX_REFRESH_COST_RATIO);
+        return Math.max(refreshIntervalMillis, Math.min(maxIntervalMillis, (long) interval));
+    }
+
+    /**
+     * Returns the number of scheduled refreshes that were postponed.
+     */
+    long skippedCount() {
+        return skipped.count();
+    }
+
+    /**
+     * Returns the refresh interval the policy decided on for the last scheduled refresh, or {@code -1} if adaptive refreshes are
+     * disabled or no scheduled refresh happened yet.
+     */
+    long currentIntervalMillis() {
+        return currentIntervalMillis;
+    }
+
+    @Override
+    public synchronized void beforeRefresh() {
+        refreshStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+            final double tookMillis = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - refreshStartNanos) / 1000.0;
+            refreshCostMillis = ALPHA * tookMillis + (1 - ALPHA) * refreshCostMillis;
+            lastRefreshMillis = relativeTimeInMillis.getAsLong();
+        }
+    }
+}
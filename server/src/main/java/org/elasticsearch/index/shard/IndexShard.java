@@ -49,6 +49,7 @@ import org.elasticsearch.cluster.routing.allocation.decider.DiskThresholdDecider
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
@@ -109,6 +110,7 @@ import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.merge.NodeMergeScheduler;
 import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
@@ -128,9 +130,11 @@ import org.elasticsearch.index.store.StoreFileMetadata;
 import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.index.translog.TranslogGroupSyncer;
 import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
+import org.elasticsearch.indices.CostAwareQueryCachingPolicy;
 import org.elasticsearch.indices.IndexingMemoryController;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
@@ -152,6 +156,7 @@ import java.io.PrintStream;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.EnumSet;
@@ -175,10 +180,12 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.seqno.RetentionLeaseActions.RETAIN_ALL;
@@ -216,6 +223,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final PendingReplicationActions pendingReplicationActions;
     private final ReplicationTracker replicationTracker;
     private final IndexStorePlugin.SnapshotCommitSupplier snapshotCommitSupplier;
+    @Nullable
+    private final NodeMergeScheduler nodeMergeScheduler;
 
     protected volatile ShardRouting shardRouting;
     protected volatile IndexShardState state;
@@ -275,6 +284,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final AtomicLong lastSearcherAccess = new AtomicLong();
     private final AtomicReference<Translog.Location> pendingRefreshLocation = new AtomicReference<>();
     private final RefreshPendingLocationListener refreshPendingLocationListener;
+    private final AdaptiveRefreshPolicy adaptiveRefreshPolicy;
+    private final TranslogGroupSyncer translogGroupSyncer;
     private volatile boolean useRetentionLeasesInPeerRecovery;
 
     public IndexShard(
@@ -298,6 +309,33 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             final RetentionLeaseSyncer retentionLeaseSyncer,
             final CircuitBreakerService circuitBreakerService,
             final IndexStorePlugin.SnapshotCommitSupplier snapshotCommitSupplier) throws IOException {
+        this(shardRouting, indexSettings, path, store, indexSortSupplier, indexCache, mapperService, similarityService, engineFactory,
+            indexEventListener, indexReaderWrapper, threadPool, bigArrays, warmer, searchOperationListener, listeners,
+            globalCheckpointSyncer, retentionLeaseSyncer, circuitBreakerService, snapshotCommitSupplier, null);
+    }
+
+    public IndexShard(
+            final ShardRouting shardRouting,
+            final IndexSettings indexSettings,
+            final ShardPath path,
+            final Store store,
+            final Supplier<Sort> indexSortSupplier,
+            final IndexCache indexCache,
+            final MapperService mapperService,
+            final SimilarityService similarityService,
+            final @Nullable EngineFactory engineFactory,
+            final IndexEventListener indexEventListener,
+            final CheckedFunction<DirectoryReader, DirectoryReader, IOException> indexReaderWrapper,
+            final ThreadPool threadPool,
+            final BigArrays bigArrays,
+            final Engine.Warmer warmer,
+            final List<SearchOperationListener> searchOperationListener,
+            final List<IndexingOperationListener> listeners,
+            final Runnable globalCheckpointSyncer,
+            final RetentionLeaseSyncer retentionLeaseSyncer,
+            final CircuitBreakerService circuitBreakerService,
+            final IndexStorePlugin.SnapshotCommitSupplier snapshotCommitSupplier,
+            final @Nullable NodeMergeScheduler nodeMergeScheduler) throws IOException {
         super(shardRouting.shardId(), indexSettings);
         assert shardRouting.initializing();
         this.shardRouting = shardRouting;
@@ -308,11 +346,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         Objects.requireNonNull(store, "Store must be provided to the index shard");
         this.engineFactory = Objects.requireNonNull(engineFactory);
         this.snapshotCommitSupplier = Objects.requireNonNull(snapshotCommitSupplier);
+        this.nodeMergeScheduler = nodeMergeScheduler;
         this.store = store;
         this.indexSortSupplier = indexSortSupplier;
         this.indexEventListener = indexEventListener;
         this.threadPool = threadPool;
         this.translogSyncProcessor = createTranslogSyncProcessor(logger, threadPool.getThreadContext(), this::getEngine);
+        this.translogGroupSyncer = new TranslogGroupSyncer(logger, threadPool.getThreadContext(),
+            threadPool.executor(ThreadPool.Names.TRANSLOG_SYNC), locations -> ensureTranslogSynced(this::getEngine, locations));
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -368,6 +409,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                     return true;
                 }
             };
+        } else if (IndexModule.INDEX_QUERY_CACHE_COST_AWARE_SETTING.get(settings)) {
+            cachingPolicy = new CostAwareQueryCachingPolicy();
         } else {
             cachingPolicy = new UsageTrackingQueryCachingPolicy();
         }
@@ -378,6 +421,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         persistMetadata(path, indexSettings, shardRouting, null, logger);
         this.useRetentionLeasesInPeerRecovery = replicationTracker.hasAllPeerRecoveryRetentionLeases();
         this.refreshPendingLocationListener = new RefreshPendingLocationListener();
+        this.adaptiveRefreshPolicy = new AdaptiveRefreshPolicy(threadPool::relativeTimeInMillis);
     }
 
     public ThreadPool getThreadPool() {
@@ -415,6 +459,14 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return this.bulkOperationListener;
     }
 
+    /**
+     * Returns the recent average time it took to execute a shard level bulk request on this shard per byte of the request, or
+     * {@code -1} if no bulk request was executed yet.
+     */
+    public double getBulkCostPerByteInNanos() {
+        return bulkOperationListener.costPerByteInNanos();
+    }
+
     public ShardIndexWarmerService warmerService() {
         return this.shardWarmerService;
     }
@@ -803,29 +855,109 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                                                            long ifSeqNo, long ifPrimaryTerm, long autoGeneratedTimestamp,
                                                            boolean isRetry)
         throws IOException {
+        return applyIndexOperationOnPrimary(version, versionType, sourceToParse, null, ifSeqNo, ifPrimaryTerm, autoGeneratedTimestamp,
+            isRetry);
+    }
+
+    /**
+     * Same as {@link #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, long, long, long, boolean)} but allows to pass the
+     * result of parsing the given source ahead of time. The pre-parsed document must have been produced by the current
+     * {@link MapperService#documentMapper()}, otherwise the source is parsed again.
+     */
+    public Engine.IndexResult applyIndexOperationOnPrimary(long version, VersionType versionType, SourceToParse sourceToParse,
+                                                           @Nullable PreParsedDocument preParsedDocument, long ifSeqNo,
+                                                           long ifPrimaryTerm, long autoGeneratedTimestamp, boolean isRetry)
+        throws IOException {
         assert versionType.validateVersionForWrites(version);
         return applyIndexOperation(getEngine(), UNASSIGNED_SEQ_NO, getOperationPrimaryTerm(), version, versionType, ifSeqNo,
-            ifPrimaryTerm, autoGeneratedTimestamp, isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse);
+            ifPrimaryTerm, autoGeneratedTimestamp, isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse, preParsedDocument);
+    }
+
+    /**
+     * Indexes a run of index or create operations with auto-generated ids on the primary with a single call into the engine, see
+     * {@link Engine#indexAppendOnly(List)}. Documents are parsed in order and parsing stops at the first document that requires a
+     * mapping update: the returned results then only cover the operations before it and the caller has to execute that operation on
+     * its own. Parsing failures are reported as document level failures like in
+     * {@link #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, long, long, long, boolean)}.
+     *
+     * @param sources                 the sources of the operations
+     * @param versions                the version of each operation, {@link Versions#MATCH_DELETED} or {@link Versions#MATCH_ANY}
+     * @param autoGeneratedTimestamps the auto-generated id timestamp of each operation
+     * @param preParsedDocuments      provides the document parsed ahead of time for the operation at the given position, or
+     *                                {@code null} if not available. Only called for the operations that are parsed.
+     */
+    public List<Engine.IndexResult> applyAppendOnlyIndexOperationsOnPrimary(List<SourceToParse> sources, long[] versions,
+                                                                            long[] autoGeneratedTimestamps,
+                                                                            IntFunction<PreParsedDocument> preParsedDocuments)
+        throws IOException {
+        assert sources.size() == versions.length && sources.size() == autoGeneratedTimestamps.length;
+        final Engine.Operation.Origin origin = Engine.Operation.Origin.PRIMARY;
+        final long opPrimaryTerm = getOperationPrimaryTerm();
+        ensureWriteAllowed(origin);
+        final Engine.IndexResult[] results = new Engine.IndexResult[sources.size()];
+        final List<Engine.Index> operations = new ArrayList<>(sources.size());
+        final List<Integer> positions = new ArrayList<>(sources.size());
+        int numPrepared = 0;
+        for (; numPrepared < sources.size(); numPrepared++) {
+            final long version = versions[numPrepared];
+            assert version == Versions.MATCH_DELETED || version == Versions.MATCH_ANY : version;
+            final PreParsedDocument preParsedDocument = preParsedDocuments.apply(numPrepared);
+            final Engine.Index operation;
+            try {
+                if (preParsedDocument != null && preParsedDocument.isUsableWith(mapperService)) {
+                    operation = prepareIndex(preParsedDocument.get(), UNASSIGNED_SEQ_NO, opPrimaryTerm, version,
+                        VersionType.INTERNAL, origin, preParsedDocument.startTimeNanos, autoGeneratedTimestamps[numPrepared], false,
+                        UNASSIGNED_SEQ_NO, SequenceNumbers.UNASSIGNED_PRIMARY_TERM);
+                } else {
+                    operation = prepareIndex(mapperService, sources.get(numPrepared), UNASSIGNED_SEQ_NO, opPrimaryTerm,
+                        version, VersionType.INTERNAL, origin, autoGeneratedTimestamps[numPrepared], false,
+                        UNASSIGNED_SEQ_NO, SequenceNumbers.UNASSIGNED_PRIMARY_TERM);
+                }
+            } catch (Exception e) {
+                // see #applyIndexOperation, parsing failures are document level failures
+                verifyNotClosed(e);
+                results[numPrepared] = new Engine.IndexResult(e, version, opPrimaryTerm, UNASSIGNED_SEQ_NO);
+                continue;
+            }
+            if (operation.parsedDoc().dynamicMappingsUpdate() != null) {
+                break;
+            }
+            operations.add(operation);
+            positions.add(numPrepared);
+        }
+        if (operations.isEmpty() == false) {
+            final List<Engine.IndexResult> indexResults = index(getEngine(), operations);
+            for (int i = 0; i < indexResults.size(); i++) {
+                results[positions.get(i)] = indexResults.get(i);
+            }
+        }
+        return Arrays.asList(results).subList(0, numPrepared);
     }
 
     public Engine.IndexResult applyIndexOperationOnReplica(long seqNo, long opPrimaryTerm, long version, long autoGeneratedTimeStamp,
         boolean isRetry, SourceToParse sourceToParse)
         throws IOException {
         return applyIndexOperation(getEngine(), seqNo, opPrimaryTerm, version, null, UNASSIGNED_SEQ_NO, 0,
-            autoGeneratedTimeStamp, isRetry, Engine.Operation.Origin.REPLICA, sourceToParse);
+            autoGeneratedTimeStamp, isRetry, Engine.Operation.Origin.REPLICA, sourceToParse, null);
     }
 
     private Engine.IndexResult applyIndexOperation(Engine engine, long seqNo, long opPrimaryTerm, long version,
                                                    @Nullable VersionType versionType, long ifSeqNo, long ifPrimaryTerm,
                                                    long autoGeneratedTimeStamp, boolean isRetry, Engine.Operation.Origin origin,
-                                                   SourceToParse sourceToParse) throws IOException {
+                                                   SourceToParse sourceToParse, @Nullable PreParsedDocument preParsedDocument)
+        throws IOException {
         assert opPrimaryTerm <= getOperationPrimaryTerm()
                 : "op term [ " + opPrimaryTerm + " ] > shard term [" + getOperationPrimaryTerm() + "]";
         ensureWriteAllowed(origin);
         Engine.Index operation;
         try {
-            operation = prepareIndex(mapperService, sourceToParse,
-                seqNo, opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
+            if (preParsedDocument != null && preParsedDocument.isUsableWith(mapperService)) {
+                operation = prepareIndex(preParsedDocument.get(), seqNo, opPrimaryTerm, version, versionType, origin,
+                    preParsedDocument.startTimeNanos, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
+            } else {
+                operation = prepareIndex(mapperService, sourceToParse,
+                    seqNo, opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
+            }
             Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
             if (update != null) {
                 return new Engine.IndexResult(update);
@@ -863,11 +995,100 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             //whether mappings were provided or not.
             doc.addDynamicMappingsUpdate(mapping);
         }
+        return prepareIndex(doc, seqNo, primaryTerm, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry,
+            ifSeqNo, ifPrimaryTerm);
+    }
+
+    private static Engine.Index prepareIndex(ParsedDocument doc, long seqNo, long primaryTerm, long version, VersionType versionType,
+                                             Engine.Operation.Origin origin, long startTime, long autoGeneratedIdTimestamp,
+                                             boolean isRetry, long ifSeqNo, long ifPrimaryTerm) {
         Term uid = new Term(IdFieldMapper.NAME, Uid.encodeId(doc.id()));
         return new Engine.Index(uid, doc, seqNo, primaryTerm, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry,
             ifSeqNo, ifPrimaryTerm);
     }
 
+    /**
+     * Parses the given source with the current {@link DocumentMapper} on the calling thread so that the result can later be handed to
+     * {@link #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, PreParsedDocument, long, long, long, boolean)}. Returns
+     * {@code null} if the index has no mapping yet, in which case the document has to be parsed when it is indexed. Parsing failures
+     * are captured and rethrown when the document is indexed so that they are reported as document level failures.
+     */
+    @Nullable
+    public PreParsedDocument preParseDocument(SourceToParse source) {
+        final DocumentMapper documentMapper = mapperService.documentMapper();
+        if (documentMapper == null) {
+            return null;
+        }
+        final long startTime = System.nanoTime();
+        try {
+            return new PreParsedDocument(documentMapper, startTime, documentMapper.parse(source), null);
+        } catch (Exception e) {
+            return new PreParsedDocument(documentMapper, startTime, null, e);
+        }
+    }
+
+    /**
+     * The result of parsing a document ahead of indexing it, see {@link #preParseDocument(SourceToParse)}.
+     */
+    public static final class PreParsedDocument {
+        private final DocumentMapper documentMapper;
+        private final long startTimeNanos;
+        private final ParsedDocument parsedDocument;
+        private final Exception failure;
+
+        private PreParsedDocument(DocumentMapper documentMapper, long startTimeNanos, ParsedDocument parsedDocument, Exception failure) {
+            assert parsedDocument != null ^ failure != null;
+            this.documentMapper = documentMapper;
+            this.startTimeNanos = startTimeNanos;
+            this.parsedDocument = parsedDocument;
+            this.failure = failure;
+        }
+
+        /**
+         * Returns {@code true} iff the mapping hasn't changed since the document was parsed.
+         */
+        boolean isUsableWith(MapperService mapperService) {
+            return mapperService.documentMapper() == documentMapper;
+        }
+
+        ParsedDocument get() throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            return parsedDocument;
+        }
+    }
+
+    private List<Engine.IndexResult> index(Engine engine, List<Engine.Index> operations) throws IOException {
+        active.set(true);
+        final List<Engine.Index> indices = new ArrayList<>(operations.size());
+        for (Engine.Index operation : operations) {
+            indices.add(indexingOperationListeners.preIndex(shardId, operation));
+        }
+        final List<Engine.IndexResult> results;
+        try {
+            if (logger.isTraceEnabled()) {
+                logger.trace("index batch of [{}] append-only operations allocation-id [{}] operationPrimaryTerm [{}]",
+                    indices.size(), routingEntry().allocationId(), getOperationPrimaryTerm());
+            }
+            results = engine.indexAppendOnly(indices);
+        } catch (Exception e) {
+            if (logger.isTraceEnabled()) {
+                logger.trace(new ParameterizedMessage("index batch-fail of [{}] append-only operations allocation-id [{}]",
+                    indices.size(), routingEntry().allocationId()), e);
+            }
+            for (Engine.Index index : indices) {
+                indexingOperationListeners.postIndex(shardId, index, e);
+            }
+            throw e;
+        }
+        assert results.size() == indices.size() : results.size() + " vs " + indices.size();
+        for (int i = 0; i < indices.size(); i++) {
+            indexingOperationListeners.postIndex(shardId, indices.get(i), results.get(i));
+        }
+        return results;
+    }
+
     private Engine.IndexResult index(Engine engine, Engine.Index index) throws IOException {
         active.set(true);
         final Engine.IndexResult result;
@@ -1018,7 +1239,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()),
             externalRefreshMetric.count(),
             TimeUnit.NANOSECONDS.toMillis(externalRefreshMetric.sum()),
-            listeners);
+            listeners,
+            adaptiveRefreshPolicy.skippedCount(),
+            adaptiveRefreshPolicy.currentIntervalMillis());
     }
 
     public FlushStats flushStats() {
@@ -1279,6 +1502,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
 
     private void markSearcherAccessed() {
         lastSearcherAccess.lazySet(threadPool.relativeTimeInMillis());
+        adaptiveRefreshPolicy.onSearch();
     }
 
     private Engine.Searcher acquireSearcher(String source, Engine.SearcherScope scope) {
@@ -2866,14 +3090,15 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 cachingPolicy,
                 translogConfig,
                 IndexingMemoryController.SHARD_INACTIVE_TIME_SETTING.get(indexSettings.getSettings()),
-                List.of(refreshListeners, refreshPendingLocationListener),
+                List.of(refreshListeners, refreshPendingLocationListener, adaptiveRefreshPolicy),
                 Collections.singletonList(new RefreshMetricUpdater(refreshMetric)),
                 indexSort,
                 circuitBreakerService,
                 globalCheckpointSupplier,
                 replicationTracker::getRetentionLeases,
                 this::getOperationPrimaryTerm,
-                snapshotCommitSupplier);
+                snapshotCommitSupplier,
+                nodeMergeScheduler);
     }
 
     /**
@@ -3187,10 +3412,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             @Override
             protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
                 try {
-                    engineSupplier.get().ensureTranslogSynced(candidates.stream().map(Tuple::v1));
-                } catch (AlreadyClosedException ex) {
-                    // that's fine since we already synced everything on engine close - this also is conform with the methods
-                    // documentation
+                    ensureTranslogSynced(engineSupplier, candidates.stream().map(Tuple::v1));
                 } catch (IOException ex) { // if this fails we are in deep shit - fail the request
                     logger.debug("failed to sync translog", ex);
                     throw ex;
@@ -3199,6 +3421,15 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         };
     }
 
+    private static void ensureTranslogSynced(Supplier<Engine> engineSupplier, Stream<Translog.Location> locations) throws IOException {
+        try {
+            engineSupplier.get().ensureTranslogSynced(locations);
+        } catch (AlreadyClosedException ex) {
+            // that's fine since we already synced everything on engine close - this also is conform with the methods
+            // documentation
+        }
+    }
+
     /**
      * Syncs the given location with the underlying storage unless already synced. This method might return immediately without
      * actually fsyncing the location until the sync listener is called. Yet, unless there is already another thread fsyncing
@@ -3207,10 +3438,16 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      * one thread blocking on the sync an all others can continue indexing.
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
      * listener handles all exception cases internally.
+     * If {@link IndexSettings#INDEX_TRANSLOG_GROUP_COMMIT_SETTING} is enabled the caller thread is never hijacked; instead all pending
+     * locations are synced by a single task on the translog sync thread pool and the listener is notified on that thread.
      */
     public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
-        translogSyncProcessor.put(location, syncListener);
+        if (indexSettings.isTranslogGroupCommit()) {
+            translogGroupSyncer.sync(location, syncListener);
+        } else {
+            translogSyncProcessor.put(location, syncListener);
+        }
     }
 
     public void sync() throws IOException {
@@ -3360,6 +3597,12 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 engine.maybePruneDeletes(); // try to prune the deletes in the engine if we accumulated some
                 setRefreshPending(engine);
                 return false;
+            } else if (listenerNeedsRefresh == false
+                && adaptiveRefreshPolicy.shouldRefresh(indexSettings.getRefreshInterval(),
+                    indexSettings.getAdaptiveRefreshMaxInterval(), getIndexBufferRAMBytesUsed()) == false) {
+                // the adaptive refresh policy stretched the refresh interval of this shard, a later schedule will refresh
+                getEngine().maybePruneDeletes();
+                return false;
             } else {
                 if (logger.isTraceEnabled()) {
                     logger.trace("refresh with source [schedule]");
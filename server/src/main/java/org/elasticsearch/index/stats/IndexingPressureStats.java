@@ -43,6 +43,10 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
     private final long currentPrimaryOps;
     private final long currentReplicaOps;
 
+    // the bytes that are checked against the limits, which differ from the bytes above if the cost model is enabled
+    private final long currentWeightedCombinedCoordinatingAndPrimaryBytes;
+    private final long currentWeightedReplicaBytes;
+
     public IndexingPressureStats(StreamInput in) throws IOException {
         totalCombinedCoordinatingAndPrimaryBytes = in.readVLong();
         totalCoordinatingBytes = in.readVLong();
@@ -64,6 +68,14 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
             memoryLimit = -1L;
         }
 
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            currentWeightedCombinedCoordinatingAndPrimaryBytes = in.readVLong();
+            currentWeightedReplicaBytes = in.readVLong();
+        } else {
+            currentWeightedCombinedCoordinatingAndPrimaryBytes = currentCombinedCoordinatingAndPrimaryBytes;
+            currentWeightedReplicaBytes = currentReplicaBytes;
+        }
+
         // These are not currently propagated across the network yet
         this.totalCoordinatingOps = 0;
         this.totalPrimaryOps = 0;
@@ -77,7 +89,8 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
                                  long totalReplicaBytes, long currentCombinedCoordinatingAndPrimaryBytes, long currentCoordinatingBytes,
                                  long currentPrimaryBytes, long currentReplicaBytes, long coordinatingRejections, long primaryRejections,
                                  long replicaRejections, long memoryLimit, long totalCoordinatingOps, long totalPrimaryOps,
-                                 long totalReplicaOps, long currentCoordinatingOps, long currentPrimaryOps, long currentReplicaOps) {
+                                 long totalReplicaOps, long currentCoordinatingOps, long currentPrimaryOps, long currentReplicaOps,
+                                 long currentWeightedCombinedCoordinatingAndPrimaryBytes, long currentWeightedReplicaBytes) {
         this.totalCombinedCoordinatingAndPrimaryBytes = totalCombinedCoordinatingAndPrimaryBytes;
         this.totalCoordinatingBytes = totalCoordinatingBytes;
         this.totalPrimaryBytes = totalPrimaryBytes;
@@ -97,6 +110,9 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         this.currentCoordinatingOps = currentCoordinatingOps;
         this.currentPrimaryOps = currentPrimaryOps;
         this.currentReplicaOps = currentReplicaOps;
+
+        this.currentWeightedCombinedCoordinatingAndPrimaryBytes = currentWeightedCombinedCoordinatingAndPrimaryBytes;
+        this.currentWeightedReplicaBytes = currentWeightedReplicaBytes;
     }
 
     @Override
@@ -118,6 +134,11 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         if (out.getVersion().onOrAfter(Version.V_7_10_0)) {
             out.writeVLong(memoryLimit);
         }
+
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(currentWeightedCombinedCoordinatingAndPrimaryBytes);
+            out.writeVLong(currentWeightedReplicaBytes);
+        }
     }
 
     public long getTotalCombinedCoordinatingAndPrimaryBytes() {
@@ -188,6 +209,14 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         return currentReplicaOps;
     }
 
+    public long getCurrentWeightedCombinedCoordinatingAndPrimaryBytes() {
+        return currentWeightedCombinedCoordinatingAndPrimaryBytes;
+    }
+
+    public long getCurrentWeightedReplicaBytes() {
+        return currentWeightedReplicaBytes;
+    }
+
     private static final String COMBINED = "combined_coordinating_and_primary";
     private static final String COMBINED_IN_BYTES = "combined_coordinating_and_primary_in_bytes";
     private static final String COORDINATING = "coordinating";
@@ -198,6 +227,10 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
     private static final String REPLICA_IN_BYTES = "replica_in_bytes";
     private static final String ALL = "all";
     private static final String ALL_IN_BYTES = "all_in_bytes";
+    private static final String WEIGHTED_COMBINED = "weighted_combined_coordinating_and_primary";
+    private static final String WEIGHTED_COMBINED_IN_BYTES = "weighted_combined_coordinating_and_primary_in_bytes";
+    private static final String WEIGHTED_REPLICA = "weighted_replica";
+    private static final String WEIGHTED_REPLICA_IN_BYTES = "weighted_replica_in_bytes";
     private static final String COORDINATING_REJECTIONS = "coordinating_rejections";
     private static final String PRIMARY_REJECTIONS = "primary_rejections";
     private static final String REPLICA_REJECTIONS = "replica_rejections";
@@ -214,6 +247,9 @@ public class IndexingPressureStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(PRIMARY_IN_BYTES, PRIMARY, new ByteSizeValue(currentPrimaryBytes));
         builder.humanReadableField(REPLICA_IN_BYTES, REPLICA, new ByteSizeValue(currentReplicaBytes));
         builder.humanReadableField(ALL_IN_BYTES, ALL, new ByteSizeValue(currentReplicaBytes + currentCombinedCoordinatingAndPrimaryBytes));
+        builder.humanReadableField(WEIGHTED_COMBINED_IN_BYTES, WEIGHTED_COMBINED,
+            new ByteSizeValue(currentWeightedCombinedCoordinatingAndPrimaryBytes));
+        builder.humanReadableField(WEIGHTED_REPLICA_IN_BYTES, WEIGHTED_REPLICA, new ByteSizeValue(currentWeightedReplicaBytes));
         builder.endObject();
         builder.startObject("total");
         builder.humanReadableField(COMBINED_IN_BYTES, COMBINED, new ByteSizeValue(totalCombinedCoordinatingAndPrimaryBytes));
@@ -9,6 +9,7 @@
 package org.elasticsearch.index.translog;
 
 import com.carrotsearch.hppc.LongObjectHashMap;
+import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.seqno.CountedBitSet;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 
@@ -69,7 +70,7 @@ final class MultiSnapshot implements Translog.Snapshot {
 
     @Override
     public void close() throws IOException {
-        onClose.close();
+        IOUtils.close(() -> IOUtils.close(translogs), onClose);
     }
 
     static final class SeqNoSet {
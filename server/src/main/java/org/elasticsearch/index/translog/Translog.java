@@ -40,6 +40,7 @@ import org.elasticsearch.index.shard.ShardId;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -520,7 +521,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try {
             final long start = out.position();
             out.skip(Integer.BYTES);
-            writeOperationNoSize(new BufferedChecksumStreamOutput(out), operation);
+            writeOperationNoSize(new BufferedChecksumStreamOutput(out), maybeCompressSource(operation));
             final long end = out.position();
             final int operationSize = (int) (end - Integer.BYTES - start);
             out.seek(start);
@@ -549,6 +550,64 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    private Operation maybeCompressSource(Operation operation) throws IOException {
+        if (operation.opType() == Operation.Type.INDEX && indexSettings.isTranslogCompressSource()) {
+            return ((Index) operation).withCompressedSource();
+        }
+        return operation;
+    }
+
+    /**
+     * Adds the given operations to the translog as one contiguous block. This is equivalent to adding them one by one but serializes
+     * them into a single buffer and hands it to the current generation at once.
+     *
+     * @param operations the operations to add
+     * @return the locations of the added operations, in the same order
+     * @throws IOException if adding the operations to the translog resulted in an I/O exception
+     */
+    public List<Location> add(final List<? extends Operation> operations) throws IOException {
+        final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        try {
+            final int[] operationSizes = new int[operations.size()];
+            final long[] seqNos = new long[operations.size()];
+            for (int i = 0; i < operations.size(); i++) {
+                final Operation operation = operations.get(i);
+                final long start = out.position();
+                out.skip(Integer.BYTES);
+                writeOperationNoSize(new BufferedChecksumStreamOutput(out), maybeCompressSource(operation));
+                final long end = out.position();
+                final int operationSize = (int) (end - Integer.BYTES - start);
+                out.seek(start);
+                out.writeInt(operationSize);
+                out.seek(end);
+                operationSizes[i] = (int) (end - start);
+                seqNos[i] = operation.seqNo();
+            }
+            final BytesReference bytes = out.bytes();
+            try (ReleasableLock ignored = readLock.acquire()) {
+                ensureOpen();
+                for (Operation operation : operations) {
+                    if (operation.primaryTerm() > current.getPrimaryTerm()) {
+                        assert false :
+                            "Operation term is newer than the current term; "
+                                + "current term[" + current.getPrimaryTerm() + "], operation term[" + operation + "]";
+                        throw new IllegalArgumentException("Operation term is newer than the current term; "
+                            + "current term[" + current.getPrimaryTerm() + "], operation term[" + operation + "]");
+                    }
+                }
+                return Arrays.asList(current.add(bytes, operationSizes, seqNos));
+            }
+        } catch (final AlreadyClosedException | IOException ex) {
+            closeOnTragicEvent(ex);
+            throw ex;
+        } catch (final Exception ex) {
+            closeOnTragicEvent(ex);
+            throw new TranslogException(shardId, "Failed to write [" + operations.size() + "] operations", ex);
+        } finally {
+            Releasables.close(out);
+        }
+    }
+
     /**
      * Tests whether or not the translog generation should be rolled to a new generation. This test
      * is based on the size of the current generation compared to the configured generation
@@ -613,6 +672,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             TranslogSnapshot[] snapshots = Stream.concat(readers.stream(), Stream.of(current))
                 .filter(reader -> reader.getCheckpoint().minSeqNo <= toSeqNo && fromSeqNo <= reader.getCheckpoint().maxEffectiveSeqNo())
                 .map(BaseTranslogReader::newSnapshot).toArray(TranslogSnapshot[]::new);
+            if (indexSettings.isTranslogMemoryMappedReads()) {
+                for (TranslogSnapshot snapshot : snapshots) {
+                    snapshot.enableMemoryMapping();
+                }
+            }
             final Snapshot snapshot = newMultiSnapshot(snapshots);
             return new SeqNoFilterSnapshot(snapshot, fromSeqNo, toSeqNo);
         }
@@ -1089,6 +1153,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public static final int FORMAT_NO_PARENT = 9; // since 7.0
         public static final int FORMAT_NO_VERSION_TYPE = FORMAT_NO_PARENT + 1;
         public static final int FORMAT_NO_DOC_TYPE = FORMAT_NO_VERSION_TYPE + 1;
+        public static final int FORMAT_COMPRESSED_SOURCE = FORMAT_NO_DOC_TYPE + 1; // only used for compressed sources
         public static final int SERIALIZATION_FORMAT = FORMAT_NO_DOC_TYPE;
 
         private final String id;
@@ -1096,8 +1161,13 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         private final long seqNo;
         private final long primaryTerm;
         private final long version;
-        private final BytesReference source;
         private final String routing;
+        private final int sourceLength;
+        // the LZ4 compressed source or null if the source is not compressed
+        @Nullable
+        private final BytesReference compressedSource;
+        // lazily decompressed if the source is compressed
+        private BytesReference source;
 
         private Index(final StreamInput in) throws IOException {
             final int format = in.readVInt(); // SERIALIZATION_FORMAT
@@ -1107,7 +1177,15 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 in.readString();
                 // can't assert that this is _doc because pre-8.0 indexes can have any name for a type
             }
-            source = in.readBytesReference();
+            if (format >= FORMAT_COMPRESSED_SOURCE) {
+                sourceLength = in.readVInt();
+                compressedSource = in.readBytesReference();
+                source = null;
+            } else {
+                source = in.readBytesReference();
+                sourceLength = source.length();
+                compressedSource = null;
+            }
             routing = in.readOptionalString();
             if (format < FORMAT_NO_PARENT) {
                 in.readOptionalString(); // _parent
@@ -1124,6 +1202,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public Index(Engine.Index index, Engine.IndexResult indexResult) {
             this.id = index.id();
             this.source = index.source();
+            this.sourceLength = source.length();
+            this.compressedSource = null;
             this.routing = index.routing();
             this.seqNo = indexResult.getSeqNo();
             this.primaryTerm = index.primaryTerm();
@@ -1139,6 +1219,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                      byte[] source, String routing, long autoGeneratedIdTimestamp) {
             this.id = id;
             this.source = new BytesArray(source);
+            this.sourceLength = source.length;
+            this.compressedSource = null;
             this.seqNo = seqNo;
             this.primaryTerm = primaryTerm;
             this.version = version;
@@ -1146,6 +1228,37 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
         }
 
+        private Index(Index index, BytesReference compressedSource) {
+            this.id = index.id;
+            this.source = index.source;
+            this.sourceLength = index.sourceLength;
+            this.compressedSource = compressedSource;
+            this.seqNo = index.seqNo;
+            this.primaryTerm = index.primaryTerm;
+            this.version = index.version;
+            this.routing = index.routing;
+            this.autoGeneratedIdTimestamp = index.autoGeneratedIdTimestamp;
+        }
+
+        /**
+         * Returns a copy of this operation that is serialized with an LZ4 compressed source, or this operation if its source is already
+         * compressed or is not worth compressing.
+         */
+        Index withCompressedSource() throws IOException {
+            if (compressedSource != null) {
+                return this;
+            }
+            final BytesReference compressed = TranslogSourceCompression.compress(source);
+            return compressed == null ? this : new Index(this, compressed);
+        }
+
+        /**
+         * Returns <code>true</code> if this operation is serialized with a compressed source.
+         */
+        public boolean isSourceCompressed() {
+            return compressedSource != null;
+        }
+
         @Override
         public Type opType() {
             return Type.INDEX;
@@ -1154,7 +1267,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         @Override
         public long estimateSize() {
             return (2 * id.length())
-                + source.length()
+                + sourceLength
                 + (routing != null ? 2 * routing.length() : 0)
                 + (4 * Long.BYTES); // timestamp, seq_no, primary_term, and version
         }
@@ -1168,6 +1281,13 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
 
         public BytesReference source() {
+            if (source == null) {
+                try {
+                    source = TranslogSourceCompression.decompress(compressedSource, sourceLength);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("failed to decompress the source of " + this, e);
+                }
+            }
             return this.source;
         }
 
@@ -1187,17 +1307,27 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         @Override
         public Source getSource() {
-            return new Source(source, routing);
+            return new Source(source(), routing);
         }
 
         private void write(final StreamOutput out) throws IOException {
-            final int format = out.getVersion().onOrAfter(Version.V_8_0_0) ? SERIALIZATION_FORMAT : FORMAT_NO_VERSION_TYPE;
+            final int format;
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                format = compressedSource != null ? FORMAT_COMPRESSED_SOURCE : SERIALIZATION_FORMAT;
+            } else {
+                format = FORMAT_NO_VERSION_TYPE;
+            }
             out.writeVInt(format);
             out.writeString(id);
             if (format < FORMAT_NO_DOC_TYPE) {
                 out.writeString(MapperService.SINGLE_MAPPING_NAME);
             }
-            out.writeBytesReference(source);
+            if (format >= FORMAT_COMPRESSED_SOURCE) {
+                out.writeVInt(sourceLength);
+                out.writeBytesReference(compressedSource);
+            } else {
+                out.writeBytesReference(source());
+            }
             out.writeOptionalString(routing);
             if (format < FORMAT_NO_PARENT) {
                  out.writeOptionalString(null); // _parent
@@ -1227,7 +1357,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 primaryTerm != index.primaryTerm ||
                 id.equals(index.id) == false ||
                 autoGeneratedIdTimestamp != index.autoGeneratedIdTimestamp ||
-                source.equals(index.source) == false) {
+                source().equals(index.source()) == false) {
                 return false;
             }
             return Objects.equals(routing, index.routing);
@@ -1239,7 +1369,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             result = 31 * result + Long.hashCode(seqNo);
             result = 31 * result + Long.hashCode(primaryTerm);
             result = 31 * result + Long.hashCode(version);
-            result = 31 * result + source.hashCode();
+            result = 31 * result + source().hashCode();
             result = 31 * result + (routing != null ? routing.hashCode() : 0);
             result = 31 * result + Long.hashCode(autoGeneratedIdTimestamp);
             return result;
@@ -0,0 +1,165 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.index.translog;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.core.Tuple;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Group-commits translog fsyncs for a single shard. Callers register the {@link Translog.Location} they need to be durable together
+ * with a listener and return immediately. A single sync task per shard runs on the given executor, drains every location that is
+ * pending at that time, issues one fsync covering all of them and then notifies their listeners. Locations that arrive while a sync
+ * is in flight are batched into the next round.
+ *
+ * Unlike {@link org.elasticsearch.common.util.concurrent.AsyncIOProcessor} the calling thread is never used to perform the fsync,
+ * which keeps write threads from being parked on disk I/O.
+ */
+public class TranslogGroupSyncer {
+
+    private final Logger logger;
+    private final ThreadContext threadContext;
+    private final Executor executor;
+    private final CheckedConsumer<Stream<Translog.Location>, IOException> syncer;
+
+    private final Object mutex = new Object();
+    // protected by mutex
+    private List<Tuple<Translog.Location, Consumer<Exception>>> pending = new ArrayList<>();
+    // protected by mutex
+    private boolean syncScheduled = false;
+
+    /**
+     * @param executor the executor the fsync task is executed on
+     * @param syncer   ensures that all given locations are synced to disk
+     */
+    public TranslogGroupSyncer(Logger logger, ThreadContext threadContext, Executor executor,
+                               CheckedConsumer<Stream<Translog.Location>, IOException> syncer) {
+        this.logger = logger;
+        this.threadContext = threadContext;
+        this.executor = executor;
+        this.syncer = syncer;
+    }
+
+    /**
+     * Registers the given location to be synced. The listener is notified with {@code null} once the location is durable or with the
+     * exception that prevented the sync. The listener is always executed on the sync thread.
+     */
+    public void sync(Translog.Location location, Consumer<Exception> listener) {
+        Objects.requireNonNull(location, "location must not be null");
+        Objects.requireNonNull(listener, "listener must not be null");
+        final boolean schedule;
+        synchronized (mutex) {
+            pending.add(new Tuple<>(location, preserveContext(listener)));
+            schedule = syncScheduled == false;
+            syncScheduled = true;
+        }
+        if (schedule) {
+            scheduleSync();
+        }
+    }
+
+    /**
+     * Returns the number of locations waiting for the next sync round.
+     */
+    public int pendingCount() {
+        synchronized (mutex) {
+            return pending.size();
+        }
+    }
+
+    private void scheduleSync() {
+        final AbstractRunnable syncTask = new AbstractRunnable() {
+            @Override
+            protected void doRun() {
+                syncPending();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                failPending(e);
+            }
+        };
+        try {
+            executor.execute(syncTask);
+        } catch (Exception e) {
+            failPending(e);
+        }
+    }
+
+    /**
+     * Fails everybody waiting if the sync task could not be forked, e.g. because the executor is shutting down.
+     */
+    private void failPending(Exception e) {
+        final List<Tuple<Translog.Location, Consumer<Exception>>> candidates;
+        synchronized (mutex) {
+            candidates = pending;
+            pending = new ArrayList<>();
+            syncScheduled = false;
+        }
+        notifyListeners(candidates, e);
+    }
+
+    private void syncPending() {
+        final List<Tuple<Translog.Location, Consumer<Exception>>> candidates;
+        synchronized (mutex) {
+            assert syncScheduled;
+            candidates = pending;
+            pending = new ArrayList<>();
+        }
+        Exception exception = null;
+        if (candidates.isEmpty() == false) {
+            try {
+                syncer.accept(candidates.stream().map(Tuple::v1));
+            } catch (Exception e) {
+                logger.debug("failed to sync translog", e);
+                exception = e;
+            }
+        }
+        notifyListeners(candidates, exception);
+
+        final boolean reschedule;
+        synchronized (mutex) {
+            // fork again rather than looping so that a busy shard doesn't monopolize a thread of the shared pool
+            reschedule = pending.isEmpty() == false;
+            syncScheduled = reschedule;
+        }
+        if (reschedule) {
+            scheduleSync();
+        }
+    }
+
+    private void notifyListeners(List<Tuple<Translog.Location, Consumer<Exception>>> candidates, Exception exception) {
+        for (Tuple<Translog.Location, Consumer<Exception>> tuple : candidates) {
+            try {
+                tuple.v2().accept(exception);
+            } catch (Exception e) {
+                logger.warn("failed to notify translog sync listener", e);
+            }
+        }
+    }
+
+    private Consumer<Exception> preserveContext(Consumer<Exception> consumer) {
+        final Supplier<ThreadContext.StoredContext> restorableContext = threadContext.newRestorableContext(false);
+        return e -> {
+            try (ThreadContext.StoredContext ignore = restorableContext.get()) {
+                consumer.accept(e);
+            }
+        };
+    }
+}
@@ -7,14 +7,19 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
 import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
-final class TranslogSnapshot extends BaseTranslogReader {
+final class TranslogSnapshot extends BaseTranslogReader implements Closeable {
 
     private final int totalOperations;
     private final Checkpoint checkpoint;
@@ -25,6 +30,8 @@ final class TranslogSnapshot extends BaseTranslogReader {
     private int skippedOperations;
     private int readOperations;
     private BufferedChecksumStreamInput reuse;
+    private boolean memoryMapped;
+    private IndexInput mappedInput;
 
     /**
      * Create a snapshot of translog file channel.
@@ -49,6 +56,15 @@ final class TranslogSnapshot extends BaseTranslogReader {
         return skippedOperations;
     }
 
+    /**
+     * Reads operations from a memory mapped view of the generation file instead of issuing positional reads against the file channel
+     * for every operation. The mapping is established lazily on the first read and released on {@link #close()}.
+     */
+    void enableMemoryMapping() {
+        assert readOperations == 0 && mappedInput == null : "memory mapping must be enabled before reading";
+        memoryMapped = true;
+    }
+
     @Override
     Checkpoint getCheckpoint() {
         return checkpoint;
@@ -91,12 +107,39 @@ final class TranslogSnapshot extends BaseTranslogReader {
                 throw new IOException("read requested before position of first ops. pos [" + position + "] first op on: [" +
                     getFirstOperationOffset() + "], generation: [" + getGeneration() + "], path: [" + path + "]");
             }
-            Channels.readFromFileChannelWithEofException(channel, position, buffer);
+            if (memoryMapped) {
+                readFromMappedInput(buffer, position);
+            } else {
+                Channels.readFromFileChannelWithEofException(channel, position, buffer);
+            }
         } catch (EOFException e) {
             throw new TranslogCorruptedException(path.toString(), "translog truncated", e);
         }
     }
 
+    private void readFromMappedInput(ByteBuffer buffer, long position) throws IOException {
+        assert buffer.hasArray() : "expected a heap buffer";
+        if (mappedInput == null) {
+            // the generation file is immutable up to length, the writer only ever appends beyond it
+            try (MMapDirectory directory = new MMapDirectory(path.getParent())) {
+                mappedInput = directory.openInput(path.getFileName().toString(), IOContext.READ);
+            }
+        }
+        final int remaining = buffer.remaining();
+        if (position + remaining > length) {
+            throw new EOFException("read requested past EOF. pos [" + position + "] length [" + remaining + "] end: [" + length + "]");
+        }
+        mappedInput.seek(position);
+        mappedInput.readBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), remaining);
+        buffer.position(buffer.position() + remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(mappedInput);
+        mappedInput = null;
+    }
+
     @Override
     public String toString() {
         return "TranslogSnapshot{" +
@@ -106,6 +149,7 @@ final class TranslogSnapshot extends BaseTranslogReader {
                 ", length=" + length +
                 ", generation=" + generation +
                 ", reusableBuffer=" + reusableBuffer +
+                ", memoryMapped=" + memoryMapped +
                 '}';
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.compress.LZ4;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+
+/**
+ * LZ4 compression of the source of {@link Translog.Index} operations, see
+ * {@link org.elasticsearch.index.IndexSettings#INDEX_TRANSLOG_COMPRESS_SOURCE_SETTING}. Each source is compressed on its own so that
+ * every operation can still be read from its own {@link Translog.Location}.
+ */
+final class TranslogSourceCompression {
+
+    /**
+     * Sources smaller than this hardly compress and are always written as is.
+     */
+    static final int MIN_COMPRESSIBLE_LENGTH = 256;
+
+    private static final ThreadLocal<LZ4.FastCompressionHashTable> HASH_TABLE =
+        ThreadLocal.withInitial(LZ4.FastCompressionHashTable::new);
+
+    private TranslogSourceCompression() {}
+
+    /**
+     * Compresses the given source, or returns {@code null} if the source is too small or doesn't compress well enough to be worth the
+     * cost of decompressing it again.
+     */
+    @Nullable
+    static BytesReference compress(BytesReference source) throws IOException {
+        if (source.length() < MIN_COMPRESSIBLE_LENGTH) {
+            return null;
+        }
+        final BytesRef bytes = source.toBytesRef();
+        final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        LZ4.compress(bytes.bytes, bytes.offset, bytes.length, out, HASH_TABLE.get());
+        // require a saving of at least 1/8th
+        if (out.size() > bytes.length - (bytes.length >>> 3)) {
+            return null;
+        }
+        return new BytesArray(out.toArrayCopy());
+    }
+
+    /**
+     * Decompresses a source that was compressed with {@link #compress(BytesReference)} and had the given uncompressed length.
+     */
+    static BytesReference decompress(BytesReference compressed, int length) throws IOException {
+        final BytesRef bytes = compressed.toBytesRef();
+        // LZ4 may copy literals in chunks of 8 bytes and thus write past the end of the decompressed data
+        final byte[] source = new byte[length + 7];
+        final int decompressed = LZ4.decompress(new ByteArrayDataInput(bytes.bytes, bytes.offset, bytes.length), length, source, 0);
+        if (decompressed != length) {
+            throw new IOException("expected to decompress [" + length + "] bytes of source but got [" + decompressed + "]");
+        }
+        return new BytesArray(source, 0, length);
+    }
+}
@@ -210,6 +210,56 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         return location;
     }
 
+    /**
+     * Adds a block of operations that were serialized back to back, see {@link #add(BytesReference, long)}. The whole block is copied
+     * into the write buffer at once and the location of every operation within it is returned in order.
+     *
+     * @param block          the serialized operations, each including its size header
+     * @param operationSizes the number of bytes each operation takes up in the block
+     * @param seqNos         the sequence number of each operation
+     */
+    public Translog.Location[] add(final BytesReference block, final int[] operationSizes, final long[] seqNos) throws IOException {
+        assert operationSizes.length == seqNos.length : operationSizes.length + " vs " + seqNos.length;
+        long bufferedBytesBeforeAdd = this.bufferedBytes;
+        if (bufferedBytesBeforeAdd >= forceWriteThreshold) {
+            writeBufferedOps(Long.MAX_VALUE, bufferedBytesBeforeAdd >= forceWriteThreshold * 4);
+        }
+
+        final Translog.Location[] locations = new Translog.Location[seqNos.length];
+        synchronized (this) {
+            ensureOpen();
+            if (buffer == null) {
+                buffer = new ReleasableBytesStreamOutput(bigArrays);
+            }
+            assert bufferedBytes == buffer.size();
+            block.writeTo(buffer);
+
+            int offsetInBlock = 0;
+            for (int i = 0; i < seqNos.length; i++) {
+                final long seqNo = seqNos[i];
+                assert minSeqNo != SequenceNumbers.NO_OPS_PERFORMED || operationCounter == 0;
+                assert maxSeqNo != SequenceNumbers.NO_OPS_PERFORMED || operationCounter == 0;
+
+                minSeqNo = SequenceNumbers.min(minSeqNo, seqNo);
+                maxSeqNo = SequenceNumbers.max(maxSeqNo, seqNo);
+
+                nonFsyncedSequenceNumbers.add(seqNo);
+
+                operationCounter++;
+
+                assert assertNoSeqNumberConflict(seqNo, block.slice(offsetInBlock, operationSizes[i]));
+
+                locations[i] = new Translog.Location(generation, totalOffset + offsetInBlock, operationSizes[i]);
+                offsetInBlock += operationSizes[i];
+            }
+            assert offsetInBlock == block.length() : offsetInBlock + " vs " + block.length();
+            totalOffset += block.length();
+            bufferedBytes = buffer.size();
+        }
+
+        return locations;
+    }
+
     private synchronized boolean assertNoSeqNumberConflict(long seqNo, BytesReference data) throws IOException {
         if (seqNo == SequenceNumbers.UNASSIGNED_SEQ_NO) {
             // nothing to do
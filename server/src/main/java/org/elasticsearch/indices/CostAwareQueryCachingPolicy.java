@@ -0,0 +1,88 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link UsageTrackingQueryCachingPolicy} that also takes into account how long it took to build the cached {@link DocIdSet}s
+ * of a query compared to how much memory they use. The cost of a query is measured by {@link IndicesQueryCache} whenever one of
+ * its doc id sets is cached. Doc id sets of queries that match few documents are stored compactly, so selective queries have a
+ * higher cost per byte than dense ones that take as long to compute.
+ * <p>
+ * Queries whose cost per byte is much lower than the average cost of the queries of the shard aren't cached anymore, so that
+ * cheap queries don't evict expensive ones from the cache. Queries whose cost per byte is much higher than the average are
+ * cached as soon as they are reused. Other queries are cached based on how often they are used.
+ */
+public final class CostAwareQueryCachingPolicy extends UsageTrackingQueryCachingPolicy {
+
+    // how much cheaper or more expensive than the average a query has to be for its cost to overrule its usage
+    static final double COST_FACTOR = 4;
+    // the weight of a new measurement in the average cost
+    private static final double ALPHA = 0.1;
+    // the costs are keyed by hash code like the usage of queries so that the policy doesn't retain large queries
+    private static final int MAX_TRACKED_QUERIES = 256;
+
+    private final Map<Integer, QueryCost> costs = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, QueryCost> eldest) {
+            return size() > MAX_TRACKED_QUERIES;
+        }
+    };
+    private long numMeasurements;
+    private double averageCost;
+
+    /**
+     * Records that a doc id set of the given query that uses {@code ramBytesUsed} bytes of memory took {@code buildTimeInNanos}
+     * to build.
+     */
+    void onCache(Query query, long buildTimeInNanos, long ramBytesUsed) {
+        final double cost = (double) buildTimeInNanos / Math.max(1L, ramBytesUsed);
+        synchronized (costs) {
+            costs.computeIfAbsent(query.hashCode(), k -> new QueryCost()).add(buildTimeInNanos, ramBytesUsed);
+            averageCost = numMeasurements++ == 0 ? cost : averageCost + ALPHA * (cost - averageCost);
+        }
+    }
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+        synchronized (costs) {
+            final QueryCost cost = costs.get(query.hashCode());
+            if (cost != null) {
+                final double costPerByte = cost.costPerByte();
+                if (costPerByte >= averageCost * COST_FACTOR) {
+                    return true;
+                } else if (costPerByte * COST_FACTOR <= averageCost) {
+                    return false;
+                }
+            }
+        }
+        return super.shouldCache(query);
+    }
+
+    private static class QueryCost {
+        private long buildTimeInNanos;
+        private long ramBytesUsed;
+
+        void add(long buildTimeInNanos, long ramBytesUsed) {
+            this.buildTimeInNanos += buildTimeInNanos;
+            this.ramBytesUsed += ramBytesUsed;
+        }
+
+        double costPerByte() {
+            return (double) buildTimeInNanos / Math.max(1L, ramBytesUsed);
+        }
+    }
+}
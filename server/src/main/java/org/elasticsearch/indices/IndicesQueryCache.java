@@ -13,20 +13,26 @@ import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Matches;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
 import org.elasticsearch.common.lucene.ShardCoreKeyMap;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats.QueryTypeStats;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.io.Closeable;
@@ -111,21 +117,24 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     @Override
     public Weight doCache(Weight weight, QueryCachingPolicy policy) {
         while (weight instanceof CachingWeightWrapper) {
-            weight = ((CachingWeightWrapper) weight).in;
+            weight = ((CachingWeightWrapper) weight).uncached;
         }
-        final Weight in = cache.doCache(weight, policy);
+        final Weight in = cache.doCache(new CostTrackingWeight(weight, policy), policy);
         // We wrap the weight to track the readers it sees and map them with
         // the shards they belong to
-        return new CachingWeightWrapper(in);
+        return new CachingWeightWrapper(in, weight);
     }
 
     private class CachingWeightWrapper extends Weight {
 
         private final Weight in;
+        // the weight before it was wrapped for caching
+        private final Weight uncached;
 
-        protected CachingWeightWrapper(Weight in) {
+        protected CachingWeightWrapper(Weight in, Weight uncached) {
             super(in.getQuery());
             this.in = in;
+            this.uncached = uncached;
         }
 
         @Override
@@ -163,6 +172,91 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         }
     }
 
+    /**
+     * Wraps the weight of a query that may be cached, so that the cache knows the query and the caching policy when it builds the
+     * {@link DocIdSet} of a segment, see {@link ElasticsearchLRUQueryCache#cacheImpl}.
+     */
+    private static class CostTrackingWeight extends Weight {
+
+        private final Weight in;
+        private final QueryCachingPolicy policy;
+
+        CostTrackingWeight(Weight in, QueryCachingPolicy policy) {
+            super(in.getQuery());
+            this.in = in;
+            this.policy = policy;
+        }
+
+        @Override
+        public void extractTerms(Set<Term> terms) {
+            in.extractTerms(terms);
+        }
+
+        @Override
+        public Matches matches(LeafReaderContext context, int doc) throws IOException {
+            return in.matches(context, doc);
+        }
+
+        @Override
+        public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+            return in.explain(context, doc);
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+            return in.scorer(context);
+        }
+
+        @Override
+        public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+            return in.scorerSupplier(context);
+        }
+
+        @Override
+        public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+            final BulkScorer bulkScorer = in.bulkScorer(context);
+            return bulkScorer == null ? null : new CostTrackingBulkScorer(bulkScorer, getQuery(), policy, context);
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+            return in.isCacheable(ctx);
+        }
+    }
+
+    private static class CostTrackingBulkScorer extends BulkScorer {
+
+        private final BulkScorer in;
+        private final Query query;
+        private final QueryCachingPolicy policy;
+        private final LeafReaderContext context;
+
+        CostTrackingBulkScorer(BulkScorer in, Query query, QueryCachingPolicy policy, LeafReaderContext context) {
+            this.in = in;
+            this.query = query;
+            this.policy = policy;
+            this.context = context;
+        }
+
+        @Override
+        public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+            return in.score(collector, acceptDocs, min, max);
+        }
+
+        @Override
+        public long cost() {
+            return in.cost();
+        }
+    }
+
+    /**
+     * The name under which the statistics of the given query are grouped.
+     */
+    static String queryType(Query query) {
+        final Class<?> clazz = query.getClass();
+        return clazz.getSimpleName().isEmpty() ? clazz.getName() : clazz.getSimpleName();
+    }
+
     /** Clear all entries that belong to the given index. */
     public void clearIndex(String index) {
         final Set<Object> coreCacheKeys = shardKeyMap.getCoreKeysForIndex(index);
@@ -199,13 +293,26 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         volatile long missCount;
         volatile long cacheCount;
         volatile long cacheSize;
+        final Map<String, TypeStats> typeStats = new ConcurrentHashMap<>();
 
         Stats(ShardId shardId) {
             this.shardId = shardId;
         }
 
+        TypeStats typeStats(Query query) {
+            return typeStats(queryType(query));
+        }
+
+        TypeStats typeStats(String queryType) {
+            return typeStats.computeIfAbsent(queryType, k -> new TypeStats());
+        }
+
         QueryCacheStats toQueryCacheStats() {
-            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize);
+            final Map<String, QueryTypeStats> queryTypeStats = new HashMap<>(typeStats.size());
+            for (Map.Entry<String, TypeStats> entry : typeStats.entrySet()) {
+                queryTypeStats.put(entry.getKey(), entry.getValue().toQueryTypeStats());
+            }
+            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, queryTypeStats);
         }
 
         @Override
@@ -215,6 +322,18 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         }
     }
 
+    private static class TypeStats {
+        // doc id sets are built outside of the lock of the cache, so the counters need to be thread-safe
+        final CounterMetric hitCount = new CounterMetric();
+        final CounterMetric missCount = new CounterMetric();
+        final CounterMetric cacheCount = new CounterMetric();
+        final CounterMetric evictions = new CounterMetric();
+
+        QueryTypeStats toQueryTypeStats() {
+            return new QueryTypeStats(hitCount.count(), missCount.count(), cacheCount.count(), evictions.count());
+        }
+    }
+
     private static class StatsAndCount {
         volatile int count;
         final Stats stats;
@@ -244,6 +363,9 @@ public class IndicesQueryCache implements QueryCache, Closeable {
 
     private class ElasticsearchLRUQueryCache extends LRUQueryCache {
 
+        // the type of the query whose doc id sets are being evicted by the current thread, if any
+        private final ThreadLocal<String> evictedQueryType = new ThreadLocal<>();
+
         ElasticsearchLRUQueryCache(int maxSize, long maxRamBytesUsed, Predicate<LeafReaderContext> leavesToCache, float skipFactor) {
             super(maxSize, maxRamBytesUsed, leavesToCache, skipFactor);
         }
@@ -294,6 +416,36 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         protected void onQueryEviction(Query filter, long ramBytesUsed) {
             super.onQueryEviction(filter, ramBytesUsed);
             sharedRamBytesUsed -= ramBytesUsed;
+            // LRUQueryCache evicts the doc id sets of the query one by one right after this call
+            evictedQueryType.set(queryType(filter));
+        }
+
+        @Override
+        public void clearCoreCacheKey(Object coreKey) {
+            // doc id sets that are evicted because their segment is closed don't count as evictions of their query
+            evictedQueryType.remove();
+            super.clearCoreCacheKey(coreKey);
+        }
+
+        @Override
+        protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+            if (scorer instanceof CostTrackingBulkScorer == false) {
+                return super.cacheImpl(scorer, maxDoc);
+            }
+            final CostTrackingBulkScorer costTrackingScorer = (CostTrackingBulkScorer) scorer;
+            final long startTime = System.nanoTime();
+            final DocIdSet docIdSet = super.cacheImpl(costTrackingScorer.in, maxDoc);
+            final long buildTimeInNanos = System.nanoTime() - startTime;
+            final Object coreKey = costTrackingScorer.context.reader().getCoreCacheHelper().getKey();
+            final Stats stats = getStats(coreKey);
+            if (stats != null) {
+                stats.typeStats(costTrackingScorer.query).cacheCount.inc();
+            }
+            if (costTrackingScorer.policy instanceof CostAwareQueryCachingPolicy) {
+                ((CostAwareQueryCachingPolicy) costTrackingScorer.policy).onCache(costTrackingScorer.query, buildTimeInNanos,
+                    docIdSet.ramBytesUsed());
+            }
+            return docIdSet;
         }
 
         @Override
@@ -326,6 +478,11 @@ public class IndicesQueryCache implements QueryCache, Closeable {
                 // instead of relying on close listeners
                 final StatsAndCount statsAndCount = stats2.get(readerCoreKey);
                 final Stats shardStats = statsAndCount.stats;
+                final String queryType = evictedQueryType.get();
+                if (queryType != null) {
+                    assert numEntries == 1 : numEntries;
+                    shardStats.typeStats(queryType).evictions.inc();
+                }
                 shardStats.cacheSize -= numEntries;
                 shardStats.ramBytesUsed -= sumRamBytesUsed;
                 statsAndCount.count -= numEntries;
@@ -340,6 +497,7 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onHit(readerCoreKey, filter);
             final Stats shardStats = getStats(readerCoreKey);
             shardStats.hitCount += 1;
+            shardStats.typeStats(filter).hitCount.inc();
         }
 
         @Override
@@ -347,6 +505,7 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onMiss(readerCoreKey, filter);
             final Stats shardStats = getOrCreateStats(readerCoreKey);
             shardStats.missCount += 1;
+            shardStats.typeStats(filter).missCount.inc();
         }
     }
 }
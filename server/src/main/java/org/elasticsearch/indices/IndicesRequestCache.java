@@ -64,6 +64,18 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
      */
     public static final Setting<Boolean> INDEX_CACHE_REQUEST_ENABLED_SETTING =
         Setting.boolSetting("index.requests.cache.enable", true, Property.Dynamic, Property.IndexScope);
+    /**
+     * The interval that {@code now} is rounded down to in search requests that may be cached so that requests using it can be
+     * cached too. Disabled by default since it changes the time that date math expressions resolve against.
+     */
+    public static final Setting<TimeValue> INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING =
+        Setting.timeSetting("index.requests.cache.now_rounding", TimeValue.ZERO, TimeValue.ZERO, Property.Dynamic, Property.IndexScope);
+    /**
+     * Whether partial aggregation results that only depend on the documents of a shard, like the doc counts of the buckets of a
+     * {@code date_histogram}, are cached for shards of indices that are blocked for writes.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_REQUEST_PARTIAL_AGGREGATIONS_SETTING =
+        Setting.boolSetting("index.requests.cache.partial_aggregations", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_SIZE =
         Setting.memorySizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
@@ -17,6 +17,7 @@ import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStats;
@@ -38,7 +39,9 @@ import org.elasticsearch.core.CheckedFunction;
 import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
@@ -93,9 +96,11 @@ import org.elasticsearch.index.mapper.MapperRegistry;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.MappingLookup;
 import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.merge.NodeMergeScheduler;
 import org.elasticsearch.index.query.CoordinatorRewriteContextProvider;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
+import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
@@ -120,6 +125,7 @@ import org.elasticsearch.plugins.IndexStorePlugin;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.SearchContext;
@@ -208,6 +214,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final Map<String, IndexStorePlugin.SnapshotCommitSupplier> snapshotCommitSuppliers;
     private final IndexingMemoryController indexingMemoryController;
+    private final NodeMergeScheduler nodeMergeScheduler;
     private final TimeValue cleanInterval;
     final IndicesRequestCache indicesRequestCache; // pkg-private for testing
     private final IndicesQueryCache indicesQueryCache;
@@ -279,6 +286,7 @@ public class IndicesService extends AbstractLifecycleComponent
                 circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(-sizeInBytes);
             }
         });
+        this.nodeMergeScheduler = new NodeMergeScheduler(settings, clusterService.getClusterSettings(), this::isSearchActive);
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
         this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
         this.metaStateService = metaStateService;
@@ -513,6 +521,15 @@ public class IndicesService extends AbstractLifecycleComponent
         return indices.get(index.getUUID());
     }
 
+    /**
+     * Returns whether the given shard is allocated on this node and has been searched recently.
+     */
+    private boolean isSearchActive(ShardId shardId) {
+        final IndexService indexService = indexService(shardId.getIndex());
+        final IndexShard indexShard = indexService == null ? null : indexService.getShardOrNull(shardId.id());
+        return indexShard != null && indexShard.isSearchIdle() == false;
+    }
+
     /**
      * Returns an IndexService for the specified index if exists otherwise a {@link IndexNotFoundException} is thrown.
      */
@@ -674,7 +691,8 @@ public class IndicesService extends AbstractLifecycleComponent
                 this::isIdFieldDataEnabled,
                 valuesSourceRegistry,
                 indexFoldersDeletionListeners,
-                snapshotCommitSuppliers
+                snapshotCommitSuppliers,
+                nodeMergeScheduler
         );
     }
 
@@ -1342,6 +1360,42 @@ public class IndicesService extends AbstractLifecycleComponent
      * Can the shard request be cached at all?
      */
     public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        IndexSettings settings = context.indexShard().indexSettings();
+        if (mayUseRequestCache(request, settings, context.searchType(), context.size()) == false) {
+            return false;
+        }
+        // We use the cacheKey of the index reader as a part of a key of the IndicesRequestCache.
+        assert context.searcher().getIndexReader().getReaderCacheHelper() != null;
+
+        // if now in millis is used (or in the future, a more generic "isDeterministic" flag
+        // then we can't cache based on "now" key within the search request, as it is not deterministic,
+        // unless now is rounded in which case the rounded time is part of the cache key
+        if (context.getSearchExecutionContext().isCacheable() == false) {
+            return false;
+        }
+        return true;
+
+    }
+
+
+    /**
+     * Rounds the time that {@code now} resolves against in the given context if the index is configured to do so for
+     * requests that may use the request cache.
+     *
+     * @see IndicesRequestCache#INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING
+     */
+    public static void maybeRoundNow(ShardSearchRequest request, IndexSettings settings, SearchExecutionContext context) {
+        final TimeValue rounding = settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING);
+        final int size = request.source() == null ? -1 : request.source().size();
+        if (rounding.millis() > 0 && mayUseRequestCache(request, settings, request.searchType(), size)) {
+            context.setNowRounding(rounding);
+        }
+    }
+
+    /**
+     * Can a shard request with the given search type and size use the request cache, regardless of its query?
+     */
+    private static boolean mayUseRequestCache(ShardSearchRequest request, IndexSettings settings, SearchType searchType, int size) {
         // Queries that create a scroll context cannot use the cache.
         // They modify the search context during their execution so using the cache
         // may invalidate the scroll for the next query.
@@ -1353,7 +1407,7 @@ public class IndicesService extends AbstractLifecycleComponent
         // on the overridden statistics. So if you ran two queries on the same index with different stats
         // (because an other shard was updated) you would get wrong results because of the scores
         // (think about top_hits aggs or scripts using the score)
-        if (SearchType.QUERY_THEN_FETCH != context.searchType()) {
+        if (SearchType.QUERY_THEN_FETCH != searchType) {
             return false;
         }
 
@@ -1362,12 +1416,11 @@ public class IndicesService extends AbstractLifecycleComponent
             return false;
         }
 
-        IndexSettings settings = context.indexShard().indexSettings();
         // if not explicitly set in the request, use the index setting, if not, use the request
         if (request.requestCache() == null) {
             if (settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING) == false) {
                 return false;
-            } else if (context.size() != 0) {
+            } else if (size != 0) {
                 // If no request cache query parameter and shard request cache
                 // is enabled in settings don't cache for requests with size > 0
                 return false;
@@ -1375,18 +1428,48 @@ public class IndicesService extends AbstractLifecycleComponent
         } else if (request.requestCache() == false) {
             return false;
         }
-        // We use the cacheKey of the index reader as a part of a key of the IndicesRequestCache.
-        assert context.searcher().getIndexReader().getReaderCacheHelper() != null;
-
-        // if now in millis is used (or in the future, a more generic "isDeterministic" flag
-        // then we can't cache based on "now" key within the search request, as it is not deterministic
-        if (context.getSearchExecutionContext().isCacheable() == false) {
-            return false;
-        }
         return true;
-
     }
 
+    /**
+     * Returns a cache for partial aggregation results of the shard that the given context searches, or {@code null} if they
+     * can't be cached. Partial results only depend on the documents of the shard, so they are only cached for indices that are
+     * blocked for writes, like rolled over backing indices of a data stream, where the same reader is searched over and over.
+     *
+     * @see IndicesRequestCache#INDEX_CACHE_REQUEST_PARTIAL_AGGREGATIONS_SETTING
+     */
+    @Nullable
+    public AggregationContext.ShardResultCache shardResultCache(ShardSearchRequest request, SearchContext context) {
+        IndexSettings settings = context.indexShard().indexSettings();
+        if (settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_PARTIAL_AGGREGATIONS_SETTING) == false
+            || settings.getValue(IndexMetadata.INDEX_BLOCKS_WRITE_SETTING) == false
+            || Boolean.FALSE.equals(request.requestCache())
+            || request.scroll() != null) {
+            return null;
+        }
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            // the aggregations don't see all matches of the query
+            return null;
+        }
+        final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
+        return (key, loader) -> {
+            // keys of whole requests start with the non-empty name of the index, this prefix keeps partial results apart
+            BytesReference cacheKey = CompositeBytesReference.of(new BytesArray(new byte[] { 0 }), key);
+            try {
+                return cacheShardLevelResult(
+                    context.indexShard(),
+                    context.getSearchExecutionContext().mappingCacheKey(),
+                    directoryReader,
+                    cacheKey,
+                    loader
+                );
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw ExceptionsHelper.convertToRuntime(e);
+            }
+        };
+    }
 
     /**
      * Loads the cache result, computing it if needed by executing the query phase and otherwise deserializing the cached
@@ -1399,7 +1482,7 @@ public class IndicesService extends AbstractLifecycleComponent
         final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
 
         boolean[] loadedFromCache = new boolean[] { true };
-        BytesReference cacheKey = request.cacheKey();
+        BytesReference cacheKey = request.cacheKey(context.getSearchExecutionContext().usedRoundedNowInMillis());
         BytesReference bytesReference = cacheShardLevelResult(
             context.indexShard(),
             context.getSearchExecutionContext().mappingCacheKey(),
@@ -615,7 +615,7 @@ public class Node implements Closeable {
 
             final SearchService searchService = newSearchService(clusterService, indicesService,
                 threadPool, scriptService, bigArrays, searchModule.getFetchPhase(),
-                responseCollectorService, circuitBreakerService, executorSelector);
+                responseCollectorService, circuitBreakerService, executorSelector, environment.tmpFile());
 
             final List<PersistentTasksExecutor<?>> tasksExecutors = pluginsService
                 .filterPlugins(PersistentTaskPlugin.class).stream()
@@ -1153,10 +1153,11 @@ public class Node implements Closeable {
     protected SearchService newSearchService(ClusterService clusterService, IndicesService indicesService,
                                              ThreadPool threadPool, ScriptService scriptService, BigArrays bigArrays,
                                              FetchPhase fetchPhase, ResponseCollectorService responseCollectorService,
-                                             CircuitBreakerService circuitBreakerService, ExecutorSelector executorSelector) {
+                                             CircuitBreakerService circuitBreakerService, ExecutorSelector executorSelector,
+                                             Path tmpDir) {
         return new SearchService(clusterService, indicesService, threadPool,
             scriptService, bigArrays, fetchPhase, responseCollectorService, circuitBreakerService,
-            executorSelector);
+            executorSelector, tmpDir);
     }
 
     /**
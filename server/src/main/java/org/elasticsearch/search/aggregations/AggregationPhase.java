@@ -34,6 +34,9 @@ public class AggregationPhase {
         try {
             context.aggregations().aggregators(context.aggregations().factories().createTopLevelAggregators());
             bucketCollector = MultiBucketCollector.wrap(true, List.of(context.aggregations().aggregators()));
+            if (context.getProfilers() == null && bucketCollector.scoreMode().needsScores() == false) {
+                bucketCollector = new BatchingBucketCollector(bucketCollector);
+            }
             bucketCollector.preCollection();
         } catch (IOException e) {
             throw new AggregationInitializationException("Could not initialize aggregators", e);
@@ -54,6 +57,16 @@ public class AggregationPhase {
             return;
         }
 
+        Collector collector = context.queryCollectors().get(AggregationPhase.class);
+        if (collector instanceof BatchingBucketCollector) {
+            try {
+                // pass on the matches of the last segment
+                ((BatchingBucketCollector) collector).flush();
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to collect aggregations", e);
+            }
+        }
+
         Aggregator[] aggregators = context.aggregations().aggregators();
 
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
@@ -0,0 +1,108 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+
+import java.io.IOException;
+
+/**
+ * Buffers the documents that the query matches and passes them on to the top level aggregations in batches with
+ * {@link LeafBucketCollector#collect(int[], int, long)}, so that aggregations are called once per batch rather than once per
+ * document and can collect a batch in a tight loop. Since the scorer is positioned on the last matching document rather than on
+ * the buffered ones, this can only wrap collectors that don't need scores.
+ * <p>
+ * Lucene doesn't tell collectors when it is done with a segment, so the documents of a segment are passed on when collection of
+ * the next segment starts, and those of the last segment when {@link #flush()} is called after the query ran.
+ */
+final class BatchingBucketCollector extends BucketCollector {
+
+    static final int BATCH_SIZE = 128;
+
+    private final BucketCollector in;
+    private final int[] docs = new int[BATCH_SIZE];
+    private int count;
+    private LeafBucketCollector current;
+
+    BatchingBucketCollector(BucketCollector in) {
+        assert in.scoreMode().needsScores() == false;
+        this.in = in;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        flush();
+        final LeafBucketCollector leafCollector = in.getLeafCollector(ctx);
+        if (leafCollector.isNoop()) {
+            return leafCollector;
+        }
+        current = leafCollector;
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+                leafCollector.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long owningBucketOrd) throws IOException {
+                assert owningBucketOrd == 0 : "top level aggregations only collect into the first bucket";
+                docs[count++] = doc;
+                if (count == docs.length) {
+                    collectBuffered(leafCollector);
+                }
+            }
+        };
+    }
+
+    /**
+     * Passes on the buffered documents of the segment that was collected last.
+     */
+    void flush() throws IOException {
+        if (current != null) {
+            try {
+                collectBuffered(current);
+            } catch (CollectionTerminatedException e) {
+                // the aggregations are done with this segment, which is over anyway
+            }
+            current = null;
+        }
+    }
+
+    private void collectBuffered(LeafBucketCollector leafCollector) throws IOException {
+        final int n = count;
+        count = 0;
+        if (n > 0) {
+            leafCollector.collect(docs, n, 0);
+        }
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        in.preCollection();
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        flush();
+        in.postCollection();
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return in.scoreMode();
+    }
+
+    @Override
+    public String toString() {
+        return "batching(" + in + ")";
+    }
+}
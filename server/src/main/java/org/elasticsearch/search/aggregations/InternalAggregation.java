@@ -223,6 +223,14 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
      */
     protected abstract boolean mustReduceOnSingleInternalAgg();
 
+    /**
+     * Creates a {@link StreamingReducer} that incrementally merges aggregations like this one during partial reductions, or
+     * {@code null} if this aggregation can only be reduced with {@link #reduce(List, ReduceContext)}.
+     */
+    public StreamingReducer createStreamingReducer(BigArrays bigArrays) {
+        return null;
+    }
+
     /**
      * Return true if this aggregation is mapped, and can lead a reduction.  If this agg returns
      * false, it should return itself if asked to lead a reduction
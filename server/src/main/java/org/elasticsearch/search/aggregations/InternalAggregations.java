@@ -145,19 +145,25 @@ public final class InternalAggregations extends Aggregations implements Writeabl
         // now we can use the first aggregation of each list to handle the reduce of its list
         List<InternalAggregation> reducedAggregations = new ArrayList<>();
         for (Map.Entry<String, List<InternalAggregation>> entry : aggByName.entrySet()) {
-            List<InternalAggregation> aggregations = entry.getValue();
-            // Sort aggregations so that unmapped aggs come last in the list
-            // If all aggs are unmapped, the agg that leads the reduction will just return itself
-            aggregations.sort(INTERNAL_AGG_COMPARATOR);
-            InternalAggregation first = aggregations.get(0); // the list can't be empty as it's created on demand
-            if (first.mustReduceOnSingleInternalAgg() || aggregations.size() > 1) {
-                reducedAggregations.add(first.reduce(aggregations, context));
-            } else {
-                // no need for reduce phase
-                reducedAggregations.add(first);
-            }
+            reducedAggregations.add(reduceSameName(entry.getValue(), context));
         }
 
         return from(reducedAggregations);
     }
+
+    /**
+     * Reduces a non-empty list of aggregations that share the same name.
+     */
+    static InternalAggregation reduceSameName(List<InternalAggregation> aggregations, ReduceContext context) {
+        // Sort aggregations so that unmapped aggs come last in the list
+        // If all aggs are unmapped, the agg that leads the reduction will just return itself
+        aggregations.sort(INTERNAL_AGG_COMPARATOR);
+        InternalAggregation first = aggregations.get(0);
+        if (first.mustReduceOnSingleInternalAgg() || aggregations.size() > 1) {
+            return first.reduce(aggregations, context);
+        } else {
+            // no need for reduce phase
+            return first;
+        }
+    }
 }
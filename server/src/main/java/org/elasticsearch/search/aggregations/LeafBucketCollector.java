@@ -71,6 +71,24 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long owningBucketOrd) throws IOException;
 
+    /**
+     * Collect the first {@code count} documents of {@code docs}, which are
+     * in increasing order, in the bucket owned by {@code owningBucketOrd}.
+     * This is equivalent to calling {@link #collect(int, long)} for every
+     * document, which is what the default implementation does. Collectors
+     * that can collect a batch of documents in a tighter loop, for example
+     * by keeping the value of the bucket in a local variable, should
+     * override it.
+     * <p>
+     * The scorer isn't positioned on the collected documents, so this is
+     * only called on collectors that don't need scores.
+     */
+    public void collect(int[] docs, int count, long owningBucketOrd) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], owningBucketOrd);
+        }
+    }
+
     /**
      * Does this collector collect anything? If this returns true we can safely
      * just never call {@link #collect}.
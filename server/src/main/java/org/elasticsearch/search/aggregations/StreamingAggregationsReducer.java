@@ -0,0 +1,137 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partially reduces the top-level aggregations of shard results as they arrive on the coordinating node. Aggregations that
+ * support it are merged into a {@link StreamingReducer}, the others are reduced with
+ * {@link InternalAggregation#reduce(List, ReduceContext)} after every batch like {@link InternalAggregations#topLevelReduce} does.
+ * The partially reduced {@link InternalAggregations} are only built once by {@link #materialize()}.
+ */
+public final class StreamingAggregationsReducer implements Releasable {
+
+    private final BigArrays bigArrays;
+    private final Map<String, StreamingReducer> reducers = new LinkedHashMap<>();
+    private final Map<String, List<InternalAggregation>> unreduced = new LinkedHashMap<>();
+    // names of the aggregations that have to be reduced with InternalAggregation#reduce
+    private final Set<String> notStreamable = new HashSet<>();
+    private ReduceContext lastContext;
+    private boolean closed;
+
+    public StreamingAggregationsReducer(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+    }
+
+    /**
+     * Merges the given shard results or partially reduced aggregations into this reducer.
+     */
+    public void add(List<InternalAggregations> aggregationsList, ReduceContext context) {
+        assert closed == false;
+        assert context.isFinalReduce() == false;
+        lastContext = context;
+        for (InternalAggregations aggregations : aggregationsList) {
+            for (Aggregation aggregation : aggregations) {
+                add((InternalAggregation) aggregation, context);
+            }
+        }
+        // keep a single partially reduced aggregation for each aggregation that can't be streamed
+        for (Map.Entry<String, List<InternalAggregation>> entry : unreduced.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                InternalAggregation reduced = InternalAggregations.reduceSameName(entry.getValue(), context);
+                List<InternalAggregation> list = new ArrayList<>(1);
+                list.add(reduced);
+                entry.setValue(list);
+            }
+        }
+    }
+
+    private void add(InternalAggregation aggregation, ReduceContext context) {
+        final String name = aggregation.getName();
+        StreamingReducer reducer = reducers.get(name);
+        if (reducer != null) {
+            if (reducer.accept(aggregation)) {
+                return;
+            }
+            // fall back to the regular reduce for this aggregation from now on
+            reducers.remove(name);
+            try {
+                unreduced.computeIfAbsent(name, k -> new ArrayList<>()).add(reducer.materialize(context));
+            } finally {
+                reducer.close();
+            }
+            notStreamable.add(name);
+        } else if (aggregation.isMapped() && notStreamable.contains(name) == false) {
+            // unmapped aggregations can't lead a reduction, they are merged into the reducer of a mapped aggregation instead
+            reducer = aggregation.createStreamingReducer(bigArrays);
+            if (reducer != null && reducer.accept(aggregation)) {
+                reducers.put(name, reducer);
+                return;
+            }
+            Releasables.close(reducer);
+            notStreamable.add(name);
+        }
+        unreduced.computeIfAbsent(name, k -> new ArrayList<>()).add(aggregation);
+    }
+
+    /**
+     * Returns the aggregations that are reduced with {@link InternalAggregation#reduce(List, ReduceContext)} rather than
+     * being streamed.
+     */
+    public InternalAggregations notStreamedAggregations() {
+        List<InternalAggregation> aggregations = new ArrayList<>();
+        for (List<InternalAggregation> list : unreduced.values()) {
+            aggregations.addAll(list);
+        }
+        return InternalAggregations.from(aggregations);
+    }
+
+    /**
+     * Builds the partially reduced aggregations of everything that was added so far, using the {@link ReduceContext} of the
+     * last {@link #add(List, ReduceContext)}.
+     */
+    public InternalAggregations materialize() {
+        assert closed == false;
+        final ReduceContext context = lastContext;
+        Map<String, List<InternalAggregation>> aggByName = new LinkedHashMap<>();
+        for (Map.Entry<String, StreamingReducer> entry : reducers.entrySet()) {
+            aggByName.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry.getValue().materialize(context));
+        }
+        for (Map.Entry<String, List<InternalAggregation>> entry : unreduced.entrySet()) {
+            aggByName.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+        }
+        List<InternalAggregation> reducedAggregations = new ArrayList<>(aggByName.size());
+        for (List<InternalAggregation> aggregations : aggByName.values()) {
+            reducedAggregations.add(aggregations.size() == 1 ? aggregations.get(0) :
+                InternalAggregations.reduceSameName(aggregations, context));
+        }
+        return InternalAggregations.from(reducedAggregations);
+    }
+
+    @Override
+    public void close() {
+        if (closed == false) {
+            closed = true;
+            Releasables.close(reducers.values());
+            reducers.clear();
+            unreduced.clear();
+        }
+    }
+}
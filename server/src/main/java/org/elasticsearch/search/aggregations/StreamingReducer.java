@@ -0,0 +1,35 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+
+/**
+ * Incrementally merges the shard results of an aggregation into {@link BigArrays} backed structures, so that partial reductions
+ * on the coordinating node don't keep an object tree per bucket around. The partially reduced aggregation is only built once all
+ * shard results have been merged, see {@link #materialize(ReduceContext)}.
+ *
+ * @see InternalAggregation#createStreamingReducer(BigArrays)
+ */
+public interface StreamingReducer extends Releasable {
+
+    /**
+     * Merges the given aggregation into this reducer. Returns {@code false} without modifying this reducer if the aggregation
+     * can't be merged, in which case it has to be reduced with {@link InternalAggregation#reduce} instead.
+     */
+    boolean accept(InternalAggregation aggregation);
+
+    /**
+     * Builds the partially reduced aggregation of all the aggregations that were merged so far. The returned aggregation doesn't
+     * reference the memory of this reducer, which can be released afterwards.
+     */
+    InternalAggregation materialize(ReduceContext reduceContext);
+}
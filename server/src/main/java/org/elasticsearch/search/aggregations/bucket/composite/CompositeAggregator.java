@@ -22,6 +22,7 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.FieldComparator;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.LeafFieldComparator;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Sort;
@@ -79,6 +80,9 @@ final class CompositeAggregator extends BucketsAggregator {
 
     private boolean earlyTerminated;
 
+    private Weight afterQueryWeight;
+    private boolean afterQueryWeightBuilt;
+
     CompositeAggregator(String name, AggregatorFactories factories, AggregationContext context, Aggregator parent,
                         Map<String, Object> metadata,
                         int size, CompositeValuesSourceConfig[] sourceConfigs, CompositeKey rawAfterKey) throws IOException {
@@ -358,11 +362,33 @@ final class CompositeAggregator extends BucketsAggregator {
             .add(new SearchAfterSortedDocQuery(applySortFieldRounding(indexSortPrefix), fieldDoc), BooleanClause.Occur.FILTER)
             .build();
         Weight weight = searcher().createWeight(searcher().rewrite(newQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        processLeafFromWeight(ctx, weight, indexSortPrefix.getSort().length);
+    }
+
+    /**
+     * Returns the {@link Weight} of the top level query restricted to the documents whose value in the leading
+     * source doesn't sort before the after key, or null if the leading source cannot skip these documents.
+     */
+    private Weight afterQueryWeightOrNull() throws IOException {
+        if (afterQueryWeightBuilt == false) {
+            afterQueryWeightBuilt = true;
+            Query afterQuery = sourceConfigs[0].hasScript() ? null : sources[0].createAfterQueryOrNull();
+            if (afterQuery != null) {
+                BooleanQuery newQuery = new BooleanQuery.Builder()
+                    .add(topLevelQuery(), BooleanClause.Occur.MUST)
+                    .add(afterQuery, BooleanClause.Occur.FILTER)
+                    .build();
+                afterQueryWeight = searcher().createWeight(searcher().rewrite(newQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+            }
+        }
+        return afterQueryWeight;
+    }
+
+    private void processLeafFromWeight(LeafReaderContext ctx, Weight weight, int indexSortPrefix) throws IOException {
         Scorer scorer = weight.scorer(ctx);
         if (scorer != null) {
             DocIdSetIterator docIt = scorer.iterator();
-            final LeafBucketCollector inner = queue.getLeafCollector(ctx,
-                getFirstPassCollector(docIdSetBuilder, indexSortPrefix.getSort().length));
+            final LeafBucketCollector inner = queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder, indexSortPrefix));
             inner.setScorer(scorer);
             final Bits liveDocs = ctx.reader().getLiveDocs();
             while (docIt.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
@@ -415,6 +441,15 @@ final class CompositeAggregator extends BucketsAggregator {
                      */
                 }
                 return LeafBucketCollector.NO_OP_COLLECTOR;
+            } else if (rawAfterKey != null && sortPrefixLen == 0 && parent == null && afterQueryWeightOrNull() != null) {
+                // We have an after key but the segment isn't sorted by the leading source so we use the index
+                // of the leading source to skip the documents that can only produce keys before the after key.
+                try {
+                    processLeafFromWeight(ctx, afterQueryWeightOrNull(), 0);
+                } catch (CollectionTerminatedException e) {
+                    // nothing left to collect in this segment
+                }
+                return LeafBucketCollector.NO_OP_COLLECTOR;
             } else {
                 final LeafBucketCollector inner;
                 try {
@@ -13,11 +13,13 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.core.CheckedFunction;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.StringFieldType;
 import org.elasticsearch.search.DocValueFormat;
@@ -181,6 +183,19 @@ class GlobalOrdinalValuesSource extends SingleDimensionValuesSource<BytesRef> {
         return new TermsSortedDocsProducer(fieldType.name());
     }
 
+    @Override
+    Query createAfterQueryOrNull() {
+        // other string fields, like keyed flattened fields, index different bytes than the values they return
+        if (checkIfAfterQueryIsApplicable() == false || fieldType instanceof KeywordFieldMapper.KeywordFieldType == false) {
+            return null;
+        }
+        if (reverseMul == 1) {
+            return new TermRangeQuery(fieldType.name(), afterValue, null, true, false);
+        } else {
+            return new TermRangeQuery(fieldType.name(), null, afterValue, false, true);
+        }
+    }
+
     @Override
     public void close() {
         Releasables.close(values);
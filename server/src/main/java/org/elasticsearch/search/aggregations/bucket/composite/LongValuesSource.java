@@ -18,6 +18,7 @@ import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.PointRangeQuery;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.core.CheckedFunction;
@@ -263,6 +264,37 @@ class LongValuesSource extends SingleDimensionValuesSource<Long> {
         }
     }
 
+    @Override
+    Query createAfterQueryOrNull() {
+        // the rounding never returns a value that is greater than its input so documents with a value before the
+        // after key can be skipped, but only in the natural order since greater values can round down to the after key
+        if (checkIfAfterQueryIsApplicable() == false || reverseMul == -1) {
+            return null;
+        }
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+            switch (fieldType.typeName()) {
+                case "long":
+                    return LongPoint.newRangeQuery(fieldType.name(), afterValue, Long.MAX_VALUE);
+
+                case "integer":
+                case "short":
+                case "byte":
+                    if (afterValue > Integer.MAX_VALUE) {
+                        return new MatchNoDocsQuery("after key is greater than all values");
+                    }
+                    return IntPoint.newRangeQuery(fieldType.name(), (int) Math.max(afterValue, Integer.MIN_VALUE), Integer.MAX_VALUE);
+
+                default:
+                    return null;
+            }
+        } else if (fieldType instanceof DateFieldMapper.DateFieldType
+                && ((DateFieldMapper.DateFieldType) fieldType).resolution() == DateFieldMapper.Resolution.MILLISECONDS) {
+            return LongPoint.newRangeQuery(fieldType.name(), afterValue, Long.MAX_VALUE);
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public void close() {
         Releasables.close(values, bits);
@@ -135,6 +135,23 @@ abstract class SingleDimensionValuesSource<T extends Comparable<T>> implements R
      */
     abstract SortedDocsProducer createSortedDocsProducerOrNull(IndexReader reader, Query query);
 
+    /**
+     * Returns a {@link Query} that matches all documents that have a value in this source that doesn't sort
+     * before the <code>after</code> value, or null if this source cannot build such a query. Documents that
+     * don't match can never produce a competitive composite key when this source is the leading source.
+     */
+    Query createAfterQueryOrNull() {
+        return null;
+    }
+
+    /**
+     * Returns true if a {@link #createAfterQueryOrNull() after query} can be used to skip the documents
+     * that sort before the <code>after</code> value.
+     */
+    protected boolean checkIfAfterQueryIsApplicable() {
+        return fieldType != null && afterValue != null && missingBucket == false && fieldType.isSearchable();
+    }
+
     /**
      * Returns true if a {@link SortedDocsProducer} should be used to optimize the execution.
      */
@@ -0,0 +1,308 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.Rounding;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.query.DateRangeIncludingNowQuery;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.DocCountProvider;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The doc counts of the buckets of a {@code date_histogram} that are entirely within the range that the query of the request
+ * matches. They are taken from the doc counts of all buckets of the shard, which only depend on the documents of the shard and
+ * are kept in the shard request cache for shards that don't receive writes anymore. The {@link DateHistogramAggregator} then
+ * only has to collect the documents of the buckets at the edges of the queried range, and can skip segments whose documents
+ * all fall into cached buckets.
+ * <p>
+ * This only works for top level {@code date_histogram}s without sub-aggregations on a date field whose values are only
+ * restricted by a single range query on the same field, which is what time based dashboards usually send.
+ */
+final class CachedDateHistogramBuckets {
+
+    private final String field;
+    // values in [coveredFrom, coveredTo) are counted by the cached buckets
+    private final long coveredFrom;
+    private final long coveredTo;
+    private final long[] keys;
+    private final long[] docCounts;
+
+    private CachedDateHistogramBuckets(String field, long coveredFrom, long coveredTo, long[] keys, long[] docCounts) {
+        this.field = field;
+        this.coveredFrom = coveredFrom;
+        this.coveredTo = coveredTo;
+        this.keys = keys;
+        this.docCounts = docCounts;
+    }
+
+    /**
+     * Loads the cached buckets of the shard, or returns {@code null} if the aggregation or the shard can't use cached buckets.
+     */
+    @Nullable
+    static CachedDateHistogramBuckets loadOrNull(
+        Rounding rounding,
+        @Nullable LongBounds hardBounds,
+        ValuesSourceConfig valuesSourceConfig,
+        AggregationContext context,
+        Aggregator parent,
+        AggregatorFactories factories
+    ) throws IOException {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        if (valuesSourceConfig.hasValues() == false
+            || valuesSourceConfig.script() != null
+            || valuesSourceConfig.missing() != null
+            || valuesSourceConfig.fieldType() instanceof DateFieldMapper.DateFieldType == false) {
+            return null;
+        }
+        DateFieldMapper.DateFieldType fieldType = (DateFieldMapper.DateFieldType) valuesSourceConfig.fieldType();
+        if (fieldType.isSearchable() == false || fieldType.resolution() != DateFieldMapper.Resolution.MILLISECONDS) {
+            return null;
+        }
+        final String field = fieldType.name();
+        long[] queryRange = queryRange(context.query(), field);
+        if (queryRange == null) {
+            return null;
+        }
+        IndexReader reader = context.searcher().getIndexReader();
+        byte[] minPackedValue = PointValues.getMinPackedValue(reader, field);
+        if (minPackedValue == null) {
+            return null;
+        }
+        long shardMin = NumericUtils.sortableBytesToLong(minPackedValue, 0);
+        long shardMax = NumericUtils.sortableBytesToLong(PointValues.getMaxPackedValue(reader, field), 0);
+        Rounding.Prepared preparedRounding = rounding.prepare(shardMin, shardMax);
+        long[] covered = coveredRange(preparedRounding, queryRange, shardMin, shardMax);
+        if (covered == null) {
+            return null;
+        }
+
+        BytesReference cacheKey;
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeString("date_histogram");
+            out.writeString(field);
+            rounding.writeTo(out);
+            cacheKey = out.bytes();
+        }
+        ValuesSource.Numeric valuesSource = (ValuesSource.Numeric) valuesSourceConfig.getValuesSource();
+        BytesReference cached = context.cachedShardResult(
+            cacheKey,
+            out -> writeDocCounts(reader, valuesSource, preparedRounding, context.bigArrays(), out)
+        );
+        if (cached == null) {
+            return null;
+        }
+        try (StreamInput in = cached.streamInput()) {
+            int size = in.readVInt();
+            long[] keys = new long[size];
+            long[] docCounts = new long[size];
+            int numCovered = 0;
+            for (int i = 0; i < size; i++) {
+                long key = in.readLong();
+                long docCount = in.readVLong();
+                if (key >= covered[0] && key < covered[1] && (hardBounds == null || hardBounds.contain(key))) {
+                    keys[numCovered] = key;
+                    docCounts[numCovered] = docCount;
+                    numCovered++;
+                }
+            }
+            return new CachedDateHistogramBuckets(
+                field,
+                covered[0],
+                covered[1],
+                Arrays.copyOf(keys, numCovered),
+                Arrays.copyOf(docCounts, numCovered)
+            );
+        }
+    }
+
+    /**
+     * Returns the range of values that every document of the shard matches the given query range for if it has a value within
+     * the range, as {@code [from, to)} with bounds that are rounded values, or {@code null} if there is no such range.
+     */
+    @Nullable
+    static long[] coveredRange(Rounding.Prepared preparedRounding, long[] queryRange, long shardMin, long shardMax) {
+        if (queryRange[0] > shardMax || queryRange[1] < shardMin) {
+            return null;
+        }
+        final long from;
+        if (queryRange[0] <= shardMin) {
+            // there are no values below the query range
+            from = Long.MIN_VALUE;
+        } else {
+            long rounded = preparedRounding.round(queryRange[0]);
+            from = rounded == queryRange[0] ? rounded : preparedRounding.nextRoundingValue(rounded);
+        }
+        final long to;
+        if (queryRange[1] >= shardMax) {
+            // there are no values above the query range
+            to = Long.MAX_VALUE;
+        } else {
+            to = preparedRounding.round(queryRange[1] + 1);
+        }
+        return from < to ? new long[] { from, to } : null;
+    }
+
+    /**
+     * Returns the range of values of the given field that all matches of the query are restricted to as {@code [min, max]}, or
+     * {@code null} if the query restricts matches in other ways too.
+     */
+    @Nullable
+    static long[] queryRange(Query query, String field) {
+        if (query instanceof MatchAllDocsQuery) {
+            return new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+        } else if (query instanceof DocValuesFieldExistsQuery) {
+            return ((DocValuesFieldExistsQuery) query).getField().equals(field) ? new long[] { Long.MIN_VALUE, Long.MAX_VALUE } : null;
+        } else if (query instanceof PointRangeQuery) {
+            PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(field) == false
+                || rangeQuery.getNumDims() != 1
+                || rangeQuery.getBytesPerDim() != Long.BYTES) {
+                return null;
+            }
+            return new long[] {
+                NumericUtils.sortableBytesToLong(rangeQuery.getLowerPoint(), 0),
+                NumericUtils.sortableBytesToLong(rangeQuery.getUpperPoint(), 0) };
+        } else if (query instanceof IndexOrDocValuesQuery) {
+            return queryRange(((IndexOrDocValuesQuery) query).getIndexQuery(), field);
+        } else if (query instanceof DateRangeIncludingNowQuery) {
+            return queryRange(((DateRangeIncludingNowQuery) query).getQuery(), field);
+        } else if (query instanceof ConstantScoreQuery) {
+            return queryRange(((ConstantScoreQuery) query).getQuery(), field);
+        } else if (query instanceof BoostQuery) {
+            return queryRange(((BoostQuery) query).getQuery(), field);
+        } else if (query instanceof BooleanQuery) {
+            BooleanQuery booleanQuery = (BooleanQuery) query;
+            if (booleanQuery.clauses().size() == 1) {
+                BooleanClause clause = booleanQuery.clauses().get(0);
+                if (clause.isRequired() && clause.isProhibited() == false) {
+                    return queryRange(clause.getQuery(), field);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the doc counts of all buckets of the shard, counting every document once per bucket and honoring
+     * {@code _doc_count} like the {@link DateHistogramAggregator} does.
+     */
+    static void writeDocCounts(
+        IndexReader reader,
+        ValuesSource.Numeric valuesSource,
+        Rounding.Prepared preparedRounding,
+        BigArrays bigArrays,
+        StreamOutput out
+    ) throws IOException {
+        LongHash keys = new LongHash(1, bigArrays);
+        LongArray docCounts = null;
+        try {
+            docCounts = bigArrays.newLongArray(1, true);
+            DocCountProvider docCountProvider = new DocCountProvider();
+            for (LeafReaderContext ctx : reader.leaves()) {
+                SortedNumericDocValues values = valuesSource.longValues(ctx);
+                Bits liveDocs = ctx.reader().getLiveDocs();
+                docCountProvider.setLeafReaderContext(ctx);
+                for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                    if (liveDocs != null && liveDocs.get(doc) == false) {
+                        continue;
+                    }
+                    int docCount = docCountProvider.getDocCount(doc);
+                    long previousRounded = Long.MIN_VALUE;
+                    for (int i = 0, valuesCount = values.docValueCount(); i < valuesCount; i++) {
+                        long rounded = preparedRounding.round(values.nextValue());
+                        if (rounded == previousRounded) {
+                            continue;
+                        }
+                        long ord = keys.add(rounded);
+                        if (ord < 0) {
+                            ord = -1 - ord;
+                        } else {
+                            docCounts = bigArrays.grow(docCounts, ord + 1);
+                        }
+                        docCounts.increment(ord, docCount);
+                        previousRounded = rounded;
+                    }
+                }
+            }
+            out.writeVInt(Math.toIntExact(keys.size()));
+            for (long ord = 0; ord < keys.size(); ord++) {
+                out.writeLong(keys.get(ord));
+                out.writeVLong(docCounts.get(ord));
+            }
+        } finally {
+            Releasables.close(keys, docCounts);
+        }
+    }
+
+    /**
+     * Whether the given value is counted by the cached buckets.
+     */
+    boolean isCovered(long value) {
+        return value >= coveredFrom && value < coveredTo;
+    }
+
+    /**
+     * Whether all values of the given segment are counted by the cached buckets, so it doesn't need to be collected.
+     */
+    boolean isCovered(LeafReader reader) throws IOException {
+        PointValues pointValues = reader.getPointValues(field);
+        if (pointValues == null) {
+            return true;
+        }
+        return isCovered(NumericUtils.sortableBytesToLong(pointValues.getMinPackedValue(), 0))
+            && isCovered(NumericUtils.sortableBytesToLong(pointValues.getMaxPackedValue(), 0));
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    long key(int index) {
+        return keys[index];
+    }
+
+    long docCount(int index) {
+        return docCounts[index];
+    }
+}
@@ -8,14 +8,17 @@
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.CollectionUtil;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.core.CheckedFunction;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.Rounding;
 import org.elasticsearch.common.Rounding.DateTimeUnit;
 import org.elasticsearch.core.Releasables;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AdaptingAggregator;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -84,6 +87,33 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
         Map<String, Object> metadata
     ) throws IOException {
         Rounding.Prepared preparedRounding = valuesSourceConfig.roundingPreparer().apply(rounding);
+        CachedDateHistogramBuckets cachedBuckets = CachedDateHistogramBuckets.loadOrNull(
+            rounding,
+            hardBounds,
+            valuesSourceConfig,
+            context,
+            parent,
+            factories
+        );
+        if (cachedBuckets != null) {
+            return new DateHistogramAggregator(
+                name,
+                factories,
+                rounding,
+                preparedRounding,
+                order,
+                keyed,
+                minDocCount,
+                extendedBounds,
+                hardBounds,
+                valuesSourceConfig,
+                context,
+                parent,
+                cardinality,
+                metadata,
+                cachedBuckets
+            );
+        }
         Aggregator asRange = adaptIntoRangeOrNull(
             name,
             factories,
@@ -218,6 +248,19 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
     private final LongBounds hardBounds;
 
     private final LongKeyedBucketOrds bucketOrds;
+    /**
+     * The doc counts of the buckets that are loaded from the shard request cache rather than collected.
+     */
+    @Nullable
+    private final CachedDateHistogramBuckets cachedBuckets;
+    /**
+     * The range of values that the top level query restricts the documents to if segments can be counted from the points
+     * of the field rather than collected, {@code null} otherwise.
+     */
+    @Nullable
+    private final long[] pointsQueryRange;
+    private final String field;
+    private int segmentsCountedFromPoints;
 
     DateHistogramAggregator(
         String name,
@@ -234,6 +277,27 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
         Aggregator parent,
         CardinalityUpperBound cardinality,
         Map<String, Object> metadata
+    ) throws IOException {
+        this(name, factories, rounding, preparedRounding, order, keyed, minDocCount, extendedBounds, hardBounds, valuesSourceConfig,
+            context, parent, cardinality, metadata, null);
+    }
+
+    private DateHistogramAggregator(
+        String name,
+        AggregatorFactories factories,
+        Rounding rounding,
+        Rounding.Prepared preparedRounding,
+        BucketOrder order,
+        boolean keyed,
+        long minDocCount,
+        @Nullable LongBounds extendedBounds,
+        @Nullable LongBounds hardBounds,
+        ValuesSourceConfig valuesSourceConfig,
+        AggregationContext context,
+        Aggregator parent,
+        CardinalityUpperBound cardinality,
+        Map<String, Object> metadata,
+        @Nullable CachedDateHistogramBuckets cachedBuckets
     ) throws IOException {
         super(name, factories, context, parent, CardinalityUpperBound.MANY, metadata);
         this.rounding = rounding;
@@ -249,6 +313,36 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
         this.formatter = valuesSourceConfig.format();
 
         bucketOrds = LongKeyedBucketOrds.build(bigArrays(), cardinality);
+        this.cachedBuckets = cachedBuckets;
+        this.pointsQueryRange = pointsQueryRangeOrNull(factories, valuesSourceConfig, context, parent);
+        this.field = pointsQueryRange == null ? null : valuesSourceConfig.fieldType().name();
+    }
+
+    /**
+     * Returns the range of values that the top level query restricts the documents to if the aggregation only counts documents
+     * and all of its matches can be found from the points of the field, or {@code null} if they have to be collected.
+     */
+    @Nullable
+    private static long[] pointsQueryRangeOrNull(
+        AggregatorFactories factories,
+        ValuesSourceConfig valuesSourceConfig,
+        AggregationContext context,
+        Aggregator parent
+    ) {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        if (valuesSourceConfig.hasValues() == false
+            || valuesSourceConfig.script() != null
+            || valuesSourceConfig.missing() != null
+            || valuesSourceConfig.fieldType() instanceof DateFieldMapper.DateFieldType == false) {
+            return null;
+        }
+        DateFieldMapper.DateFieldType fieldType = (DateFieldMapper.DateFieldType) valuesSourceConfig.fieldType();
+        if (fieldType.isSearchable() == false || fieldType.resolution() != DateFieldMapper.Resolution.MILLISECONDS) {
+            return null;
+        }
+        return CachedDateHistogramBuckets.queryRange(context.query(), fieldType.name());
     }
 
     @Override
@@ -261,7 +355,11 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
-        if (valuesSource == null) {
+        if (valuesSource == null || (cachedBuckets != null && cachedBuckets.isCovered(ctx.reader()))) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        if (countFromPoints(ctx)) {
+            segmentsCountedFromPoints++;
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         SortedNumericDocValues values = valuesSource.longValues(ctx);
@@ -274,6 +372,10 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
                     long previousRounded = Long.MIN_VALUE;
                     for (int i = 0; i < valuesCount; ++i) {
                         long value = values.nextValue();
+                        if (cachedBuckets != null && cachedBuckets.isCovered(value)) {
+                            // counted by the cached buckets
+                            continue;
+                        }
                         long rounded = preparedRounding.round(value);
                         assert rounded >= previousRounded;
                         if (rounded == previousRounded) {
@@ -292,11 +394,128 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
                     }
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long owningBucketOrd) throws IOException {
+                // unlike in the default implementation the call is monomorphic here so it gets inlined into the loop
+                for (int i = 0; i < count; i++) {
+                    collect(docs[i], owningBucketOrd);
+                }
+            }
         };
     }
 
+    /**
+     * Counts the documents of the segment per bucket straight from the BKD tree of the field, or returns {@code false} if the
+     * segment has to be collected. Cells of the tree whose values all round to the same bucket are counted without looking at
+     * their values, so this mostly depends on the number of buckets rather than on the number of documents. Every document has
+     * to be counted exactly once, so this only works on segments without deleted documents, multi-valued documents or
+     * documents with a {@code _doc_count}.
+     */
+    private boolean countFromPoints(LeafReaderContext ctx) throws IOException {
+        if (pointsQueryRange == null || ctx.reader().hasDeletions() || docCountProvider.alwaysOne() == false) {
+            return false;
+        }
+        PointValues pointValues = ctx.reader().getPointValues(field);
+        if (pointValues == null) {
+            // the segment has no values to count
+            return true;
+        }
+        if (pointValues.size() != pointValues.getDocCount()) {
+            return false;
+        }
+        PointsBucketCounter counter = new PointsBucketCounter(pointsQueryRange[0], pointsQueryRange[1]);
+        pointValues.intersect(counter);
+        counter.flush();
+        return true;
+    }
+
+    /**
+     * Counts points per bucket, adding up consecutive points of the same bucket before incrementing its doc count.
+     */
+    private class PointsBucketCounter implements PointValues.IntersectVisitor {
+        private final long from;
+        private final long to;
+        private long key;
+        private long count;
+
+        PointsBucketCounter(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void visit(int docID) {
+            // the document is in a cell that is entirely within the bucket that compare switched to
+            count++;
+        }
+
+        @Override
+        public void visit(int docID, byte[] packedValue) throws IOException {
+            long value = NumericUtils.sortableBytesToLong(packedValue, 0);
+            if (value < from || value > to || (cachedBuckets != null && cachedBuckets.isCovered(value))) {
+                return;
+            }
+            long rounded = preparedRounding.round(value);
+            if (hardBounds == null || hardBounds.contain(rounded)) {
+                switchTo(rounded);
+                count++;
+            }
+        }
+
+        @Override
+        public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+            long min = NumericUtils.sortableBytesToLong(minPackedValue, 0);
+            long max = NumericUtils.sortableBytesToLong(maxPackedValue, 0);
+            if (max < from || min > to) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            }
+            if (min < from || max > to) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+            long rounded = preparedRounding.round(min);
+            if (rounded != preparedRounding.round(max)) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+            // cached buckets cover whole buckets so they either cover all values of the cell or none of them
+            if ((cachedBuckets != null && cachedBuckets.isCovered(min)) || (hardBounds != null && hardBounds.contain(rounded) == false)) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            }
+            switchTo(rounded);
+            return PointValues.Relation.CELL_INSIDE_QUERY;
+        }
+
+        private void switchTo(long rounded) {
+            if (rounded != key) {
+                flush();
+                key = rounded;
+            }
+        }
+
+        void flush() {
+            if (count > 0) {
+                long bucketOrd = bucketOrds.add(0, key);
+                if (bucketOrd < 0) {
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, count);
+                count = 0;
+            }
+        }
+    }
+
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
+        if (cachedBuckets != null) {
+            // only top level aggregations use cached buckets so there is a single owning bucket
+            for (int i = 0; i < cachedBuckets.size(); i++) {
+                long bucketOrd = bucketOrds.add(0, cachedBuckets.key(i));
+                if (bucketOrd < 0) {
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, cachedBuckets.docCount(i));
+            }
+        }
         return buildAggregationsForVariableBuckets(owningBucketOrds, bucketOrds,
             (bucketValue, docCount, subAggregationResults) -> {
                 return new InternalDateHistogram.Bucket(bucketValue, docCount, keyed, formatter, subAggregationResults);
@@ -329,6 +548,10 @@ class DateHistogramAggregator extends BucketsAggregator implements SizedBucketAg
     @Override
     public void collectDebugInfo(BiConsumer<String, Object> add) {
         add.accept("total_buckets", bucketOrds.size());
+        if (cachedBuckets != null) {
+            add.accept("cached_buckets", cachedBuckets.size());
+        }
+        add.accept("segments_counted_from_points", segmentsCountedFromPoints);
     }
 
     /**
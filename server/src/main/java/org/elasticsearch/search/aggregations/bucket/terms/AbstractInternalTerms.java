@@ -132,7 +132,7 @@ public abstract class AbstractInternalTerms<
         return thisReduceOrder != null ? thisReduceOrder : getOrder();
     }
 
-    private long getDocCountError(A terms) {
+    static long getDocCountError(AbstractInternalTerms<?, ?> terms) {
         int size = terms.getBuckets().size();
         if (size == 0 || size < terms.getShardSize() || isKeyOrder(terms.getOrder())) {
             return 0;
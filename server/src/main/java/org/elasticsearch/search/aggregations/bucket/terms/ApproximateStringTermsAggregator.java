@@ -0,0 +1,342 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalOrder;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@code terms} aggregator for string values that counts the terms with a fixed number of counters, one per bucket that the
+ * shard returns, using the Space-Saving algorithm: a term that isn't counted yet takes over the counter with the lowest count
+ * once all counters are in use and inherits its count as the error of its own count. So the memory of the aggregator doesn't
+ * depend on the number of distinct terms, and terms that are frequent enough are guaranteed to be counted. The counters are
+ * allocated from {@link BigArrays} as they are needed so that their memory is accounted in the request circuit breaker.
+ * <p>
+ * Each bucket reports the count of its counter minus the inherited error as its {@code doc_count}, which never overestimates the
+ * number of documents of the term, and the inherited error as its {@code doc_count_error_upper_bound}. Terms that lost their
+ * counter can't have more documents than the lowest count, which is reported as the doc count error of the shard so that the
+ * usual reduction of {@link StringTerms} adds it to the error of the terms that the shard didn't return.
+ * <p>
+ * This only supports top level aggregations without sub-aggregations that are ordered by descending doc count.
+ */
+public class ApproximateStringTermsAggregator extends AbstractStringTermsAggregator {
+
+    private final MapStringTermsAggregator.CollectorSource collectorSource;
+    private final IncludeExclude.StringFilter includeExclude;
+    private final SpaceSaving counters;
+
+    ApproximateStringTermsAggregator(
+        String name,
+        AggregatorFactories factories,
+        ValuesSourceConfig valuesSourceConfig,
+        BucketOrder order,
+        DocValueFormat format,
+        BucketCountThresholds bucketCountThresholds,
+        IncludeExclude.StringFilter includeExclude,
+        AggregationContext context,
+        Aggregator parent,
+        Map<String, Object> metadata
+    ) throws IOException {
+        // the errors are what sets these terms apart so they are always shown
+        super(name, factories, context, parent, order, format, bucketCountThresholds, SubAggCollectionMode.DEPTH_FIRST, true, metadata);
+        assert factories == AggregatorFactories.EMPTY : "approximate terms can't have sub-aggregations";
+        assert InternalOrder.isCountDesc(order) : "approximate terms must be ordered by descending doc count";
+        this.collectorSource = new MapStringTermsAggregator.ValuesSourceCollectorSource(valuesSourceConfig);
+        this.includeExclude = includeExclude;
+        this.counters = new SpaceSaving(bucketCountThresholds.getShardSize(), bigArrays());
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        if (collectorSource.needsScores()) {
+            return ScoreMode.COMPLETE;
+        }
+        return super.scoreMode();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        return collectorSource.getLeafCollector(
+            includeExclude,
+            ctx,
+            sub,
+            this::addRequestCircuitBreakerBytes,
+            (s, doc, owningBucketOrd, bytes) -> {
+                assert owningBucketOrd == 0;
+                counters.add(bytes, docCountProvider.getDocCount(doc));
+            }
+        );
+    }
+
+    @Override
+    public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
+        assert owningBucketOrds.length == 1 && owningBucketOrds[0] == 0;
+        List<StringTerms.Bucket> buckets = new ArrayList<>(counters.size());
+        long otherDocCount = counters.total;
+        /*
+         * The reduction ignores the doc count error of shards that return less than shard_size buckets, so all counters are
+         * returned once terms lost their counter.
+         */
+        long shardMinDocCount = counters.evictions > 0 ? 0 : bucketCountThresholds.getShardMinDocCount();
+        for (int slot = 0; slot < counters.size(); slot++) {
+            long docCount = counters.count(slot) - counters.error(slot);
+            if (docCount < shardMinDocCount) {
+                continue;
+            }
+            otherDocCount -= docCount;
+            buckets.add(
+                new StringTerms.Bucket(
+                    BytesRef.deepCopyOf(counters.term(slot, new BytesRef())),
+                    docCount,
+                    InternalAggregations.EMPTY,
+                    true,
+                    counters.error(slot),
+                    format
+                )
+            );
+        }
+        // shard results are sorted by key so that they can be merge sorted when reducing
+        BucketOrder reduceOrder = InternalOrder.key(true);
+        buckets.sort(reduceOrder.comparator());
+        // terms that don't have a counter can't have more documents than the lowest count
+        long docCountError = counters.evictions > 0 ? counters.lowestCount() : 0;
+        return new InternalAggregation[] {
+            new StringTerms(name, reduceOrder, order, bucketCountThresholds.getRequiredSize(),
+                bucketCountThresholds.getMinDocCount(), metadata(), format, bucketCountThresholds.getShardSize(), true,
+                otherDocCount, buckets, docCountError) };
+    }
+
+    /**
+     * The counters of the Space-Saving algorithm, with a min-heap on their counts to find the counter with the lowest count.
+     * The counters are allocated as they are needed, up to the capacity.
+     * <p>
+     * The terms are looked up in a {@link BytesRefHash}, which can't remove terms, so the terms that lose their counter stay
+     * in the hash without a counter until there are as many of them as counters and the hash is rebuilt with the terms that
+     * have a counter.
+     */
+    static class SpaceSaving implements Releasable {
+        private final BigArrays bigArrays;
+        private final int capacity;
+        private BytesRefHash terms;
+        // the counter of every term of the hash, -1 if the term lost its counter, and the term of every counter
+        private LongArray ordToSlot;
+        private LongArray slotToOrd;
+        private LongArray counts;
+        private LongArray errors;
+        // the counters ordered by count, and the position of every counter in the heap
+        private IntArray heap;
+        private IntArray heapIndex;
+        private int size;
+        private long total;
+        private long evictions;
+
+        SpaceSaving(int capacity, BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+            this.capacity = capacity;
+            boolean success = false;
+            try {
+                terms = new BytesRefHash(1, bigArrays);
+                ordToSlot = bigArrays.newLongArray(1, false);
+                slotToOrd = bigArrays.newLongArray(1, false);
+                counts = bigArrays.newLongArray(1, false);
+                errors = bigArrays.newLongArray(1, false);
+                heap = bigArrays.newIntArray(1, false);
+                heapIndex = bigArrays.newIntArray(1, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+        }
+
+        void add(BytesRef term, long count) {
+            total += count;
+            long ord = terms.find(term);
+            if (ord >= 0 && ordToSlot.get(ord) >= 0) {
+                int slot = (int) ordToSlot.get(ord);
+                counts.increment(slot, count);
+                siftDown(heapIndex.get(slot));
+                return;
+            }
+            if (size < capacity) {
+                int slot = size++;
+                slotToOrd = bigArrays.grow(slotToOrd, size);
+                counts = bigArrays.grow(counts, size);
+                errors = bigArrays.grow(errors, size);
+                heap = bigArrays.grow(heap, size);
+                heapIndex = bigArrays.grow(heapIndex, size);
+                setTerm(slot, ord, term);
+                counts.set(slot, count);
+                errors.set(slot, 0);
+                heap.set(slot, slot);
+                heapIndex.set(slot, slot);
+                siftUp(slot);
+                return;
+            }
+            if (capacity == 0) {
+                return;
+            }
+            // the term takes over the counter with the lowest count
+            int evicted = heap.get(0);
+            ordToSlot.set(slotToOrd.get(evicted), -1);
+            setTerm(evicted, ord, term);
+            long lowestCount = counts.get(evicted);
+            errors.set(evicted, lowestCount);
+            counts.set(evicted, lowestCount + count);
+            evictions++;
+            siftDown(0);
+            if (terms.size() >= 2L * capacity) {
+                rebuildTerms();
+            }
+        }
+
+        private void setTerm(int slot, long ord, BytesRef term) {
+            if (ord < 0) {
+                ord = terms.add(term);
+                ordToSlot = bigArrays.grow(ordToSlot, ord + 1);
+            }
+            ordToSlot.set(ord, slot);
+            slotToOrd.set(slot, ord);
+        }
+
+        /**
+         * Replaces the hash of the terms with one that only has the terms that have a counter.
+         */
+        private void rebuildTerms() {
+            BytesRefHash newTerms = null;
+            LongArray newOrdToSlot = null;
+            boolean success = false;
+            try {
+                newTerms = new BytesRefHash(size, bigArrays);
+                newOrdToSlot = bigArrays.newLongArray(size, false);
+                BytesRef scratch = new BytesRef();
+                for (int slot = 0; slot < size; slot++) {
+                    long ord = newTerms.add(terms.get(slotToOrd.get(slot), scratch));
+                    newOrdToSlot.set(ord, slot);
+                    slotToOrd.set(slot, ord);
+                }
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.close(newTerms, newOrdToSlot);
+                }
+            }
+            Releasables.close(terms, ordToSlot);
+            terms = newTerms;
+            ordToSlot = newOrdToSlot;
+        }
+
+        int size() {
+            return size;
+        }
+
+        BytesRef term(int slot, BytesRef dest) {
+            return terms.get(slotToOrd.get(slot), dest);
+        }
+
+        long count(int slot) {
+            return counts.get(slot);
+        }
+
+        long error(int slot) {
+            return errors.get(slot);
+        }
+
+        /**
+         * The lowest count of all counters.
+         */
+        long lowestCount() {
+            return size == 0 ? 0 : counts.get(heap.get(0));
+        }
+
+        private void siftUp(int index) {
+            int slot = heap.get(index);
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (counts.get(heap.get(parent)) <= counts.get(slot)) {
+                    break;
+                }
+                moveTo(heap.get(parent), index);
+                index = parent;
+            }
+            moveTo(slot, index);
+        }
+
+        private void siftDown(int index) {
+            int slot = heap.get(index);
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && counts.get(heap.get(child + 1)) < counts.get(heap.get(child))) {
+                    child++;
+                }
+                if (counts.get(slot) <= counts.get(heap.get(child))) {
+                    break;
+                }
+                moveTo(heap.get(child), index);
+                index = child;
+            }
+            moveTo(slot, index);
+        }
+
+        private void moveTo(int slot, int index) {
+            heap.set(index, slot);
+            heapIndex.set(slot, index);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(terms, ordToSlot, slotToOrd, counts, errors, heap, heapIndex);
+        }
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return buildEmptyTermsAggregation();
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("collection_strategy", collectorSource.describe());
+        add.accept("counters", counters.size());
+        add.accept("evictions", counters.evictions);
+    }
+
+    @Override
+    public void doClose() {
+        Releasables.close(collectorSource, counters);
+    }
+}
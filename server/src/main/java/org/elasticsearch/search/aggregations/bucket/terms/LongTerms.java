@@ -9,11 +9,13 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.StreamingReducer;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -143,6 +145,11 @@ public class LongTerms extends InternalMappedTerms<LongTerms, LongTerms.Bucket>
         return new Bucket[size];
     }
 
+    @Override
+    public StreamingReducer createStreamingReducer(BigArrays bigArrays) {
+        return new TermsStreamingReducer.Longs(this, bigArrays);
+    }
+
     @Override
     public InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         boolean unsignedLongFormat = false;
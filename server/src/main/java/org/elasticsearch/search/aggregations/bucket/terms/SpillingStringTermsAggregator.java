@@ -0,0 +1,352 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.OfflineSorter;
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalOrder;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.elasticsearch.search.aggregations.InternalOrder.isKeyOrder;
+
+/**
+ * A {@code terms} aggregator for string values that counts the terms in a hash like the {@link MapStringTermsAggregator} but
+ * writes the counts to a temporary file of the node whenever the hash grows above a threshold, so that the number of distinct
+ * terms isn't limited by the memory of the node. When building the results the spilled counts are sorted by term with an
+ * {@link OfflineSorter}, the counts of each term are summed up and the top terms are selected in a single pass.
+ * <p>
+ * This only supports top level aggregations without sub-aggregations since the ordinals of the buckets change when the hash is
+ * spilled.
+ */
+public class SpillingStringTermsAggregator extends AbstractStringTermsAggregator {
+
+    /**
+     * The default size that the counts may use on heap before they are spilled to disk.
+     */
+    static final long DEFAULT_SPILL_THRESHOLD_IN_BYTES = 32 * 1024 * 1024;
+
+    // each spilled record is the term followed by its count
+    private static final int COUNT_BYTES = Long.BYTES;
+    private static final int MAX_TERM_LENGTH = Short.MAX_VALUE - COUNT_BYTES;
+
+    private final MapStringTermsAggregator.CollectorSource collectorSource;
+    private final IncludeExclude.StringFilter includeExclude;
+    private final Path tmpDir;
+    private final long spillThresholdInBytes;
+    private final List<String> tempFiles = new ArrayList<>();
+
+    private BytesRefHash terms;
+    private LongArray docCounts;
+    private Directory directory;
+    private IndexOutput spillOutput;
+    private OfflineSorter.ByteSequencesWriter spillWriter;
+    private int spills;
+    // the number of records in the spill file, an upper bound of the number of distinct terms
+    private long spilledRecords;
+
+    SpillingStringTermsAggregator(
+        String name,
+        AggregatorFactories factories,
+        ValuesSourceConfig valuesSourceConfig,
+        BucketOrder order,
+        DocValueFormat format,
+        BucketCountThresholds bucketCountThresholds,
+        IncludeExclude.StringFilter includeExclude,
+        Path tmpDir,
+        long spillThresholdInBytes,
+        AggregationContext context,
+        Aggregator parent,
+        boolean showTermDocCountError,
+        Map<String, Object> metadata
+    ) throws IOException {
+        super(name, factories, context, parent, order, format, bucketCountThresholds, SubAggCollectionMode.DEPTH_FIRST,
+            showTermDocCountError, metadata);
+        assert factories == AggregatorFactories.EMPTY : "spilling terms can't have sub-aggregations";
+        this.collectorSource = new MapStringTermsAggregator.ValuesSourceCollectorSource(valuesSourceConfig);
+        this.includeExclude = includeExclude;
+        this.tmpDir = tmpDir;
+        this.spillThresholdInBytes = spillThresholdInBytes;
+        this.terms = new BytesRefHash(1, context.bigArrays());
+        this.docCounts = context.bigArrays().newLongArray(1, true);
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        if (collectorSource.needsScores()) {
+            return ScoreMode.COMPLETE;
+        }
+        return super.scoreMode();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        return collectorSource.getLeafCollector(
+            includeExclude,
+            ctx,
+            sub,
+            this::addRequestCircuitBreakerBytes,
+            (s, doc, owningBucketOrd, bytes) -> {
+                assert owningBucketOrd == 0;
+                long ord = terms.add(bytes);
+                if (ord < 0) {
+                    ord = -1 - ord;
+                } else {
+                    docCounts = bigArrays().grow(docCounts, ord + 1);
+                }
+                docCounts.increment(ord, docCountProvider.getDocCount(doc));
+                if (terms.ramBytesUsed() + docCounts.ramBytesUsed() > spillThresholdInBytes) {
+                    spill();
+                }
+            }
+        );
+    }
+
+    /**
+     * Appends the counts of the hash to the temporary file and starts over with an empty hash.
+     */
+    private void spill() throws IOException {
+        if (terms.size() == 0) {
+            return;
+        }
+        if (spillWriter == null) {
+            // the directory of the shard may not support temporary files and would account them in the size of the shard
+            directory = FSDirectory.open(tmpDir);
+            spillOutput = directory.createTempOutput("terms", "spill", IOContext.DEFAULT);
+            tempFiles.add(spillOutput.getName());
+            spillWriter = new OfflineSorter.ByteSequencesWriter(spillOutput);
+        }
+        BytesRef term = new BytesRef();
+        BytesRefBuilder record = new BytesRefBuilder();
+        for (long ord = 0; ord < terms.size(); ord++) {
+            terms.get(ord, term);
+            if (term.length > MAX_TERM_LENGTH) {
+                throw new IllegalArgumentException(
+                    "can't spill the term of [" + name + "] with [" + term.length + "] bytes, at most [" + MAX_TERM_LENGTH
+                        + "] are supported"
+                );
+            }
+            record.copyBytes(term);
+            writeCount(record, docCounts.get(ord));
+            spillWriter.write(record.get());
+        }
+        spills++;
+        spilledRecords += terms.size();
+        Releasables.close(terms, docCounts);
+        terms = new BytesRefHash(1, bigArrays());
+        docCounts = bigArrays().newLongArray(1, true);
+    }
+
+    private static void writeCount(BytesRefBuilder record, long count) {
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            record.append((byte) (count >>> shift));
+        }
+    }
+
+    private static long readCount(BytesRef record) {
+        long count = 0;
+        for (int i = record.offset + record.length - COUNT_BYTES; i < record.offset + record.length; i++) {
+            count = (count << Byte.SIZE) | (record.bytes[i] & 0xFF);
+        }
+        return count;
+    }
+
+    /**
+     * Compares the spilled records by their term.
+     */
+    static int compareTerms(BytesRef a, BytesRef b) {
+        return Arrays.compareUnsigned(
+            a.bytes, a.offset, a.offset + a.length - COUNT_BYTES,
+            b.bytes, b.offset, b.offset + b.length - COUNT_BYTES
+        );
+    }
+
+    @Override
+    public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
+        assert owningBucketOrds.length == 1 && owningBucketOrds[0] == 0;
+        if (spillWriter == null) {
+            TopTerms top = new TopTerms((int) Math.min(terms.size(), bucketCountThresholds.getShardSize()));
+            BytesRef term = new BytesRef();
+            for (long ord = 0; ord < terms.size(); ord++) {
+                top.add(terms.get(ord, term), docCounts.get(ord));
+            }
+            return new InternalAggregation[] { buildResult(top) };
+        }
+        spill();
+        CodecUtil.writeFooter(spillOutput);
+        spillWriter.close();
+        spillWriter = null;
+        TopTerms top = new TopTerms((int) Math.min(spilledRecords, bucketCountThresholds.getShardSize()));
+        top.addSorted(sort());
+        return new InternalAggregation[] { buildResult(top) };
+    }
+
+    private StringTerms buildResult(TopTerms top) {
+        StringTerms.Bucket[] topBuckets = new StringTerms.Bucket[top.ordered.size()];
+        for (int i = topBuckets.length - 1; i >= 0; --i) {
+            topBuckets[i] = top.ordered.pop();
+            top.otherDocCount -= topBuckets[i].getDocCount();
+        }
+        final BucketOrder reduceOrder;
+        if (isKeyOrder(order) == false) {
+            reduceOrder = InternalOrder.key(true);
+            Arrays.sort(topBuckets, reduceOrder.comparator());
+        } else {
+            reduceOrder = order;
+        }
+        return new StringTerms(name, reduceOrder, order, bucketCountThresholds.getRequiredSize(),
+            bucketCountThresholds.getMinDocCount(), metadata(), format, bucketCountThresholds.getShardSize(), showTermDocCountError,
+            top.otherDocCount, Arrays.asList(topBuckets), 0);
+    }
+
+    /**
+     * Sorts the spilled records by term and returns the name of the sorted file. The buffer of the sorter is accounted with the
+     * circuit breaker while sorting.
+     */
+    private String sort() throws IOException {
+        long bufferInMb = Math.max(1, spillThresholdInBytes / (1024 * 1024));
+        long bufferInBytes = bufferInMb * 1024 * 1024;
+        addRequestCircuitBreakerBytes(bufferInBytes);
+        try {
+            OfflineSorter sorter = new OfflineSorter(
+                directory,
+                "terms",
+                SpillingStringTermsAggregator::compareTerms,
+                OfflineSorter.BufferSize.megabytes(bufferInMb),
+                OfflineSorter.MAX_TEMPFILES,
+                -1,
+                null,
+                1
+            );
+            String sorted = sorter.sort(spillOutput.getName());
+            tempFiles.add(sorted);
+            return sorted;
+        } finally {
+            addRequestCircuitBreakerBytes(-bufferInBytes);
+        }
+    }
+
+    /**
+     * Selects the top terms of the shard.
+     */
+    private class TopTerms {
+        private final PriorityQueue<StringTerms.Bucket> ordered;
+        private StringTerms.Bucket spare;
+        private long otherDocCount;
+
+        TopTerms(int size) {
+            this.ordered = new BucketPriorityQueue<>(size, partiallyBuiltBucketComparator);
+        }
+
+        void add(BytesRef term, long docCount) {
+            otherDocCount += docCount;
+            if (docCount < bucketCountThresholds.getShardMinDocCount()) {
+                return;
+            }
+            if (spare == null) {
+                spare = new StringTerms.Bucket(null, 0, InternalAggregations.EMPTY, showTermDocCountError, 0, format);
+            }
+            spare.termBytes = term;
+            spare.docCount = docCount;
+            StringTerms.Bucket inserted = spare;
+            spare = ordered.insertWithOverflow(spare);
+            if (spare != inserted) {
+                // the term is only valid until the next term is read so we have to copy it once it made it to the top terms
+                inserted.termBytes = BytesRef.deepCopyOf(inserted.termBytes);
+            }
+        }
+
+        /**
+         * Adds the terms of a file that is sorted by term, summing up the counts of the records of the same term.
+         */
+        void addSorted(String sortedFile) throws IOException {
+            try (
+                OfflineSorter.ByteSequencesReader reader = new OfflineSorter.ByteSequencesReader(
+                    directory.openChecksumInput(sortedFile, IOContext.READONCE),
+                    sortedFile
+                )
+            ) {
+                BytesRefBuilder current = new BytesRefBuilder();
+                long currentCount = 0;
+                boolean hasCurrent = false;
+                BytesRef record;
+                while ((record = reader.next()) != null) {
+                    long count = readCount(record);
+                    record.length -= COUNT_BYTES;
+                    if (hasCurrent && current.get().bytesEquals(record)) {
+                        currentCount += count;
+                        continue;
+                    }
+                    if (hasCurrent) {
+                        add(current.get(), currentCount);
+                    }
+                    current.copyBytes(record);
+                    currentCount = count;
+                    hasCurrent = true;
+                }
+                if (hasCurrent) {
+                    add(current.get(), currentCount);
+                }
+            }
+        }
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return buildEmptyTermsAggregation();
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("collection_strategy", collectorSource.describe());
+        add.accept("spills", spills);
+    }
+
+    @Override
+    public void doClose() {
+        try {
+            IOUtils.closeWhileHandlingException(spillWriter);
+            if (directory != null) {
+                IOUtils.deleteFilesIgnoringExceptions(directory, tempFiles);
+                IOUtils.closeWhileHandlingException(directory);
+            }
+        } finally {
+            Releasables.close(collectorSource, terms, docCounts);
+        }
+    }
+}
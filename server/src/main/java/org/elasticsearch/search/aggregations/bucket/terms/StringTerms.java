@@ -10,10 +10,12 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.StreamingReducer;
 
 import java.io.IOException;
 import java.util.List;
@@ -138,4 +140,9 @@ public class StringTerms extends InternalMappedTerms<StringTerms, StringTerms.Bu
     protected Bucket[] createBucketsArray(int size) {
         return new Bucket[size];
     }
+
+    @Override
+    public StreamingReducer createStreamingReducer(BigArrays bigArrays) {
+        return new TermsStreamingReducer.Strings(this, bigArrays);
+    }
 }
@@ -36,6 +36,7 @@ import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -43,6 +44,7 @@ import java.util.function.LongPredicate;
 
 public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
     static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS;
+    static Long SPILL_THRESHOLD_IN_BYTES;
 
     static void registerAggregators(ValuesSourceRegistry.Builder builder) {
         builder.register(TermsAggregationBuilder.REGISTRY_KEY,
@@ -96,7 +98,9 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
                     execution = ExecutionMode.fromString(executionHint);
                 }
                 // In some cases, using ordinals is just not supported: override it
-                if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
+                if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false
+                        && execution != ExecutionMode.SPILL
+                        && execution != ExecutionMode.APPROXIMATE) {
                     execution = ExecutionMode.MAP;
                 }
                 if (execution == null) {
@@ -340,6 +344,107 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
                 );
             }
         },
+        SPILL(new ParseField("spill")) {
+
+            @Override
+            Aggregator create(String name,
+                              AggregatorFactories factories,
+                              ValuesSourceConfig valuesSourceConfig,
+                              BucketOrder order,
+                              TermsAggregator.BucketCountThresholds bucketCountThresholds,
+                              IncludeExclude includeExclude,
+                              AggregationContext context,
+                              Aggregator parent,
+                              SubAggCollectionMode subAggCollectMode,
+                              boolean showTermDocCountError,
+                              CardinalityUpperBound cardinality,
+                              Map<String, Object> metadata) throws IOException {
+                Path tmpDir = context.tmpDir();
+                if (factories != AggregatorFactories.EMPTY ||
+                        cardinality != CardinalityUpperBound.ONE ||
+                        bucketCountThresholds.getMinDocCount() == 0 ||
+                        tmpDir == null) {
+                    /*
+                     * We can only spill the counts of the terms iff this aggregator:
+                     *  - has no sub-aggregator AND
+                     *  - collects from a single bucket AND
+                     *  - doesn't have to return terms that no document matched AND
+                     *  - runs on a node that has a directory that we can write temporary files to.
+                     * Otherwise we aggregate in memory.
+                     */
+                    return MAP.create(name, factories, valuesSourceConfig, order, bucketCountThresholds, includeExclude, context,
+                        parent, subAggCollectMode, showTermDocCountError, cardinality, metadata);
+                }
+                IncludeExclude.StringFilter filter = includeExclude == null
+                    ? null
+                    : includeExclude.convertToStringFilter(valuesSourceConfig.format());
+                return new SpillingStringTermsAggregator(
+                    name,
+                    factories,
+                    valuesSourceConfig,
+                    order,
+                    valuesSourceConfig.format(),
+                    bucketCountThresholds,
+                    filter,
+                    tmpDir,
+                    // we use the static SPILL_THRESHOLD_IN_BYTES to allow tests to force spilling
+                    SPILL_THRESHOLD_IN_BYTES != null
+                        ? SPILL_THRESHOLD_IN_BYTES.longValue()
+                        : SpillingStringTermsAggregator.DEFAULT_SPILL_THRESHOLD_IN_BYTES,
+                    context,
+                    parent,
+                    showTermDocCountError,
+                    metadata
+                );
+            }
+        },
+        APPROXIMATE(new ParseField("approximate")) {
+
+            @Override
+            Aggregator create(String name,
+                              AggregatorFactories factories,
+                              ValuesSourceConfig valuesSourceConfig,
+                              BucketOrder order,
+                              TermsAggregator.BucketCountThresholds bucketCountThresholds,
+                              IncludeExclude includeExclude,
+                              AggregationContext context,
+                              Aggregator parent,
+                              SubAggCollectionMode subAggCollectMode,
+                              boolean showTermDocCountError,
+                              CardinalityUpperBound cardinality,
+                              Map<String, Object> metadata) throws IOException {
+                if (factories != AggregatorFactories.EMPTY ||
+                        cardinality != CardinalityUpperBound.ONE ||
+                        bucketCountThresholds.getMinDocCount() == 0 ||
+                        InternalOrder.isCountDesc(order) == false) {
+                    /*
+                     * We can only count the terms approximately iff this aggregator:
+                     *  - has no sub-aggregator AND
+                     *  - collects from a single bucket AND
+                     *  - doesn't have to return terms that no document matched AND
+                     *  - is ordered by descending doc count, which is what the error bounds are for.
+                     * Otherwise we count all terms exactly.
+                     */
+                    return MAP.create(name, factories, valuesSourceConfig, order, bucketCountThresholds, includeExclude, context,
+                        parent, subAggCollectMode, showTermDocCountError, cardinality, metadata);
+                }
+                IncludeExclude.StringFilter filter = includeExclude == null
+                    ? null
+                    : includeExclude.convertToStringFilter(valuesSourceConfig.format());
+                return new ApproximateStringTermsAggregator(
+                    name,
+                    factories,
+                    valuesSourceConfig,
+                    order,
+                    valuesSourceConfig.format(),
+                    bucketCountThresholds,
+                    filter,
+                    context,
+                    parent,
+                    metadata
+                );
+            }
+        },
         GLOBAL_ORDINALS(new ParseField("global_ordinals")) {
 
             @Override
@@ -481,8 +586,14 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
                     return GLOBAL_ORDINALS;
                 case "map":
                     return MAP;
+                case "spill":
+                    return SPILL;
+                case "approximate":
+                    return APPROXIMATE;
                 default:
-                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], expected any of [map, global_ordinals]");
+                    throw new IllegalArgumentException(
+                        "Unknown `execution_hint`: [" + value + "], expected any of [map, global_ordinals, spill, approximate]"
+                    );
             }
         }
 
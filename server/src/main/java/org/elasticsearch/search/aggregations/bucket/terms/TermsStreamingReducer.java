@@ -0,0 +1,269 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalOrder;
+import org.elasticsearch.search.aggregations.StreamingReducer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.search.aggregations.InternalOrder.isKeyAsc;
+import static org.elasticsearch.search.aggregations.InternalOrder.isKeyOrder;
+
+/**
+ * A {@link StreamingReducer} for terms aggregations without sub-aggregations. It keeps the doc count of every term in
+ * {@link BigArrays} and builds the same partially reduced aggregation as {@link AbstractInternalTerms#reduce} once all
+ * aggregations were merged. Aggregations that use different formats, show the doc count error of terms or have
+ * sub-aggregations are rejected and reduced as usual.
+ */
+abstract class TermsStreamingReducer<A extends InternalMappedTerms<A, B>, B extends InternalTerms.Bucket<B>> implements StreamingReducer {
+
+    protected final BigArrays bigArrays;
+    // an empty copy of the first aggregation that is used to build the reduced aggregation
+    private final A template;
+    private LongArray docCounts;
+    private long otherDocCount;
+    private long sumDocCountError;
+    private long firstDocCountError;
+    private int numAggregations;
+
+    TermsStreamingReducer(A first, BigArrays bigArrays) {
+        this.template = first.create(first.getName(), Collections.emptyList(), first.getReduceOrder(), 0, 0);
+        this.bigArrays = bigArrays;
+        this.docCounts = bigArrays.newLongArray(1, true);
+    }
+
+    /**
+     * Adds the key of the given bucket and returns its ordinal, or {@code -1 - ordinal} if the key was added before.
+     */
+    protected abstract long addKey(B bucket);
+
+    /**
+     * Builds a bucket for the key with the given ordinal.
+     */
+    protected abstract B buildBucket(long ord, long docCount);
+
+    @Override
+    public boolean accept(InternalAggregation aggregation) {
+        if (aggregation instanceof UnmappedTerms) {
+            numAggregations++;
+            return true;
+        }
+        if (aggregation.getClass() != template.getClass()) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        A terms = (A) aggregation;
+        if (canMerge(terms) == false) {
+            return false;
+        }
+        final long docCountError = AbstractInternalTerms.getDocCountError(terms);
+        if (sumDocCountError != -1) {
+            sumDocCountError = docCountError == -1 ? -1 : sumDocCountError + docCountError;
+        }
+        if (numAggregations++ == 0) {
+            firstDocCountError = terms.getDocCountError();
+        }
+        otherDocCount += terms.getSumOfOtherDocCounts();
+        for (B bucket : terms.getBuckets()) {
+            long ord = addKey(bucket);
+            if (ord < 0) {
+                ord = -1 - ord;
+            } else {
+                docCounts = bigArrays.grow(docCounts, ord + 1);
+            }
+            docCounts.increment(ord, bucket.getDocCount());
+        }
+        return true;
+    }
+
+    private boolean canMerge(A terms) {
+        if (terms.showTermDocCountError || terms.format.equals(template.format) == false) {
+            return false;
+        }
+        if (terms.getBuckets().isEmpty()) {
+            return true;
+        }
+        // buckets are merged by key, which must be the order of the partially reduced buckets too
+        final BucketOrder reduceOrder = terms.getReduceOrder();
+        if (isKeyOrder(reduceOrder) == false || isKeyAsc(reduceOrder) != isKeyAsc(template.getReduceOrder())) {
+            return false;
+        }
+        for (B bucket : terms.getBuckets()) {
+            if (bucket.getAggregations().asList().isEmpty() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public InternalAggregation materialize(ReduceContext reduceContext) {
+        final long size = size();
+        List<B> buckets = new ArrayList<>(Math.toIntExact(size));
+        for (long ord = 0; ord < size; ord++) {
+            buckets.add(buildBucket(ord, docCounts.get(ord)));
+        }
+        final BucketOrder reduceOrder = InternalOrder.key(isKeyAsc(template.getReduceOrder()));
+        buckets.sort(reduceOrder.comparator());
+        // we can prune the list on partial reduce if the aggregation is ordered by key and not filtered (minDocCount == 0)
+        if (isKeyOrder(template.getOrder()) && template.getMinDocCount() == 0 && buckets.size() > template.getRequiredSize()) {
+            buckets = new ArrayList<>(buckets.subList(0, template.getRequiredSize()));
+        }
+        reduceContext.consumeBucketsAndMaybeBreak(buckets.size());
+        final long docCountError;
+        if (sumDocCountError == -1) {
+            docCountError = -1;
+        } else {
+            docCountError = numAggregations == 1 ? firstDocCountError : sumDocCountError;
+        }
+        return template.create(template.getName(), buckets, reduceOrder, docCountError, otherDocCount);
+    }
+
+    /**
+     * The number of distinct keys.
+     */
+    protected abstract long size();
+
+    protected final DocValueFormat format() {
+        return template.format;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(docCounts);
+    }
+
+    static final class Longs extends TermsStreamingReducer<LongTerms, LongTerms.Bucket> {
+        private final LongHash keys;
+
+        Longs(LongTerms first, BigArrays bigArrays) {
+            super(first, bigArrays);
+            boolean success = false;
+            try {
+                this.keys = new LongHash(1, bigArrays);
+                success = true;
+            } finally {
+                if (success == false) {
+                    super.close();
+                }
+            }
+        }
+
+        @Override
+        protected long addKey(LongTerms.Bucket bucket) {
+            return keys.add(bucket.term);
+        }
+
+        @Override
+        protected LongTerms.Bucket buildBucket(long ord, long docCount) {
+            return new LongTerms.Bucket(keys.get(ord), docCount, InternalAggregations.EMPTY, false, -1, format());
+        }
+
+        @Override
+        protected long size() {
+            return keys.size();
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(keys, super::close);
+        }
+    }
+
+    static final class Doubles extends TermsStreamingReducer<DoubleTerms, DoubleTerms.Bucket> {
+        private final LongHash keys;
+
+        Doubles(DoubleTerms first, BigArrays bigArrays) {
+            super(first, bigArrays);
+            boolean success = false;
+            try {
+                this.keys = new LongHash(1, bigArrays);
+                success = true;
+            } finally {
+                if (success == false) {
+                    super.close();
+                }
+            }
+        }
+
+        @Override
+        protected long addKey(DoubleTerms.Bucket bucket) {
+            return keys.add(Double.doubleToLongBits(bucket.term));
+        }
+
+        @Override
+        protected DoubleTerms.Bucket buildBucket(long ord, long docCount) {
+            return new DoubleTerms.Bucket(Double.longBitsToDouble(keys.get(ord)), docCount, InternalAggregations.EMPTY, false, -1,
+                format());
+        }
+
+        @Override
+        protected long size() {
+            return keys.size();
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(keys, super::close);
+        }
+    }
+
+    static final class Strings extends TermsStreamingReducer<StringTerms, StringTerms.Bucket> {
+        private final BytesRefHash keys;
+
+        Strings(StringTerms first, BigArrays bigArrays) {
+            super(first, bigArrays);
+            boolean success = false;
+            try {
+                this.keys = new BytesRefHash(1, bigArrays);
+                success = true;
+            } finally {
+                if (success == false) {
+                    super.close();
+                }
+            }
+        }
+
+        @Override
+        protected long addKey(StringTerms.Bucket bucket) {
+            return keys.add(bucket.termBytes);
+        }
+
+        @Override
+        protected StringTerms.Bucket buildBucket(long ord, long docCount) {
+            // the hash reuses its pages, the bucket needs its own copy of the term
+            BytesRef term = BytesRef.deepCopyOf(keys.get(ord, new BytesRef()));
+            return new StringTerms.Bucket(term, docCount, InternalAggregations.EMPTY, false, -1, format());
+        }
+
+        @Override
+        protected long size() {
+            return keys.size();
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(keys, super::close);
+        }
+    }
+}
@@ -12,8 +12,10 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.core.Releasables;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.StreamingReducer;
 
 import java.io.IOException;
 import java.util.List;
@@ -93,6 +95,59 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
         }
     }
 
+    @Override
+    public StreamingReducer createStreamingReducer(BigArrays bigArrays) {
+        return new CardinalityStreamingReducer(getName(), getMetadata(), bigArrays);
+    }
+
+    /**
+     * Merges the counts of all aggregations into a single {@link HyperLogLogPlusPlus} rather than into a new one on every
+     * partial reduction.
+     */
+    private static class CardinalityStreamingReducer implements StreamingReducer {
+        private final String name;
+        private final Map<String, Object> metadata;
+        private final BigArrays bigArrays;
+        private HyperLogLogPlusPlus reduced;
+
+        CardinalityStreamingReducer(String name, Map<String, Object> metadata, BigArrays bigArrays) {
+            this.name = name;
+            this.metadata = metadata;
+            this.bigArrays = bigArrays;
+        }
+
+        @Override
+        public boolean accept(InternalAggregation aggregation) {
+            if (aggregation instanceof InternalCardinality == false) {
+                return false;
+            }
+            final InternalCardinality cardinality = (InternalCardinality) aggregation;
+            if (cardinality.counts != null) {
+                if (reduced == null) {
+                    reduced = new HyperLogLogPlusPlus(cardinality.counts.precision(), bigArrays, 1);
+                }
+                reduced.merge(0, cardinality.counts, 0);
+            }
+            return true;
+        }
+
+        @Override
+        public InternalAggregation materialize(ReduceContext reduceContext) {
+            if (reduced == null) { // all empty
+                return new InternalCardinality(name, null, metadata);
+            }
+            // copy the counts out of the memory of this reducer
+            HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(reduced.precision(), BigArrays.NON_RECYCLING_INSTANCE, 1);
+            counts.merge(0, reduced, 0);
+            return new InternalCardinality(name, counts, metadata);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(reduced);
+        }
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         final long cardinality = getValue();
@@ -11,6 +11,9 @@ package org.elasticsearch.search.aggregations.support;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.CheckedConsumer;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.PreallocatedCircuitBreakerService;
@@ -41,6 +44,7 @@ import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.sort.SortBuilder;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -256,6 +260,29 @@ public abstract class AggregationContext implements Releasable {
      */
     public abstract boolean enableRewriteToFilterByFilter();
 
+    /**
+     * Loads a partial result that only depends on the documents of the shard from the shard request cache, computing it with
+     * the given loader if it isn't cached yet. Returns {@code null} without computing anything if partial results of this
+     * shard can't be cached, for instance because the shard still receives writes.
+     */
+    @Nullable
+    public abstract BytesReference cachedShardResult(BytesReference key, CheckedConsumer<StreamOutput, IOException> loader)
+        throws IOException;
+
+    /**
+     * The temporary directory of the node that aggregations can write temporary files to, or {@code null} if they can't.
+     */
+    @Nullable
+    public abstract Path tmpDir();
+
+    /**
+     * Loads partial results of a shard from the shard request cache.
+     */
+    @FunctionalInterface
+    public interface ShardResultCache {
+        BytesReference getOrCompute(BytesReference key, CheckedConsumer<StreamOutput, IOException> loader) throws IOException;
+    }
+
     /**
      * Implementation of {@linkplain AggregationContext} for production usage
      * that wraps our ubiquitous {@link SearchExecutionContext} and anything else
@@ -277,6 +304,8 @@ public abstract class AggregationContext implements Releasable {
         private final Supplier<Boolean> isCancelled;
         private final Function<Query, Query> filterQuery;
         private final boolean enableRewriteToFilterByFilter;
+        private final ShardResultCache shardResultCache;
+        private final Path tmpDir;
 
         private final List<Aggregator> releaseMe = new ArrayList<>();
 
@@ -294,6 +323,28 @@ public abstract class AggregationContext implements Releasable {
             Supplier<Boolean> isCancelled,
             Function<Query, Query> filterQuery,
             boolean enableRewriteToFilterByFilter
+        ) {
+            this(context, bigArrays, bytesToPreallocate, topLevelQuery, profiler, multiBucketConsumer, subSearchContextBuilder,
+                bitsetFilterCache, randomSeed, relativeTimeInMillis, isCancelled, filterQuery, enableRewriteToFilterByFilter, null,
+                null);
+        }
+
+        public ProductionAggregationContext(
+            SearchExecutionContext context,
+            BigArrays bigArrays,
+            long bytesToPreallocate,
+            Supplier<Query> topLevelQuery,
+            @Nullable AggregationProfiler profiler,
+            MultiBucketConsumer multiBucketConsumer,
+            Supplier<SubSearchContext> subSearchContextBuilder,
+            BitsetFilterCache bitsetFilterCache,
+            int randomSeed,
+            LongSupplier relativeTimeInMillis,
+            Supplier<Boolean> isCancelled,
+            Function<Query, Query> filterQuery,
+            boolean enableRewriteToFilterByFilter,
+            @Nullable ShardResultCache shardResultCache,
+            @Nullable Path tmpDir
         ) {
             this.context = context;
             if (bytesToPreallocate == 0) {
@@ -325,6 +376,8 @@ public abstract class AggregationContext implements Releasable {
             this.isCancelled = isCancelled;
             this.filterQuery = filterQuery;
             this.enableRewriteToFilterByFilter = enableRewriteToFilterByFilter;
+            this.shardResultCache = shardResultCache;
+            this.tmpDir = tmpDir;
         }
 
         @Override
@@ -486,6 +539,17 @@ public abstract class AggregationContext implements Releasable {
             return enableRewriteToFilterByFilter;
         }
 
+        @Override
+        public BytesReference cachedShardResult(BytesReference key, CheckedConsumer<StreamOutput, IOException> loader)
+            throws IOException {
+            return shardResultCache == null ? null : shardResultCache.getOrCompute(key, loader);
+        }
+
+        @Override
+        public Path tmpDir() {
+            return tmpDir;
+        }
+
         @Override
         public void close() {
             /*
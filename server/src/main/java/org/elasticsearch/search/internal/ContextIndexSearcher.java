@@ -16,6 +16,7 @@ import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConjunctionDISI;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
@@ -34,6 +35,8 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.CombinedBitSet;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.Timer;
@@ -43,11 +46,16 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -62,22 +70,41 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     private AggregatedDfs aggregatedDfs;
     private QueryProfiler profiler;
     private MutableQueryTimeout cancellable;
+    @Nullable
+    private final Executor concurrentSearchExecutor;
+    @Nullable
+    private final LeafSlice[] concurrentSlices;
 
     public ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                 QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                 boolean wrapWithExitableDirectoryReader) throws IOException {
-        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader);
+        this(reader, similarity, queryCache, queryCachingPolicy, wrapWithExitableDirectoryReader, null);
+    }
+
+    /**
+     * Creates a searcher that can search slices of the leaves of the given reader concurrently on the given executor, see
+     * {@link #searchConcurrently(Query, CollectorManager, List)}.
+     */
+    public ContextIndexSearcher(IndexReader reader, Similarity similarity,
+                                QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                boolean wrapWithExitableDirectoryReader,
+                                @Nullable Executor concurrentSearchExecutor) throws IOException {
+        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader,
+            concurrentSearchExecutor);
     }
 
     private ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                  QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                  MutableQueryTimeout cancellable,
-                                 boolean wrapWithExitableDirectoryReader) throws IOException {
+                                 boolean wrapWithExitableDirectoryReader,
+                                 @Nullable Executor concurrentSearchExecutor) throws IOException {
         super(wrapWithExitableDirectoryReader ? new ExitableDirectoryReader((DirectoryReader) reader, cancellable) : reader);
         setSimilarity(similarity);
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
         this.cancellable = cancellable;
+        this.concurrentSearchExecutor = concurrentSearchExecutor;
+        this.concurrentSlices = concurrentSearchExecutor == null ? null : slices(leafContexts);
     }
 
     public void setProfiler(QueryProfiler profiler) {
@@ -161,6 +188,111 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         }
     }
 
+    /**
+     * Returns <code>true</code> if this searcher was created with an executor for concurrent search and its leaves are partitioned into
+     * more than one slice, in which case {@link #searchConcurrently(Query, CollectorManager, List)} searches the slices in parallel.
+     */
+    public boolean hasConcurrentSlices() {
+        return concurrentSlices != null && concurrentSlices.length > 1;
+    }
+
+    /**
+     * Searches the slices of the leaves of this searcher concurrently, each slice with its own collector created by the given manager.
+     * The calling thread takes part in the search: it searches the first slice and then every slice that no thread of the executor
+     * picked up yet, so the search makes progress even if the executor is busy.
+     * <p>
+     * The collectors of all slices are added to the given list before any slice is searched, so that the caller can still reduce them
+     * if the search fails, for instance because it timed out. Returns once every slice was searched or failed, and rethrows the
+     * failure of the first failed slice.
+     */
+    public <C extends Collector> void searchConcurrently(Query query, CollectorManager<C, ?> manager,
+                                                         List<C> collectors) throws IOException {
+        assert hasConcurrentSlices() : "concurrent search is not enabled or there is a single slice";
+        final List<C> sliceCollectors = new ArrayList<>(concurrentSlices.length);
+        for (int i = 0; i < concurrentSlices.length; i++) {
+            sliceCollectors.add(manager.newCollector());
+        }
+        collectors.addAll(sliceCollectors);
+        final Weight weight = createWeight(rewrite(query), sliceCollectors.get(0).scoreMode(), 1f);
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<SliceTask> tasks = new ArrayList<>(concurrentSlices.length);
+        for (int i = 0; i < concurrentSlices.length; i++) {
+            tasks.add(new SliceTask(Arrays.asList(concurrentSlices[i].leaves), weight, sliceCollectors.get(i), failed));
+        }
+        for (SliceTask task : tasks.subList(1, tasks.size())) {
+            try {
+                concurrentSearchExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // the calling thread searches the slice below
+            }
+        }
+        for (SliceTask task : tasks) {
+            task.run();
+        }
+        Exception failure = null;
+        for (SliceTask task : tasks) {
+            final Exception e = task.await();
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Searches one slice of leaves. It runs at most once, either on the executor or on the thread that started the search.
+     */
+    private final class SliceTask implements Runnable {
+        private final List<LeafReaderContext> leaves;
+        private final Weight weight;
+        private final Collector collector;
+        private final AtomicBoolean failed;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Exception failure;
+
+        SliceTask(List<LeafReaderContext> leaves, Weight weight, Collector collector, AtomicBoolean failed) {
+            this.leaves = leaves;
+            this.weight = weight;
+            this.collector = collector;
+            this.failed = failed;
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true) == false) {
+                return;
+            }
+            try {
+                // don't bother searching the remaining slices once one of them failed
+                if (failed.get() == false) {
+                    search(leaves, weight, collector);
+                }
+            } catch (Exception e) {
+                failure = e;
+                failed.set(true);
+            } finally {
+                done.countDown();
+            }
+        }
+
+        Exception await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            }
+            return failure;
+        }
+    }
+
     /**
      * Lower-level search API.
      *
@@ -178,6 +310,10 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
             // continue with the following leaf
             return;
         }
+        if (SegmentRangePruner.canSkip(ctx.reader(), weight.getQuery())) {
+            // the segment is outside of the queried time range
+            return;
+        }
         Bits liveDocs = ctx.reader().getLiveDocs();
         BitSet liveDocsBitSet = getSparseBitSetOrNull(liveDocs);
         if (liveDocsBitSet == null) {
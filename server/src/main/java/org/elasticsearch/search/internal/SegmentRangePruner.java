@@ -0,0 +1,69 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.codec.TimestampRangeCodec;
+import org.elasticsearch.index.query.DateRangeIncludingNowQuery;
+
+/**
+ * Decides whether a segment can be skipped entirely because a range query that every match has to satisfy is disjoint from the
+ * timestamp range recorded for the segment by the {@link TimestampRangeCodec}. This avoids creating scorers for segments that are
+ * outside of the queried time range, which is the common case for dashboards on time series indices with many segments.
+ */
+final class SegmentRangePruner {
+
+    private SegmentRangePruner() {}
+
+    /**
+     * Returns {@code true} if no document of the given segment can match the given query.
+     */
+    static boolean canSkip(LeafReader reader, Query query) {
+        if (query instanceof PointRangeQuery) {
+            return isDisjoint(reader, (PointRangeQuery) query);
+        } else if (query instanceof IndexOrDocValuesQuery) {
+            return canSkip(reader, ((IndexOrDocValuesQuery) query).getIndexQuery());
+        } else if (query instanceof DateRangeIncludingNowQuery) {
+            return canSkip(reader, ((DateRangeIncludingNowQuery) query).getQuery());
+        } else if (query instanceof ConstantScoreQuery) {
+            return canSkip(reader, ((ConstantScoreQuery) query).getQuery());
+        } else if (query instanceof BoostQuery) {
+            return canSkip(reader, ((BoostQuery) query).getQuery());
+        } else if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                // only required clauses restrict the matches of the boolean query
+                if (clause.isRequired() && canSkip(reader, clause.getQuery())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDisjoint(LeafReader reader, PointRangeQuery query) {
+        if (query.getNumDims() != 1 || query.getBytesPerDim() != Long.BYTES) {
+            return false;
+        }
+        final long[] range = TimestampRangeCodec.readRange(reader, query.getField());
+        if (range == null) {
+            return false;
+        }
+        final long lower = NumericUtils.sortableBytesToLong(query.getLowerPoint(), 0);
+        final long upper = NumericUtils.sortableBytesToLong(query.getUpperPoint(), 0);
+        return upper < range[0] || lower > range[1];
+    }
+}
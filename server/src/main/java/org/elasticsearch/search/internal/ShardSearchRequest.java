@@ -397,9 +397,18 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
      * Returns the cache key for this shard search request, based on its content
      */
     public BytesReference cacheKey() throws IOException {
+        return cacheKey(null);
+    }
+
+    /**
+     * Returns the cache key for this shard search request, based on its content and the rounded time that its
+     * results depend on if any
+     */
+    public BytesReference cacheKey(@Nullable Long roundedNowInMillis) throws IOException {
         BytesStreamOutput out = scratch.get();
         try {
             this.innerWriteTo(out, true);
+            out.writeOptionalLong(roundedNowInMillis);
             // copy it over since we don't want to share the thread-local bytes in #scratch
             return out.copyBytes();
         } finally {
@@ -32,6 +32,7 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
 import org.elasticsearch.action.search.SearchShardTask;
@@ -52,9 +53,11 @@ import org.elasticsearch.search.aggregations.AggregationPhase;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.profile.SearchProfileShardResults;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
+import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
@@ -69,6 +72,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 
 import static org.elasticsearch.search.query.QueryCollectorContext.createEarlyTerminationCollectorContext;
@@ -230,6 +234,10 @@ public class QueryPhase {
                 hasFilterCollector = true;
             }
 
+            if (collectors.isEmpty() && scrollContext == null && searchContext.getProfilers() == null) {
+                query = addBottomSortFilter(searchContext, query);
+            }
+
             CheckedConsumer<List<LeafReaderContext>, IOException> leafSorter = l -> {};
             // try to rewrite numeric or date sort to the optimized distanceFeatureQuery
             if ((searchContext.sort() != null) && SYS_PROP_REWRITE_SORT) {
@@ -283,6 +291,8 @@ public class QueryPhase {
                 // if we are optimizing sort and there are no other collectors
                 if (sortAndFormatsForRewrittenNumericSort != null && collectors.size() == 0 && searchContext.getProfilers() == null) {
                     shouldRescore = searchWithCollectorManager(searchContext, searcher, query, leafSorter, timeoutSet);
+                } else if (collectors.isEmpty() && canSearchConcurrently(searchContext, searcher)) {
+                    shouldRescore = searchConcurrently(searchContext, searcher, query, timeoutSet);
                 } else {
                     shouldRescore = searchWithCollector(searchContext, searcher, query, collectors, hasFilterCollector, timeoutSet);
                 }
@@ -425,6 +435,142 @@ public class QueryPhase {
         return false; // no rescoring when sorting by field
     }
 
+    /**
+     * Whether the top hits of the request can be collected by searching the slices of the shard concurrently. This is limited to
+     * requests that only collect top hits, since other collectors like aggregations can't be reduced across slices, and excludes
+     * profiling which records the collection on a single thread.
+     */
+    private static boolean canSearchConcurrently(SearchContext searchContext, ContextIndexSearcher searcher) {
+        if (searcher.hasConcurrentSlices() == false) return false;
+        if (searchContext.getProfilers() != null) return false;
+        if (searchContext.size() <= 0) return false;
+        if (searchContext.scrollContext() != null) return false;
+        if (searchContext.collapse() != null) return false;
+        if (searchContext.sort() != null && searchContext.trackScores()) return false;
+        if (searchContext.sort() == null && searchContext.searchAfter() != null) return false;
+        return true;
+    }
+
+    /*
+     * Collects the top hits with one collector per slice of the shard, see ContextIndexSearcher#searchConcurrently. The checks in
+     * canSearchConcurrently make sure that there are no other collectors, no scroll, no collapse and no tracking of scores when
+     * sorting, so that the top docs collectors of the slices can be reduced directly.
+     */
+    private static boolean searchConcurrently(SearchContext searchContext,
+                                              ContextIndexSearcher searcher,
+                                              Query query,
+                                              boolean timeoutSet) throws IOException {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        final IndexReader reader = searcher.getIndexReader();
+        int numHits = Math.min(searchContext.from() + searchContext.size(), Math.max(1, reader.numDocs()));
+        final boolean rescore = searchContext.rescore().isEmpty() == false;
+        if (rescore) {
+            assert searchContext.sort() == null;
+            for (RescoreContext rescoreContext : searchContext.rescore()) {
+                numHits = Math.max(numHits, rescoreContext.getWindowSize());
+            }
+        }
+        final SortAndFormats sortAndFormats = searchContext.sort();
+
+        final int totalHitsThreshold;
+        final TotalHits totalHits;
+        if (searchContext.trackTotalHitsUpTo() == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            totalHitsThreshold = 1;
+            totalHits = new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        } else {
+            int hitCount = shortcutTotalHitCount(reader, query);
+            if (hitCount == -1) {
+                totalHitsThreshold = searchContext.trackTotalHitsUpTo();
+                totalHits = null; // will be computed via the collectors
+            } else {
+                totalHitsThreshold = 1;
+                totalHits = new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO); // don't compute hit counts via the collectors
+            }
+        }
+
+        TopDocs topDocs;
+        if (sortAndFormats == null) {
+            topDocs = searchSlices(searchContext, searcher, query,
+                TopScoreDocCollector.createSharedManager(numHits, null, totalHitsThreshold), timeoutSet);
+        } else {
+            topDocs = searchSlices(searchContext, searcher, query,
+                TopFieldCollector.createSharedManager(sortAndFormats.sort, numHits, searchContext.searchAfter(), totalHitsThreshold),
+                timeoutSet);
+        }
+        // Lucene sets shards indexes during merging of topDocs from different collectors
+        // We need to reset shard index; ES will set shard index later during reduce stage
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scoreDoc.shardIndex = -1;
+        }
+        if (totalHits != null) { // we have already precalculated totalHits for the whole index
+            if (topDocs instanceof TopFieldDocs) {
+                topDocs = new TopFieldDocs(totalHits, topDocs.scoreDocs, ((TopFieldDocs) topDocs).fields);
+            } else {
+                topDocs = new TopDocs(totalHits, topDocs.scoreDocs);
+            }
+        }
+        final float maxScore;
+        if (sortAndFormats == null && topDocs.scoreDocs.length > 0) {
+            maxScore = topDocs.scoreDocs[0].score;
+        } else {
+            maxScore = Float.NaN;
+        }
+        queryResult.topDocs(new TopDocsAndMaxScore(topDocs, maxScore), sortAndFormats == null ? null : sortAndFormats.formats);
+        return rescore;
+    }
+
+    private static <C extends Collector, T extends TopDocs> T searchSlices(SearchContext searchContext,
+                                                                          ContextIndexSearcher searcher,
+                                                                          Query query,
+                                                                          CollectorManager<C, T> manager,
+                                                                          boolean timeoutSet) throws IOException {
+        final List<C> collectors = new ArrayList<>();
+        try {
+            searcher.searchConcurrently(query, manager, collectors);
+        } catch (TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            if (searchContext.request().allowPartialSearchResults() == false) {
+                // Can't rethrow TimeExceededException because not serializable
+                throw new QueryPhaseExecutionException(searchContext.shardTarget(), "Time exceeded");
+            }
+            searchContext.queryResult().searchTimedOut(true);
+        }
+        // the collectors of slices that failed or were skipped hold the hits they collected so far
+        return manager.reduce(collectors);
+    }
+
+    /**
+     * Restricts the query to the documents that can still compete with the bottom of the global top hits that the coordinating node
+     * sent along with the request, see {@link ShardSearchRequest#getBottomSortValues()}. This is only done if the total number of hits
+     * doesn't need to be tracked and if the primary sort can use the points of the field, so that the filter is cheap to execute.
+     */
+    static Query addBottomSortFilter(SearchContext searchContext, Query query) {
+        final ShardSearchRequest request = searchContext.request();
+        if (request == null || request.getBottomSortValues() == null || searchContext.sort() == null
+                || searchContext.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            return query;
+        }
+        final Object[] bottomValues = request.getBottomSortValues().getRawSortValues();
+        final SortField primarySortField = searchContext.sort().sort.getSort()[0];
+        if (bottomValues.length == 0 || primarySortField.getCanUsePoints() == false
+                || Objects.equals(bottomValues[0], primarySortField.getMissingValue())) {
+            // documents without a value tie with such a bottom and may still be competitive
+            return query;
+        }
+        final FieldSortBuilder primarySort = FieldSortBuilder.getPrimaryFieldSortOrNull(request.source());
+        if (primarySort == null) {
+            return query;
+        }
+        final Query filter = primarySort.bottomSortFilterOrNull(searchContext.getSearchExecutionContext(), request.getBottomSortValues());
+        if (filter == null) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+            .add(query, BooleanClause.Occur.MUST)
+            .add(filter, BooleanClause.Occur.FILTER)
+            .build();
+    }
+
     private static Query tryRewriteLongSort(SearchContext searchContext, IndexReader reader,
                                             Query query, boolean hasFilterCollector) throws IOException {
         if ((searchContext.from() + searchContext.size()) <= 0) return null;
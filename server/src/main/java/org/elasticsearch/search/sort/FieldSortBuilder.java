@@ -13,7 +13,9 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.xcontent.ParseField;
@@ -26,6 +28,7 @@ import org.elasticsearch.common.xcontent.ObjectParser;
 import org.elasticsearch.common.xcontent.ObjectParser.ValueType;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.IndexSortConfig;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource.Nested;
@@ -385,6 +388,10 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
                 isNanosecond = ((IndexNumericFieldData) fieldData).getNumericType() == NumericType.DATE_NANOSECONDS;
             }
         }
+        if (canUsePointsForSort(fieldType, field)) {
+            // lets the comparator skip documents that can't be competitive anymore once the top hits are full
+            field.setCanUsePoints();
+        }
         DocValueFormat formatter = fieldType.docValueFormat(format, null);
         if (format != null) {
             formatter = DocValueFormat.enableFormatSortValues(formatter);
@@ -395,6 +402,31 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
         return new SortFieldAndFormat(field, formatter);
     }
 
+    /**
+     * Whether Lucene can use the points of the field to skip non-competitive documents when sorting on the given {@link SortField}.
+     * This requires the sort field to read the doc values of the field as they are, and the points of the field to be encoded like
+     * the sorted values, which is the case for {@code long}, {@code float}, {@code double}, {@code date} and {@code date_nanos} fields.
+     */
+    static boolean canUsePointsForSort(MappedFieldType fieldType, SortField sortField) {
+        if (sortField instanceof SortedNumericSortField == false || fieldType.isSearchable() == false) {
+            return false;
+        }
+        if (fieldType instanceof DateFieldType) {
+            return true;
+        } else if (fieldType instanceof NumberFieldType) {
+            switch (((NumberFieldType) fieldType).numericType()) {
+                case LONG:
+                case FLOAT:
+                case DOUBLE:
+                    return true;
+                default:
+                    // smaller integers are sorted as longs but indexed as ints, half floats are indexed with two bytes
+                    return false;
+            }
+        }
+        return false;
+    }
+
     public boolean canRewriteToMatchNone() {
         return nestedSort == null && (missing == null || "_last".equals(missing));
     }
@@ -420,13 +452,7 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
         if (fieldType.isSearchable() == false) {
             return false;
         }
-        DocValueFormat docValueFormat = bottomSortValues.getSortValueFormats()[0];
-        final DateMathParser dateMathParser;
-        if (docValueFormat instanceof DocValueFormat.DateTime) {
-            dateMathParser = ((DocValueFormat.DateTime) docValueFormat).getDateMathParser();
-        } else {
-            dateMathParser = null;
-        }
+        final DateMathParser dateMathParser = bottomSortDateMathParser(bottomSortValues);
         Object bottomSortValue =  bottomSortValues.getFormattedSortValues()[0];
         Object minValue = order() == SortOrder.DESC ? bottomSortValue : null;
         Object maxValue = order() == SortOrder.DESC ? null : bottomSortValue;
@@ -440,6 +466,46 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
         }
     }
 
+    /**
+     * Returns a query that matches the documents of the shard whose primary sort value is competitive with the
+     * primary sort value provided in the <code>bottomSortValues</code>, or <code>null</code> if such a query
+     * can't be built. Documents that don't match the query can't make it into the global top hits anymore, so
+     * the query can be used as a filter when the total number of hits doesn't need to be tracked.
+     */
+    @Nullable
+    public Query bottomSortFilterOrNull(SearchExecutionContext context,
+                                        SearchSortValuesAndFormats bottomSortValues) {
+        if (bottomSortValues == null || bottomSortValues.getRawSortValues().length == 0) {
+            return null;
+        }
+        if (canRewriteToMatchNone() == false) {
+            return null;
+        }
+        MappedFieldType fieldType = context.getFieldType(fieldName);
+        if (fieldType == null || fieldType.isSearchable() == false) {
+            return null;
+        }
+        final DateMathParser dateMathParser = bottomSortDateMathParser(bottomSortValues);
+        Object bottomSortValue = bottomSortValues.getFormattedSortValues()[0];
+        Object minValue = order() == SortOrder.DESC ? bottomSortValue : null;
+        Object maxValue = order() == SortOrder.DESC ? null : bottomSortValue;
+        try {
+            // ties with the bottom are still competitive since they may win on the secondary sorts
+            return fieldType.rangeQuery(minValue, maxValue, true, true, null, null, dateMathParser, context);
+        } catch (ElasticsearchParseException | IllegalArgumentException exc) {
+            // can happen if the sort field is mapped differently in another search index
+            return null;
+        }
+    }
+
+    private static DateMathParser bottomSortDateMathParser(SearchSortValuesAndFormats bottomSortValues) {
+        DocValueFormat docValueFormat = bottomSortValues.getSortValueFormats()[0];
+        if (docValueFormat instanceof DocValueFormat.DateTime) {
+            return ((DocValueFormat.DateTime) docValueFormat).getDateMathParser();
+        }
+        return null;
+    }
+
     @Override
     public BucketedSort buildBucketedSort(SearchExecutionContext context, BigArrays bigArrays, int bucketSize, BucketedSort.ExtraData extra)
         throws IOException {
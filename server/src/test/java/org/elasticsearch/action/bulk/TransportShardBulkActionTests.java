@@ -36,6 +36,7 @@ import org.elasticsearch.index.bulk.stats.BulkStats;
 import org.elasticsearch.index.bulk.stats.ShardBulkStats;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.index.mapper.MetadataFieldMapper;
@@ -953,6 +954,156 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         latch.await();
     }
 
+    public void testPerformOnPrimaryWithParseAhead() throws Exception {
+        IndexShard shard = newStartedShard(true, Settings.builder()
+            .put(IndexSettings.INDEX_BULK_PARSE_AHEAD_SETTING.getKey(), randomIntBetween(1, 8))
+            .build());
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(2, 50)];
+        final int malformedItem = randomIntBetween(0, items.length - 1);
+        for (int i = 0; i < items.length; i++) {
+            final IndexRequest writeRequest = new IndexRequest("index").id("id_" + i).opType(DocWriteRequest.OpType.INDEX);
+            if (i == malformedItem) {
+                writeRequest.source("{\"foo\": ", Requests.INDEX_CONTENT_TYPE);
+            } else {
+                writeRequest.source(Requests.INDEX_CONTENT_TYPE);
+            }
+            items[i] = new BulkItemRequest(i, writeRequest);
+        }
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        TransportShardBulkAction.performOnPrimary(
+            bulkShardRequest, shard, null, threadPool::absoluteTimeInMillis, new NoopMappingUpdatePerformer(),
+            listener -> {}, ActionListener.runAfter(
+                ActionTestUtils.assertNoFailureListener(result -> {
+                    assertThat(result.finalResponseIfSuccessful.getResponses(), arrayWithSize(items.length));
+                    // responses are in item order and only the malformed document failed
+                    for (int i = 0; i < items.length; i++) {
+                        BulkItemResponse response = result.finalResponseIfSuccessful.getResponses()[i];
+                        assertThat(response.getItemId(), equalTo(i));
+                        assertThat(response.getId(), equalTo("id_" + i));
+                        assertThat(response.isFailed(), equalTo(i == malformedItem));
+                        if (i == malformedItem) {
+                            assertThat(response.getFailure().getCause(), instanceOf(MapperParsingException.class));
+                        } else {
+                            assertThat(response.getResponse().getSeqNo(), equalTo((long) (i < malformedItem ? i : i - 1)));
+                        }
+                    }
+                    try {
+                        assertDocCount(shard, items.length - 1);
+                        closeShards(shard);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }), latch::countDown), threadPool, Names.WRITE);
+
+        latch.await();
+    }
+
+    public void testPerformOnPrimaryWithParseAheadReparsesAfterMappingUpdate() throws Exception {
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(2, 10)];
+        IndexShard shard = newStartedShard(true, Settings.builder()
+            .put(IndexSettings.INDEX_BULK_PARSE_AHEAD_SETTING.getKey(), items.length)
+            .build());
+        for (int i = 0; i < items.length; i++) {
+            // every document introduces the same new field, only the first one should trigger a mapping update
+            DocWriteRequest<IndexRequest> writeRequest = new IndexRequest("index").id("id_" + i)
+                .source(Requests.INDEX_CONTENT_TYPE, "foo", "bar")
+                .opType(DocWriteRequest.OpType.INDEX);
+            items[i] = new BulkItemRequest(i, writeRequest);
+        }
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        final AtomicInteger mappingUpdates = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        // forked tasks run on the calling thread, so all following items are parsed with the mapping before the update
+        TransportShardBulkAction.performOnPrimary(
+            bulkShardRequest, shard, null, threadPool::absoluteTimeInMillis,
+            (update, shardId, listener) -> {
+                mappingUpdates.incrementAndGet();
+                shard.mapperService().merge(MapperService.SINGLE_MAPPING_NAME, update.toCompressedXContent(),
+                    MapperService.MergeReason.MAPPING_UPDATE);
+                listener.onResponse(null);
+            },
+            listener -> listener.onResponse(null), ActionListener.runAfter(
+                ActionTestUtils.assertNoFailureListener(result -> {
+                    assertThat(result.finalResponseIfSuccessful.getResponses(), arrayWithSize(items.length));
+                    for (int i = 0; i < items.length; i++) {
+                        BulkItemResponse response = result.finalResponseIfSuccessful.getResponses()[i];
+                        assertFalse(response.isFailed());
+                        assertThat(response.getResponse().getSeqNo(), equalTo((long) i));
+                    }
+                    // documents that were parsed before the mapping update are parsed again instead of requesting the update again
+                    assertThat(mappingUpdates.get(), equalTo(1));
+                    assertThat(shard.mapperService().fieldType("foo"), notNullValue());
+                    try {
+                        assertDocCount(shard, items.length);
+                        closeShards(shard);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }), latch::countDown), threadPool, Names.SAME);
+
+        latch.await();
+    }
+
+    public void testPerformOnPrimaryWithAppendOnlyBatching() throws Exception {
+        IndexShard shard = newStartedShard(true, Settings.builder()
+            .put(IndexSettings.INDEX_BULK_APPEND_ONLY_BATCHING_SETTING.getKey(), true)
+            .put(IndexSettings.INDEX_BULK_PARSE_AHEAD_SETTING.getKey(), randomFrom(0, randomIntBetween(1, 8)))
+            .build());
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(2, 50)];
+        final int malformedItem = randomIntBetween(0, items.length - 1);
+        final int explicitIdItem = randomIntBetween(0, items.length - 1);
+        for (int i = 0; i < items.length; i++) {
+            // bulk items without op type and auto-generated ids are index operations, both are batched
+            final IndexRequest writeRequest =
+                new IndexRequest("index").opType(randomFrom(DocWriteRequest.OpType.CREATE, DocWriteRequest.OpType.INDEX));
+            if (i == explicitIdItem) {
+                // breaks the run of append-only operations
+                writeRequest.id("explicit");
+            }
+            if (i == malformedItem) {
+                writeRequest.source("{\"foo\": ", Requests.INDEX_CONTENT_TYPE);
+            } else {
+                writeRequest.source(Requests.INDEX_CONTENT_TYPE);
+            }
+            writeRequest.process(Version.CURRENT, null, "index");
+            items[i] = new BulkItemRequest(i, writeRequest);
+        }
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        TransportShardBulkAction.performOnPrimary(
+            bulkShardRequest, shard, null, threadPool::absoluteTimeInMillis, new NoopMappingUpdatePerformer(),
+            listener -> {}, ActionListener.runAfter(
+                ActionTestUtils.assertNoFailureListener(result -> {
+                    assertThat(result.finalResponseIfSuccessful.getResponses(), arrayWithSize(items.length));
+                    // responses are in item order, sequence numbers are assigned in item order and only the malformed document failed
+                    for (int i = 0; i < items.length; i++) {
+                        BulkItemResponse response = result.finalResponseIfSuccessful.getResponses()[i];
+                        assertThat(response.getItemId(), equalTo(i));
+                        assertThat(response.getId(), equalTo(items[i].request().id()));
+                        assertThat(response.isFailed(), equalTo(i == malformedItem));
+                        if (i == malformedItem) {
+                            assertThat(response.getFailure().getCause(), instanceOf(MapperParsingException.class));
+                        } else {
+                            assertThat(response.getResponse().getResult(), equalTo(DocWriteResponse.Result.CREATED));
+                            assertThat(response.getResponse().getSeqNo(), equalTo((long) (i < malformedItem ? i : i - 1)));
+                        }
+                    }
+                    try {
+                        assertThat(shard.getLocalCheckpoint(), equalTo(items.length - 2L));
+                        assertDocCount(shard, items.length - 1);
+                        closeShards(shard);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }), latch::countDown), threadPool, Names.WRITE);
+
+        latch.await();
+    }
+
     private void randomlySetIgnoredPrimaryResponse(BulkItemRequest primaryRequest) {
         if (randomBoolean()) {
             // add a response to the request and thereby check that it is ignored for the primary.
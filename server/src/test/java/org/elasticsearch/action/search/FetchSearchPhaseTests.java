@@ -11,11 +11,13 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.store.MockDirectoryWrapper;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.DocValueFormat;
@@ -31,9 +33,17 @@ import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.InternalAggregationTestCase;
 import org.elasticsearch.transport.Transport;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.elasticsearch.action.search.SearchTransportService.fetchBatchListener;
+import static org.hamcrest.Matchers.containsString;
+
 public class FetchSearchPhaseTests extends ESTestCase {
 
     public void testShortcutQueryAndFetchOptimization() {
@@ -205,6 +215,86 @@ public class FetchSearchPhaseTests extends ESTestCase {
         assertTrue(mockSearchPhaseContext.releasedSearchContexts.contains(ctx));
     }
 
+    public void testFailFetchOneShardOfBatch() {
+        int numShards = randomIntBetween(2, 10);
+        MockSearchPhaseContext mockSearchPhaseContext = new MockSearchPhaseContext(numShards);
+        SearchPhaseController controller = new SearchPhaseController(
+            writableRegistry(), s -> InternalAggregationTestCase.emptyReduceContextBuilder());
+        QueryPhaseResultConsumer results = controller.newSearchPhaseResults(EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            new NoopCircuitBreaker(CircuitBreaker.REQUEST), SearchProgressListener.NOOP,
+            mockSearchPhaseContext.getRequest(), numShards, exc  -> {});
+        for (int i = 0; i < numShards; i++) {
+            QuerySearchResult queryResult = new QuerySearchResult(new ShardSearchContextId("", i),
+                new SearchShardTarget("node1", new ShardId("test", "na", i), null, OriginalIndices.NONE), null);
+            queryResult.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO),
+                new ScoreDoc[] {new ScoreDoc(i + 1, i)}), i), new DocValueFormat[0]);
+            queryResult.size(numShards); // all hits are fetched
+            queryResult.setShardIndex(i);
+            results.consumeResult(queryResult, () -> {});
+        }
+        int failedShard = randomIntBetween(0, numShards - 1);
+        AtomicInteger numBatches = new AtomicInteger();
+        mockSearchPhaseContext.searchTransport = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendExecuteFetch(Transport.Connection connection, ShardFetchSearchRequest request, SearchTask task,
+                                         SearchActionListener<FetchSearchResult> listener) {
+                throw new AssertionError("the shards of a node must be fetched together");
+            }
+
+            @Override
+            public void sendExecuteFetch(Transport.Connection connection, List<ShardFetchSearchRequest> requests, SearchTask task,
+                                         List<SearchActionListener<FetchSearchResult>> listeners) {
+                numBatches.incrementAndGet();
+                FetchSearchResult[] fetchResults = new FetchSearchResult[requests.size()];
+                Exception[] failures = new Exception[requests.size()];
+                for (int i = 0; i < requests.size(); i++) {
+                    ShardSearchContextId contextId = requests.get(i).contextId();
+                    int shard = (int) contextId.getId();
+                    if (shard == failedShard) {
+                        failures[i] = new ElasticsearchException("shard [" + shard + "] failed");
+                    } else {
+                        fetchResults[i] = new FetchSearchResult(contextId, null);
+                        fetchResults[i].hits(new SearchHits(new SearchHit[] {new SearchHit(shard + 1, "doc" + shard, Map.of(), Map.of())},
+                            new TotalHits(1, TotalHits.Relation.EQUAL_TO), shard));
+                    }
+                }
+                // the results of the batch go over the wire like they would from the node of the shards
+                ShardFetchBatchResponse response;
+                try {
+                    response = copyWriteable(new ShardFetchBatchResponse(fetchResults, failures), writableRegistry(),
+                        ShardFetchBatchResponse::new);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                fetchBatchListener(listeners).onResponse(response);
+            }
+        };
+        FetchSearchPhase phase = new FetchSearchPhase(results, controller, null, mockSearchPhaseContext,
+            (searchResponse, scrollId) -> new SearchPhase("test") {
+                @Override
+                public void run() {
+                    mockSearchPhaseContext.sendSearchResponse(searchResponse, null);
+                }
+            });
+        phase.run();
+        mockSearchPhaseContext.assertNoFailure();
+        assertEquals(1, numBatches.get());
+        SearchResponse searchResponse = mockSearchPhaseContext.searchResponse.get();
+        assertNotNull(searchResponse);
+        assertEquals(numShards, searchResponse.getHits().getTotalHits().value);
+        assertEquals(numShards - 1, searchResponse.getHits().getHits().length);
+        for (SearchHit hit : searchResponse.getHits().getHits()) {
+            assertNotEquals("doc" + failedShard, hit.getId());
+        }
+        assertEquals(1, searchResponse.getFailedShards());
+        assertEquals(numShards - 1, searchResponse.getSuccessfulShards());
+        assertEquals(1, searchResponse.getShardFailures().length);
+        assertEquals(failedShard, searchResponse.getShardFailures()[0].shardId());
+        assertThat(searchResponse.getShardFailures()[0].reason(), containsString("shard [" + failedShard + "] failed"));
+        assertEquals(1, mockSearchPhaseContext.releasedSearchContexts.size());
+        assertTrue(mockSearchPhaseContext.releasedSearchContexts.contains(new ShardSearchContextId("", failedShard)));
+    }
+
     public void testFetchDocsConcurrently() throws InterruptedException {
         int resultSetSize = randomIntBetween(0, 100);
         // we use at least 2 hits otherwise this is subject to single shard optimization and we trip an assert...
@@ -215,15 +305,17 @@ public class FetchSearchPhaseTests extends ESTestCase {
         QueryPhaseResultConsumer results = controller.newSearchPhaseResults(EsExecutors.DIRECT_EXECUTOR_SERVICE,
             new NoopCircuitBreaker(CircuitBreaker.REQUEST), SearchProgressListener.NOOP,
             mockSearchPhaseContext.getRequest(), numHits, exc  -> {});
+        int numNodes = randomIntBetween(1, 3);
         for (int i = 0; i < numHits; i++) {
             QuerySearchResult queryResult = new QuerySearchResult(new ShardSearchContextId("", i),
-                new SearchShardTarget("node1", new ShardId("test", "na", 0), null, OriginalIndices.NONE), null);
+                new SearchShardTarget("node" + (i % numNodes), new ShardId("test", "na", 0), null, OriginalIndices.NONE), null);
             queryResult.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO),
                     new ScoreDoc[] {new ScoreDoc(i+1, i)}), i), new DocValueFormat[0]);
             queryResult.size(resultSetSize); // the size of the result set
             queryResult.setShardIndex(i);
             results.consumeResult(queryResult, () -> {});
         }
+        Set<Long> fetchedNodes = ConcurrentCollections.newConcurrentSet();
         mockSearchPhaseContext.searchTransport = new SearchTransportService(null, null, null) {
             @Override
             public void sendExecuteFetch(Transport.Connection connection, ShardFetchSearchRequest request, SearchTask task,
@@ -235,6 +327,18 @@ public class FetchSearchPhaseTests extends ESTestCase {
                     listener.onResponse(fetchResult);
                 }).start();
             }
+
+            @Override
+            public void sendExecuteFetch(Transport.Connection connection, List<ShardFetchSearchRequest> requests, SearchTask task,
+                                         List<SearchActionListener<FetchSearchResult>> listeners) {
+                // the shards of a node are fetched together
+                long node = requests.get(0).contextId().getId() % numNodes;
+                assertTrue("node" + node + " was fetched from twice", fetchedNodes.add(node));
+                for (int i = 0; i < requests.size(); i++) {
+                    assertEquals(node, requests.get(i).contextId().getId() % numNodes);
+                    sendExecuteFetch(connection, requests.get(i), task, listeners.get(i));
+                }
+            }
         };
         CountDownLatch latch = new CountDownLatch(1);
         FetchSearchPhase phase = new FetchSearchPhase(results, controller, null, mockSearchPhaseContext,
@@ -251,6 +355,7 @@ public class FetchSearchPhaseTests extends ESTestCase {
         mockSearchPhaseContext.assertNoFailure();
         SearchResponse searchResponse = mockSearchPhaseContext.searchResponse.get();
         assertNotNull(searchResponse);
+        assertTrue(fetchedNodes.toString(), fetchedNodes.size() <= numNodes);
         assertEquals(numHits, searchResponse.getHits().getTotalHits().value);
         assertEquals(Math.min(numHits, resultSetSize), searchResponse.getHits().getHits().length);
         SearchHit[] hits = searchResponse.getHits().getHits();
@@ -11,19 +11,29 @@ package org.elasticsearch.action.search;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -37,8 +47,11 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.hamcrest.Matchers.instanceOf;
+
 public class QueryPhaseResultConsumerTests extends ESTestCase {
 
     private SearchPhaseController searchPhaseController;
@@ -113,6 +126,66 @@ public class QueryPhaseResultConsumerTests extends ESTestCase {
         assertEquals(1, searchProgressListener.onFinalReduce.get());
     }
 
+    public void testStreamedAggregationsAreReleasedWhenPartialMergeBreaks() throws Exception {
+        CountingCircuitBreaker bigArraysBreaker = new CountingCircuitBreaker(CircuitBreaker.REQUEST, -1);
+        MockBigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService() {
+            @Override
+            public CircuitBreaker getBreaker(String name) {
+                return bigArraysBreaker;
+            }
+        });
+        SearchPhaseController controller = new SearchPhaseController(writableRegistry(),
+            s -> new InternalAggregation.ReduceContextBuilder() {
+                @Override
+                public InternalAggregation.ReduceContext forPartialReduction() {
+                    return InternalAggregation.ReduceContext.forPartialReduction(
+                        bigArrays, null, () -> PipelineAggregator.PipelineTree.EMPTY);
+                }
+
+                public InternalAggregation.ReduceContext forFinalReduction() {
+                    return InternalAggregation.ReduceContext.forFinalReduction(
+                        bigArrays, null, b -> {}, PipelineAggregator.PipelineTree.EMPTY);
+                };
+            });
+
+        SearchRequest searchRequest = new SearchRequest("index");
+        searchRequest.source(new SearchSourceBuilder().aggregation(AggregationBuilders.terms("terms")).size(0));
+        searchRequest.setBatchedReduceSize(2);
+        // with merges that run on the calling thread, the breaker sees the estimates of the first three results, of the first
+        // merge and of the fourth result before it breaks on the estimate of the second merge that starts from the streamed
+        // aggregations of the first one
+        CountingCircuitBreaker circuitBreaker = new CountingCircuitBreaker(CircuitBreaker.REQUEST, 6);
+        AtomicReference<Exception> onPartialMergeFailure = new AtomicReference<>();
+        QueryPhaseResultConsumer queryPhaseResultConsumer = new QueryPhaseResultConsumer(searchRequest,
+            EsExecutors.DIRECT_EXECUTOR_SERVICE, circuitBreaker, controller, SearchProgressListener.NOOP,
+            writableRegistry(), 10, onPartialMergeFailure::set);
+
+        for (int i = 0; i < 10; i++) {
+            SearchShardTarget searchShardTarget = new SearchShardTarget("node", new ShardId("index", "uuid", i),
+                null, OriginalIndices.NONE);
+            QuerySearchResult querySearchResult = new QuerySearchResult();
+            TopDocs topDocs = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+            querySearchResult.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), new DocValueFormat[0]);
+            List<StringTerms.Bucket> buckets = new ArrayList<>();
+            for (int b = 0; b < 5; b++) {
+                buckets.add(new StringTerms.Bucket(new BytesRef("term" + (i + b)), 1, InternalAggregations.EMPTY, false, 0,
+                    DocValueFormat.RAW));
+            }
+            querySearchResult.aggregations(InternalAggregations.from(Collections.singletonList(
+                new StringTerms("terms", BucketOrder.key(true), BucketOrder.count(false), 10, 1, Collections.emptyMap(),
+                    DocValueFormat.RAW, 25, false, 0, buckets, 0))));
+            querySearchResult.setSearchShardTarget(searchShardTarget);
+            querySearchResult.setShardIndex(i);
+            queryPhaseResultConsumer.consumeResult(querySearchResult, () -> {});
+        }
+
+        assertThat(onPartialMergeFailure.get(), instanceOf(CircuitBreakingException.class));
+        expectThrows(CircuitBreakingException.class, queryPhaseResultConsumer::reduce);
+        queryPhaseResultConsumer.close();
+        assertEquals(0, circuitBreaker.getUsed());
+        assertEquals(0, bigArraysBreaker.getUsed());
+    }
+
     private static class ThrowingSearchProgressListener extends SearchProgressListener {
         private final AtomicInteger onQueryResult = new AtomicInteger(0);
         private final AtomicInteger onPartialReduce = new AtomicInteger(0);
@@ -143,4 +216,33 @@ public class QueryPhaseResultConsumerTests extends ESTestCase {
             throw new UnsupportedOperationException();
         }
     }
+
+    private static class CountingCircuitBreaker extends NoopCircuitBreaker {
+        private final AtomicLong used = new AtomicLong();
+        private final AtomicInteger estimates = new AtomicInteger();
+        private final int breakOnEstimate;
+
+        CountingCircuitBreaker(String name, int breakOnEstimate) {
+            super(name);
+            this.breakOnEstimate = breakOnEstimate;
+        }
+
+        @Override
+        public void addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            if (estimates.incrementAndGet() == breakOnEstimate) {
+                throw new CircuitBreakingException(label, getDurability());
+            }
+            used.addAndGet(bytes);
+        }
+
+        @Override
+        public void addWithoutBreaking(long bytes) {
+            used.addAndGet(bytes);
+        }
+
+        @Override
+        public long getUsed() {
+            return used.get();
+        }
+    }
 }
@@ -19,14 +19,18 @@ import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService.ComputedNodeStats;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchContextId;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -39,6 +43,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -48,6 +53,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.newConcurrentMap;
 import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.newConcurrentSet;
@@ -357,6 +363,231 @@ public class SearchAsyncActionTests extends ESTestCase {
         assertThat(runnables, equalTo(Collections.emptyList()));
     }
 
+    public void testHedgeSlowShardRequests() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        request.setMaxConcurrentShardRequests(randomIntBetween(1, 100));
+        AtomicReference<SearchResponse> searchResponse = new AtomicReference<>();
+        ActionListener<SearchResponse> responseListener = ActionListener.wrap(searchResponse::set,
+            (e) -> { throw new AssertionError("unexpected", e);});
+        DiscoveryNode slowNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        int numShards = randomIntBetween(1, 10);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, true, slowNode, fastNode);
+        Set<ShardSearchContextId> freedContexts = newConcurrentSet();
+        SearchTransportService transportService = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendFreeContext(Transport.Connection connection, ShardSearchContextId contextId, OriginalIndices originalIndices) {
+                assertEquals(slowNode, connection.getNode());
+                assertTrue(freedContexts.add(contextId));
+            }
+        };
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        List<Runnable> slowResponses = Collections.synchronizedList(new ArrayList<>());
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, Runtime.getRuntime().availableProcessors()));
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction =
+                new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                    "test",
+                    logger,
+                    transportService,
+                    (cluster, node) -> {
+                        assert cluster == null : "cluster was not null: " + cluster;
+                        return lookup.get(node); },
+                    aliasFilters,
+                    Collections.emptyMap(),
+                    executor,
+                    request,
+                    responseListener,
+                    shardsIter,
+                    new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                    ClusterState.EMPTY_STATE,
+                    null,
+                    new ArraySearchPhaseResults<>(shardsIter.size()),
+                    request.getMaxConcurrentShardRequests(),
+                    SearchResponse.Clusters.EMPTY) {
+
+                    @Override
+                    protected void executePhaseOnShard(SearchShardIterator shardIt, SearchShardTarget shard,
+                                                       SearchActionListener<TestSearchPhaseResult> listener) {
+                        Transport.Connection connection = getConnection(null, shard.getNodeId());
+                        TestSearchPhaseResult testSearchPhaseResult = new TestSearchPhaseResult(
+                            new ShardSearchContextId(UUIDs.randomBase64UUID(), contextIdGenerator.incrementAndGet()), connection.getNode());
+                        if (connection.getNode().equals(slowNode)) {
+                            // the slow node only answers once the search is done
+                            slowResponses.add(() -> listener.onResponse(testSearchPhaseResult));
+                        } else {
+                            new Thread(() -> listener.onResponse(testSearchPhaseResult)).start();
+                        }
+                    }
+
+                    @Override
+                    protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                        return new SearchPhase("test") {
+                            @Override
+                            public void run() {
+                                for (int i = 0; i < results.getNumShards(); i++) {
+                                    assertEquals(fastNode, results.getAtomicArray().get(i).node);
+                                }
+                                latch.countDown();
+                            }
+                        };
+                    }
+                };
+            asyncAction.hedgeShardRequests(new HedgedShardRequests(threadPool,
+                nodeId -> Optional.of(new ComputedNodeStats(nodeId, 1, 0, TimeValue.timeValueMillis(1).nanos(), 0)),
+                randomDoubleBetween(1.0, 3.0, true), TimeValue.timeValueMillis(randomIntBetween(0, 10))));
+            asyncAction.start();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            // the contexts of the hedged requests that lost are released
+            List<Runnable> responses = new ArrayList<>(slowResponses);
+            responses.forEach(Runnable::run);
+            assertEquals(responses.size(), freedContexts.size());
+
+            asyncAction.sendSearchResponse(null, null);
+            assertNotNull(searchResponse.get());
+            assertEquals(0, searchResponse.get().getFailedShards());
+            assertEquals(numShards, searchResponse.get().getSuccessfulShards());
+        } finally {
+            executor.shutdownNow();
+            terminate(threadPool);
+        }
+    }
+
+    public void testBatchShardRequestsByNode() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        int numShards = randomIntBetween(2, 10);
+        request.setMaxConcurrentShardRequests(numShards);
+        AtomicReference<SearchResponse> searchResponse = new AtomicReference<>();
+        ActionListener<SearchResponse> responseListener = ActionListener.wrap(searchResponse::set,
+            (e) -> { throw new AssertionError("unexpected", e);});
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, true, primaryNode, replicaNode);
+        Map<String, Integer> expectedShardsPerNode = new HashMap<>();
+        for (SearchShardIterator iter : shardsIter) {
+            expectedShardsPerNode.merge(iter.getTargetNodeIds().get(0), 1, Integer::sum);
+        }
+        // one shard of the first batch fails and is retried on its other copy
+        AtomicBoolean failedShard = new AtomicBoolean(false);
+        // phases that don't support batching send the requests one by one
+        boolean supportsBatching = randomBoolean();
+        SearchTransportService transportService = new SearchTransportService(null, null, null);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(primaryNode.getId(), new MockConnection(primaryNode));
+        lookup.put(replicaNode.getId(), new MockConnection(replicaNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        Map<String, List<ShardId>> batches = new ConcurrentHashMap<>();
+        Set<ShardId> sentAlone = newConcurrentSet();
+        CountDownLatch latch = new CountDownLatch(1);
+        AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction =
+            new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                "test",
+                logger,
+                transportService,
+                (cluster, node) -> {
+                    assert cluster == null : "cluster was not null: " + cluster;
+                    return lookup.get(node); },
+                aliasFilters,
+                Collections.emptyMap(),
+                null,
+                request,
+                responseListener,
+                shardsIter,
+                new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                ClusterState.EMPTY_STATE,
+                null,
+                new ArraySearchPhaseResults<>(shardsIter.size()),
+                request.getMaxConcurrentShardRequests(),
+                SearchResponse.Clusters.EMPTY) {
+
+                @Override
+                protected void executePhaseOnShard(SearchShardIterator shardIt, SearchShardTarget shard,
+                                                   SearchActionListener<TestSearchPhaseResult> listener) {
+                    assertTrue(sentAlone.add(shard.getShardId()));
+                    respond(shard, listener, false);
+                }
+
+                @Override
+                protected boolean supportsBatchedShardRequests() {
+                    return supportsBatching;
+                }
+
+                @Override
+                protected void executePhaseOnShards(List<SearchShardIterator> shardIts, List<SearchShardTarget> shards,
+                                                    List<SearchActionListener<TestSearchPhaseResult>> listeners) {
+                    assertTrue("shard requests were batched but the phase doesn't support it", supportsBatching);
+                    String nodeId = shards.get(0).getNodeId();
+                    List<ShardId> shardIds = shards.stream().map(SearchShardTarget::getShardId).collect(Collectors.toList());
+                    assertNull("node [" + nodeId + "] got two batches", batches.put(nodeId, shardIds));
+                    new Thread(() -> {
+                        for (int i = 0; i < shards.size(); i++) {
+                            respond(shards.get(i), listeners.get(i), failedShard.compareAndSet(false, true));
+                        }
+                    }).start();
+                }
+
+                private void respond(SearchShardTarget shard, SearchActionListener<TestSearchPhaseResult> listener, boolean fail) {
+                    if (fail) {
+                        listener.onFailure(new RuntimeException("boom"));
+                    } else {
+                        listener.onResponse(new TestSearchPhaseResult(
+                            new ShardSearchContextId(UUIDs.randomBase64UUID(), contextIdGenerator.incrementAndGet()),
+                            lookup.get(shard.getNodeId()).getNode()));
+                    }
+                }
+
+                @Override
+                protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> results, SearchPhaseContext context) {
+                    return new SearchPhase("test") {
+                        @Override
+                        public void run() {
+                            latch.countDown();
+                        }
+                    };
+                }
+            };
+        asyncAction.batchShardRequestsByNode();
+        asyncAction.start();
+        latch.await();
+
+        if (supportsBatching) {
+            for (Map.Entry<String, Integer> entry : expectedShardsPerNode.entrySet()) {
+                if (entry.getValue() > 1) {
+                    assertThat(batches.get(entry.getKey()).size(), equalTo(entry.getValue()));
+                } else {
+                    assertFalse(batches.containsKey(entry.getKey()));
+                }
+            }
+            // the shards that were the only one of their node and the retry of the failed shard are sent alone
+            long numAlone = expectedShardsPerNode.values().stream().filter(numShardsOfNode -> numShardsOfNode == 1).count();
+            assertThat((long) sentAlone.size(), equalTo(numAlone + (failedShard.get() ? 1 : 0)));
+        } else {
+            assertTrue(batches.isEmpty());
+            assertThat(sentAlone.size(), equalTo(numShards));
+        }
+
+        asyncAction.sendSearchResponse(null, null);
+        assertNotNull(searchResponse.get());
+        assertEquals(0, searchResponse.get().getFailedShards());
+        assertEquals(numShards, searchResponse.get().getSuccessfulShards());
+    }
+
     public void testFanOutAndFail() throws InterruptedException {
         SearchRequest request = new SearchRequest();
         request.allowPartialSearchResults(true);
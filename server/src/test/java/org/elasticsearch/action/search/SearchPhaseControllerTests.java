@@ -205,6 +205,65 @@ public class SearchPhaseControllerTests extends ESTestCase {
         }
     }
 
+    public void testPruneTopDocs() {
+        int numShards = randomIntBetween(2, 10);
+        int topN = randomIntBetween(0, 20);
+        boolean useConstantScore = randomBoolean();
+        QuerySearchResult[] results = new QuerySearchResult[numShards];
+        int[] shardRequestIndices = new int[numShards];
+        List<TopDocs> unpruned = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            shardRequestIndices[i] = i * 2 + randomIntBetween(0, 1);
+            if (rarely()) {
+                // the shard failed
+                continue;
+            }
+            int numDocs = randomIntBetween(0, topN);
+            ScoreDoc[] scoreDocs = new ScoreDoc[numDocs];
+            ScoreDoc[] copies = new ScoreDoc[numDocs];
+            float score = 100f;
+            for (int doc = 0; doc < numDocs; doc++) {
+                score = useConstantScore ? 1f : score - randomFloat();
+                scoreDocs[doc] = new ScoreDoc(doc, score);
+                copies[doc] = new ScoreDoc(doc, score, shardRequestIndices[i]);
+            }
+            TotalHits totalHits = new TotalHits(numDocs + randomIntBetween(0, 10), Relation.EQUAL_TO);
+            results[i] = new QuerySearchResult(new ShardSearchContextId("", i),
+                new SearchShardTarget("node", new ShardId("", "", i), null, OriginalIndices.NONE), null);
+            results[i].topDocs(new TopDocsAndMaxScore(new TopDocs(totalHits, scoreDocs), numDocs == 0 ? Float.NaN : 100f), null);
+            unpruned.add(new TopDocs(totalHits, copies));
+        }
+
+        SearchPhaseController.pruneTopDocs(results, shardRequestIndices, topN);
+
+        List<TopDocs> pruned = new ArrayList<>();
+        int numHits = 0;
+        for (int i = 0; i < numShards; i++) {
+            if (results[i] == null) {
+                continue;
+            }
+            TopDocs topDocs = results[i].topDocs().topDocs;
+            assertEquals(unpruned.get(pruned.size()).totalHits, topDocs.totalHits);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                assertEquals(-1, scoreDoc.shardIndex);
+            }
+            SearchPhaseController.setShardIndex(topDocs, shardRequestIndices[i]);
+            pruned.add(topDocs);
+            numHits += topDocs.scoreDocs.length;
+        }
+        assertThat(numHits, lessThanOrEqualTo(topN));
+        if (pruned.isEmpty() == false) {
+            ScoreDoc[] expected = SearchPhaseController.mergeTopDocs(unpruned, topN, 0).scoreDocs;
+            ScoreDoc[] actual = SearchPhaseController.mergeTopDocs(pruned, topN, 0).scoreDocs;
+            assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i].doc, actual[i].doc);
+                assertEquals(expected[i].shardIndex, actual[i].shardIndex);
+                assertEquals(expected[i].score, actual[i].score, 0.0f);
+            }
+        }
+    }
+
     private AtomicArray<SearchPhaseResult> generateSeededQueryResults(long seed, int nShards,
                                                                       List<CompletionSuggestion> suggestions,
                                                                       int searchHitsSize, boolean useConstantScore) throws Exception {
@@ -0,0 +1,84 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.search.RescoreDocIds;
+import org.elasticsearch.search.SearchContextMissingException;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.fetch.ShardFetchRequest;
+import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
+import org.elasticsearch.search.internal.ShardSearchContextId;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class SearchTransportServiceTests extends ESTestCase {
+
+    public void testFetchBatchWithMissingContext() {
+        OriginalIndices originalIndices = new OriginalIndices(new String[] { "index" }, IndicesOptions.strictExpandOpenAndForbidClosed());
+        int numRequests = randomIntBetween(2, 5);
+        int missingContext = randomIntBetween(0, numRequests - 1);
+        List<ShardFetchSearchRequest> requests = new ArrayList<>();
+        FetchSearchResult[] results = new FetchSearchResult[numRequests];
+        for (int i = 0; i < numRequests; i++) {
+            ShardSearchContextId contextId = new ShardSearchContextId(randomAlphaOfLength(10), i);
+            requests.add(
+                new ShardFetchSearchRequest(originalIndices, contextId, null, new IntArrayList(), null, RescoreDocIds.EMPTY, null)
+            );
+            results[i] = new FetchSearchResult(contextId, null);
+        }
+
+        SearchService searchService = mock(SearchService.class);
+        doAnswer(invocation -> {
+            ShardFetchRequest request = (ShardFetchRequest) invocation.getArguments()[0];
+            int index = (int) request.contextId().getId();
+            if (index == missingContext) {
+                // looking up the reader context fails before the fetch is forked
+                throw new SearchContextMissingException(request.contextId());
+            }
+            @SuppressWarnings("unchecked")
+            ActionListener<FetchSearchResult> listener = (ActionListener<FetchSearchResult>) invocation.getArguments()[2];
+            listener.onResponse(results[index]);
+            return null;
+        }).when(searchService).executeFetchPhase(any(ShardFetchRequest.class), any(SearchShardTask.class), any());
+
+        SearchShardTask task = new SearchShardTask(1, "transport", SearchTransportService.FETCH_ID_BATCH_ACTION_NAME, "fetch batch",
+            TaskId.EMPTY_TASK_ID, Collections.emptyMap());
+        PlainActionFuture<ShardFetchBatchResponse> future = new PlainActionFuture<>();
+        SearchTransportService.executeFetchBatch(searchService, new ShardFetchBatchRequest(requests), task, future);
+
+        ShardFetchBatchResponse response = future.actionGet();
+        assertEquals(numRequests, response.size());
+        for (int i = 0; i < numRequests; i++) {
+            if (i == missingContext) {
+                assertThat(response.getResult(i), nullValue());
+                assertThat(response.getFailure(i), instanceOf(SearchContextMissingException.class));
+            } else {
+                assertThat(response.getResult(i), sameInstance(results[i]));
+                assertThat(response.getFailure(i), nullValue());
+            }
+        }
+    }
+}
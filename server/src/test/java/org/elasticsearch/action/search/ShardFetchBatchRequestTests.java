@@ -0,0 +1,87 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.apache.lucene.search.ScoreDoc;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.search.RescoreDocIds;
+import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
+import org.elasticsearch.search.internal.ShardSearchContextId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShardFetchBatchRequestTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        OriginalIndices originalIndices = new OriginalIndices(
+            generateRandomStringArray(5, 10, false, false),
+            IndicesOptions.fromOptions(randomBoolean(), randomBoolean(), randomBoolean(), randomBoolean())
+        );
+        List<ShardFetchSearchRequest> requests = new ArrayList<>();
+        int numRequests = randomIntBetween(1, 5);
+        for (int i = 0; i < numRequests; i++) {
+            requests.add(randomShardFetchSearchRequest(originalIndices));
+        }
+        ShardFetchBatchRequest request = new ShardFetchBatchRequest(requests);
+        ShardFetchBatchRequest deserialized = copyWriteable(request, writableRegistry(), ShardFetchBatchRequest::new);
+
+        assertThat(deserialized.requests().size(), equalTo(numRequests));
+        assertThat(deserialized.indices(), equalTo(originalIndices.indices()));
+        assertThat(deserialized.indicesOptions(), equalTo(originalIndices.indicesOptions()));
+        assertThat(deserialized.getDescription(), equalTo(request.getDescription()));
+        for (int i = 0; i < numRequests; i++) {
+            ShardFetchSearchRequest expected = requests.get(i);
+            ShardFetchSearchRequest actual = deserialized.requests().get(i);
+            assertThat(actual.contextId(), equalTo(expected.contextId()));
+            assertThat(
+                Arrays.copyOf(actual.docIds(), actual.docIdsSize()),
+                equalTo(Arrays.copyOf(expected.docIds(), expected.docIdsSize()))
+            );
+            if (expected.lastEmittedDoc() == null) {
+                assertThat(actual.lastEmittedDoc(), nullValue());
+            } else {
+                assertThat(actual.lastEmittedDoc().doc, equalTo(expected.lastEmittedDoc().doc));
+                assertThat(actual.lastEmittedDoc().score, equalTo(expected.lastEmittedDoc().score));
+            }
+            for (int shard = 0; shard < numRequests; shard++) {
+                assertThat(actual.getRescoreDocIds().getId(shard), equalTo(expected.getRescoreDocIds().getId(shard)));
+            }
+            assertThat(actual.indices(), equalTo(expected.indices()));
+        }
+    }
+
+    private static ShardFetchSearchRequest randomShardFetchSearchRequest(OriginalIndices originalIndices) {
+        ShardSearchContextId contextId = new ShardSearchContextId(randomAlphaOfLength(10), randomNonNegativeLong());
+        IntArrayList docIds = new IntArrayList();
+        int numDocs = randomIntBetween(0, 10);
+        for (int i = 0; i < numDocs; i++) {
+            docIds.add(randomIntBetween(0, Integer.MAX_VALUE));
+        }
+        ScoreDoc lastEmittedDoc = randomBoolean() ? null : new ScoreDoc(randomIntBetween(0, Integer.MAX_VALUE), randomFloat());
+        RescoreDocIds rescoreDocIds = RescoreDocIds.EMPTY;
+        if (randomBoolean()) {
+            Map<Integer, Set<Integer>> rescored = new HashMap<>();
+            rescored.put(randomIntBetween(0, 4), Set.of(randomIntBetween(0, 100)));
+            rescoreDocIds = new RescoreDocIds(rescored);
+        }
+        return new ShardFetchSearchRequest(originalIndices, contextId, null, docIds, lastEmittedDoc, rescoreDocIds, null);
+    }
+}
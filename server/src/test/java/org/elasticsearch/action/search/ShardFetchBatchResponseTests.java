@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.internal.ShardSearchContextId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShardFetchBatchResponseTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        int size = randomIntBetween(1, 5);
+        FetchSearchResult[] results = new FetchSearchResult[size];
+        Exception[] failures = new Exception[size];
+        for (int i = 0; i < size; i++) {
+            if (randomBoolean()) {
+                failures[i] = new ElasticsearchException("shard [" + i + "] failed");
+            } else {
+                results[i] = randomFetchSearchResult();
+            }
+        }
+        ShardFetchBatchResponse response = new ShardFetchBatchResponse(results, failures);
+        ShardFetchBatchResponse deserialized = copyWriteable(response, writableRegistry(), ShardFetchBatchResponse::new);
+
+        assertThat(deserialized.size(), equalTo(size));
+        for (int i = 0; i < size; i++) {
+            if (failures[i] != null) {
+                assertThat(deserialized.getResult(i), nullValue());
+                assertThat(deserialized.getFailure(i), instanceOf(ElasticsearchException.class));
+                assertThat(deserialized.getFailure(i).getMessage(), containsString("shard [" + i + "] failed"));
+            } else {
+                assertThat(deserialized.getFailure(i), nullValue());
+                FetchSearchResult result = deserialized.getResult(i);
+                assertThat(result, notNullValue());
+                assertThat(result.getContextId(), equalTo(results[i].getContextId()));
+                SearchHit[] expectedHits = results[i].hits().getHits();
+                assertThat(result.hits().getTotalHits(), equalTo(results[i].hits().getTotalHits()));
+                assertThat(result.hits().getHits().length, equalTo(expectedHits.length));
+                for (int h = 0; h < expectedHits.length; h++) {
+                    assertThat(result.hits().getAt(h).getId(), equalTo(expectedHits[h].getId()));
+                    assertThat(result.hits().getAt(h).getScore(), equalTo(expectedHits[h].getScore()));
+                }
+            }
+        }
+    }
+
+    private static FetchSearchResult randomFetchSearchResult() {
+        FetchSearchResult result = new FetchSearchResult(
+            new ShardSearchContextId(randomAlphaOfLength(10), randomNonNegativeLong()),
+            null
+        );
+        SearchHit[] hits = new SearchHit[randomIntBetween(0, 5)];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new SearchHit(i, randomAlphaOfLength(10), Map.of(), Map.of());
+            hits[i].score(randomFloat());
+        }
+        result.hits(new SearchHits(hits, new TotalHits(hits.length, TotalHits.Relation.EQUAL_TO), Float.NaN));
+        return result;
+    }
+}
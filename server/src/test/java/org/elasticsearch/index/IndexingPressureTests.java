@@ -143,4 +143,70 @@ public class IndexingPressureTests extends ESTestCase {
         }
         assertEquals(0, indexingPressure.stats().getCurrentCoordinatingBytes());
     }
+
+    public void testCostModelDisabled() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings);
+        indexingPressure.recordBulkCost(1000, 1000);
+        assertEquals(100, indexingPressure.weightedBytes(100, () -> {
+            throw new AssertionError("shard cost should not be looked up");
+        }));
+    }
+
+    public void testCostModelWeightsExpensiveShards() {
+        Settings costSettings = Settings.builder().put(settings)
+            .put(IndexingPressure.COST_MODEL_ENABLED.getKey(), true)
+            .put(IndexingPressure.COST_MODEL_MAX_WEIGHT.getKey(), 3.0)
+            .build();
+        IndexingPressure indexingPressure = new IndexingPressure(costSettings);
+        // nothing is known about the cost of bulk requests yet
+        assertEquals(100, indexingPressure.weightedBytes(100, () -> 5.0));
+
+        // the node spends 2 nanos per byte on average
+        for (int i = 0; i < 100; i++) {
+            indexingPressure.recordBulkCost(1000, 2000);
+        }
+        assertEquals(100, indexingPressure.weightedBytes(100, () -> -1));
+        assertEquals(100, indexingPressure.weightedBytes(100, () -> 2.0));
+        // cheap shards are never charged less than their size
+        assertEquals(100, indexingPressure.weightedBytes(100, () -> 0.5));
+        assertEquals(200, indexingPressure.weightedBytes(100, () -> 4.0));
+        assertEquals(300, indexingPressure.weightedBytes(100, () -> 100.0));
+
+        // weighted bytes trip the limit earlier
+        long weighted = indexingPressure.weightedBytes(1024 * 4, () -> 6.0);
+        assertEquals(1024 * 12, weighted);
+        expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markPrimaryOperationStarted(1, 1024 * 4, weighted, false));
+        expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markReplicaOperationStarted(1, 1024 * 4,
+            weighted + 1024 * 4, false));
+        assertEquals(0, indexingPressure.stats().getCurrentWeightedCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(0, indexingPressure.stats().getCurrentWeightedReplicaBytes());
+    }
+
+    public void testWeightedBytesAreTrackedSeparately() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings);
+        try (Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(1, 10, false);
+             Releasable primary = indexingPressure.markPrimaryOperationStarted(2, 15, 45, false);
+             Releasable replica = indexingPressure.markReplicaOperationStarted(3, 25, 50, false)) {
+            IndexingPressureStats stats = indexingPressure.stats();
+            assertEquals(10, stats.getCurrentCoordinatingBytes());
+            assertEquals(15, stats.getCurrentPrimaryBytes());
+            assertEquals(25, stats.getCurrentCombinedCoordinatingAndPrimaryBytes());
+            assertEquals(25, stats.getCurrentReplicaBytes());
+            assertEquals(15, stats.getTotalPrimaryBytes());
+            assertEquals(25, stats.getTotalReplicaBytes());
+            assertEquals(55, stats.getCurrentWeightedCombinedCoordinatingAndPrimaryBytes());
+            assertEquals(50, stats.getCurrentWeightedReplicaBytes());
+
+            // the limits are checked against the weighted bytes
+            expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markPrimaryOperationStarted(1, 10, 1024 * 10, false));
+            expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markReplicaOperationStarted(1, 10, 1024 * 15, false));
+            assertEquals(55, indexingPressure.stats().getCurrentWeightedCombinedCoordinatingAndPrimaryBytes());
+            assertEquals(50, indexingPressure.stats().getCurrentWeightedReplicaBytes());
+        }
+        IndexingPressureStats stats = indexingPressure.stats();
+        assertEquals(0, stats.getCurrentCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(0, stats.getCurrentReplicaBytes());
+        assertEquals(0, stats.getCurrentWeightedCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(0, stats.getCurrentWeightedReplicaBytes());
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+@SuppressCodecs("*") // we test against the default codec so never get a random one here!
+public class TimestampRangeCodecTests extends ESTestCase {
+
+    private static final String TIMESTAMP = "@timestamp";
+
+    public void testRecordsRangeOnFlushAndMerge() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = new IndexWriterConfig();
+            iwc.setCodec(new TimestampRangeCodec(Codec.getDefault(), TIMESTAMP));
+            iwc.setMergePolicy(new TieredMergePolicy());
+            try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                addDocs(writer, 100, 200);
+                writer.flush();
+                addDocs(writer, -50, 20);
+                writer.flush();
+                // a segment without the timestamp field
+                final Document doc = new Document();
+                doc.add(new StringField("field", "value", Field.Store.NO));
+                writer.addDocument(doc);
+                writer.flush();
+
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    final List<LeafReaderContext> leaves = reader.leaves();
+                    assertThat(leaves.size(), equalTo(3));
+                    assertThat(TimestampRangeCodec.readRange(leaves.get(0).reader(), TIMESTAMP), equalTo(new long[] {100, 200}));
+                    assertThat(TimestampRangeCodec.readRange(leaves.get(1).reader(), TIMESTAMP), equalTo(new long[] {-50, 20}));
+                    assertThat(TimestampRangeCodec.readRange(leaves.get(2).reader(), TIMESTAMP), nullValue());
+                    assertThat(TimestampRangeCodec.readRange(leaves.get(0).reader(), "other"), nullValue());
+                }
+
+                writer.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertThat(reader.leaves().size(), equalTo(1));
+                    final LeafReaderContext leaf = reader.leaves().get(0);
+                    assertThat(TimestampRangeCodec.readRange(leaf.reader(), TIMESTAMP), equalTo(new long[] {-50, 200}));
+                }
+            }
+            // segments are readable with the wrapped codec
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertThat(reader.maxDoc(), equalTo(88));
+                assertThat(TimestampRangeCodec.readRange(reader.leaves().get(0).reader(), TIMESTAMP), equalTo(new long[] {-50, 200}));
+            }
+        }
+    }
+
+    public void testMergeSegmentWithOtherPointsButNoTimestamp() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = new IndexWriterConfig();
+            iwc.setCodec(new TimestampRangeCodec(Codec.getDefault(), TIMESTAMP));
+            iwc.setMergePolicy(new TieredMergePolicy());
+            try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                addDocs(writer, 10, 30);
+                writer.flush();
+                // a segment with points of another field, like _seq_no, but none of the timestamp field
+                for (long seqNo = 0; seqNo < 5; seqNo++) {
+                    final Document doc = new Document();
+                    doc.add(new LongPoint("_seq_no", seqNo));
+                    writer.addDocument(doc);
+                }
+                writer.flush();
+
+                writer.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertThat(reader.leaves().size(), equalTo(1));
+                    assertThat(reader.maxDoc(), equalTo(16));
+                    final LeafReaderContext leaf = reader.leaves().get(0);
+                    assertThat(TimestampRangeCodec.readRange(leaf.reader(), TIMESTAMP), equalTo(new long[] {10, 30}));
+                    assertThat(TimestampRangeCodec.readRange(leaf.reader(), "_seq_no"), nullValue());
+                }
+            }
+        }
+    }
+
+    private static void addDocs(IndexWriter writer, long from, long to) throws IOException {
+        for (long timestamp = from; timestamp <= to; timestamp += 2) {
+            final Document doc = new Document();
+            doc.add(new LongPoint(TIMESTAMP, timestamp));
+            writer.addDocument(doc);
+        }
+    }
+}
@@ -3489,6 +3489,50 @@ public class InternalEngineTests extends EngineTestCase {
         }
     }
 
+    public void testIndexAppendOnlyBatch() throws IOException {
+        final int numDocs = randomIntBetween(2, 100);
+        final List<Engine.Index> operations = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            final ParsedDocument doc = testParsedDocument(Integer.toString(i), null, testDocumentWithTextField(), SOURCE, null);
+            operations.add(appendOnlyPrimary(doc, false, i));
+        }
+        final List<Engine.IndexResult> results = engine.indexAppendOnly(operations);
+        assertThat(results, hasSize(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            final Engine.IndexResult result = results.get(i);
+            assertThat(result.getResultType(), equalTo(Engine.Result.Type.SUCCESS));
+            assertTrue(result.isCreated());
+            assertThat(result.getSeqNo(), equalTo((long) i));
+            assertNotNull(result.getTranslogLocation());
+        }
+        assertLuceneOperations(engine, numDocs, 0, 0);
+        assertEquals(0, engine.getNumVersionLookups());
+        assertThat(engine.getProcessedLocalCheckpoint(), equalTo(numDocs - 1L));
+        try (Translog.Snapshot snapshot = getTranslog(engine).newSnapshot()) {
+            assertThat(snapshot.totalOperations(), equalTo(numDocs));
+        }
+
+        // a retry makes all operations with a lower or equal timestamp unsafe, they are still indexed but need a version lookup
+        final ParsedDocument retried = testParsedDocument("retried", null, testDocumentWithTextField(), SOURCE, null);
+        engine.index(appendOnlyPrimary(retried, true, numDocs + 100));
+        final List<Engine.Index> unsafeOperations = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            final ParsedDocument doc = testParsedDocument("unsafe_" + i, null, testDocumentWithTextField(), SOURCE, null);
+            unsafeOperations.add(appendOnlyPrimary(doc, false, numDocs + i));
+        }
+        final List<Engine.IndexResult> unsafeResults = engine.indexAppendOnly(unsafeOperations);
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(unsafeResults.get(i).getResultType(), equalTo(Engine.Result.Type.SUCCESS));
+            assertThat(unsafeResults.get(i).getSeqNo(), equalTo(numDocs + 1L + i));
+        }
+        assertEquals(1 + numDocs, engine.getNumVersionLookups());
+        assertThat(engine.getProcessedLocalCheckpoint(), equalTo(2L * numDocs));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            assertEquals(2 * numDocs + 1, searcher.getIndexReader().numDocs());
+        }
+    }
+
     public Engine.Index appendOnlyPrimary(ParsedDocument doc, boolean retry, final long autoGeneratedIdTimestamp, boolean create) {
         return new Engine.Index(newUid(doc), doc, UNASSIGNED_SEQ_NO, 1, create ? Versions.MATCH_DELETED : Versions.MATCH_ANY,
             VersionType.INTERNAL, Engine.Operation.Origin.PRIMARY, System.nanoTime(), autoGeneratedIdTimestamp, retry,
@@ -23,6 +23,21 @@ public class VersionValueTests extends ESTestCase {
         assertEquals(RamUsageTester.sizeOf(versionValue), versionValue.ramBytesUsed());
     }
 
+    public void testIndexTranslogLocation() {
+        final IndexVersionValue withoutLocation = new IndexVersionValue(null, randomLong(), randomLong(), randomLong());
+        assertNull(withoutLocation.getLocation());
+
+        final Translog.Location translogLoc = new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomInt());
+        final long version = randomLong();
+        final long seqNo = randomLong();
+        final long term = randomLong();
+        final IndexVersionValue versionValue = new IndexVersionValue(translogLoc, version, seqNo, term);
+        assertEquals(translogLoc, versionValue.getLocation());
+        assertEquals(new IndexVersionValue(translogLoc, version, seqNo, term), versionValue);
+        assertEquals(new IndexVersionValue(translogLoc, version, seqNo, term).hashCode(), versionValue.hashCode());
+        assertNotEquals(new IndexVersionValue(null, version, seqNo, term), versionValue);
+    }
+
     public void testDeleteRamBytesUsed() {
         DeleteVersionValue versionValue = new DeleteVersionValue(randomLong(), randomLong(), randomLong(), randomLong());
         assertEquals(RamUsageTester.sizeOf(versionValue), versionValue.ramBytesUsed());
@@ -0,0 +1,128 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.merge;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class NodeMergeSchedulerTests extends ESTestCase {
+
+    private static final ShardId HOT_SHARD = new ShardId(new Index("hot", "_na_"), 0);
+    private static final ShardId COLD_SHARD = new ShardId(new Index("cold", "_na_"), 0);
+
+    public void testUnlimited() throws InterruptedException {
+        final NodeMergeScheduler scheduler = newScheduler(Settings.EMPTY, shardId -> false);
+        final List<Releasable> slots = new ArrayList<>();
+        final int merges = randomIntBetween(1, 20);
+        for (int i = 0; i < merges; i++) {
+            slots.add(scheduler.acquire(COLD_SHARD, randomDouble(), () -> false));
+        }
+        assertThat(scheduler.running(), equalTo(merges));
+        assertThat(scheduler.queued(), equalTo(0));
+        slots.forEach(Releasable::close);
+        assertThat(scheduler.running(), equalTo(0));
+        assertThat(scheduler.rateLimiter(), nullValue());
+    }
+
+    public void testAdmitsByBenefit() throws Exception {
+        final Settings settings = Settings.builder().put(NodeMergeScheduler.MAX_CONCURRENT_MERGES_SETTING.getKey(), 1).build();
+        final NodeMergeScheduler scheduler = newScheduler(settings, HOT_SHARD::equals);
+        final Releasable first = scheduler.acquire(COLD_SHARD, 1.0, () -> false);
+
+        final List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>();
+        threads.add(waitingMerge(scheduler, COLD_SHARD, 1.0, "cold_low", admitted));
+        threads.add(waitingMerge(scheduler, COLD_SHARD, 3.0, "cold_high", admitted));
+        // the search active shard has a lower benefit but is boosted above the cold merges
+        threads.add(waitingMerge(scheduler, HOT_SHARD, 2.0, "hot", admitted));
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        assertBusy(() -> assertThat(scheduler.queued(), equalTo(3)));
+        assertThat(scheduler.running(), equalTo(1));
+
+        first.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(admitted, equalTo(List.of("hot", "cold_high", "cold_low")));
+        assertThat(scheduler.running(), equalTo(0));
+        assertThat(scheduler.queued(), equalTo(0));
+    }
+
+    public void testAbortedMergeStopsWaiting() throws InterruptedException {
+        final Settings settings = Settings.builder().put(NodeMergeScheduler.MAX_CONCURRENT_MERGES_SETTING.getKey(), 1).build();
+        final NodeMergeScheduler scheduler = newScheduler(settings, shardId -> false);
+        try (Releasable ignored = scheduler.acquire(COLD_SHARD, 1.0, () -> false)) {
+            final Releasable aborted = scheduler.acquire(COLD_SHARD, 1.0, () -> true);
+            assertThat(scheduler.running(), equalTo(1));
+            assertThat(scheduler.queued(), equalTo(0));
+            aborted.close();
+            assertThat(scheduler.running(), equalTo(1));
+        }
+        assertThat(scheduler.running(), equalTo(0));
+    }
+
+    public void testUpdateSettings() throws Exception {
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY,
+            Set.of(NodeMergeScheduler.MAX_CONCURRENT_MERGES_SETTING, NodeMergeScheduler.MAX_BYTES_PER_SEC_SETTING));
+        final NodeMergeScheduler scheduler = new NodeMergeScheduler(Settings.EMPTY, clusterSettings, shardId -> false);
+        assertThat(scheduler.rateLimiter(), nullValue());
+
+        clusterSettings.applySettings(Settings.builder()
+            .put(NodeMergeScheduler.MAX_CONCURRENT_MERGES_SETTING.getKey(), 1)
+            .put(NodeMergeScheduler.MAX_BYTES_PER_SEC_SETTING.getKey(), "20mb")
+            .build());
+        assertThat(scheduler.rateLimiter().getMBPerSec(), closeTo(20.0, 0.001));
+
+        final Releasable first = scheduler.acquire(COLD_SHARD, 1.0, () -> false);
+        final List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+        final Thread waiting = waitingMerge(scheduler, COLD_SHARD, 1.0, "second", admitted);
+        waiting.start();
+        assertBusy(() -> assertThat(scheduler.queued(), equalTo(1)));
+
+        // lifting the limits admits the waiting merge right away
+        clusterSettings.applySettings(Settings.EMPTY);
+        waiting.join();
+        assertThat(admitted, equalTo(List.of("second")));
+        assertThat(scheduler.rateLimiter(), nullValue());
+        first.close();
+        assertThat(scheduler.running(), equalTo(0));
+    }
+
+    private static NodeMergeScheduler newScheduler(Settings settings, Predicate<ShardId> isSearchActive) {
+        final ClusterSettings clusterSettings = new ClusterSettings(settings,
+            Set.of(NodeMergeScheduler.MAX_CONCURRENT_MERGES_SETTING, NodeMergeScheduler.MAX_BYTES_PER_SEC_SETTING));
+        return new NodeMergeScheduler(settings, clusterSettings, isSearchActive);
+    }
+
+    private static Thread waitingMerge(NodeMergeScheduler scheduler, ShardId shardId, double benefit, String name, List<String> admitted) {
+        return new Thread(() -> {
+            try (Releasable ignored = scheduler.acquire(shardId, benefit, () -> false)) {
+                admitted.add(name);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+}
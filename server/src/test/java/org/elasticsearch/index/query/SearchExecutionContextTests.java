@@ -31,6 +31,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.AnalyzerScope;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
@@ -185,6 +186,28 @@ public class SearchExecutionContextTests extends ESTestCase {
         assertThat(searchExecutionContext.getFullyQualifiedIndex().getUUID(), equalTo(indexUuid));
     }
 
+    public void testNowRounding() {
+        SearchExecutionContext context = createSearchExecutionContext("uuid", null);
+        assertNull(context.roundedNowInMillis());
+        context.nowInMillis();
+        assertFalse(context.isCacheable());
+
+        context = createSearchExecutionContext("uuid", null);
+        TimeValue rounding = TimeValue.timeValueMinutes(randomIntBetween(1, 60));
+        context.setNowRounding(rounding);
+        assertNull(context.usedRoundedNowInMillis());
+        long roundedNow = context.nowInMillis();
+        assertThat(roundedNow % rounding.millis(), equalTo(0L));
+        assertThat(context.roundedNowInMillis(), equalTo(roundedNow));
+        assertThat(context.usedRoundedNowInMillis(), equalTo(roundedNow));
+        assertTrue(context.isCacheable());
+
+        // the rounded now may still be used once the context is frozen
+        context.freezeContext();
+        assertThat(context.nowInMillis(), equalTo(roundedNow));
+        assertThat(new SearchExecutionContext(context).nowInMillis(), equalTo(roundedNow));
+    }
+
     public void testIndexSortedOnField() {
         Settings settings = Settings.builder()
             .put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
@@ -67,6 +67,25 @@ public class LocalCheckpointTrackerTests extends ESTestCase {
         assertThat(tracker.getMaxSeqNo(), equalTo(2L));
     }
 
+    public void testMarkBatchAsProcessed() {
+        final int numOps = randomIntBetween(1, 100);
+        final long[] seqNos = new long[numOps];
+        for (int i = 0; i < numOps; i++) {
+            seqNos[i] = tracker.generateSeqNo();
+        }
+        final int gap = randomIntBetween(0, numOps - 1);
+        final long[] withGap = new long[numOps - 1];
+        System.arraycopy(seqNos, 0, withGap, 0, gap);
+        System.arraycopy(seqNos, gap + 1, withGap, gap, numOps - 1 - gap);
+        tracker.markSeqNosAsProcessed(withGap);
+        assertThat(tracker.getProcessedCheckpoint(), equalTo(gap - 1L));
+        assertThat(tracker.hasProcessed(seqNos[gap]), equalTo(false));
+        tracker.markSeqNosAsProcessed(new long[] { seqNos[gap] });
+        assertThat(tracker.getProcessedCheckpoint(), equalTo(numOps - 1L));
+        assertThat(tracker.getPersistedCheckpoint(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        assertThat(tracker.getMaxSeqNo(), equalTo(numOps - 1L));
+    }
+
     public void testSimplePrimaryPersisted() {
         long seqNo1, seqNo2;
         assertThat(tracker.getPersistedCheckpoint(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
@@ -0,0 +1,101 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class AdaptiveRefreshPolicyTests extends ESTestCase {
+
+    private static final TimeValue INTERVAL = TimeValue.timeValueSeconds(1);
+    private static final TimeValue MAX_INTERVAL = TimeValue.timeValueSeconds(30);
+
+    public void testDisabled() {
+        final AtomicLong now = new AtomicLong();
+        final AdaptiveRefreshPolicy policy = new AdaptiveRefreshPolicy(now::get);
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(INTERVAL.millis());
+            assertTrue(policy.shouldRefresh(INTERVAL, TimeValue.MINUS_ONE, 0));
+            assertTrue(policy.shouldRefresh(INTERVAL, INTERVAL, 0));
+        }
+        assertThat(policy.skippedCount(), equalTo(0L));
+        assertThat(policy.currentIntervalMillis(), equalTo(-1L));
+    }
+
+    public void testStretchesIntervalWithoutSearches() {
+        final AtomicLong now = new AtomicLong();
+        final AdaptiveRefreshPolicy policy = new AdaptiveRefreshPolicy(now::get);
+        int refreshes = 0;
+        for (int i = 0; i < 60; i++) {
+            now.addAndGet(INTERVAL.millis());
+            if (policy.shouldRefresh(INTERVAL, MAX_INTERVAL, 0)) {
+                refresh(policy);
+                refreshes++;
+            }
+        }
+        // nobody searches, so we only refresh every max interval
+        assertThat(refreshes, equalTo(2));
+        assertThat(policy.skippedCount(), equalTo(58L));
+        assertThat(policy.currentIntervalMillis(), equalTo(MAX_INTERVAL.millis()));
+    }
+
+    public void testFollowsSearchRate() {
+        final AtomicLong now = new AtomicLong();
+        final AdaptiveRefreshPolicy policy = new AdaptiveRefreshPolicy(now::get);
+        for (int i = 0; i < 100; i++) {
+            now.addAndGet(INTERVAL.millis());
+            if (i % 5 == 0) {
+                policy.onSearch();
+            }
+            if (policy.shouldRefresh(INTERVAL, MAX_INTERVAL, 0)) {
+                refresh(policy);
+            }
+        }
+        // roughly one refresh per search
+        assertThat(policy.currentIntervalMillis(), greaterThan(INTERVAL.millis()));
+        assertThat(policy.currentIntervalMillis(), lessThan(MAX_INTERVAL.millis()));
+
+        // frequent searches bring the interval back to the configured one
+        for (int i = 0; i < 20; i++) {
+            now.addAndGet(INTERVAL.millis());
+            for (int j = 0; j < 10; j++) {
+                policy.onSearch();
+            }
+            if (policy.shouldRefresh(INTERVAL, MAX_INTERVAL, 0)) {
+                refresh(policy);
+            }
+        }
+        assertThat(policy.currentIntervalMillis(), equalTo(INTERVAL.millis()));
+        now.addAndGet(INTERVAL.millis());
+        assertTrue(policy.shouldRefresh(INTERVAL, MAX_INTERVAL, 0));
+    }
+
+    public void testLargeIndexingBufferUsesConfiguredInterval() {
+        final AtomicLong now = new AtomicLong();
+        final AdaptiveRefreshPolicy policy = new AdaptiveRefreshPolicy(now::get);
+        now.addAndGet(INTERVAL.millis());
+        assertTrue(policy.shouldRefresh(INTERVAL, MAX_INTERVAL, AdaptiveRefreshPolicy.LARGE_BUFFER_BYTES));
+        assertThat(policy.currentIntervalMillis(), equalTo(INTERVAL.millis()));
+        refresh(policy);
+        now.addAndGet(INTERVAL.millis());
+        assertFalse(policy.shouldRefresh(INTERVAL, MAX_INTERVAL, randomLongBetween(0, AdaptiveRefreshPolicy.LARGE_BUFFER_BYTES - 1)));
+        assertThat(policy.skippedCount(), equalTo(1L));
+    }
+
+    private static void refresh(AdaptiveRefreshPolicy policy) {
+        policy.beforeRefresh();
+        policy.afterRefresh(true);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TranslogGroupSyncerTests extends ESTestCase {
+
+    public void testBatchesLocationsWhileSyncIsPending() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<List<Translog.Location>> syncedBatches = new ArrayList<>();
+        final TranslogGroupSyncer syncer = new TranslogGroupSyncer(logger, new ThreadContext(Settings.EMPTY), tasks::add,
+            locations -> syncedBatches.add(locations.collect(Collectors.toList())));
+
+        final int numLocations = randomIntBetween(1, 100);
+        final AtomicInteger notified = new AtomicInteger();
+        final List<Translog.Location> locations = new ArrayList<>();
+        for (int i = 0; i < numLocations; i++) {
+            final Translog.Location location = new Translog.Location(1, i * 10, 10);
+            locations.add(location);
+            syncer.sync(location, e -> {
+                assertThat(e, nullValue());
+                notified.incrementAndGet();
+            });
+        }
+        // nothing is synced on the calling thread and only a single sync task is scheduled
+        assertThat(tasks.size(), equalTo(1));
+        assertThat(notified.get(), equalTo(0));
+        assertThat(syncer.pendingCount(), equalTo(numLocations));
+
+        tasks.remove(0).run();
+        assertThat(syncedBatches.size(), equalTo(1));
+        assertThat(syncedBatches.get(0), equalTo(locations));
+        assertThat(notified.get(), equalTo(numLocations));
+        assertThat(syncer.pendingCount(), equalTo(0));
+        assertThat(tasks.size(), equalTo(0));
+    }
+
+    public void testReschedulesForLocationsArrivingDuringSync() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final AtomicReference<TranslogGroupSyncer> syncerRef = new AtomicReference<>();
+        final List<Translog.Location> maxSynced = new CopyOnWriteArrayList<>();
+        final Translog.Location late = new Translog.Location(2, 0, 10);
+        final AtomicInteger notified = new AtomicInteger();
+        syncerRef.set(new TranslogGroupSyncer(logger, new ThreadContext(Settings.EMPTY), tasks::add, locations -> {
+            maxSynced.add(locations.max(Comparator.naturalOrder()).get());
+            if (maxSynced.size() == 1) {
+                syncerRef.get().sync(late, e -> notified.incrementAndGet());
+            }
+        }));
+        final Translog.Location early = new Translog.Location(1, 0, 10);
+        syncerRef.get().sync(early, e -> notified.incrementAndGet());
+
+        assertThat(tasks.size(), equalTo(1));
+        tasks.remove(0).run();
+        assertThat(notified.get(), equalTo(1));
+        assertThat(tasks.size(), equalTo(1));
+        tasks.remove(0).run();
+        assertThat(notified.get(), equalTo(2));
+        assertThat(maxSynced, contains(early, late));
+        assertThat(tasks.size(), equalTo(0));
+    }
+
+    public void testFailureIsPassedToAllListeners() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final TranslogGroupSyncer syncer = new TranslogGroupSyncer(logger, new ThreadContext(Settings.EMPTY), tasks::add,
+            locations -> {
+                throw new IOException("boom");
+            });
+        final int numLocations = randomIntBetween(1, 10);
+        final AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < numLocations; i++) {
+            syncer.sync(new Translog.Location(1, i, 1), e -> {
+                assertThat(e, instanceOf(IOException.class));
+                failed.incrementAndGet();
+            });
+        }
+        tasks.remove(0).run();
+        assertThat(failed.get(), equalTo(numLocations));
+    }
+
+    public void testRejectedExecutionFailsPendingListeners() {
+        final TranslogGroupSyncer syncer = new TranslogGroupSyncer(logger, new ThreadContext(Settings.EMPTY), r -> {
+            throw new EsRejectedExecutionException("rejected", true);
+        }, locations -> fail("should not sync"));
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        syncer.sync(new Translog.Location(1, 0, 1), failure::set);
+        assertThat(failure.get(), instanceOf(EsRejectedExecutionException.class));
+        assertThat(syncer.pendingCount(), equalTo(0));
+    }
+
+    public void testPreservesThreadContext() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final TranslogGroupSyncer syncer = new TranslogGroupSyncer(logger, threadContext, tasks::add, locations -> {});
+        final AtomicReference<String> header = new AtomicReference<>();
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            threadContext.putHeader("test", "value");
+            syncer.sync(new Translog.Location(1, 0, 1), e -> header.set(threadContext.getHeader("test")));
+        }
+        tasks.remove(0).run();
+        assertThat(header.get(), equalTo("value"));
+    }
+
+    public void testNullArguments() {
+        final TranslogGroupSyncer syncer = new TranslogGroupSyncer(logger, new ThreadContext(Settings.EMPTY), Runnable::run,
+            locations -> {});
+        expectThrows(NullPointerException.class, () -> syncer.sync(null, e -> {}));
+        expectThrows(NullPointerException.class, () -> syncer.sync(new Translog.Location(1, 0, 1), null));
+    }
+}
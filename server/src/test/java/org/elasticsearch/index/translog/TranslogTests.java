@@ -129,6 +129,7 @@ import static org.hamcrest.Matchers.hasToString;
 import static org.hamcrest.Matchers.in;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
@@ -357,6 +358,134 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testMemoryMappedSnapshots() throws IOException {
+        final Path path = createTempDir();
+        final Settings settings = Settings.builder()
+            .put(IndexMetadata.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_MEMORY_MAPPED_READS_SETTING.getKey(), true)
+            .build();
+        final TranslogConfig config = getTranslogConfig(path, settings);
+        final String translogUUID = Translog.createEmptyTranslog(path, SequenceNumbers.NO_OPS_PERFORMED, shardId, primaryTerm.get());
+        try (Translog mmapTranslog = new Translog(config, translogUUID, new TranslogDeletionPolicy(),
+                () -> SequenceNumbers.NO_OPS_PERFORMED, primaryTerm::get, seqNo -> {})) {
+            final List<Translog.Operation> ops = new ArrayList<>();
+            final int numOps = randomIntBetween(1, 200);
+            for (int i = 0; i < numOps; i++) {
+                final byte[] source = randomByteArrayOfLength(randomIntBetween(1, 4096));
+                addToTranslogAndList(mmapTranslog, ops, new Translog.Index(Integer.toString(i), i, primaryTerm.get(), source));
+                if (rarely()) {
+                    mmapTranslog.rollGeneration();
+                }
+            }
+            try (Translog.Snapshot snapshot = mmapTranslog.newSnapshot()) {
+                assertThat(snapshot, containsOperationsInAnyOrder(ops));
+                assertThat(snapshot.totalOperations(), equalTo(ops.size()));
+            }
+            // operations appended after the snapshot was taken are picked up by the next one
+            addToTranslogAndList(mmapTranslog, ops, new Translog.Delete("0", numOps, primaryTerm.get()));
+            try (Translog.Snapshot snapshot = mmapTranslog.newSnapshot()) {
+                assertThat(snapshot, containsOperationsInAnyOrder(ops));
+            }
+        }
+    }
+
+    public void testCompressedSource() throws IOException {
+        final Path path = createTempDir();
+        final Settings settings = Settings.builder()
+            .put(IndexMetadata.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SOURCE_SETTING.getKey(), true)
+            .build();
+        final TranslogConfig config = getTranslogConfig(path, settings);
+        final String translogUUID = Translog.createEmptyTranslog(path, SequenceNumbers.NO_OPS_PERFORMED, shardId, primaryTerm.get());
+        try (Translog compressingTranslog = new Translog(config, translogUUID, new TranslogDeletionPolicy(),
+                () -> SequenceNumbers.NO_OPS_PERFORMED, primaryTerm::get, seqNo -> {})) {
+            final List<Translog.Operation> ops = new ArrayList<>();
+            final List<Translog.Location> locations = new ArrayList<>();
+            long totalSourceBytes = 0;
+            final int numOps = randomIntBetween(10, 100);
+            for (int i = 0; i < numOps; i++) {
+                final byte[] source;
+                if (i % 2 == 0) {
+                    source = ("{\"message\":\"" + "the quick brown fox ".repeat(randomIntBetween(20, 200)) + "\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+                } else {
+                    // too small or not compressible
+                    source = randomByteArrayOfLength(randomBoolean() ? randomIntBetween(1, 100) : randomIntBetween(256, 1024));
+                }
+                totalSourceBytes += source.length;
+                locations.add(addToTranslogAndList(compressingTranslog, ops,
+                    new Translog.Index(Integer.toString(i), i, primaryTerm.get(), source)));
+            }
+            if (randomBoolean()) {
+                compressingTranslog.rollGeneration();
+            }
+            assertThat(compressingTranslog.stats().getTranslogSizeInBytes(), lessThan(totalSourceBytes));
+
+            final List<Translog.Operation> readOps = new ArrayList<>();
+            for (int i = 0; i < ops.size(); i++) {
+                final Translog.Index read = (Translog.Index) compressingTranslog.readOperation(locations.get(i));
+                assertThat(read, equalTo(ops.get(i)));
+                assertThat(read.isSourceCompressed(), equalTo(i % 2 == 0));
+                readOps.add(read);
+            }
+            try (Translog.Snapshot snapshot = compressingTranslog.newSnapshot()) {
+                assertThat(snapshot, containsOperationsInAnyOrder(ops));
+            }
+
+            // compressed sources are sent as is to nodes that understand them, e.g. during peer recovery
+            final Version wireVersion = VersionUtils.randomVersionBetween(random(),
+                Version.CURRENT.minimumCompatibilityVersion(), Version.CURRENT);
+            final BytesStreamOutput out = new BytesStreamOutput();
+            out.setVersion(wireVersion);
+            Translog.writeOperations(out, readOps);
+            final StreamInput in = out.bytes().streamInput();
+            in.setVersion(wireVersion);
+            final List<Translog.Operation> received = Translog.readOperations(in, "test");
+            assertThat(received, equalTo(ops));
+            for (int i = 0; i < received.size(); i++) {
+                assertThat(((Translog.Index) received.get(i)).isSourceCompressed(),
+                    equalTo(wireVersion.onOrAfter(Version.V_8_0_0) && ((Translog.Index) readOps.get(i)).isSourceCompressed()));
+            }
+        }
+    }
+
+    public void testAddBatch() throws IOException {
+        final Set<Long> persistedSeqNos = ConcurrentCollections.newConcurrentSet();
+        persistedSeqNoConsumer.set(persistedSeqNos::add);
+        final List<Translog.Operation> ops = new ArrayList<>();
+        final List<Translog.Location> locations = new ArrayList<>();
+        final int numBatches = randomIntBetween(1, 10);
+        long seqNo = 0;
+        for (int batch = 0; batch < numBatches; batch++) {
+            final List<Translog.Operation> batchOps = new ArrayList<>();
+            final int numOps = randomIntBetween(1, 50);
+            for (int i = 0; i < numOps; i++) {
+                final byte[] source = randomByteArrayOfLength(randomIntBetween(1, 1024));
+                batchOps.add(new Translog.Index(Long.toString(seqNo), seqNo, primaryTerm.get(), source));
+                seqNo++;
+            }
+            final List<Translog.Location> batchLocations = translog.add(batchOps);
+            assertThat(batchLocations.size(), equalTo(numOps));
+            for (int i = 1; i < numOps; i++) {
+                final Translog.Location previous = batchLocations.get(i - 1);
+                assertThat(batchLocations.get(i).translogLocation, equalTo(previous.translogLocation + previous.size));
+            }
+            ops.addAll(batchOps);
+            locations.addAll(batchLocations);
+            if (rarely()) {
+                translog.rollGeneration();
+            }
+        }
+        for (int i = 0; i < ops.size(); i++) {
+            assertEquals(ops.get(i), translog.readOperation(locations.get(i)));
+        }
+        try (Translog.Snapshot snapshot = translog.newSnapshot()) {
+            assertThat(snapshot, containsOperationsInAnyOrder(ops));
+        }
+        translog.ensureSynced(locations.get(locations.size() - 1));
+        assertThat(persistedSeqNos, equalTo(LongStream.range(0, seqNo).boxed().collect(Collectors.toSet())));
+    }
+
     protected TranslogStats stats() throws IOException {
         // force flushing and updating of stats
         translog.sync();
@@ -0,0 +1,49 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class CostAwareQueryCachingPolicyTests extends ESTestCase {
+
+    public void testCostOverrulesUsage() throws IOException {
+        CostAwareQueryCachingPolicy policy = new CostAwareQueryCachingPolicy();
+        Query normal = LongPoint.newRangeQuery("normal", 0, 10);
+        Query cheap = LongPoint.newRangeQuery("cheap", 0, 10);
+        Query expensive = LongPoint.newRangeQuery("expensive", 0, 10);
+        Query unknown = LongPoint.newRangeQuery("unknown", 0, 10);
+        for (int i = 0; i < 10; i++) {
+            policy.onCache(normal, 1_000, 1_000);
+        }
+        policy.onCache(cheap, 10, 10_000);
+        policy.onCache(expensive, 10_000, 1_000);
+
+        // expensive queries are cached as soon as they are reused
+        policy.onUse(expensive);
+        assertTrue(policy.shouldCache(expensive));
+
+        // cheap queries aren't cached anymore no matter how often they are used
+        for (int i = 0; i < 10; i++) {
+            policy.onUse(cheap);
+        }
+        assertFalse(policy.shouldCache(cheap));
+
+        // the other queries are cached based on their usage, point queries are cached on their second use
+        for (Query query : new Query[] { normal, unknown }) {
+            policy.onUse(query);
+            assertFalse(policy.shouldCache(query));
+            policy.onUse(query);
+            assertTrue(policy.shouldCache(query));
+        }
+    }
+}
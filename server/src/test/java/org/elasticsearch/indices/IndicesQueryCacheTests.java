@@ -163,6 +163,46 @@ public class IndicesQueryCacheTests extends ESTestCase {
         cache.close(); // this triggers some assertions
     }
 
+    public void testQueryTypeStats() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        for (int i = 0; i < 20; ++i) {
+            assertEquals(1, s.count(new DummyQuery(i)));
+        }
+        s.count(new DummyQuery(10));
+
+        QueryCacheStats.QueryTypeStats typeStats = cache.getStats(shard).getQueryTypeStats().get("DummyQuery");
+        assertEquals(1L, typeStats.getHitCount());
+        assertEquals(20L, typeStats.getMissCount());
+        assertEquals(20L, typeStats.getCacheCount());
+        assertEquals(10L, typeStats.getEvictions());
+
+        IOUtils.close(r, dir);
+
+        // doc id sets of closed segments aren't evictions
+        typeStats = cache.getStats(shard).getQueryTypeStats().get("DummyQuery");
+        assertEquals(10L, typeStats.getEvictions());
+        assertEquals(0L, cache.getStats(shard).getCacheSize());
+
+        cache.onClose(shard);
+        cache.close(); // this triggers some assertions
+    }
+
     public void testTwoShards() throws IOException {
         Directory dir1 = newDirectory();
         IndexWriter w1 = new IndexWriter(dir1, newIndexWriterConfig());
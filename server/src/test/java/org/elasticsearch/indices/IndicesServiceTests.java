@@ -12,8 +12,11 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.admin.indices.stats.IndexShardStats;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexGraveyard;
@@ -41,6 +44,8 @@ import org.elasticsearch.index.engine.InternalEngineFactory;
 import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.Mapper;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.index.query.SearchExecutionContextTests;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
@@ -51,6 +56,9 @@ import org.elasticsearch.indices.IndicesService.ShardDeletionCheckResult;
 import org.elasticsearch.plugins.EnginePlugin;
 import org.elasticsearch.plugins.MapperPlugin;
 import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
 import org.elasticsearch.test.hamcrest.RegexMatcher;
@@ -554,4 +562,64 @@ public class IndicesServiceTests extends ESSingleNodeTestCase {
                 ".*multiple engine factories provided for \\[foobar/.*\\]: \\[.*FooEngineFactory\\],\\[.*BarEngineFactory\\].*";
         assertThat(e, hasToString(new RegexMatcher(pattern)));
     }
+
+    public void testMaybeRoundNowOnlyForRequestsThatMayBeCached() {
+        final TimeValue rounding = TimeValue.timeValueMinutes(randomIntBetween(1, 60));
+        final IndexSettings settings = IndexSettingsModule.newIndexSettings("index",
+            Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING.getKey(), rounding.getStringRep()).build());
+
+        assertTrue(roundsNow(new SearchRequest().source(new SearchSourceBuilder().size(0)), settings));
+        assertTrue(roundsNow(new SearchRequest().requestCache(true).source(new SearchSourceBuilder().size(10)), settings));
+        // hits aren't cached unless the request asks for it
+        assertFalse(roundsNow(new SearchRequest(), settings));
+        assertFalse(roundsNow(new SearchRequest().source(new SearchSourceBuilder().size(10)), settings));
+        assertFalse(roundsNow(new SearchRequest().requestCache(false).source(new SearchSourceBuilder().size(0)), settings));
+        assertFalse(roundsNow(new SearchRequest().searchType(SearchType.DFS_QUERY_THEN_FETCH)
+            .source(new SearchSourceBuilder().size(0)), settings));
+        assertFalse(roundsNow(new SearchRequest().source(new SearchSourceBuilder().size(0).profile(true)), settings));
+        assertFalse(roundsNow(new SearchRequest().scroll(TimeValue.timeValueMinutes(1))
+            .source(new SearchSourceBuilder().size(0)), settings));
+
+        final IndexSettings cacheDisabled = IndexSettingsModule.newIndexSettings("index", Settings.builder()
+            .put(IndicesRequestCache.INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING.getKey(), rounding.getStringRep())
+            .put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), false)
+            .build());
+        assertFalse(roundsNow(new SearchRequest().source(new SearchSourceBuilder().size(0)), cacheDisabled));
+        assertTrue(roundsNow(new SearchRequest().requestCache(true).source(new SearchSourceBuilder().size(0)), cacheDisabled));
+
+        final IndexSettings noRounding = IndexSettingsModule.newIndexSettings("index", Settings.EMPTY);
+        assertFalse(roundsNow(new SearchRequest().source(new SearchSourceBuilder().size(0)), noRounding));
+    }
+
+    public void testCacheKeyOnlyDependsOnNowIfUsed() throws IOException {
+        final TimeValue rounding = TimeValue.timeValueMinutes(randomIntBetween(1, 60));
+        final IndexSettings settings = IndexSettingsModule.newIndexSettings("index",
+            Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_NOW_ROUNDING_SETTING.getKey(), rounding.getStringRep()).build());
+        final ShardSearchRequest request = new ShardSearchRequest(OriginalIndices.NONE,
+            new SearchRequest().source(new SearchSourceBuilder().size(0)), new ShardId(settings.getIndex(), 0), 0, 1,
+            AliasFilter.EMPTY, 1f, randomNonNegativeLong(), null);
+
+        // every context sees a random time, so the contexts are in different intervals
+        final SearchExecutionContext first = SearchExecutionContextTests.createSearchExecutionContext("uuid", null);
+        IndicesService.maybeRoundNow(request, settings, first);
+        final SearchExecutionContext second = SearchExecutionContextTests.createSearchExecutionContext("uuid", null);
+        IndicesService.maybeRoundNow(request, settings, second);
+        assumeTrue("both contexts are in the same interval", first.roundedNowInMillis().equals(second.roundedNowInMillis()) == false);
+
+        // a request that doesn't read now is cached under the same key in every interval
+        assertEquals(request.cacheKey(), request.cacheKey(first.usedRoundedNowInMillis()));
+        assertEquals(request.cacheKey(first.usedRoundedNowInMillis()), request.cacheKey(second.usedRoundedNowInMillis()));
+
+        first.nowInMillis();
+        second.nowInMillis();
+        assertNotEquals(request.cacheKey(first.usedRoundedNowInMillis()), request.cacheKey(second.usedRoundedNowInMillis()));
+    }
+
+    private static boolean roundsNow(SearchRequest searchRequest, IndexSettings settings) {
+        final ShardSearchRequest request = new ShardSearchRequest(OriginalIndices.NONE, searchRequest,
+            new ShardId(settings.getIndex(), 0), 0, 1, AliasFilter.EMPTY, 1f, randomNonNegativeLong(), null);
+        final SearchExecutionContext context = SearchExecutionContextTests.createSearchExecutionContext("uuid", null);
+        IndicesService.maybeRoundNow(request, settings, context);
+        return context.roundedNowInMillis() != null;
+    }
 }
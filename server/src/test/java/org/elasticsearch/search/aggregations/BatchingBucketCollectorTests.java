@@ -0,0 +1,130 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class BatchingBucketCollectorTests extends ESTestCase {
+
+    private static class RecordingBucketCollector extends BucketCollector {
+        private final List<Integer> docs = new ArrayList<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private final int terminateAfter;
+        private boolean postCollected;
+
+        RecordingBucketCollector(int terminateAfter) {
+            this.terminateAfter = terminateAfter;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) {
+            return new LeafBucketCollector() {
+                int collected;
+
+                @Override
+                public void collect(int doc, long owningBucketOrd) {
+                    if (collected++ == terminateAfter) {
+                        throw new CollectionTerminatedException();
+                    }
+                    docs.add(ctx.docBase + doc);
+                }
+
+                @Override
+                public void collect(int[] docs, int count, long owningBucketOrd) throws IOException {
+                    batchSizes.add(count);
+                    super.collect(docs, count, owningBucketOrd);
+                }
+            };
+        }
+
+        @Override
+        public void preCollection() {}
+
+        @Override
+        public void postCollection() {
+            postCollected = true;
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+
+    public void testCollectsAllDocsInBatches() throws IOException {
+        try (Directory directory = newDirectory()) {
+            int numDocs = randomIntBetween(1, 1000);
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    iw.addDocument(new Document());
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                RecordingBucketCollector recording = new RecordingBucketCollector(Integer.MAX_VALUE);
+                BatchingBucketCollector batching = new BatchingBucketCollector(recording);
+                batching.preCollection();
+                searcher.search(new MatchAllDocsQuery(), batching);
+                batching.postCollection();
+
+                assertTrue(recording.postCollected);
+                assertThat(recording.docs.size(), equalTo(numDocs));
+                for (int i = 0; i < numDocs; i++) {
+                    assertThat(recording.docs.get(i), equalTo(i));
+                }
+                for (int batchSize : recording.batchSizes) {
+                    assertThat(batchSize, lessThanOrEqualTo(BatchingBucketCollector.BATCH_SIZE));
+                }
+            }
+        }
+    }
+
+    public void testTerminatedCollection() throws IOException {
+        try (Directory directory = newDirectory()) {
+            int numDocs = randomIntBetween(BatchingBucketCollector.BATCH_SIZE * 2, 1000);
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numDocs; i++) {
+                    iw.addDocument(new Document());
+                }
+                iw.forceMerge(1);
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                int terminateAfter = randomIntBetween(0, numDocs - 1);
+                RecordingBucketCollector recording = new RecordingBucketCollector(terminateAfter);
+                BatchingBucketCollector batching = new BatchingBucketCollector(recording);
+                batching.preCollection();
+                searcher.search(new MatchAllDocsQuery(), batching);
+                batching.postCollection();
+
+                assertThat(recording.docs.size(), equalTo(terminateAfter));
+            }
+        }
+    }
+}
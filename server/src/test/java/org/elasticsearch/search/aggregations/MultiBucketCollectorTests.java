@@ -234,6 +234,54 @@ public class MultiBucketCollectorTests  extends ESTestCase {
         }
     }
 
+    public void testCollectBatches() throws IOException {
+        try (Directory dir = newDirectory()) {
+            RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+            final int numDocs = randomIntBetween(100, 1000);
+            final Document doc = new Document();
+            for (int i = 0; i < numDocs; ++i) {
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                w.close();
+                Map<TotalHitCountBucketCollector, Integer> expectedCounts = new HashMap<>();
+                List<BucketCollector> collectors = new ArrayList<>();
+                final int numCollectors = randomIntBetween(1, 5);
+                for (int i = 0; i < numCollectors; ++i) {
+                    final int terminateAfter = random().nextInt(numDocs + 10);
+                    final int expectedCount = terminateAfter > numDocs ? numDocs : terminateAfter;
+                    TotalHitCountBucketCollector collector = new TotalHitCountBucketCollector();
+                    expectedCounts.put(collector, expectedCount);
+                    collectors.add(new TerminateAfterBucketCollector(collector, terminateAfter));
+                }
+                BucketCollector wrapped = MultiBucketCollector.wrap(false, collectors);
+                final int[] docs = new int[randomIntBetween(1, 64)];
+                for (LeafReaderContext ctx : reader.leaves()) {
+                    LeafBucketCollector collector = wrapped.getLeafCollector(ctx);
+                    if (collector.isNoop()) {
+                        continue;
+                    }
+                    int count = 0;
+                    try {
+                        for (int docId = 0; docId < ctx.reader().numDocs(); docId++) {
+                            docs[count++] = docId;
+                            if (count == docs.length) {
+                                collector.collect(docs, count, 0);
+                                count = 0;
+                            }
+                        }
+                        collector.collect(docs, count, 0);
+                    } catch (CollectionTerminatedException e) {
+                        // all collectors are done with the segment
+                    }
+                }
+                for (Map.Entry<TotalHitCountBucketCollector, Integer> expectedCount : expectedCounts.entrySet()) {
+                    assertEquals(expectedCount.getValue().intValue(), expectedCount.getKey().getTotalHits());
+                }
+            }
+        }
+    }
+
     public void testSetScorerAfterCollectionTerminated() throws IOException {
         BucketCollector collector1 = new TotalHitCountBucketCollector();
         BucketCollector collector2 = new TotalHitCountBucketCollector();
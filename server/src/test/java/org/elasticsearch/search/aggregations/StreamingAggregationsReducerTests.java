@@ -0,0 +1,128 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.bucket.terms.LongTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.metrics.InternalMax;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StreamingAggregationsReducerTests extends ESTestCase {
+
+    private final MockBigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+
+    public void testSameResultAsPartialReduce() {
+        List<InternalAggregations> shardResults = new ArrayList<>();
+        int numShards = randomIntBetween(2, 30);
+        for (int i = 0; i < numShards; i++) {
+            List<InternalAggregation> aggs = new ArrayList<>();
+            aggs.add(randomLongTerms("longs", false));
+            aggs.add(randomStringTerms("strings"));
+            aggs.add(new InternalMax("max", randomDouble(), DocValueFormat.RAW, emptyMap()));
+            shardResults.add(InternalAggregations.from(aggs));
+        }
+        assertSameResultAsPartialReduce(shardResults, randomIntBetween(2, 10));
+    }
+
+    public void testFallbackToReduce() {
+        List<InternalAggregations> shardResults = new ArrayList<>();
+        int numShards = randomIntBetween(2, 10);
+        for (int i = 0; i < numShards; i++) {
+            // sub-aggregations can't be streamed
+            shardResults.add(InternalAggregations.from(singletonList(randomLongTerms("longs", i == numShards - 1))));
+        }
+        try (StreamingAggregationsReducer reducer = new StreamingAggregationsReducer(bigArrays)) {
+            reducer.add(shardResults.subList(0, numShards - 1), partialReduceContext());
+            assertThat(reducer.notStreamedAggregations().asList().size(), equalTo(0));
+            reducer.add(shardResults.subList(numShards - 1, numShards), partialReduceContext());
+            assertThat(reducer.notStreamedAggregations().asList().size(), equalTo(1));
+        }
+        assertSameResultAsPartialReduce(shardResults, randomIntBetween(2, 10));
+    }
+
+    private void assertSameResultAsPartialReduce(List<InternalAggregations> shardResults, int batchSize) {
+        InternalAggregations expected = null;
+        InternalAggregations actual;
+        try (StreamingAggregationsReducer reducer = new StreamingAggregationsReducer(bigArrays)) {
+            for (int from = 0; from < shardResults.size(); from += batchSize) {
+                List<InternalAggregations> batch = shardResults.subList(from, Math.min(from + batchSize, shardResults.size()));
+                reducer.add(batch, partialReduceContext());
+                // the regular reduce modifies the doc count errors of its inputs so it runs last
+                List<InternalAggregations> toReduce = new ArrayList<>(batch);
+                if (expected != null) {
+                    toReduce.add(0, expected);
+                }
+                expected = InternalAggregations.topLevelReduce(toReduce, partialReduceContext());
+            }
+            actual = reducer.materialize();
+        }
+        ReduceContext finalReduceContext = ReduceContext.forFinalReduction(BigArrays.NON_RECYCLING_INSTANCE, null, b -> {},
+            PipelineTree.EMPTY);
+        InternalAggregations expectedFinal = InternalAggregations.topLevelReduce(singletonList(expected), finalReduceContext);
+        InternalAggregations actualFinal = InternalAggregations.topLevelReduce(singletonList(actual), finalReduceContext);
+        for (Aggregation aggregation : expectedFinal) {
+            assertThat(actualFinal.get(aggregation.getName()), equalTo(aggregation));
+        }
+        assertThat(actualFinal.asList().size(), equalTo(expectedFinal.asList().size()));
+    }
+
+    private static ReduceContext partialReduceContext() {
+        return ReduceContext.forPartialReduction(BigArrays.NON_RECYCLING_INSTANCE, null, () -> PipelineTree.EMPTY);
+    }
+
+    private static LongTerms randomLongTerms(String name, boolean withSubAggs) {
+        TreeSet<Long> keys = new TreeSet<>();
+        int numBuckets = randomIntBetween(withSubAggs ? 1 : 0, 20);
+        for (int i = 0; i < numBuckets; i++) {
+            keys.add(randomLongBetween(0, 50));
+        }
+        List<LongTerms.Bucket> buckets = new ArrayList<>();
+        for (long key : keys) {
+            InternalAggregations subAggs = withSubAggs
+                ? InternalAggregations.from(singletonList(new InternalMax("sub", randomDouble(), DocValueFormat.RAW, emptyMap())))
+                : InternalAggregations.EMPTY;
+            buckets.add(new LongTerms.Bucket(key, randomLongBetween(1, 100), subAggs, false, 0, DocValueFormat.RAW));
+        }
+        return new LongTerms(name, BucketOrder.key(true), BucketOrder.count(false), 10, 1, emptyMap(), DocValueFormat.RAW, 25,
+            false, randomLongBetween(0, 100), buckets, 0);
+    }
+
+    private static StringTerms randomStringTerms(String name) {
+        TreeSet<BytesRef> keys = new TreeSet<>();
+        int numBuckets = randomIntBetween(0, 20);
+        for (int i = 0; i < numBuckets; i++) {
+            keys.add(new BytesRef(randomAlphaOfLength(2)));
+        }
+        List<StringTerms.Bucket> buckets = new ArrayList<>();
+        for (BytesRef key : keys) {
+            buckets.add(new StringTerms.Bucket(key, randomLongBetween(1, 100), InternalAggregations.EMPTY, false, 0,
+                DocValueFormat.RAW));
+        }
+        // ordered by key, so that partial reductions prune the buckets
+        return new StringTerms(name, BucketOrder.key(true), BucketOrder.key(true), 10, 0, emptyMap(), DocValueFormat.RAW, 25, false,
+            randomLongBetween(0, 100), buckets, 0);
+    }
+}
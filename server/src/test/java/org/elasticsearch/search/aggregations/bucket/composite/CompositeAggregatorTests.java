@@ -55,6 +55,7 @@ import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.mapper.ObjectMapper;
 import org.elasticsearch.index.mapper.SeqNoFieldMapper;
 import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.flattened.FlattenedFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
@@ -88,6 +89,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -106,7 +108,7 @@ public class CompositeAggregatorTests  extends AggregatorTestCase {
     @Before
     public void setUp() throws Exception {
         super.setUp();
-        FIELD_TYPES = new MappedFieldType[8];
+        FIELD_TYPES = new MappedFieldType[9];
         FIELD_TYPES[0] = new KeywordFieldMapper.KeywordFieldType("keyword");
         FIELD_TYPES[1] = new NumberFieldMapper.NumberFieldType("long", NumberFieldMapper.NumberType.LONG);
         FIELD_TYPES[2] = new NumberFieldMapper.NumberFieldType("double", NumberFieldMapper.NumberType.DOUBLE);
@@ -115,6 +117,8 @@ public class CompositeAggregatorTests  extends AggregatorTestCase {
         FIELD_TYPES[5] = new KeywordFieldMapper.KeywordFieldType("terms");
         FIELD_TYPES[6] = new IpFieldMapper.IpFieldType("ip");
         FIELD_TYPES[7] = new GeoPointFieldMapper.GeoPointFieldType("geo_point");
+        FIELD_TYPES[8] = new FlattenedFieldMapper.RootFlattenedFieldType("flattened", true, true, Collections.emptyMap(), false, false)
+            .getChildFieldType("key");
 
         objectMappers = new ArrayList<>();
     }
@@ -2435,6 +2439,75 @@ public class CompositeAggregatorTests  extends AggregatorTestCase {
         );
     }
 
+    /**
+     * Pages through the buckets with after keys and a query that doesn't match all documents, which filters the documents
+     * before the after key with a query on the field of the first source when it can, and checks that the pages add up to
+     * the buckets that are built without an after key.
+     */
+    public void testPagingWithAfterKeyAndQuery() throws IOException {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        final int numDocs = randomIntBetween(50, 200);
+        for (int i = 0; i < numDocs; i++) {
+            final List<Object> fields = new ArrayList<>(Arrays.asList("price", randomIntBetween(0, 100)));
+            if (randomBoolean()) {
+                fields.addAll(Arrays.asList("keyword", randomAlphaOfLength(1)));
+            }
+            if (randomBoolean()) {
+                fields.addAll(Arrays.asList("long", randomLongBetween(-50, 50)));
+            }
+            if (randomBoolean()) {
+                // whole days so that the after keys that are formatted with the date format of the field don't lose precision
+                fields.addAll(Arrays.asList("date", TimeUnit.DAYS.toMillis(randomIntBetween(0, 60))));
+            }
+            if (randomBoolean()) {
+                // keyed flattened fields index the key in front of every value
+                fields.addAll(Arrays.asList("flattened._keyed", "key\0" + randomAlphaOfLength(1)));
+            }
+            dataset.add(createDocument(fields.toArray()));
+        }
+        final Query query = IntPoint.newRangeQuery("price", 10, 80);
+        final List<Supplier<CompositeValuesSourceBuilder<?>>> sources = Arrays.asList(
+            () -> new TermsValuesSourceBuilder("keyword").field("keyword"),
+            () -> new TermsValuesSourceBuilder("long").field("long"),
+            () -> new TermsValuesSourceBuilder("date").field("date"),
+            () -> new DateHistogramValuesSourceBuilder("date").field("date").calendarInterval(DateHistogramInterval.WEEK),
+            () -> new TermsValuesSourceBuilder("flattened").field("flattened._keyed")
+        );
+        for (Supplier<CompositeValuesSourceBuilder<?>> source : sources) {
+            for (SortOrder order : SortOrder.values()) {
+                final Supplier<CompositeValuesSourceBuilder<?>> orderedSource = () -> source.get().order(order);
+                final List<String> expected = new ArrayList<>();
+                executeTestCase(false, false, query, dataset,
+                    () -> new CompositeAggregationBuilder("name", Collections.singletonList(orderedSource.get())).size(numDocs),
+                    result -> {
+                        for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                            expected.add(bucket.getKeyAsString() + "=" + bucket.getDocCount());
+                        }
+                    }
+                );
+                assertFalse(expected.isEmpty());
+
+                final int size = randomIntBetween(1, 5);
+                final List<String> actual = new ArrayList<>();
+                final AtomicReference<Map<String, Object>> afterKey = new AtomicReference<>();
+                do {
+                    final Map<String, Object> after = afterKey.get();
+                    executeTestCase(false, false, query, dataset,
+                        () -> new CompositeAggregationBuilder("name", Collections.singletonList(orderedSource.get()))
+                            .aggregateAfter(after).size(size),
+                        result -> {
+                            for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                                actual.add(bucket.getKeyAsString() + "=" + bucket.getDocCount());
+                            }
+                            afterKey.set(result.getBuckets().isEmpty() ? null : result.afterKey());
+                        }
+                    );
+                } while (afterKey.get() != null);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
     public void testIndexSortWithDuplicate() throws Exception {
         final List<Map<String, List<Object>>> dataset = new ArrayList<>();
         dataset.addAll(
@@ -8,6 +8,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.composite;
 
+import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -16,7 +17,10 @@ import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.mapper.IpFieldMapper;
 import org.elasticsearch.index.mapper.KeywordFieldMapper;
@@ -25,6 +29,7 @@ import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.test.ESTestCase;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -233,6 +238,107 @@ public class SingleDimensionValuesSourceTests extends ESTestCase {
         }
     }
 
+    public void testAfterQuery() {
+        MappedFieldType keyword = new KeywordFieldMapper.KeywordFieldType("keyword");
+        GlobalOrdinalValuesSource ordinalsSource = new GlobalOrdinalValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            keyword,
+            context -> null,
+            DocValueFormat.RAW,
+            false,
+            1,
+            1
+        );
+        assertNull(ordinalsSource.createAfterQueryOrNull());
+        ordinalsSource.setAfter("b");
+        assertEquals(new TermRangeQuery("keyword", new BytesRef("b"), null, true, false), ordinalsSource.createAfterQueryOrNull());
+
+        BinaryValuesSource binarySource = new BinaryValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            (b) -> {},
+            keyword,
+            context -> null,
+            DocValueFormat.RAW,
+            false,
+            1,
+            -1
+        );
+        binarySource.setAfter("b");
+        assertEquals(new TermRangeQuery("keyword", null, new BytesRef("b"), false, true), binarySource.createAfterQueryOrNull());
+
+        // the missing bucket sorts before all values
+        binarySource = new BinaryValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            (b) -> {},
+            keyword,
+            context -> null,
+            DocValueFormat.RAW,
+            true,
+            1,
+            1
+        );
+        binarySource.setAfter("b");
+        assertNull(binarySource.createAfterQueryOrNull());
+
+        MappedFieldType ip = new IpFieldMapper.IpFieldType("ip");
+        binarySource = new BinaryValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            (b) -> {},
+            ip,
+            context -> null,
+            DocValueFormat.IP,
+            false,
+            1,
+            1
+        );
+        binarySource.setAfter("192.168.0.1");
+        assertNull(binarySource.createAfterQueryOrNull());
+
+        MappedFieldType longNumber = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.LONG);
+        LongValuesSource longSource = new LongValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            longNumber,
+            context -> null,
+            value -> value,
+            DocValueFormat.RAW,
+            false,
+            1,
+            1
+        );
+        longSource.setAfter(5L);
+        assertEquals(LongPoint.newRangeQuery("number", 5, Long.MAX_VALUE), longSource.createAfterQueryOrNull());
+
+        MappedFieldType intNumber = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.INTEGER);
+        longSource = new LongValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            intNumber,
+            context -> null,
+            value -> value,
+            DocValueFormat.RAW,
+            false,
+            1,
+            1
+        );
+        longSource.setAfter(5L);
+        assertEquals(IntPoint.newRangeQuery("number", 5, Integer.MAX_VALUE), longSource.createAfterQueryOrNull());
+        longSource.setAfter((long) Integer.MAX_VALUE + 1);
+        assertThat(longSource.createAfterQueryOrNull(), instanceOf(MatchNoDocsQuery.class));
+
+        // values that sort after the after key in reverse order can be rounded to it
+        longSource = new LongValuesSource(
+            BigArrays.NON_RECYCLING_INSTANCE,
+            longNumber,
+            context -> null,
+            value -> value,
+            DocValueFormat.RAW,
+            false,
+            1,
+            -1
+        );
+        longSource.setAfter(5L);
+        assertNull(longSource.createAfterQueryOrNull());
+    }
+
     private static IndexReader mockIndexReader(int maxDoc, int numDocs) {
         IndexReader reader = mock(IndexReader.class);
         when(reader.hasDeletions()).thenReturn(maxDoc - numDocs > 0);
@@ -0,0 +1,84 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.common.Rounding;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class CachedDateHistogramBucketsTests extends ESTestCase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    public void testQueryRange() {
+        Query range = new IndexOrDocValuesQuery(
+            LongPoint.newRangeQuery("@timestamp", 10, 20),
+            SortedNumericDocValuesField.newSlowRangeQuery("@timestamp", 10, 20)
+        );
+        assertThat(CachedDateHistogramBuckets.queryRange(range, "@timestamp"), equalTo(new long[] { 10, 20 }));
+        assertThat(
+            CachedDateHistogramBuckets.queryRange(new ConstantScoreQuery(range), "@timestamp"),
+            equalTo(new long[] { 10, 20 })
+        );
+        Query filtered = new BooleanQuery.Builder().add(range, Occur.FILTER).build();
+        assertThat(CachedDateHistogramBuckets.queryRange(filtered, "@timestamp"), equalTo(new long[] { 10, 20 }));
+        assertThat(
+            CachedDateHistogramBuckets.queryRange(new MatchAllDocsQuery(), "@timestamp"),
+            equalTo(new long[] { Long.MIN_VALUE, Long.MAX_VALUE })
+        );
+
+        // ranges on other fields and other restrictions of the matches can't use cached buckets
+        assertNull(CachedDateHistogramBuckets.queryRange(range, "other"));
+        Query restricted = new BooleanQuery.Builder().add(range, Occur.FILTER)
+            .add(new TermQuery(new Term("host", "a")), Occur.FILTER)
+            .build();
+        assertNull(CachedDateHistogramBuckets.queryRange(restricted, "@timestamp"));
+        Query excluded = new BooleanQuery.Builder().add(range, Occur.MUST_NOT).build();
+        assertNull(CachedDateHistogramBuckets.queryRange(excluded, "@timestamp"));
+    }
+
+    public void testCoveredRange() {
+        Rounding.Prepared rounding = Rounding.builder(Rounding.DateTimeUnit.HOUR_OF_DAY).build().prepare(0, 100 * HOUR);
+
+        // only the hours that are entirely within the range are covered
+        assertThat(
+            CachedDateHistogramBuckets.coveredRange(rounding, new long[] { 10 * HOUR + 1, 20 * HOUR }, 0, 100 * HOUR),
+            equalTo(new long[] { 11 * HOUR, 20 * HOUR })
+        );
+        assertThat(
+            CachedDateHistogramBuckets.coveredRange(rounding, new long[] { 10 * HOUR, 20 * HOUR - 1 }, 0, 100 * HOUR),
+            equalTo(new long[] { 10 * HOUR, 20 * HOUR })
+        );
+
+        // the range is open where there are no values outside of it
+        assertThat(
+            CachedDateHistogramBuckets.coveredRange(rounding, new long[] { 0, 20 * HOUR }, 5 * HOUR + 1, 100 * HOUR),
+            equalTo(new long[] { Long.MIN_VALUE, 20 * HOUR })
+        );
+        assertThat(
+            CachedDateHistogramBuckets.coveredRange(rounding, new long[] { 10 * HOUR, Long.MAX_VALUE }, 0, 100 * HOUR),
+            equalTo(new long[] { 10 * HOUR, Long.MAX_VALUE })
+        );
+
+        // ranges within a single hour or outside of the values of the shard don't cover anything
+        assertNull(CachedDateHistogramBuckets.coveredRange(rounding, new long[] { 10 * HOUR + 1, 11 * HOUR }, 0, 100 * HOUR));
+        assertNull(CachedDateHistogramBuckets.coveredRange(rounding, new long[] { 200 * HOUR, 300 * HOUR }, 0, 100 * HOUR));
+    }
+}
@@ -14,6 +14,7 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
@@ -21,11 +22,15 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.core.CheckedConsumer;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.time.DateFormatters;
 import org.elasticsearch.index.mapper.BooleanFieldMapper;
+import org.elasticsearch.index.mapper.CustomTermFreqField;
 import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.DocCountFieldMapper;
 import org.elasticsearch.index.mapper.FieldNamesFieldMapper;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -41,18 +46,22 @@ import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper
 import org.hamcrest.Matcher;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
@@ -63,6 +72,8 @@ public class DateHistogramAggregatorTests extends DateHistogramAggregatorTestCas
      */
     private static final String SEARCHABLE_DATE = "searchable_date";
 
+    private AggregationContext.ShardResultCache shardResultCache;
+
     private static final List<String> DATASET = Arrays.asList(
             "2010-03-12T01:07:45",
             "2010-04-27T03:43:34",
@@ -1277,6 +1288,185 @@ public class DateHistogramAggregatorTests extends DateHistogramAggregatorTestCas
         }, ft, fnft);
     }
 
+    public void testCountFromPoints() throws IOException {
+        AggregationBuilder builder = new DateHistogramAggregationBuilder("d").field("f").fixedInterval(new DateHistogramInterval("1m"));
+        long start = DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parseMillis("2020-01-01T00:00:00");
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        int[] docCounts = new int[1000];
+        for (int i = 0; i < docCounts.length; i++) {
+            docCounts[i] = randomIntBetween(1, 5);
+        }
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> {
+            for (int i = 0; i < docCounts.length; i++) {
+                for (int d = 0; d < docCounts[i]; d++) {
+                    long date = start + i * minute + randomLongBetween(0, minute - 1);
+                    iw.addDocument(List.of(new LongPoint("f", date), new NumericDocValuesField("f", date)));
+                }
+            }
+            for (int i = 0; i < 10; i++) {
+                iw.addDocument(List.of());
+            }
+        };
+        DateFieldMapper.DateFieldType ft = new DateFieldMapper.DateFieldType("f");
+        withAggregator(builder, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            assertThat(aggregator, instanceOf(DateHistogramAggregator.class));
+            aggregator.preCollection();
+            for (LeafReaderContext ctx : searcher.getIndexReader().leaves()) {
+                LeafBucketCollector leafCollector = aggregator.getLeafCollector(ctx);
+                assertTrue(leafCollector.isNoop());
+            }
+            Map<String, Object> debug = new HashMap<>();
+            aggregator.collectDebugInfo(debug::put);
+            assertThat(debug, hasEntry("segments_counted_from_points", searcher.getIndexReader().leaves().size()));
+        }, ft);
+        testCase(builder, new MatchAllDocsQuery(), buildIndex, (InternalDateHistogram result) -> {
+            assertThat(result.getBuckets(), hasSize(docCounts.length));
+            for (int i = 0; i < docCounts.length; i++) {
+                assertThat(result.getBuckets().get(i).getKey(), equalTo(Instant.ofEpochMilli(start + i * minute).atZone(ZoneOffset.UTC)));
+                assertThat(result.getBuckets().get(i).getDocCount(), equalTo((long) docCounts[i]));
+            }
+        }, ft);
+
+        // a range on the field only counts the points within it
+        long from = start + 100 * minute + minute / 2;
+        long to = start + 200 * minute - 1;
+        CheckedConsumer<RandomIndexWriter, IOException> buildRangeIndex = iw -> {
+            for (long date = start; date < start + 300 * minute; date += minute / 4) {
+                iw.addDocument(List.of(new LongPoint("f", date), new NumericDocValuesField("f", date)));
+            }
+        };
+        testCase(builder, LongPoint.newRangeQuery("f", from, to), buildRangeIndex, (InternalDateHistogram result) -> {
+            assertThat(result.getBuckets(), hasSize(100));
+            assertThat(result.getBuckets().get(0).getDocCount(), equalTo(2L));
+            for (int i = 1; i < 100; i++) {
+                assertThat(result.getBuckets().get(i).getDocCount(), equalTo(4L));
+            }
+        }, ft);
+    }
+
+    public void testMultiValuedDocsAreNotCountedFromPoints() throws IOException {
+        AggregationBuilder builder = new DateHistogramAggregationBuilder("d").field("f").fixedInterval(new DateHistogramInterval("1m"));
+        long start = DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parseMillis("2020-01-01T00:00:00");
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> {
+            for (int i = 0; i < 1000; i++) {
+                long date = start + i * minute;
+                iw.addDocument(
+                    List.of(
+                        new LongPoint("f", date),
+                        new SortedNumericDocValuesField("f", date),
+                        new LongPoint("f", date + 1),
+                        new SortedNumericDocValuesField("f", date + 1)
+                    )
+                );
+            }
+        };
+        DateFieldMapper.DateFieldType ft = new DateFieldMapper.DateFieldType("f");
+        testCase(builder, new MatchAllDocsQuery(), buildIndex, (InternalDateHistogram result) -> {
+            assertThat(result.getBuckets(), hasSize(1000));
+            for (InternalDateHistogram.Bucket bucket : result.getBuckets()) {
+                // both values of a document round to the same bucket so it is counted once
+                assertThat(bucket.getDocCount(), equalTo(1L));
+            }
+        }, ft);
+    }
+
+    public void testCachedBucketsMatchCollectedBuckets() throws IOException {
+        long start = DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parseMillis("2020-01-01T00:00:00");
+        long hour = TimeUnit.HOURS.toMillis(1);
+        DateFieldMapper.DateFieldType ft = new DateFieldMapper.DateFieldType("f");
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+            int numDocs = randomIntBetween(100, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                List<IndexableField> doc = new ArrayList<>();
+                // some documents have values in several buckets, some have several values in the same bucket
+                int numValues = randomIntBetween(0, 3);
+                for (int v = 0; v < numValues; v++) {
+                    long date = start + randomLongBetween(0, 100 * hour - 1);
+                    doc.add(new LongPoint("f", date));
+                    doc.add(new SortedNumericDocValuesField("f", date));
+                }
+                if (randomBoolean()) {
+                    doc.add(new CustomTermFreqField(DocCountFieldMapper.NAME, DocCountFieldMapper.NAME, randomIntBetween(1, 5)));
+                }
+                iw.addDocument(doc);
+                if (rarely()) {
+                    iw.commit();
+                }
+            }
+            try (IndexReader reader = iw.getReader()) {
+                IndexSearcher searcher = newIndexSearcher(reader);
+                Map<BytesReference, BytesReference> cache = new HashMap<>();
+                int[] loads = new int[1];
+                AggregationContext.ShardResultCache shardResultCache = (key, loader) -> {
+                    BytesReference cached = cache.get(key);
+                    if (cached == null) {
+                        loads[0]++;
+                        BytesStreamOutput out = new BytesStreamOutput();
+                        loader.accept(out);
+                        cached = out.bytes();
+                        cache.put(key, cached);
+                    }
+                    return cached;
+                };
+                for (int iteration = 0; iteration < 10; iteration++) {
+                    // the first query covers the whole shard so the buckets of the shard are always loaded
+                    Query query = iteration == 0 ? new MatchAllDocsQuery()
+                        : LongPoint.newRangeQuery("f", start + randomLongBetween(-10 * hour, 110 * hour),
+                            start + randomLongBetween(-10 * hour, 110 * hour));
+                    DateHistogramAggregationBuilder builder = new DateHistogramAggregationBuilder("d").field("f")
+                        .fixedInterval(new DateHistogramInterval("1h"));
+                    if (randomBoolean()) {
+                        long min = start + randomLongBetween(-10 * hour, 110 * hour);
+                        builder.hardBounds(new LongBounds(min, min + randomLongBetween(0, 50 * hour)));
+                    }
+                    InternalDateHistogram collected = searchWithShardResultCache(searcher, query, builder, ft, null);
+                    InternalDateHistogram cached = searchWithShardResultCache(searcher, query, builder, ft, shardResultCache);
+                    assertThat(
+                        cached.getBuckets().stream().map(b -> b.getKeyAsString() + "=" + b.getDocCount()).collect(toList()),
+                        equalTo(collected.getBuckets().stream().map(b -> b.getKeyAsString() + "=" + b.getDocCount()).collect(toList()))
+                    );
+                }
+                assertThat(loads[0], equalTo(1));
+            }
+        }
+    }
+
+    private InternalDateHistogram searchWithShardResultCache(
+        IndexSearcher searcher,
+        Query query,
+        AggregationBuilder builder,
+        DateFieldMapper.DateFieldType ft,
+        AggregationContext.ShardResultCache shardResultCache
+    ) throws IOException {
+        this.shardResultCache = shardResultCache;
+        AggregationContext context;
+        try {
+            context = createAggregationContext(searcher, query, ft);
+        } finally {
+            this.shardResultCache = null;
+        }
+        Aggregator agg = createAggregator(builder, context);
+        if (shardResultCache != null && query instanceof MatchAllDocsQuery) {
+            Map<String, Object> debug = new HashMap<>();
+            agg.collectDebugInfo(debug::put);
+            assertThat(debug, hasKey("cached_buckets"));
+        }
+        agg.preCollection();
+        searcher.search(query, agg);
+        agg.postCollection();
+        InternalDateHistogram result = (InternalDateHistogram) agg.buildTopLevel();
+        return (InternalDateHistogram) result.reduce(
+            List.of(result),
+            ReduceContext.forFinalReduction(context.bigArrays(), null, context.multiBucketConsumer(), PipelineTree.EMPTY)
+        );
+    }
+
+    @Override
+    protected AggregationContext.ShardResultCache shardResultCache() {
+        return shardResultCache;
+    }
+
     private void aggregationImplementationChoiceTestCase(
         DateFieldMapper.DateFieldType ft,
         List<String> data,
@@ -32,6 +32,9 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.core.CheckedConsumer;
@@ -111,18 +114,23 @@ import org.elasticsearch.test.geo.RandomGeoGenerator;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static java.util.Collections.singleton;
 import static java.util.stream.Collectors.toList;
@@ -132,14 +140,18 @@ import static org.elasticsearch.search.aggregations.PipelineAggregatorBuilders.b
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 
 public class TermsAggregatorTests extends AggregatorTestCase {
 
     private boolean randomizeAggregatorImpl = true;
+    private boolean forceSpill = false;
 
     // Constants for a script that returns a string
     private static final String STRING_SCRIPT_NAME = "string_script";
@@ -168,10 +180,14 @@ public class TermsAggregatorTests extends AggregatorTestCase {
                 TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = randomBoolean();
                 TermsAggregatorFactory.REMAP_GLOBAL_ORDS = randomBoolean();
             }
+            if (forceSpill || (randomizeAggregatorImpl && randomBoolean())) {
+                TermsAggregatorFactory.SPILL_THRESHOLD_IN_BYTES = 1L;
+            }
             return super.createAggregator(aggregationBuilder, context);
         } finally {
             TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = null;
             TermsAggregatorFactory.REMAP_GLOBAL_ORDS = null;
+            TermsAggregatorFactory.SPILL_THRESHOLD_IN_BYTES = null;
         }
     }
 
@@ -301,7 +317,7 @@ public class TermsAggregatorTests extends AggregatorTestCase {
     public void testManyTerms() throws Exception {
         MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
         TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name")
-            .executionHint(randomFrom(TermsAggregatorFactory.ExecutionMode.values()).toString())
+            .executionHint(randomExactExecutionHint())
             .field("string");
         testCase(aggregationBuilder, new MatchAllDocsQuery(), iw -> {
             /*
@@ -325,6 +341,215 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }, fieldType);
     }
 
+    public void testSpill() throws Exception {
+        forceSpill = true;
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
+        int numTerms = randomIntBetween(1, 500);
+        int size = randomIntBetween(1, 20);
+        Map<String, Integer> counts = new HashMap<>();
+        List<List<? extends IndexableField>> docs = new ArrayList<>();
+        for (int i = 0; i < numTerms; i++) {
+            String term = String.format(Locale.ROOT, "t%03d", i);
+            int count = randomIntBetween(1, 10);
+            counts.put(term, count);
+            for (int d = 0; d < count; d++) {
+                docs.add(doc(fieldType, term));
+            }
+        }
+        Collections.shuffle(docs, random());
+        List<String> expected = counts.keySet()
+            .stream()
+            .sorted((a, b) -> counts.get(a).equals(counts.get(b)) ? a.compareTo(b) : counts.get(b) - counts.get(a))
+            .limit(size)
+            .collect(toList());
+        long expectedOther = docs.size() - expected.stream().mapToLong(counts::get).sum();
+
+        TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name").executionHint("spill")
+            .field("string")
+            .size(size);
+        // index all of the documents into a single segment so the counts are accurate
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> iw.addDocuments(docs);
+        testCase(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (StringTerms result) -> {
+            assertThat(result.getBuckets().stream().map(StringTerms.Bucket::getKey).collect(toList()), equalTo(expected));
+            for (StringTerms.Bucket bucket : result.getBuckets()) {
+                assertThat(bucket.getDocCount(), equalTo((long) counts.get(bucket.getKeyAsString())));
+            }
+            assertThat(result.getSumOfOtherDocCounts(), equalTo(expectedOther));
+        }, fieldType);
+        withAggregator(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            assertThat(aggregator, instanceOf(SpillingStringTermsAggregator.class));
+        }, fieldType);
+
+        // sub-aggregations can't be spilled
+        aggregationBuilder.subAggregation(new TermsAggregationBuilder("sub").field("string"));
+        withAggregator(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            assertThat(aggregator, instanceOf(MapStringTermsAggregator.class));
+        }, fieldType);
+    }
+
+    public void testSpillWhenTheShardDirectoryIsReadOnly() throws Exception {
+        forceSpill = true;
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
+        int numTerms = randomIntBetween(10, 100);
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < numTerms; i++) {
+                    iw.addDocument(doc(fieldType, String.format(Locale.ROOT, "t%03d", i)));
+                }
+            }
+            // like the directories of searchable snapshots
+            Directory readOnly = new FilterDirectory(directory) {
+                @Override
+                public IndexOutput createTempOutput(String prefix, String suffix, IOContext context) {
+                    throw new UnsupportedOperationException("read-only directory");
+                }
+            };
+            try (DirectoryReader reader = DirectoryReader.open(readOnly)) {
+                IndexSearcher searcher = newIndexSearcher(reader);
+                AggregationContext context = createAggregationContext(searcher, new MatchAllDocsQuery(), fieldType);
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name").executionHint("spill")
+                    .field("string")
+                    .size(numTerms);
+                Aggregator aggregator = createAggregator(aggregationBuilder, context);
+                assertThat(aggregator, instanceOf(SpillingStringTermsAggregator.class));
+                aggregator.preCollection();
+                searcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                StringTerms result = (StringTerms) aggregator.buildTopLevel();
+                assertThat(result.getBuckets().size(), equalTo(numTerms));
+                for (StringTerms.Bucket bucket : result.getBuckets()) {
+                    assertThat(bucket.getDocCount(), equalTo(1L));
+                }
+                // the counts were spilled to the temporary directory of the node instead
+                Map<String, Object> debug = new HashMap<>();
+                aggregator.collectDebugInfo(debug::put);
+                assertThat((int) debug.get("spills"), greaterThan(0));
+                Path tmpDir = context.tmpDir();
+                try (Stream<Path> files = Files.list(tmpDir)) {
+                    assertThat(files.count(), greaterThan(0L));
+                }
+                // closing the aggregator deletes the temporary files
+                cleanupReleasables();
+                try (Stream<Path> files = Files.list(tmpDir)) {
+                    assertThat(files.count(), equalTo(0L));
+                }
+            }
+        }
+    }
+
+    public void testApproximate() throws Exception {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
+        int numHeavyHitters = randomIntBetween(1, 5);
+        int numTerms = randomIntBetween(100, 500);
+        Map<String, Integer> counts = new HashMap<>();
+        List<List<? extends IndexableField>> docs = new ArrayList<>();
+        for (int i = 0; i < numTerms; i++) {
+            String term = String.format(Locale.ROOT, "t%03d", i);
+            // the heavy hitters have more documents than all other terms together so they always keep their counter
+            int count = i < numHeavyHitters ? 1000 * (i + 1) : randomIntBetween(1, 2);
+            counts.put(term, count);
+            for (int d = 0; d < count; d++) {
+                docs.add(doc(fieldType, term));
+            }
+        }
+        Collections.shuffle(docs, random());
+
+        int shardSize = randomIntBetween(numHeavyHitters + 1, 20);
+        TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name").executionHint("approximate")
+            .field("string")
+            .size(numHeavyHitters)
+            .shardSize(shardSize);
+        // index all of the documents into a single segment so there is a single shard
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> iw.addDocuments(docs);
+        testCase(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (StringTerms result) -> {
+            assertThat(result.getBuckets(), hasSize(numHeavyHitters));
+            for (int i = 0; i < numHeavyHitters; i++) {
+                StringTerms.Bucket bucket = result.getBuckets().get(i);
+                assertThat(bucket.getKeyAsString(), equalTo(String.format(Locale.ROOT, "t%03d", numHeavyHitters - 1 - i)));
+                long actual = counts.get(bucket.getKeyAsString());
+                // the doc count never overestimates and the error bounds how much it underestimates
+                assertThat(bucket.getDocCount(), lessThanOrEqualTo(actual));
+                assertThat(bucket.getDocCount() + bucket.getDocCountError(), greaterThanOrEqualTo(actual));
+            }
+        }, fieldType);
+        withAggregator(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            assertThat(aggregator, instanceOf(ApproximateStringTermsAggregator.class));
+            aggregator.preCollection();
+            searcher.search(new MatchAllDocsQuery(), aggregator);
+            aggregator.postCollection();
+            Map<String, Object> debug = new HashMap<>();
+            aggregator.collectDebugInfo(debug::put);
+            assertThat(debug, hasEntry("counters", shardSize));
+        }, fieldType);
+
+        // only aggregations ordered by count are approximated
+        aggregationBuilder.order(BucketOrder.key(true));
+        withAggregator(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            assertThat(aggregator, instanceOf(MapStringTermsAggregator.class));
+        }, fieldType);
+    }
+
+    public void testSpaceSaving() {
+        MockBigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        try (ApproximateStringTermsAggregator.SpaceSaving counters = new ApproximateStringTermsAggregator.SpaceSaving(2, bigArrays)) {
+            Map<String, Long> actual = new HashMap<>();
+            int numValues = randomIntBetween(1, 1000);
+            for (int i = 0; i < numValues; i++) {
+                String term = randomFrom("a", "b", "c", "d", "e");
+                long count = randomLongBetween(1, 3);
+                actual.merge(term, count, Long::sum);
+                counters.add(new BytesRef(term), count);
+            }
+            Set<String> terms = new HashSet<>();
+            for (int slot = 0; slot < counters.size(); slot++) {
+                long count = counters.count(slot);
+                long error = counters.error(slot);
+                String term = counters.term(slot, new BytesRef()).utf8ToString();
+                assertTrue(terms.add(term));
+                long actualCount = actual.get(term);
+                assertThat(count - error, lessThanOrEqualTo(actualCount));
+                assertThat(count, greaterThanOrEqualTo(actualCount));
+            }
+        }
+    }
+
+    public void testApproximateKeepsTheDocCountErrorWithShardMinDocCount() throws Exception {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
+        int numTerms = randomIntBetween(50, 100);
+        List<List<? extends IndexableField>> docs = new ArrayList<>();
+        for (int i = 0; i < numTerms; i++) {
+            docs.add(doc(fieldType, String.format(Locale.ROOT, "t%03d", i)));
+        }
+        Collections.shuffle(docs, random());
+        int shardSize = randomIntBetween(2, 10);
+        TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name").executionHint("approximate")
+            .field("string")
+            .size(1)
+            .shardSize(shardSize)
+            .shardMinDocCount(2);
+        // index all of the documents into a single segment so there is a single shard
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> iw.addDocuments(docs);
+        withAggregator(aggregationBuilder, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            aggregator.preCollection();
+            searcher.search(new MatchAllDocsQuery(), aggregator);
+            aggregator.postCollection();
+            StringTerms result = (StringTerms) aggregator.buildTopLevel();
+            // every term has a single document, but terms that lost their counter may have had as many as the lowest count
+            assertThat(result.getBuckets(), hasSize(shardSize));
+            assertThat(result.getDocCountError(), greaterThan(0L));
+        }, fieldType);
+    }
+
+    /**
+     * A random execution hint that counts exactly, unlike {@code approximate} once there are more terms than counters.
+     */
+    private static String randomExactExecutionHint() {
+        return randomValueOtherThan(
+            TermsAggregatorFactory.ExecutionMode.APPROXIMATE,
+            () -> randomFrom(TermsAggregatorFactory.ExecutionMode.values())
+        ).toString();
+    }
+
     private List<IndexableField> doc(MappedFieldType ft, String... values) {
         List<IndexableField> doc = new ArrayList<IndexableField>();
         for (String v : values) {
@@ -800,7 +1025,7 @@ public class TermsAggregatorTests extends AggregatorTestCase {
                     expectedBuckets.sort(comparator);
                     int size = randomIntBetween(1, counts.size());
 
-                    String executionHint = randomFrom(TermsAggregatorFactory.ExecutionMode.values()).toString();
+                    String executionHint = randomExactExecutionHint();
                     logger.info("bucket_order={} size={} execution_hint={}", bucketOrder, size, executionHint);
                     IndexSearcher indexSearcher = newIndexSearcher(indexReader);
                     AggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name")
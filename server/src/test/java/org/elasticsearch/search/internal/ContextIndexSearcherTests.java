@@ -9,10 +9,13 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FilterDirectoryReader;
@@ -25,11 +28,16 @@ import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -37,8 +45,13 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Accountable;
@@ -55,6 +68,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.codec.TimestampRangeCodec;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.test.ESTestCase;
@@ -62,9 +76,15 @@ import org.elasticsearch.test.IndexSettingsModule;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.elasticsearch.search.internal.ContextIndexSearcher.intersectScorerAndBitSet;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableLeafReader;
@@ -175,6 +195,116 @@ public class ContextIndexSearcherTests extends ESTestCase {
         doTestContextIndexSearcher(false, true);
     }
 
+    public void testSkipsSegmentsOutsideOfTimestampRange() throws IOException {
+        try (Directory dir = newDirectory()) {
+            IndexWriterConfig iwc = new IndexWriterConfig();
+            iwc.setCodec(new TimestampRangeCodec(Codec.getDefault(), "@timestamp"));
+            iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter w = new IndexWriter(dir, iwc)) {
+                for (long timestamp = 0; timestamp < 10; timestamp++) {
+                    addTimestamp(w, timestamp);
+                }
+                w.flush();
+                for (long timestamp = 100; timestamp < 110; timestamp++) {
+                    addTimestamp(w, timestamp);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertThat(reader.leaves().size(), equalTo(2));
+                LeafReader old = reader.leaves().get(0).reader();
+                LeafReader recent = reader.leaves().get(1).reader();
+                Query range = new IndexOrDocValuesQuery(LongPoint.newRangeQuery("@timestamp", 100, 105),
+                    SortedNumericDocValuesField.newSlowRangeQuery("@timestamp", 100, 105));
+                assertTrue(SegmentRangePruner.canSkip(old, range));
+                assertFalse(SegmentRangePruner.canSkip(recent, range));
+
+                Query filtered = new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                    .add(new ConstantScoreQuery(range), BooleanClause.Occur.FILTER)
+                    .build();
+                assertTrue(SegmentRangePruner.canSkip(old, filtered));
+                Query optional = new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.SHOULD)
+                    .add(range, BooleanClause.Occur.SHOULD)
+                    .build();
+                assertFalse(SegmentRangePruner.canSkip(old, optional));
+                assertFalse(SegmentRangePruner.canSkip(old, LongPoint.newRangeQuery("other", 100, 105)));
+
+                ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                    IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true);
+                assertThat(searcher.count(filtered), equalTo(6));
+                assertThat(searcher.count(optional), equalTo(20));
+            }
+        }
+    }
+
+    public void testSearchConcurrently() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        try (Directory dir = newDirectory()) {
+            IndexWriterConfig iwc = new IndexWriterConfig();
+            iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+            int matches = 0;
+            try (IndexWriter w = new IndexWriter(dir, iwc)) {
+                // more segments than fit into a single slice
+                final int numSegments = randomIntBetween(6, 20);
+                for (int segment = 0; segment < numSegments; segment++) {
+                    final int numDocs = randomIntBetween(1, 50);
+                    for (int i = 0; i < numDocs; i++) {
+                        Document doc = new Document();
+                        final boolean match = randomBoolean();
+                        doc.add(new StringField("group", match ? "a" : "b", Field.Store.NO));
+                        doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 1000)));
+                        w.addDocument(doc);
+                        matches += match ? 1 : 0;
+                    }
+                    w.flush();
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                // a rejecting executor leaves all slices to the calling thread
+                final Executor executor = randomBoolean() ? executorService : command -> {
+                    throw new RejectedExecutionException();
+                };
+                ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                    IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true, executor);
+                assertTrue(searcher.hasConcurrentSlices());
+
+                final Query query = new TermQuery(new Term("group", "a"));
+                final Sort sort = new Sort(new SortedNumericSortField("rank", SortField.Type.INT));
+                final CollectorManager<TopFieldCollector, TopFieldDocs> manager =
+                    TopFieldCollector.createSharedManager(sort, 10, null, Integer.MAX_VALUE);
+                final List<TopFieldCollector> collectors = new ArrayList<>();
+                searcher.searchConcurrently(query, manager, collectors);
+                final TopFieldDocs concurrent = manager.reduce(collectors);
+                final TopFieldDocs sequential = searcher.search(query, 10, sort);
+                assertThat(concurrent.totalHits.value, equalTo((long) matches));
+                assertThat(concurrent.scoreDocs.length, equalTo(sequential.scoreDocs.length));
+                for (int i = 0; i < concurrent.scoreDocs.length; i++) {
+                    assertThat(((FieldDoc) concurrent.scoreDocs[i]).fields[0], equalTo(((FieldDoc) sequential.scoreDocs[i]).fields[0]));
+                }
+
+                // failures of a slice are rethrown once all slices completed, and the collectors are available for partial results
+                searcher.addQueryCancellation(() -> {
+                    throw new IllegalStateException("cancelled");
+                });
+                final List<TopFieldCollector> failedCollectors = new ArrayList<>();
+                IllegalStateException e = expectThrows(IllegalStateException.class,
+                    () -> searcher.searchConcurrently(query, manager, failedCollectors));
+                assertThat(e.getMessage(), equalTo("cancelled"));
+                assertThat(failedCollectors.size(), equalTo(collectors.size()));
+            }
+        } finally {
+            terminate(executorService);
+        }
+    }
+
+    private static void addTimestamp(IndexWriter w, long timestamp) throws IOException {
+        Document doc = new Document();
+        doc.add(new LongPoint("@timestamp", timestamp));
+        doc.add(new SortedNumericDocValuesField("@timestamp", timestamp));
+        w.addDocument(doc);
+    }
+
     public void doTestContextIndexSearcher(boolean sparse, boolean deletions) throws IOException {
         Directory dir = newDirectory();
         IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(null));
@@ -148,6 +148,9 @@ public class ShardSearchRequestTests extends AbstractSearchTestCase {
         assertEquals(orig.shardId(), copy.shardId());
         assertEquals(orig.numberOfShards(), copy.numberOfShards());
         assertEquals(orig.cacheKey(), copy.cacheKey());
+        long roundedNow = randomNonNegativeLong();
+        assertEquals(orig.cacheKey(roundedNow), copy.cacheKey(roundedNow));
+        assertNotEquals(orig.cacheKey(), copy.cacheKey(roundedNow));
         assertNotSame(orig, copy);
         assertEquals(orig.getAliasFilter(), copy.getAliasFilter());
         assertEquals(orig.indexBoost(), copy.indexBoost(), 0.0f);
@@ -15,6 +15,7 @@ import org.apache.lucene.document.LatLonDocValuesField;
 import org.apache.lucene.document.LatLonPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
@@ -47,6 +48,7 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHitCountCollector;
@@ -75,10 +77,14 @@ import org.elasticsearch.index.search.ESToParentBlockJoinQuery;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchSortValuesAndFormats;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.TestSearchContext;
 
@@ -783,6 +789,51 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testBottomSortValuesSkipNonCompetitiveHits() throws Exception {
+        final String fieldName = "rank";
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null));
+        final int numDocs = 100;
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new LongPoint(fieldName, i));
+            doc.add(new SortedNumericDocValuesField(fieldName, i));
+            writer.addDocument(doc);
+        }
+        writer.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+
+        final SearchExecutionContext searchExecutionContext = mock(SearchExecutionContext.class);
+        when(searchExecutionContext.getFieldType(fieldName))
+            .thenReturn(new NumberFieldMapper.NumberFieldType(fieldName, NumberFieldMapper.NumberType.LONG));
+        for (boolean canUsePoints : new boolean[] { true, false }) {
+            TestSearchContext context = new TestSearchContext(searchExecutionContext, indexShard, newContextSearcher(reader));
+            final SortField sortField = new SortedNumericSortField(fieldName, SortField.Type.LONG, true);
+            if (canUsePoints) {
+                sortField.setCanUsePoints();
+            }
+            context.sort(new SortAndFormats(new Sort(sortField), new DocValueFormat[] { DocValueFormat.RAW }));
+            context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+            context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+            context.setSize(10);
+            context.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_DISABLED);
+            context.request().source(new SearchSourceBuilder().sort(new FieldSortBuilder(fieldName).order(SortOrder.DESC)));
+            // other shards already returned enough hits that sort before 95
+            context.request().setBottomSortValues(new SearchSortValuesAndFormats(new Object[] { 95L },
+                new DocValueFormat[] { DocValueFormat.RAW }));
+            QueryPhase.executeInternal(context);
+            final ScoreDoc[] scoreDocs = context.queryResult().topDocs().topDocs.scoreDocs;
+            // hits that tie with the bottom are still competitive
+            assertThat(scoreDocs.length, equalTo(canUsePoints ? 5 : 10));
+            for (int i = 0; i < scoreDocs.length; i++) {
+                assertThat(((FieldDoc) scoreDocs[i]).fields[0], equalTo((long) (numDocs - 1 - i)));
+            }
+        }
+
+        reader.close();
+        dir.close();
+    }
+
     public void testIndexHasDuplicateData() throws IOException {
         int docsCount = 5000;
         int maxPointsInLeafNode = 40;
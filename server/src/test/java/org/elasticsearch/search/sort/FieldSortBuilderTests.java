@@ -22,6 +22,7 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.AssertingIndexSearcher;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.SortedNumericSelector;
@@ -359,6 +360,43 @@ public class FieldSortBuilderTests extends AbstractSortTestCase<FieldSortBuilder
         assertThat(error.getMessage(), equalTo("Field [custom-keyword] of type [keyword] does not support custom formats"));
     }
 
+    public void testCanUsePoints() throws IOException {
+        SearchExecutionContext searchExecutionContext = createMockSearchExecutionContext();
+        for (String fieldName : new String[] { "custom-long", "custom-double", "custom-float", "custom-date" }) {
+            SortFieldAndFormat sortAndFormat = SortBuilders.fieldSort(fieldName).order(randomFrom(SortOrder.values()))
+                .build(searchExecutionContext);
+            assertTrue(fieldName, sortAndFormat.field.getCanUsePoints());
+        }
+        for (String fieldName : new String[] { "custom-INT", "custom-half_float", "custom-keyword" }) {
+            SortFieldAndFormat sortAndFormat = SortBuilders.fieldSort(fieldName).build(searchExecutionContext);
+            assertFalse(fieldName, sortAndFormat.field.getCanUsePoints());
+        }
+        // the values are not read as they are indexed
+        assertFalse(SortBuilders.fieldSort("custom-long").setNumericType("double").build(searchExecutionContext).field.getCanUsePoints());
+        assertFalse(SortBuilders.fieldSort("custom-long").sortMode(SortMode.AVG).build(searchExecutionContext).field.getCanUsePoints());
+    }
+
+    public void testBottomSortFilter() {
+        SearchExecutionContext searchExecutionContext = createMockSearchExecutionContext();
+        SearchSortValuesAndFormats bottomSortValues =
+            new SearchSortValuesAndFormats(new Object[] { 10L }, new DocValueFormat[] { DocValueFormat.RAW });
+        FieldSortBuilder fieldSort = SortBuilders.fieldSort("custom-long");
+        assertNull(fieldSort.bottomSortFilterOrNull(searchExecutionContext, null));
+        assertThat(fieldSort.bottomSortFilterOrNull(searchExecutionContext, bottomSortValues),
+            equalTo(new IndexOrDocValuesQuery(LongPoint.newRangeQuery("custom-long", Long.MIN_VALUE, 10L),
+                SortedNumericDocValuesField.newSlowRangeQuery("custom-long", Long.MIN_VALUE, 10L))));
+        fieldSort.order(SortOrder.DESC);
+        assertThat(fieldSort.bottomSortFilterOrNull(searchExecutionContext, bottomSortValues),
+            equalTo(new IndexOrDocValuesQuery(LongPoint.newRangeQuery("custom-long", 10L, Long.MAX_VALUE),
+                SortedNumericDocValuesField.newSlowRangeQuery("custom-long", 10L, Long.MAX_VALUE))));
+        // documents without a value sort first and are always competitive
+        fieldSort.missing("_first");
+        assertNull(fieldSort.bottomSortFilterOrNull(searchExecutionContext, bottomSortValues));
+        fieldSort.missing(null);
+        fieldSort.setNestedSort(new NestedSortBuilder("empty"));
+        assertNull(fieldSort.bottomSortFilterOrNull(searchExecutionContext, bottomSortValues));
+    }
+
     @Override
     protected MappedFieldType provideMappedFieldType(String name) {
         if (name.equals(MAPPED_STRING_FIELDNAME)) {
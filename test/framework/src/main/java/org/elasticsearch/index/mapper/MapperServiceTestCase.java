@@ -25,6 +25,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
@@ -65,6 +66,7 @@ import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -482,6 +484,16 @@ public abstract class MapperServiceTestCase extends ESTestCase {
                 throw new UnsupportedOperationException();
             }
 
+            @Override
+            public BytesReference cachedShardResult(BytesReference key, CheckedConsumer<StreamOutput, IOException> loader) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Path tmpDir() {
+                throw new UnsupportedOperationException();
+            }
+
             @Override
             public void close() {
                 throw new UnsupportedOperationException();
@@ -119,13 +119,14 @@ public class MockNode extends Node {
     protected SearchService newSearchService(ClusterService clusterService, IndicesService indicesService,
                                              ThreadPool threadPool, ScriptService scriptService, BigArrays bigArrays,
                                              FetchPhase fetchPhase, ResponseCollectorService responseCollectorService,
-                                             CircuitBreakerService circuitBreakerService, ExecutorSelector executorSelector) {
+                                             CircuitBreakerService circuitBreakerService, ExecutorSelector executorSelector,
+                                             Path tmpDir) {
         if (getPluginsService().filterPlugins(MockSearchService.TestPlugin.class).isEmpty()) {
             return super.newSearchService(clusterService, indicesService, threadPool, scriptService, bigArrays, fetchPhase,
-                responseCollectorService, circuitBreakerService, executorSelector);
+                responseCollectorService, circuitBreakerService, executorSelector, tmpDir);
         }
         return new MockSearchService(clusterService, indicesService, threadPool, scriptService,
-            bigArrays, fetchPhase, responseCollectorService, circuitBreakerService, executorSelector);
+            bigArrays, fetchPhase, responseCollectorService, circuitBreakerService, executorSelector, tmpDir);
     }
 
     @Override
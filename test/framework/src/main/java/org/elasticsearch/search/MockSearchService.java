@@ -25,6 +25,7 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -73,9 +74,9 @@ public class MockSearchService extends SearchService {
     public MockSearchService(ClusterService clusterService, IndicesService indicesService, ThreadPool threadPool,
                              ScriptService scriptService, BigArrays bigArrays, FetchPhase fetchPhase,
                              ResponseCollectorService responseCollectorService, CircuitBreakerService circuitBreakerService,
-                             ExecutorSelector executorSelector) {
+                             ExecutorSelector executorSelector, Path tmpDir) {
         super(clusterService, indicesService, threadPool, scriptService, bigArrays, fetchPhase, responseCollectorService,
-            circuitBreakerService, executorSelector);
+            circuitBreakerService, executorSelector, tmpDir);
     }
 
     @Override
@@ -293,7 +293,9 @@ public abstract class AggregatorTestCase extends ESTestCase {
             () -> 0L,
             () -> false,
             q -> q,
-            true
+            true,
+            shardResultCache(),
+            createTempDir()
         );
         releasables.add(context);
         return context;
@@ -315,6 +317,14 @@ public abstract class AggregatorTestCase extends ESTestCase {
         return List.of();
     }
 
+    /**
+     * The cache of partial results of the shard that aggregations may load from. By default partial results
+     * aren't cached but tests of aggregations that use them can override this.
+     */
+    protected AggregationContext.ShardResultCache shardResultCache() {
+        return null;
+    }
+
     /**
      * Build a {@link SubSearchContext}s to power {@code top_hits}.
      */
@@ -467,16 +477,18 @@ public abstract class AggregatorTestCase extends ESTestCase {
             }
             for (ShardSearcher subSearcher : subSearchers) {
                 C a = createAggregator(builder, context);
-                a.preCollection();
+                BucketCollector collector = maybeCollectBatches(a);
+                collector.preCollection();
                 Weight weight = subSearcher.createWeight(rewritten, ScoreMode.COMPLETE, 1f);
-                subSearcher.search(weight, a);
-                a.postCollection();
+                subSearcher.search(weight, collector);
+                collector.postCollection();
                 aggs.add(a.buildTopLevel());
             }
         } else {
-            root.preCollection();
-            searcher.search(rewritten, MultiBucketCollector.wrap(true, List.of(root)));
-            root.postCollection();
+            BucketCollector collector = maybeCollectBatches(MultiBucketCollector.wrap(true, List.of(root)));
+            collector.preCollection();
+            searcher.search(rewritten, collector);
+            collector.postCollection();
             aggs.add(root.buildTopLevel());
         }
 
@@ -513,6 +525,17 @@ public abstract class AggregatorTestCase extends ESTestCase {
         return internalAgg;
     }
 
+    /**
+     * Randomly passes the matching documents on to the aggregators in batches like the aggregation phase does, so that their
+     * {@link LeafBucketCollector#collect(int[], int, long)} is tested as well.
+     */
+    private BucketCollector maybeCollectBatches(BucketCollector collector) {
+        if (collector.scoreMode().needsScores() == false && randomBoolean()) {
+            return new BatchingBucketCollector(collector);
+        }
+        return collector;
+    }
+
     protected void doAssertReducedMultiBucketConsumer(Aggregation agg, MultiBucketConsumerService.MultiBucketConsumer bucketConsumer) {
         InternalAggregationTestCase.assertMultiBucketConsumer(agg, bucketConsumer);
     }
@@ -9,12 +9,17 @@ package org.elasticsearch.xpack.analytics.multiterms;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -33,7 +38,9 @@ import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.DeferableBucketAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.bucket.terms.BytesKeyedBucketOrds;
+import org.elasticsearch.search.aggregations.bucket.terms.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregator;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregatorFactory;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -45,6 +52,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
@@ -71,7 +79,7 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
     private final boolean needsScore;
     private final List<InternalMultiTerms.KeyConverter> keyConverters;
 
-    private final BytesKeyedBucketOrds bucketOrds;
+    private final CollectionStrategy collectionStrategy;
 
     protected MultiTermsAggregator(
         String name,
@@ -109,8 +117,8 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
             .map(c -> context.getValuesSourceRegistry().getAggregator(REGISTRY_KEY, c).build(c))
             .collect(Collectors.toList());
         keyConverters = values.stream().map(TermValuesSource::keyConverter).collect(Collectors.toList());
-        bucketOrds = BytesKeyedBucketOrds.build(context.bigArrays(), cardinality);
-
+        CollectionStrategy globalOrds = globalOrdsCollectionStrategyOrNull(configs, context, cardinality);
+        collectionStrategy = globalOrds != null ? globalOrds : new BytesCollectionStrategy(cardinality);
     }
 
     private boolean subAggsNeedScore() {
@@ -184,40 +192,7 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
-        List<TermValues> termValuesList = termValuesList(ctx);
-
-        return new LeafBucketCollectorBase(sub, values) {
-            @Override
-            public void collect(int doc, long owningBucketOrd) throws IOException {
-                List<List<Object>> terms = docTerms(termValuesList, doc);
-                if (terms != null) {
-                    List<Object> path = new ArrayList<>(terms.size());
-                    new CheckedConsumer<Integer, IOException>() {
-                        @Override
-                        public void accept(Integer start) throws IOException {
-                            for (Object term : terms.get(start)) {
-                                if (start == path.size()) {
-                                    path.add(term);
-                                } else {
-                                    path.set(start, term);
-                                }
-                                if (start < terms.size() - 1) {
-                                    this.accept(start + 1);
-                                } else {
-                                    long bucketOrd = bucketOrds.add(owningBucketOrd, packKey(path));
-                                    if (bucketOrd < 0) { // already seen
-                                        bucketOrd = -1 - bucketOrd;
-                                        collectExistingBucket(sub, doc, bucketOrd);
-                                    } else {
-                                        collectBucket(sub, doc, bucketOrd);
-                                    }
-                                }
-                            }
-                        }
-                    }.accept(0);
-                }
-            }
-        };
+        return collectionStrategy.getLeafCollector(ctx, sub);
     }
 
     @Override
@@ -225,27 +200,24 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         InternalMultiTerms.Bucket[][] topBucketsPerOrd = new InternalMultiTerms.Bucket[owningBucketOrds.length][];
         long[] otherDocCounts = new long[owningBucketOrds.length];
         for (int ordIdx = 0; ordIdx < owningBucketOrds.length; ordIdx++) {
-            long bucketsInOrd = bucketOrds.bucketsInOrd(owningBucketOrds[ordIdx]);
+            long bucketsInOrd = collectionStrategy.bucketsInOrd(owningBucketOrds[ordIdx]);
 
             int size = (int) Math.min(bucketsInOrd, bucketCountThresholds.getShardSize());
             PriorityQueue<InternalMultiTerms.Bucket> ordered = new BucketPriorityQueue<>(size, partiallyBuiltBucketComparator);
             InternalMultiTerms.Bucket spare = null;
-            BytesRef spareKey = null;
-            BytesKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrds[ordIdx]);
-            while (ordsEnum.next()) {
-                long docCount = bucketDocCount(ordsEnum.ord());
+            BucketsEnum bucketsEnum = collectionStrategy.bucketsEnum(owningBucketOrds[ordIdx]);
+            while (bucketsEnum.next()) {
+                long docCount = bucketDocCount(bucketsEnum.ord());
                 otherDocCounts[ordIdx] += docCount;
                 if (docCount < bucketCountThresholds.getShardMinDocCount()) {
                     continue;
                 }
                 if (spare == null) {
-                    spare = new InternalMultiTerms.Bucket(null, 0, null, showTermDocCountError, 0, formats, keyConverters);
-                    spareKey = new BytesRef();
+                    spare = collectionStrategy.buildSpare();
                 }
-                ordsEnum.readValue(spareKey);
-                spare.terms = unpackTerms(spareKey);
+                bucketsEnum.readKey(spare);
                 spare.docCount = docCount;
-                spare.bucketOrd = ordsEnum.ord();
+                spare.bucketOrd = bucketsEnum.ord();
                 spare = ordered.insertWithOverflow(spare);
             }
 
@@ -253,7 +225,7 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
             InternalMultiTerms.Bucket[] bucketsForOrd = new InternalMultiTerms.Bucket[ordered.size()];
             topBucketsPerOrd[ordIdx] = bucketsForOrd;
             for (int b = ordered.size() - 1; b >= 0; --b) {
-                topBucketsPerOrd[ordIdx][b] = ordered.pop();
+                topBucketsPerOrd[ordIdx][b] = collectionStrategy.resolveTerms(ordered.pop());
                 otherDocCounts[ordIdx] -= topBucketsPerOrd[ordIdx][b].getDocCount();
             }
         }
@@ -311,6 +283,371 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         );
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("collection_strategy", collectionStrategy.describe());
+        add.accept("total_buckets", collectionStrategy.totalBuckets());
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(collectionStrategy);
+    }
+
+    /**
+     * Strategy for collecting the combinations of terms of the documents into buckets.
+     */
+    abstract class CollectionStrategy implements Releasable {
+        /**
+         * Short description of the collection mechanism added to the profile
+         * output to help with debugging.
+         */
+        abstract String describe();
+
+        /**
+         * Build the collector for a segment.
+         */
+        abstract LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException;
+
+        /**
+         * The number of buckets in an owning bucket.
+         */
+        abstract long bucketsInOrd(long owningBucketOrd);
+
+        /**
+         * The number of buckets in all owning buckets.
+         */
+        abstract long totalBuckets();
+
+        /**
+         * Iterates the buckets of an owning bucket.
+         */
+        abstract BucketsEnum bucketsEnum(long owningBucketOrd);
+
+        /**
+         * Build an empty bucket that {@link BucketsEnum#readKey} can read the key of a bucket into.
+         */
+        InternalMultiTerms.Bucket buildSpare() {
+            return new InternalMultiTerms.Bucket(null, 0, null, showTermDocCountError, 0, formats, keyConverters);
+        }
+
+        /**
+         * Convert a bucket that made it into the top buckets into a bucket of the result.
+         */
+        InternalMultiTerms.Bucket resolveTerms(InternalMultiTerms.Bucket bucket) throws IOException {
+            return bucket;
+        }
+
+        final void collectOrd(LeafBucketCollector sub, int doc, long bucketOrd) throws IOException {
+            if (bucketOrd < 0) { // already seen
+                bucketOrd = -1 - bucketOrd;
+                collectExistingBucket(sub, doc, bucketOrd);
+            } else {
+                collectBucket(sub, doc, bucketOrd);
+            }
+        }
+    }
+
+    /**
+     * Iterates the buckets of an owning bucket.
+     */
+    interface BucketsEnum {
+        /**
+         * Advance to the next bucket, returning {@code false} if there aren't any more buckets.
+         */
+        boolean next();
+
+        /**
+         * The ordinal of the current bucket.
+         */
+        long ord();
+
+        /**
+         * Read the key of the current bucket into a bucket built by {@link CollectionStrategy#buildSpare}, so that it can be
+         * compared with the keys of other buckets.
+         */
+        void readKey(InternalMultiTerms.Bucket spare) throws IOException;
+    }
+
+    /**
+     * Packs the terms of each combination into a {@link BytesRef} and hashes it. This supports all field types.
+     */
+    class BytesCollectionStrategy extends CollectionStrategy {
+        private final BytesKeyedBucketOrds bucketOrds;
+
+        BytesCollectionStrategy(CardinalityUpperBound cardinality) {
+            bucketOrds = BytesKeyedBucketOrds.build(bigArrays(), cardinality);
+        }
+
+        @Override
+        String describe() {
+            return "packed terms";
+        }
+
+        @Override
+        LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+            List<TermValues> termValuesList = termValuesList(ctx);
+
+            return new LeafBucketCollectorBase(sub, values) {
+                @Override
+                public void collect(int doc, long owningBucketOrd) throws IOException {
+                    List<List<Object>> terms = docTerms(termValuesList, doc);
+                    if (terms != null) {
+                        List<Object> path = new ArrayList<>(terms.size());
+                        new CheckedConsumer<Integer, IOException>() {
+                            @Override
+                            public void accept(Integer start) throws IOException {
+                                for (Object term : terms.get(start)) {
+                                    if (start == path.size()) {
+                                        path.add(term);
+                                    } else {
+                                        path.set(start, term);
+                                    }
+                                    if (start < terms.size() - 1) {
+                                        this.accept(start + 1);
+                                    } else {
+                                        collectOrd(sub, doc, bucketOrds.add(owningBucketOrd, packKey(path)));
+                                    }
+                                }
+                            }
+                        }.accept(0);
+                    }
+                }
+            };
+        }
+
+        @Override
+        long bucketsInOrd(long owningBucketOrd) {
+            return bucketOrds.bucketsInOrd(owningBucketOrd);
+        }
+
+        @Override
+        long totalBuckets() {
+            return bucketOrds.size();
+        }
+
+        @Override
+        BucketsEnum bucketsEnum(long owningBucketOrd) {
+            BytesKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrd);
+            BytesRef key = new BytesRef();
+            return new BucketsEnum() {
+                @Override
+                public boolean next() {
+                    return ordsEnum.next();
+                }
+
+                @Override
+                public long ord() {
+                    return ordsEnum.ord();
+                }
+
+                @Override
+                public void readKey(InternalMultiTerms.Bucket spare) {
+                    ordsEnum.readValue(key);
+                    spare.terms = unpackTerms(key);
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(bucketOrds);
+        }
+    }
+
+    /**
+     * Build a {@link GlobalOrdsCollectionStrategy} or return {@code null} if the terms can't be collected by their global ordinals.
+     */
+    private CollectionStrategy globalOrdsCollectionStrategyOrNull(
+        List<ValuesSourceConfig> configs,
+        AggregationContext context,
+        CardinalityUpperBound cardinality
+    ) throws IOException {
+        List<ValuesSource.Bytes.WithOrdinals> valuesSources = new ArrayList<>(configs.size());
+        int[] bits = new int[configs.size()];
+        int totalBits = 0;
+        for (int i = 0; i < configs.size(); i++) {
+            ValuesSource valuesSource = configs.get(i).getValuesSource();
+            if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
+                return null;
+            }
+            ValuesSource.Bytes.WithOrdinals withOrdinals = (ValuesSource.Bytes.WithOrdinals) valuesSource;
+            valuesSources.add(withOrdinals);
+            bits[i] = PackedInts.bitsRequired(Math.max(0, withOrdinals.globalMaxOrd(context.searcher()) - 1));
+            totalBits += bits[i];
+        }
+        if (totalBits >= Long.SIZE) {
+            return null;
+        }
+        SortedSetDocValues[] lookups = new SortedSetDocValues[valuesSources.size()];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = TermsAggregatorFactory.globalOrdsValues(context, valuesSources.get(i));
+        }
+        return new GlobalOrdsCollectionStrategy(valuesSources, lookups, bits, cardinality);
+    }
+
+    /**
+     * Packs the global ordinals of the terms of each combination into a {@code long} and hashes it. This is only possible if
+     * all fields have global ordinals and the global ordinals of all fields fit into a {@code long} together. The terms are only
+     * looked up for the top buckets, the candidates are compared by their packed global ordinals, see {@link PackedOrdsBucket}.
+     */
+    class GlobalOrdsCollectionStrategy extends CollectionStrategy {
+        private final List<ValuesSource.Bytes.WithOrdinals> valuesSources;
+        private final SortedSetDocValues[] lookups;
+        // the global ordinal of field i is stored in the bits [shifts[i], shifts[i] + bits[i]) of the packed key
+        private final int[] shifts;
+        private final long[] masks;
+        private final LongKeyedBucketOrds bucketOrds;
+
+        GlobalOrdsCollectionStrategy(
+            List<ValuesSource.Bytes.WithOrdinals> valuesSources,
+            SortedSetDocValues[] lookups,
+            int[] bits,
+            CardinalityUpperBound cardinality
+        ) {
+            this.valuesSources = valuesSources;
+            this.lookups = lookups;
+            this.shifts = new int[bits.length];
+            this.masks = new long[bits.length];
+            int shift = 0;
+            for (int i = bits.length - 1; i >= 0; i--) {
+                shifts[i] = shift;
+                masks[i] = (1L << bits[i]) - 1;
+                shift += bits[i];
+            }
+            this.bucketOrds = LongKeyedBucketOrds.build(bigArrays(), cardinality);
+        }
+
+        @Override
+        String describe() {
+            return "packed global ordinals";
+        }
+
+        @Override
+        LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+            SortedSetDocValues[] globalOrds = new SortedSetDocValues[valuesSources.size()];
+            for (int i = 0; i < globalOrds.length; i++) {
+                globalOrds[i] = valuesSources.get(i).globalOrdinalsValues(ctx);
+            }
+            long[][] docOrds = new long[globalOrds.length][1];
+            int[] docOrdCounts = new int[globalOrds.length];
+            return new LeafBucketCollectorBase(sub, null) {
+                @Override
+                public void collect(int doc, long owningBucketOrd) throws IOException {
+                    for (int i = 0; i < globalOrds.length; i++) {
+                        if (false == globalOrds[i].advanceExact(doc)) {
+                            return;
+                        }
+                        int count = 0;
+                        for (long ord = globalOrds[i].nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = globalOrds[i].nextOrd()) {
+                            if (count == docOrds[i].length) {
+                                docOrds[i] = ArrayUtil.grow(docOrds[i], count + 1);
+                            }
+                            docOrds[i][count++] = ord;
+                        }
+                        docOrdCounts[i] = count;
+                    }
+                    collectCombinations(sub, doc, owningBucketOrd, 0, 0L);
+                }
+
+                /**
+                 * Collects all combinations of the global ordinals of the fields starting at {@code field} into the buckets.
+                 */
+                private void collectCombinations(LeafBucketCollector sub, int doc, long owningBucketOrd, int field, long key)
+                    throws IOException {
+                    for (int i = 0; i < docOrdCounts[field]; i++) {
+                        long fieldKey = key | (docOrds[field][i] << shifts[field]);
+                        if (field < docOrds.length - 1) {
+                            collectCombinations(sub, doc, owningBucketOrd, field + 1, fieldKey);
+                        } else {
+                            collectOrd(sub, doc, bucketOrds.add(owningBucketOrd, fieldKey));
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        long bucketsInOrd(long owningBucketOrd) {
+            return bucketOrds.bucketsInOrd(owningBucketOrd);
+        }
+
+        @Override
+        long totalBuckets() {
+            return bucketOrds.size();
+        }
+
+        @Override
+        BucketsEnum bucketsEnum(long owningBucketOrd) {
+            LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrd);
+            return new BucketsEnum() {
+                @Override
+                public boolean next() {
+                    return ordsEnum.next();
+                }
+
+                @Override
+                public long ord() {
+                    return ordsEnum.ord();
+                }
+
+                @Override
+                public void readKey(InternalMultiTerms.Bucket spare) {
+                    ((PackedOrdsBucket) spare).packedOrds = ordsEnum.value();
+                }
+            };
+        }
+
+        @Override
+        InternalMultiTerms.Bucket buildSpare() {
+            return new PackedOrdsBucket(showTermDocCountError, formats, keyConverters);
+        }
+
+        @Override
+        InternalMultiTerms.Bucket resolveTerms(InternalMultiTerms.Bucket bucket) throws IOException {
+            long key = ((PackedOrdsBucket) bucket).packedOrds;
+            List<Object> terms = new ArrayList<>(lookups.length);
+            for (int i = 0; i < lookups.length; i++) {
+                terms.add(BytesRef.deepCopyOf(lookups[i].lookupOrd((key >>> shifts[i]) & masks[i])));
+            }
+            InternalMultiTerms.Bucket result = new InternalMultiTerms.Bucket(
+                terms,
+                bucket.docCount,
+                null,
+                showTermDocCountError,
+                0,
+                formats,
+                keyConverters
+            );
+            result.bucketOrd = bucket.bucketOrd;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(bucketOrds);
+        }
+    }
+
+    /**
+     * A candidate for the top buckets whose terms aren't looked up yet. Comparing the packed global ordinals is the same as
+     * comparing the terms: the global ordinals of a field are in the order of its terms and the fields are packed in order,
+     * the first field in the highest bits.
+     */
+    static class PackedOrdsBucket extends InternalMultiTerms.Bucket {
+        long packedOrds;
+
+        PackedOrdsBucket(boolean showDocCountError, List<DocValueFormat> formats, List<InternalMultiTerms.KeyConverter> keyConverters) {
+            super(null, 0, null, showDocCountError, 0, formats, keyConverters);
+        }
+
+        @Override
+        public int compareKey(InternalMultiTerms.Bucket other) {
+            return Long.compare(packedOrds, ((PackedOrdsBucket) other).packedOrds);
+        }
+    }
+
     static TermValuesSource buildNumericTermValues(ValuesSourceConfig config) {
         final ValuesSource.Numeric vs = (ValuesSource.Numeric) config.getValuesSource();
         if (vs.isFloatingPoint()) {
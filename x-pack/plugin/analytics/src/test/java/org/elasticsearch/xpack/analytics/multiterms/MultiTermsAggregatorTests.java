@@ -62,6 +62,7 @@ import static org.elasticsearch.xpack.analytics.multiterms.MultiTermsAggregation
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasSize;
 
 public class MultiTermsAggregatorTests extends AggregatorTestCase {
@@ -75,6 +76,7 @@ public class MultiTermsAggregatorTests extends AggregatorTestCase {
     public static final String INT_FIELD = "iVal";
     public static final String FLOAT_FIELD = "fVal";
     public static final String KEYWORD_FIELD = "kVal";
+    public static final String OTHER_KEYWORD_FIELD = "okVal";
 
     @Override
     protected AggregationBuilder createAggBuilderForTypeTest(MappedFieldType fieldType, String fieldName) {
@@ -563,6 +565,92 @@ public class MultiTermsAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testGlobalOrdinals() throws IOException {
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> {
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new SortedSetDocValuesField(OTHER_KEYWORD_FIELD, new BytesRef("x"))
+                )
+            );
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new SortedSetDocValuesField(OTHER_KEYWORD_FIELD, new BytesRef("x"))
+                )
+            );
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("b")),
+                    new SortedSetDocValuesField(OTHER_KEYWORD_FIELD, new BytesRef("y"))
+                )
+            );
+            iw.addDocument(List.of(new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("b"))));
+        };
+        testCase(new MatchAllDocsQuery(), new String[] { KEYWORD_FIELD, OTHER_KEYWORD_FIELD }, null, buildIndex, h -> {
+            assertThat(h.getBuckets(), hasSize(3));
+            assertThat(h.getBuckets().get(0).getKey(), contains(equalTo("a"), equalTo("x")));
+            assertThat(h.getBuckets().get(0).getDocCount(), equalTo(2L));
+            assertThat(h.getBuckets().get(1).getKey(), contains(equalTo("a"), equalTo("y")));
+            assertThat(h.getBuckets().get(1).getDocCount(), equalTo(1L));
+            assertThat(h.getBuckets().get(2).getKey(), contains(equalTo("b"), equalTo("y")));
+            assertThat(h.getBuckets().get(2).getDocCount(), equalTo(1L));
+        });
+
+        // the top buckets are selected by their packed global ordinals, which are in the order of their terms
+        testCase(
+            new MatchAllDocsQuery(),
+            new String[] { KEYWORD_FIELD, OTHER_KEYWORD_FIELD },
+            b -> b.order(BucketOrder.key(false)).size(2).shardSize(2),
+            buildIndex,
+            h -> {
+                assertThat(h.getBuckets(), hasSize(2));
+                assertThat(h.getBuckets().get(0).getKey(), contains(equalTo("b"), equalTo("y")));
+                assertThat(h.getBuckets().get(1).getKey(), contains(equalTo("a"), equalTo("y")));
+            }
+        );
+        testCase(
+            new MatchAllDocsQuery(),
+            new String[] { KEYWORD_FIELD, OTHER_KEYWORD_FIELD },
+            b -> b.order(List.of(BucketOrder.count(true), BucketOrder.key(true))).size(1).shardSize(1),
+            buildIndex,
+            h -> {
+                assertThat(h.getBuckets(), hasSize(1));
+                assertThat(h.getBuckets().get(0).getKey(), contains(equalTo("a"), equalTo("y")));
+                assertThat(h.getBuckets().get(0).getDocCount(), equalTo(1L));
+            }
+        );
+
+        MappedFieldType keywordType = new KeywordFieldMapper.KeywordFieldType(KEYWORD_FIELD);
+        MappedFieldType otherKeywordType = new KeywordFieldMapper.KeywordFieldType(OTHER_KEYWORD_FIELD);
+        MappedFieldType intType = new NumberFieldMapper.NumberFieldType(INT_FIELD, NumberFieldMapper.NumberType.INTEGER);
+        MultiTermsAggregationBuilder keywords = new MultiTermsAggregationBuilder("my_terms").terms(
+            List.of(
+                new MultiValuesSourceFieldConfig.Builder().setFieldName(KEYWORD_FIELD).build(),
+                new MultiValuesSourceFieldConfig.Builder().setFieldName(OTHER_KEYWORD_FIELD).build()
+            )
+        );
+        withAggregator(keywords, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            Map<String, Object> info = new HashMap<>();
+            aggregator.collectDebugInfo(info::put);
+            assertThat(info, hasEntry("collection_strategy", "packed global ordinals"));
+        }, keywordType, otherKeywordType);
+
+        // numbers don't have global ordinals
+        MultiTermsAggregationBuilder mixed = new MultiTermsAggregationBuilder("my_terms").terms(
+            List.of(
+                new MultiValuesSourceFieldConfig.Builder().setFieldName(KEYWORD_FIELD).build(),
+                new MultiValuesSourceFieldConfig.Builder().setFieldName(INT_FIELD).build()
+            )
+        );
+        withAggregator(mixed, new MatchAllDocsQuery(), buildIndex, (searcher, aggregator) -> {
+            Map<String, Object> info = new HashMap<>();
+            aggregator.collectDebugInfo(info::put);
+            assertThat(info, hasEntry("collection_strategy", "packed terms"));
+        }, keywordType, intType);
+    }
+
     public void testNoTerms() {
         for (List<MultiValuesSourceFieldConfig> terms : Arrays.<List<MultiValuesSourceFieldConfig>>asList(
             Collections.singletonList(randomTermConfig()),
@@ -618,6 +706,7 @@ public class MultiTermsAggregatorTests extends AggregatorTestCase {
         MappedFieldType intType = new NumberFieldMapper.NumberFieldType(INT_FIELD, NumberFieldMapper.NumberType.INTEGER);
         MappedFieldType floatType = new NumberFieldMapper.NumberFieldType(FLOAT_FIELD, NumberFieldMapper.NumberType.FLOAT);
         MappedFieldType keywordType = new KeywordFieldMapper.KeywordFieldType(KEYWORD_FIELD);
+        MappedFieldType otherKeywordType = new KeywordFieldMapper.KeywordFieldType(OTHER_KEYWORD_FIELD);
         MultiTermsAggregationBuilder builder = new MultiTermsAggregationBuilder("my_terms");
         builder.terms(terms);
         if (builderSetup != null) {
@@ -634,7 +723,7 @@ public class MultiTermsAggregatorTests extends AggregatorTestCase {
                 builder.size(randomIntBetween(10, 200));
             }
         }
-        testCase(builder, query, buildIndex, verify, dateType, intType, floatType, keywordType);
+        testCase(builder, query, buildIndex, verify, dateType, intType, floatType, keywordType, otherKeywordType);
     }
 
     @Override